@@ -0,0 +1,43 @@
+package it.water.connectors.jobscheduler.api;
+
+import org.quartz.Job;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Quartz job whose work completes asynchronously, e.g. non-blocking I/O.
+ * The worker thread only starts the task and is released as soon as the returned stage is obtained: the
+ * JobScheduler listeners, metrics and group budgets see the execution as running until the stage completes,
+ * and as failed if it completes exceptionally.
+ * A WaterJob becomes asynchronous by using a job class implementing this interface in its JobDetail.
+ * <p>
+ * Fires of jobs annotated with {@link org.quartz.DisallowConcurrentExecution} are vetoed while a previous
+ * execution is still completing. Listeners registered directly on the Quartz scheduler are notified when
+ * the worker is released, not when the stage completes.
+ */
+public interface AsyncJob extends Job {
+    /**
+     * Execution context key holding the completion stage of the running execution
+     */
+    String COMPLETION_KEY = "it.water.connectors.jobscheduler.async.completion";
+
+    /**
+     * Starts the job task
+     * @param context execution context, it can be used until the returned stage completes
+     * @return stage completed when the task ends, its value is set as the execution result
+     * @throws JobExecutionException if the task cannot be started
+     */
+    CompletionStage<?> executeAsync(JobExecutionContext context) throws JobExecutionException;
+
+    /**
+     * Starts the task and hands its completion stage to the scheduler, without waiting for it.
+     */
+    @Override
+    default void execute(JobExecutionContext context) throws JobExecutionException {
+        CompletionStage<?> completion = executeAsync(context);
+        context.put(COMPLETION_KEY, completion != null ? completion : CompletableFuture.completedFuture(null));
+    }
+}
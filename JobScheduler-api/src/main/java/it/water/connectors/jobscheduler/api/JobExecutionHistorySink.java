@@ -0,0 +1,21 @@
+package it.water.connectors.jobscheduler.api;
+
+import it.water.connectors.jobscheduler.model.JobExecutionRecord;
+
+import java.util.List;
+
+/**
+ * Persistent storage of the job execution history.
+ * Sinks are invoked by a dedicated thread with batches of records, never by the threads running the jobs.
+ */
+public interface JobExecutionHistorySink {
+
+    /**
+     * Stores a batch of executions
+     * @param records executions, oldest first
+     * @throws Exception if the batch could not be stored, the batch is discarded
+     */
+    @SuppressWarnings("java:S112")
+    void store(List<JobExecutionRecord> records) throws Exception;
+
+}
@@ -1,7 +1,15 @@
 package it.water.connectors.jobscheduler.api;
 
+import it.water.connectors.jobscheduler.model.JobExecutionPage;
+import it.water.connectors.jobscheduler.model.JobFireHistogram;
+import it.water.connectors.jobscheduler.model.JobListQuery;
+import it.water.connectors.jobscheduler.model.JobSchedulerMetricsSnapshot;
+import it.water.connectors.jobscheduler.model.JobSchedulerReadiness;
+import it.water.connectors.jobscheduler.model.JobSummary;
 import it.water.core.api.service.BaseApi;
 
+import java.util.function.Consumer;
+
 /**
  * @Generated by Water Generator
  * This interface defines the externally exposed methods and allows interaction with them through a permission system.
@@ -9,4 +17,42 @@ import it.water.core.api.service.BaseApi;
  */
 public interface JobSchedulerApi extends BaseApi {
 
-}
\ No newline at end of file
+    /**
+     * This method returns a snapshot of the scheduler metrics collected on this node
+     * @return scheduler metrics
+     */
+    JobSchedulerMetricsSnapshot getMetrics();
+
+    /**
+     * This method returns the state of the scheduler initialization on this node
+     * @return scheduler readiness
+     */
+    JobSchedulerReadiness getReadiness();
+
+    /**
+     * This method counts, second by second, the fires scheduled from now on by the triggers of the scheduler
+     * @param horizonSeconds width of the window in seconds, capped to one day
+     * @return number of fires by second
+     */
+    JobFireHistogram getFireHistogram(int horizonSeconds);
+
+    /**
+     * This method returns the executions recorded by this node, newest first
+     * @param jobGroup job group filter, null for every group
+     * @param jobName job name filter, null for every name
+     * @param cursor next cursor returned by the previous page, null for the first page
+     * @param limit maximum number of executions
+     * @return page of executions
+     */
+    JobExecutionPage getExecutionHistory(String jobGroup, String jobName, Long cursor, int limit);
+
+    /**
+     * This method lists the jobs registered on the scheduler by group and name, passing them to the consumer
+     * as they are read so that pages are never fully held in memory
+     * @param query filters, cursor and size of the page
+     * @param consumer receives the jobs of the page, in order
+     * @return cursor of the next page, null if there are no more jobs
+     */
+    String listJobs(JobListQuery query, Consumer<JobSummary> consumer);
+
+}
@@ -1,9 +1,34 @@
 package it.water.connectors.jobscheduler.api;
 
+import it.water.connectors.jobscheduler.model.JobListQuery;
+import it.water.connectors.jobscheduler.model.JobSummary;
+
+import java.util.Properties;
+import java.util.function.Consumer;
+
 /**
  * Repository interface for JobScheduler.
- * Used only for Quartz table initialization.
+ * Used for Quartz table initialization and for the queries on the Quartz JDBC job store
+ * which cannot be performed efficiently through the Quartz scheduler API.
  */
 public interface JobSchedulerRepository {
     void createQuartzTableIfNotExists(String initScriptFilePath);
+
+    /**
+     * Creates the Quartz tables on the data source configured in the given Quartz properties,
+     * unless the same script has already been applied to it.
+     * @param initScriptFilePath path of the SQL script, null to use the default one
+     * @param quartzProperties Quartz properties with the org.quartz.dataSource configuration
+     */
+    void createQuartzTableIfNotExists(String initScriptFilePath, Properties quartzProperties);
+
+    /**
+     * Lists the jobs of the Quartz JDBC job store with a keyset query ordered by job group and name.
+     * @param quartzProperties Quartz properties with the org.quartz.dataSource configuration
+     * @param schedulerName name of the scheduler owning the jobs
+     * @param query filters and position of the listing
+     * @param consumer receives the jobs of the page, in order
+     * @return cursor of the next page, null if there are no more jobs
+     */
+    String findJobs(Properties quartzProperties, String schedulerName, JobListQuery query, Consumer<JobSummary> consumer);
 }
@@ -1,6 +1,21 @@
 package it.water.connectors.jobscheduler.api;
 
+import it.water.connectors.jobscheduler.model.JobBatchReport;
+import it.water.connectors.jobscheduler.model.JobExecutionPage;
+import it.water.connectors.jobscheduler.model.JobFireHistogram;
+import it.water.connectors.jobscheduler.model.JobListQuery;
+import it.water.connectors.jobscheduler.model.JobSchedulerMetricsSnapshot;
+import it.water.connectors.jobscheduler.model.JobSchedulerReadiness;
+import it.water.connectors.jobscheduler.model.JobSummary;
 import it.water.core.api.service.BaseSystemApi;
+import org.quartz.JobKey;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 
 /**
  *
@@ -28,4 +43,127 @@ public interface JobSchedulerSystemApi extends BaseSystemApi {
      */
     void updateJob(WaterJob job);
 
-}
\ No newline at end of file
+    /**
+     * This method adds a batch of jobs with a single scheduler store operation.
+     * Jobs which already exist are skipped.
+     * @param jobs Jobs to be scheduled
+     * @return outcome of every job of the batch
+     */
+    JobBatchReport addJobs(Collection<WaterJob> jobs);
+
+    /**
+     * This method updates a batch of jobs with a single scheduler store operation.
+     * Jobs which do not exist are skipped.
+     * @param jobs Jobs to be updated
+     * @return outcome of every job of the batch
+     */
+    JobBatchReport updateJobs(Collection<WaterJob> jobs);
+
+    /**
+     * This method removes a batch of jobs with a single scheduler store operation.
+     * Jobs which do not exist are skipped.
+     * @param jobs Jobs to be removed
+     * @return outcome of every job of the batch
+     */
+    JobBatchReport deleteJobs(Collection<WaterJob> jobs);
+
+    /**
+     * This method returns the time spent by this node to start firing jobs the last time it became leader,
+     * measured from the leadership notification to the scheduler start
+     * @return takeover latency in milliseconds, -1 if this node has never taken over the leadership
+     */
+    long getLastTakeoverLatencyMillis();
+
+    /**
+     * This method returns a snapshot of the scheduler metrics collected on this node
+     * @return scheduler metrics
+     */
+    JobSchedulerMetricsSnapshot getMetrics();
+
+    /**
+     * This method returns the next fire times of a cron expression, in the scheduler time zone
+     * @param cronExpression cron expression
+     * @param count number of fire times
+     * @return next fire times after now, fewer than count if the expression stops firing
+     */
+    List<Date> getNextFireTimes(String cronExpression, int count);
+
+    /**
+     * This method counts, second by second, the fires scheduled from now on by the triggers of the scheduler,
+     * so that the effect of the cron smear can be checked
+     * @param horizonSeconds width of the window in seconds, capped to one day
+     * @return number of fires by second
+     */
+    JobFireHistogram getFireHistogram(int horizonSeconds);
+
+    /**
+     * This method returns the executions recorded by this node, newest first
+     * @param jobGroup job group filter, null for every group
+     * @param jobName job name filter, null for every name
+     * @param cursor next cursor returned by the previous page, null for the first page
+     * @param limit maximum number of executions
+     * @return page of executions
+     */
+    JobExecutionPage getExecutionHistory(String jobGroup, String jobName, Long cursor, int limit);
+
+    /**
+     * This method sets the sink storing the executions recorded by this node, replacing the previous one
+     * @param sink persistent storage of the executions, null to stop persisting them
+     */
+    void setExecutionHistorySink(JobExecutionHistorySink sink);
+
+    /**
+     * This method lists the jobs registered on the scheduler by group and name, passing them to the consumer
+     * as they are read so that pages are never fully held in memory
+     * @param query filters, cursor and size of the page
+     * @param consumer receives the jobs of the page, in order
+     * @return cursor of the next page, null if there are no more jobs
+     */
+    String listJobs(JobListQuery query, Consumer<JobSummary> consumer);
+
+    /**
+     * This method declares the jobs a job depends on: the job is fired as soon as all of them have completed
+     * successfully, replacing the previous dependencies of the job. Dependencies are kept by this node, so they are
+     * refused on clustered job stores and in sharded mode, where the jobs may run on different nodes.
+     * @param jobKey dependent job
+     * @param upstreamJobKeys jobs which must complete before the dependent job is fired, empty to remove the dependencies
+     */
+    void setJobDependencies(JobKey jobKey, Collection<JobKey> upstreamJobKeys);
+
+    /**
+     * This method returns the jobs a job depends on
+     * @param jobKey dependent job
+     * @return upstream jobs, empty if the job has no dependencies
+     */
+    Set<JobKey> getJobDependencies(JobKey jobKey);
+
+    /**
+     * This method runs a job on an event: the events fired for the same job within the coalescing window
+     * are merged into a single run, and at most one run of the job is pending until it completes
+     * @param jobKey job to run
+     * @param payload event data, merged into the job data of the run, null if the event has no data
+     */
+    void fire(JobKey jobKey, Map<String, Object> payload);
+
+    /**
+     * This method changes the number of workers of the scheduler without restarting it.
+     * With the adaptive pool, the size is kept within the configured bounds and adjusted from there.
+     * @param size number of workers
+     * @return number of workers set
+     */
+    int resizeThreadPool(int size);
+
+    /**
+     * This method returns the state of the scheduler initialization, jobs added while it is starting are queued
+     * @return readiness of the scheduler on this node
+     */
+    JobSchedulerReadiness getReadiness();
+
+    /**
+     * This method waits for the scheduler initialization to complete
+     * @param timeoutMillis maximum time to wait
+     * @return true if the scheduler is ready, false if it failed or is still starting after the timeout
+     */
+    boolean awaitReady(long timeoutMillis);
+
+}
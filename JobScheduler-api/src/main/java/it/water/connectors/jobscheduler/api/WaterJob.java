@@ -1,5 +1,6 @@
 package it.water.connectors.jobscheduler.api;
 
+import it.water.connectors.jobscheduler.model.JobMisfirePolicy;
 import org.quartz.JobDetail;
 import org.quartz.JobKey;
 
@@ -47,4 +48,12 @@ public interface WaterJob {
      */
     boolean isActive();
 
+    /**
+     * It tells what to do with the fires missed by this job
+     * @return misfire policy, fire once by default
+     */
+    default JobMisfirePolicy getMisfirePolicy() {
+        return JobMisfirePolicy.FIRE_ONCE;
+    }
+
 }
@@ -1,11 +1,23 @@
 package it.water.connectors.jobscheduler.api.rest;
 
 import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiResponse;
+import io.swagger.annotations.ApiResponses;
+import it.water.connectors.jobscheduler.model.JobExecutionPage;
+import it.water.connectors.jobscheduler.model.JobFireHistogram;
+import it.water.connectors.jobscheduler.model.JobSchedulerMetricsSnapshot;
 import it.water.core.api.service.rest.FrameworkRestApi;
 import it.water.core.api.service.rest.RestApi;
+import it.water.service.rest.api.security.LoggedIn;
 
+import javax.ws.rs.DefaultValue;
+import javax.ws.rs.GET;
 import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
 
 /**
  * @Generated by Water Generator
@@ -18,4 +30,69 @@ import javax.ws.rs.core.MediaType;
 @FrameworkRestApi
 public interface JobSchedulerRestApi extends RestApi {
 
+    @LoggedIn
+    @GET
+    @Path("/metrics")
+    @Produces(MediaType.APPLICATION_JSON)
+    @ApiOperation(value = "/metrics", notes = "JobScheduler Metrics API", httpMethod = "GET", produces = MediaType.APPLICATION_JSON)
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Successful operation"),
+            @ApiResponse(code = 401, message = "Not logged in"),
+            @ApiResponse(code = 500, message = "Internal server error")
+    })
+    JobSchedulerMetricsSnapshot getMetrics();
+
+    // not restricted to logged users, so that container readiness probes can call it
+    @GET
+    @Path("/readiness")
+    @Produces(MediaType.APPLICATION_JSON)
+    @ApiOperation(value = "/readiness", notes = "JobScheduler readiness API, answers 503 until the scheduler has been initialized", httpMethod = "GET", produces = MediaType.APPLICATION_JSON)
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Scheduler ready"),
+            @ApiResponse(code = 503, message = "Scheduler starting, stopped or failed"),
+            @ApiResponse(code = 500, message = "Internal server error")
+    })
+    Response getReadiness();
+
+    @LoggedIn
+    @GET
+    @Path("/fireHistogram")
+    @Produces(MediaType.APPLICATION_JSON)
+    @ApiOperation(value = "/fireHistogram", notes = "JobScheduler scheduled fires by second API", httpMethod = "GET", produces = MediaType.APPLICATION_JSON)
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Successful operation"),
+            @ApiResponse(code = 401, message = "Not logged in"),
+            @ApiResponse(code = 500, message = "Internal server error")
+    })
+    JobFireHistogram getFireHistogram(@QueryParam("horizon") @DefaultValue("3600") int horizonSeconds);
+
+    @LoggedIn
+    @GET
+    @Path("/executions")
+    @Produces(MediaType.APPLICATION_JSON)
+    @ApiOperation(value = "/executions", notes = "JobScheduler execution history API, newest executions first", httpMethod = "GET", produces = MediaType.APPLICATION_JSON)
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Successful operation"),
+            @ApiResponse(code = 401, message = "Not logged in"),
+            @ApiResponse(code = 500, message = "Internal server error")
+    })
+    JobExecutionPage getExecutionHistory(@QueryParam("group") String jobGroup, @QueryParam("name") String jobName,
+                                         @QueryParam("cursor") Long cursor, @QueryParam("limit") @DefaultValue("100") int limit);
+
+    @LoggedIn
+    @GET
+    @Path("/jobs")
+    @Produces(MediaType.APPLICATION_JSON)
+    @ApiOperation(value = "/jobs", notes = "JobScheduler jobs list API, ordered by group and name and paginated through the returned nextCursor", httpMethod = "GET", produces = MediaType.APPLICATION_JSON)
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Successful operation"),
+            @ApiResponse(code = 400, message = "Invalid state, cursor or limit"),
+            @ApiResponse(code = 401, message = "Not logged in"),
+            @ApiResponse(code = 500, message = "Internal server error"),
+            @ApiResponse(code = 503, message = "Scheduler is not ready")
+    })
+    Response getJobs(@QueryParam("group") String jobGroup, @QueryParam("state") String triggerState,
+                     @QueryParam("nextFireBefore") Long nextFireTimeBefore, @QueryParam("cursor") String cursor,
+                     @QueryParam("limit") @DefaultValue("100") int limit);
+
 }
@@ -0,0 +1,61 @@
+package it.water.connectors.jobscheduler.benchmarks;
+
+import it.water.connectors.jobscheduler.api.WaterJob;
+import org.quartz.Job;
+import org.quartz.JobBuilder;
+import org.quartz.JobDetail;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobKey;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * WaterJob used by benchmarks, its Quartz job does nothing.
+ */
+public class BenchmarkJob implements WaterJob {
+    private final JobDetail jobDetail;
+    private final String cronExpression;
+
+    public BenchmarkJob(String name, String group, String cronExpression) {
+        this.jobDetail = JobBuilder.newJob(NoOpJob.class).withIdentity(name, group).storeDurably().build();
+        this.cronExpression = cronExpression;
+    }
+
+    @Override
+    public String getClassName() {
+        return NoOpJob.class.getName();
+    }
+
+    @Override
+    public String getCronExpression() {
+        return cronExpression;
+    }
+
+    @Override
+    public JobDetail getJobDetail() {
+        return jobDetail;
+    }
+
+    @Override
+    public JobKey getJobKey() {
+        return jobDetail.getKey();
+    }
+
+    @Override
+    public Map<String, Object> getJobParams() {
+        return Collections.emptyMap();
+    }
+
+    @Override
+    public boolean isActive() {
+        return true;
+    }
+
+    public static class NoOpJob implements Job {
+        @Override
+        public void execute(JobExecutionContext context) {
+            // benchmark job, nothing to do
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package it.water.connectors.jobscheduler.benchmarks;
+
+import it.water.connectors.jobscheduler.api.JobSchedulerRepository;
+import it.water.connectors.jobscheduler.service.JobSchedulerLeadershipRegistrar;
+import it.water.connectors.jobscheduler.service.JobSchedulerRepositoryImpl;
+import it.water.connectors.jobscheduler.service.JobSchedulerSystemServiceImpl;
+import it.water.connectors.zookeeper.api.ZookeeperConnectorSystemApi;
+import it.water.core.api.bundle.ApplicationProperties;
+import org.mockito.Mockito;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.quartz.impl.StdSchedulerFactory;
+
+import java.util.Properties;
+import java.util.UUID;
+
+/**
+ * Builds JobSchedulerSystemServiceImpl instances for benchmarks, with Zookeeper and repository mocked
+ * and Quartz configured on the requested job store.
+ */
+public final class BenchmarkSchedulers {
+
+    /**
+     * Job store used by a benchmark
+     */
+    public enum Store {
+        RAM,
+        WHEEL,
+        JDBC
+    }
+
+    private BenchmarkSchedulers() {
+    }
+
+    /**
+     * @param store job store
+     * @param threadCount worker threads of the Quartz thread pool
+     * @return Quartz properties of a new scheduler instance, JDBC stores get their own in-memory database
+     */
+    public static Properties quartzProperties(Store store, int threadCount) {
+        String instanceName = "WaterJobSchedulerBenchmark-" + UUID.randomUUID();
+        Properties props = new Properties();
+        props.setProperty("org.quartz.scheduler.instanceName", instanceName);
+        props.setProperty("org.quartz.scheduler.instanceId", "AUTO");
+        props.setProperty("org.quartz.scheduler.skipUpdateCheck", "true");
+        props.setProperty("org.quartz.threadPool.class", "org.quartz.simpl.SimpleThreadPool");
+        props.setProperty("org.quartz.threadPool.threadCount", String.valueOf(threadCount));
+        if (store == Store.RAM) {
+            props.setProperty("org.quartz.jobStore.class", "org.quartz.simpl.RAMJobStore");
+        } else if (store == Store.WHEEL) {
+            props.setProperty("org.quartz.jobStore.class", "it.water.connectors.jobscheduler.service.quartz.TimingWheelJobStore");
+        } else {
+            String url = "jdbc:h2:mem:" + instanceName + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1";
+            props.setProperty("org.quartz.jobStore.class", "org.quartz.impl.jdbcjobstore.JobStoreTX");
+            props.setProperty("org.quartz.jobStore.driverDelegateClass", "org.quartz.impl.jdbcjobstore.PostgreSQLDelegate");
+            props.setProperty("org.quartz.jobStore.tablePrefix", "QRTZ_");
+            props.setProperty("org.quartz.jobStore.isClustered", "false");
+            props.setProperty("org.quartz.jobStore.dataSource", "bench");
+            props.setProperty("org.quartz.dataSource.bench.driver", "org.h2.Driver");
+            props.setProperty("org.quartz.dataSource.bench.URL", url);
+            props.setProperty("org.quartz.dataSource.bench.user", "sa");
+            props.setProperty("org.quartz.dataSource.bench.password", "");
+            props.setProperty("org.quartz.dataSource.bench.maxConnections", String.valueOf(threadCount + 4));
+            // same bootstrap as the service activation, the repository of the benchmarked service is mocked
+            new JobSchedulerRepositoryImpl().createQuartzTableIfNotExists(null, props);
+        }
+        return props;
+    }
+
+    /**
+     * Creates and activates a system service on the given Quartz properties.
+     * @param quartzProps Quartz properties
+     * @param leader true if the scheduler must be started, false to keep it in standby
+     * @return activated service
+     */
+    public static JobSchedulerSystemServiceImpl activate(Properties quartzProps, boolean leader) {
+        ZookeeperConnectorSystemApi zookeeperConnectorSystemApi = Mockito.mock(ZookeeperConnectorSystemApi.class);
+        Mockito.when(zookeeperConnectorSystemApi.isLeader(Mockito.anyString())).thenReturn(leader);
+        JobSchedulerLeadershipRegistrar registrar = Mockito.mock(JobSchedulerLeadershipRegistrar.class);
+        Mockito.when(registrar.getLeadershipPath()).thenReturn("/benchmark/jobs/quartz/executor");
+        StdSchedulerFactory schedulerFactory;
+        try {
+            schedulerFactory = new StdSchedulerFactory(quartzProps);
+        } catch (SchedulerException e) {
+            throw new IllegalStateException(e);
+        }
+        JobSchedulerSystemServiceImpl service = new JobSchedulerSystemServiceImpl() {
+            @Override
+            protected StdSchedulerFactory getSchedulerFactory() {
+                return schedulerFactory;
+            }
+        };
+        service.setZookeeperConnectorSystemApi(zookeeperConnectorSystemApi);
+        service.setRepository(Mockito.mock(JobSchedulerRepository.class));
+        service.setJobSchedulerLeadershipRegistrar(registrar);
+        service.onActivate(Mockito.mock(ApplicationProperties.class));
+        if (!service.awaitReady(60000))
+            throw new IllegalStateException("Scheduler not ready: " + service.getReadiness());
+        return service;
+    }
+
+    /**
+     * @param quartzProps Quartz properties of an activated service
+     * @return the Quartz scheduler used by the service
+     */
+    public static Scheduler scheduler(Properties quartzProps) {
+        try {
+            return new StdSchedulerFactory(quartzProps).getScheduler();
+        } catch (SchedulerException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
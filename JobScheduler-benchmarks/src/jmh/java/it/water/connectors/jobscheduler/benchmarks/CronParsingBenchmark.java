@@ -0,0 +1,66 @@
+package it.water.connectors.jobscheduler.benchmarks;
+
+import it.water.connectors.jobscheduler.service.JobSchedulerCronCache;
+import org.openjdk.jmh.annotations.*;
+import org.quartz.CronExpression;
+import org.quartz.JobKey;
+import org.quartz.Trigger;
+import org.quartz.TriggerBuilder;
+
+import java.text.ParseException;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+import static org.quartz.CronScheduleBuilder.cronSchedule;
+
+/**
+ * Cost of the cron handling done by JobSchedulerSystemServiceImpl.schedule() for every add and update:
+ * expression validation followed by the build of the cron trigger, without and with the compiled expression cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CronParsingBenchmark {
+    private static final JobKey JOB_KEY = new JobKey("job", "cron");
+
+    @Param({"0 0 * * * ?", "0 */5 * * * ?", "0 15 10 ? * MON-FRI", "0 0/30 8-18 ? * 2-6"})
+    public String cronExpression;
+
+    private final Date now = new Date();
+    private final TimeZone timeZone = TimeZone.getDefault();
+    private final JobSchedulerCronCache cronCache = new JobSchedulerCronCache(JobSchedulerCronCache.DEFAULT_MAX_SIZE);
+
+    @Benchmark
+    public Trigger scheduleCronTrigger() throws ParseException {
+        CronExpression.validateExpression(cronExpression);
+        return TriggerBuilder.newTrigger()
+                .withIdentity(JOB_KEY.getName(), JOB_KEY.getGroup())
+                .withSchedule(cronSchedule(cronExpression).withMisfireHandlingInstructionFireAndProceed())
+                .forJob(JOB_KEY)
+                .build();
+    }
+
+    @Benchmark
+    public Date parseAndComputeNextFireTime() throws ParseException {
+        return new CronExpression(cronExpression).getNextValidTimeAfter(now);
+    }
+
+    @Benchmark
+    public Trigger scheduleCachedCronTrigger() throws ParseException {
+        return TriggerBuilder.newTrigger()
+                .withIdentity(JOB_KEY.getName(), JOB_KEY.getGroup())
+                .withSchedule(cronSchedule(cronCache.get(cronExpression, timeZone)).withMisfireHandlingInstructionFireAndProceed())
+                .forJob(JOB_KEY)
+                .build();
+    }
+
+    @Benchmark
+    public List<Date> cachedNextTenFireTimes() throws ParseException {
+        return cronCache.getNextFireTimes(cronExpression, timeZone, now, 10);
+    }
+}
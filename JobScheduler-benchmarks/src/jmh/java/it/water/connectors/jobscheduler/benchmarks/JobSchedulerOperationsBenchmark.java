@@ -0,0 +1,83 @@
+package it.water.connectors.jobscheduler.benchmarks;
+
+import it.water.connectors.jobscheduler.api.WaterJob;
+import it.water.connectors.jobscheduler.service.JobSchedulerSystemServiceImpl;
+import org.openjdk.jmh.annotations.*;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.quartz.impl.matchers.GroupMatcher;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Throughput of JobSchedulerSystemServiceImpl job operations with several threads calling the service concurrently.
+ * The scheduler stays in standby so that measurements are not disturbed by job executions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(8)
+public class JobSchedulerOperationsBenchmark {
+    private static final String ADDED_GROUP = "added";
+    private static final String PRELOADED_GROUP = "preloaded";
+    private static final String[] CRON_EXPRESSIONS = {"0 0 * * * ?", "0 */5 * * * ?"};
+
+    @Param({"RAM", "WHEEL", "JDBC"})
+    public BenchmarkSchedulers.Store store;
+
+    @Param({"10000"})
+    public int preloadedJobs;
+
+    private JobSchedulerSystemServiceImpl service;
+    private Scheduler scheduler;
+    private final AtomicLong sequence = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Properties quartzProps = BenchmarkSchedulers.quartzProperties(store, 10);
+        service = BenchmarkSchedulers.activate(quartzProps, false);
+        scheduler = BenchmarkSchedulers.scheduler(quartzProps);
+        List<WaterJob> jobs = new ArrayList<>(preloadedJobs);
+        for (int i = 0; i < preloadedJobs; i++) {
+            jobs.add(new BenchmarkJob("job-" + i, PRELOADED_GROUP, CRON_EXPRESSIONS[0]));
+        }
+        service.addJobs(jobs);
+    }
+
+    @TearDown(Level.Iteration)
+    public void removeAddedJobs() throws SchedulerException {
+        scheduler.deleteJobs(new ArrayList<>(scheduler.getJobKeys(GroupMatcher.jobGroupEquals(ADDED_GROUP))));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        service.onDeactivate();
+    }
+
+    @Benchmark
+    public void addJob() {
+        service.addJob(new BenchmarkJob("job-" + sequence.incrementAndGet(), ADDED_GROUP, CRON_EXPRESSIONS[0]));
+    }
+
+    @Benchmark
+    public void updateJob() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String cronExpression = CRON_EXPRESSIONS[random.nextInt(CRON_EXPRESSIONS.length)];
+        service.updateJob(new BenchmarkJob("job-" + random.nextInt(preloadedJobs), PRELOADED_GROUP, cronExpression));
+    }
+
+    @Benchmark
+    public void addThenDeleteJob() {
+        BenchmarkJob job = new BenchmarkJob("job-" + sequence.incrementAndGet(), ADDED_GROUP, CRON_EXPRESSIONS[1]);
+        service.addJob(job);
+        service.deleteJob(job);
+    }
+}
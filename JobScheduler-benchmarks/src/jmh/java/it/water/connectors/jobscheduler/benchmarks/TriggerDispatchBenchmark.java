@@ -0,0 +1,104 @@
+package it.water.connectors.jobscheduler.benchmarks;
+
+import it.water.connectors.jobscheduler.api.WaterJob;
+import it.water.connectors.jobscheduler.service.JobSchedulerSystemServiceImpl;
+import org.openjdk.jmh.annotations.*;
+import org.quartz.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Dispatch latency of a trigger, from its scheduled fire time to the start of Job.execute(),
+ * with a growing number of triggers registered in the job store.
+ * The sampled time covers scheduling plus dispatch, the fire lag alone is reported by the auxiliary counters.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class TriggerDispatchBenchmark {
+    private static final String FAR_FUTURE_CRON = "0 0 0 1 1 ? 2099";
+    private static final int BATCH_SIZE = 10000;
+    private static final Map<String, CountDownLatch> startedProbes = new ConcurrentHashMap<>();
+    private static final Map<String, Long> probeLags = new ConcurrentHashMap<>();
+
+    @Param({"1000", "100000", "1000000"})
+    public int registeredTriggers;
+
+    @Param({"RAM", "WHEEL", "JDBC"})
+    public BenchmarkSchedulers.Store store;
+
+    @Param({"10"})
+    public int threadCount;
+
+    private JobSchedulerSystemServiceImpl service;
+    private Scheduler scheduler;
+    private final AtomicLong sequence = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Properties quartzProps = BenchmarkSchedulers.quartzProperties(store, threadCount);
+        service = BenchmarkSchedulers.activate(quartzProps, true);
+        scheduler = BenchmarkSchedulers.scheduler(quartzProps);
+        List<WaterJob> jobs = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < registeredTriggers; i++) {
+            jobs.add(new BenchmarkJob("job-" + i, "registered-" + (i % 100), FAR_FUTURE_CRON));
+            if (jobs.size() == BATCH_SIZE || i == registeredTriggers - 1) {
+                service.addJobs(jobs);
+                jobs.clear();
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        service.onDeactivate();
+    }
+
+    /**
+     * Fire lag totals, divide fireLagMillis by probes to get the mean lag
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class DispatchCounters {
+        public long fireLagMillis;
+        public long probes;
+    }
+
+    @Benchmark
+    public long dispatch(DispatchCounters counters) throws SchedulerException, InterruptedException {
+        String name = "probe-" + sequence.incrementAndGet();
+        CountDownLatch started = new CountDownLatch(1);
+        startedProbes.put(name, started);
+        JobDetail probe = JobBuilder.newJob(ProbeJob.class).withIdentity(name, "probes").build();
+        Trigger trigger = TriggerBuilder.newTrigger().withIdentity(name, "probes").startNow().build();
+        scheduler.scheduleJob(probe, trigger);
+        if (!started.await(30, TimeUnit.SECONDS))
+            throw new IllegalStateException("Probe " + name + " has not been dispatched");
+        long lag = probeLags.remove(name);
+        counters.fireLagMillis += lag;
+        counters.probes++;
+        return lag;
+    }
+
+    public static class ProbeJob implements Job {
+        @Override
+        public void execute(JobExecutionContext context) {
+            long lag = System.currentTimeMillis() - context.getScheduledFireTime().getTime();
+            String name = context.getJobDetail().getKey().getName();
+            probeLags.put(name, lag);
+            CountDownLatch started = startedProbes.remove(name);
+            if (started != null)
+                started.countDown();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package it.water.connectors.jobscheduler.model;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Per-job result of a batch operation (add, update or delete) performed by the JobScheduler.
+ * Jobs are identified by their Quartz key in the "group.name" form.
+ */
+public class JobBatchReport {
+
+    /**
+     * Outcome of a single job inside a batch
+     */
+    public enum Outcome {
+        ADDED,
+        UPDATED,
+        UNCHANGED,
+        DELETED,
+        SKIPPED,
+        FAILED,
+        /**
+         * Held until the scheduler has started, then added with the other jobs submitted meanwhile
+         */
+        QUEUED
+    }
+
+    private final Map<String, Outcome> outcomes = new LinkedHashMap<>();
+    private final Map<String, String> errors = new LinkedHashMap<>();
+
+    /**
+     * Records the outcome of a job, replacing any previous outcome for the same key
+     * @param jobKey job key
+     * @param outcome outcome of the operation
+     */
+    public void record(String jobKey, Outcome outcome) {
+        outcomes.put(jobKey, outcome);
+    }
+
+    /**
+     * Records a failure for the given job
+     * @param jobKey job key
+     * @param errorMessage reason of the failure
+     */
+    public void recordFailure(String jobKey, String errorMessage) {
+        outcomes.put(jobKey, Outcome.FAILED);
+        errors.put(jobKey, errorMessage);
+    }
+
+    /**
+     * @param outcome outcome to count
+     * @return how many jobs ended with the given outcome
+     */
+    public int count(Outcome outcome) {
+        int count = 0;
+        for (Outcome o : outcomes.values()) {
+            if (o == outcome)
+                count++;
+        }
+        return count;
+    }
+
+    /**
+     * @return outcome of every job of the batch, in submission order
+     */
+    public Map<String, Outcome> getOutcomes() {
+        return Collections.unmodifiableMap(outcomes);
+    }
+
+    /**
+     * @return error message of every failed job
+     */
+    public Map<String, String> getErrors() {
+        return Collections.unmodifiableMap(errors);
+    }
+
+    /**
+     * @return true if no job of the batch failed
+     */
+    public boolean isSuccessful() {
+        return errors.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "JobBatchReport{added=" + count(Outcome.ADDED) + ", updated=" + count(Outcome.UPDATED)
+                + ", unchanged=" + count(Outcome.UNCHANGED) + ", deleted=" + count(Outcome.DELETED) + ", skipped=" + count(Outcome.SKIPPED)
+                + ", failed=" + count(Outcome.FAILED) + "}";
+    }
+}
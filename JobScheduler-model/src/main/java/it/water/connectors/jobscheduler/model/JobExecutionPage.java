@@ -0,0 +1,28 @@
+package it.water.connectors.jobscheduler.model;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Page of the job execution history, newest executions first.
+ */
+public class JobExecutionPage {
+    private final List<JobExecutionRecord> records;
+    private final Long nextCursor;
+
+    public JobExecutionPage(List<JobExecutionRecord> records, Long nextCursor) {
+        this.records = Collections.unmodifiableList(records);
+        this.nextCursor = nextCursor;
+    }
+
+    public List<JobExecutionRecord> getRecords() {
+        return records;
+    }
+
+    /**
+     * @return cursor of the next (older) page, null if this is the last page
+     */
+    public Long getNextCursor() {
+        return nextCursor;
+    }
+}
@@ -0,0 +1,69 @@
+package it.water.connectors.jobscheduler.model;
+
+/**
+ * Single job execution recorded by the JobScheduler execution history.
+ * The sequence identifies the execution on the node which ran it and is used as pagination cursor.
+ */
+public class JobExecutionRecord {
+
+    /**
+     * How the execution ended
+     */
+    public enum Outcome {
+        SUCCEEDED,
+        FAILED,
+        VETOED
+    }
+
+    private final long sequence;
+    private final String jobGroup;
+    private final String jobName;
+    private final long startTime;
+    private final long durationMillis;
+    private final Outcome outcome;
+    private final String nodeId;
+
+    public JobExecutionRecord(long sequence, String jobGroup, String jobName, long startTime, long durationMillis, Outcome outcome, String nodeId) {
+        this.sequence = sequence;
+        this.jobGroup = jobGroup;
+        this.jobName = jobName;
+        this.startTime = startTime;
+        this.durationMillis = durationMillis;
+        this.outcome = outcome;
+        this.nodeId = nodeId;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public String getJobGroup() {
+        return jobGroup;
+    }
+
+    public String getJobName() {
+        return jobName;
+    }
+
+    /**
+     * @return epoch millis at which the execution started
+     */
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    public Outcome getOutcome() {
+        return outcome;
+    }
+
+    /**
+     * @return identifier of the node which ran the job
+     */
+    public String getNodeId() {
+        return nodeId;
+    }
+}
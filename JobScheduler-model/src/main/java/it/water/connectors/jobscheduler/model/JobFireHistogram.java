@@ -0,0 +1,66 @@
+package it.water.connectors.jobscheduler.model;
+
+import java.util.Collections;
+import java.util.SortedMap;
+
+/**
+ * Number of scheduled fires for every second of a time window, computed from the triggers registered on the scheduler.
+ * Seconds without fires are omitted.
+ */
+public class JobFireHistogram {
+    private final long from;
+    private final int horizonSeconds;
+    private final long totalFires;
+    private final SortedMap<Long, Integer> firesBySecond;
+
+    public JobFireHistogram(long from, int horizonSeconds, long totalFires, SortedMap<Long, Integer> firesBySecond) {
+        this.from = from;
+        this.horizonSeconds = horizonSeconds;
+        this.totalFires = totalFires;
+        this.firesBySecond = Collections.unmodifiableSortedMap(firesBySecond);
+    }
+
+    /**
+     * @return start of the window, in milliseconds
+     */
+    public long getFrom() {
+        return from;
+    }
+
+    public int getHorizonSeconds() {
+        return horizonSeconds;
+    }
+
+    public long getTotalFires() {
+        return totalFires;
+    }
+
+    /**
+     * @return number of fires by second, keyed by the second start time in milliseconds
+     */
+    public SortedMap<Long, Integer> getFiresBySecond() {
+        return firesBySecond;
+    }
+
+    /**
+     * @return highest number of fires in the same second
+     */
+    public int getMaxFiresPerSecond() {
+        return firesBySecond.values().stream().mapToInt(Integer::intValue).max().orElse(0);
+    }
+
+    /**
+     * @return start time of the second with the most fires, null if nothing fires in the window
+     */
+    public Long getPeakSecond() {
+        Long peak = null;
+        int max = 0;
+        for (SortedMap.Entry<Long, Integer> entry : firesBySecond.entrySet()) {
+            if (entry.getValue() > max) {
+                max = entry.getValue();
+                peak = entry.getKey();
+            }
+        }
+        return peak;
+    }
+}
@@ -0,0 +1,50 @@
+package it.water.connectors.jobscheduler.model;
+
+/**
+ * Filters and position of a job listing. Jobs are listed by group and name, the cursor is the opaque value
+ * returned by the previous page; every filter is optional.
+ */
+public class JobListQuery {
+    public static final int MAX_LIMIT = 1000;
+
+    private final String jobGroup;
+    private final String triggerState;
+    private final Long nextFireTimeBefore;
+    private final String cursor;
+    private final int limit;
+
+    /**
+     * @param jobGroup job group, null for every group
+     * @param triggerState Quartz trigger state (NORMAL, PAUSED, COMPLETE, ERROR, BLOCKED, NONE), null for every state
+     * @param nextFireTimeBefore latest next fire time in epoch millis, null for any next fire time
+     * @param cursor cursor returned by the previous page, null for the first page
+     * @param limit maximum number of jobs, capped to {@link #MAX_LIMIT}
+     */
+    public JobListQuery(String jobGroup, String triggerState, Long nextFireTimeBefore, String cursor, int limit) {
+        this.jobGroup = jobGroup;
+        this.triggerState = triggerState;
+        this.nextFireTimeBefore = nextFireTimeBefore;
+        this.cursor = cursor;
+        this.limit = Math.max(1, Math.min(limit, MAX_LIMIT));
+    }
+
+    public String getJobGroup() {
+        return jobGroup;
+    }
+
+    public String getTriggerState() {
+        return triggerState;
+    }
+
+    public Long getNextFireTimeBefore() {
+        return nextFireTimeBefore;
+    }
+
+    public String getCursor() {
+        return cursor;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+}
@@ -0,0 +1,20 @@
+package it.water.connectors.jobscheduler.model;
+
+/**
+ * What the scheduler does with the fires a job has missed, e.g. while no node was leader.
+ * Missed fires are run by the misfire catch-up at a bounded rate, the most late first.
+ */
+public enum JobMisfirePolicy {
+    /**
+     * Run the job once, whatever the number of missed fires
+     */
+    FIRE_ONCE,
+    /**
+     * Do not run the missed fires, wait for the next scheduled fire
+     */
+    SKIP,
+    /**
+     * Run every missed fire, up to the configured maximum number of fires per job (the most recent are kept)
+     */
+    FIRE_ALL_BOUNDED
+}
@@ -0,0 +1,91 @@
+package it.water.connectors.jobscheduler.model;
+
+/**
+ * Point-in-time view of the connection pool of the Quartz JDBC job store.
+ */
+public class JobSchedulerConnectionPoolSnapshot {
+    private final int maxConnections;
+    private final int activeConnections;
+    private final int idleConnections;
+    private final int waitingThreads;
+    private final long checkouts;
+    private final long checkoutTimeouts;
+    private final long validationFailures;
+    private final long statementCacheHits;
+    private final long statementCacheMisses;
+    private final JobSchedulerHistogramSnapshot checkoutWait;
+
+    @SuppressWarnings("java:S107")
+    public JobSchedulerConnectionPoolSnapshot(int maxConnections, int activeConnections, int idleConnections, int waitingThreads,
+                                              long checkouts, long checkoutTimeouts, long validationFailures,
+                                              long statementCacheHits, long statementCacheMisses, JobSchedulerHistogramSnapshot checkoutWait) {
+        this.maxConnections = maxConnections;
+        this.activeConnections = activeConnections;
+        this.idleConnections = idleConnections;
+        this.waitingThreads = waitingThreads;
+        this.checkouts = checkouts;
+        this.checkoutTimeouts = checkoutTimeouts;
+        this.validationFailures = validationFailures;
+        this.statementCacheHits = statementCacheHits;
+        this.statementCacheMisses = statementCacheMisses;
+        this.checkoutWait = checkoutWait;
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    /**
+     * @return connections currently checked out
+     */
+    public int getActiveConnections() {
+        return activeConnections;
+    }
+
+    /**
+     * @return open connections waiting in the pool
+     */
+    public int getIdleConnections() {
+        return idleConnections;
+    }
+
+    /**
+     * @return threads waiting for a connection, a value greater than 0 means the pool is saturated
+     */
+    public int getWaitingThreads() {
+        return waitingThreads;
+    }
+
+    public long getCheckouts() {
+        return checkouts;
+    }
+
+    /**
+     * @return checkouts failed because no connection became available in time
+     */
+    public long getCheckoutTimeouts() {
+        return checkoutTimeouts;
+    }
+
+    /**
+     * @return pooled connections found broken when validated and replaced
+     */
+    public long getValidationFailures() {
+        return validationFailures;
+    }
+
+    public long getStatementCacheHits() {
+        return statementCacheHits;
+    }
+
+    public long getStatementCacheMisses() {
+        return statementCacheMisses;
+    }
+
+    /**
+     * @return time spent waiting for a connection, including the validation and the opening of new connections
+     */
+    public JobSchedulerHistogramSnapshot getCheckoutWait() {
+        return checkoutWait;
+    }
+}
@@ -18,6 +18,158 @@ public final class JobSchedulerConstants {
      */
     public static final String JOB_SCHEDULER_INIT_SCRIPT = "it.water.connectors.jobscheduler.init.script";
 
+    /**
+     * Property key for the number of job partitions in sharded mode (0 disables sharding)
+     */
+    public static final String JOB_SCHEDULER_SHARDING_PARTITIONS = "it.water.connectors.jobscheduler.sharding.partitions";
+
+    /**
+     * Property key for the job key part used to compute the partition: "group" or "name"
+     */
+    public static final String JOB_SCHEDULER_SHARDING_KEY = "it.water.connectors.jobscheduler.sharding.key";
+
+    /**
+     * Property key for the Zookeeper connection string used by the nodes of the sharded mode to track the live members
+     */
+    public static final String JOB_SCHEDULER_SHARDING_ZOOKEEPER = "it.water.connectors.jobscheduler.sharding.zookeeper.connect";
+
+    /**
+     * Property key for the interval in milliseconds between the reassignments of the partitions to the live members
+     */
+    public static final String JOB_SCHEDULER_SHARDING_REBALANCE_INTERVAL = "it.water.connectors.jobscheduler.sharding.rebalance.interval.ms";
+
+    /**
+     * Property key enabling the warm-standby mode, where followers replay the replication log of job definitions
+     */
+    public static final String JOB_SCHEDULER_STANDBY_WARM = "it.water.connectors.jobscheduler.standby.warm";
+
+    /**
+     * Property key for the path of the replication log, it must be on a file system shared by every node
+     */
+    public static final String JOB_SCHEDULER_STANDBY_LOG_PATH = "it.water.connectors.jobscheduler.standby.log.path";
+
+    /**
+     * Property key for the interval in milliseconds between two reads of the replication log
+     */
+    public static final String JOB_SCHEDULER_STANDBY_POLL_INTERVAL = "it.water.connectors.jobscheduler.standby.poll.interval.ms";
+
+    /**
+     * Property key for the replication log size in bytes above which the leader compacts it
+     */
+    public static final String JOB_SCHEDULER_STANDBY_COMPACT_THRESHOLD = "it.water.connectors.jobscheduler.standby.log.compact.bytes";
+
+    /**
+     * Property key for the maximum number of compiled cron expressions kept in cache
+     */
+    public static final String JOB_SCHEDULER_CRON_CACHE_SIZE = "it.water.connectors.jobscheduler.cron.cache.size";
+
+    /**
+     * Property key for the width in seconds of the window jobs sharing a cron expression are spread on (0 disables the smear)
+     */
+    public static final String JOB_SCHEDULER_CRON_SMEAR_WINDOW = "it.water.connectors.jobscheduler.cron.smear.window.seconds";
+
+    /**
+     * Property key for the number of executions kept in the execution history of every node (0 disables the history)
+     */
+    public static final String JOB_SCHEDULER_HISTORY_SIZE = "it.water.connectors.jobscheduler.history.size";
+
+    /**
+     * Property key enabling the persistence of the execution history on the database of the Quartz JDBC job store
+     */
+    public static final String JOB_SCHEDULER_HISTORY_SINK_JDBC = "it.water.connectors.jobscheduler.history.sink.jdbc";
+
+    /**
+     * Property key for the maximum number of executions sent at once to the execution history sink
+     */
+    public static final String JOB_SCHEDULER_HISTORY_SINK_BATCH_SIZE = "it.water.connectors.jobscheduler.history.sink.batch.size";
+
+    /**
+     * Property key for the maximum time in milliseconds an execution waits before being sent to the execution history sink
+     */
+    public static final String JOB_SCHEDULER_HISTORY_SINK_FLUSH_INTERVAL = "it.water.connectors.jobscheduler.history.sink.flush.interval.ms";
+
+    /**
+     * Prefix of the per-group concurrency budgets: prefix + group + ".max" is the maximum number of running jobs
+     * of the group, prefix + group + ".reserved" the number of workers reserved to the group
+     */
+    public static final String JOB_SCHEDULER_BULKHEAD_PREFIX = "it.water.connectors.jobscheduler.bulkhead.";
+
+    /**
+     * Property key for the number of missed fires run every second by the misfire catch-up (0 runs them as fast as possible)
+     */
+    public static final String JOB_SCHEDULER_MISFIRE_CATCHUP_RATE = "it.water.connectors.jobscheduler.misfire.catchup.rate";
+
+    /**
+     * Property key for the maximum number of missed fires run for a job with the fire-all-bounded misfire policy
+     */
+    public static final String JOB_SCHEDULER_MISFIRE_MAX_FIRES_PER_JOB = "it.water.connectors.jobscheduler.misfire.catchup.max.fires.per.job";
+
+    /**
+     * Property key for the maximum number of missed fires waiting to be run by the misfire catch-up
+     */
+    public static final String JOB_SCHEDULER_MISFIRE_MAX_BACKLOG = "it.water.connectors.jobscheduler.misfire.catchup.max.backlog";
+
+    /**
+     * Property key enabling the JobScheduler connection pool for the data source of the Quartz JDBC job store
+     * (true by default, ignored when the data source has its own connection provider)
+     */
+    public static final String JOB_SCHEDULER_DATASOURCE_POOL = "it.water.connectors.jobscheduler.datasource.pool.enabled";
+
+    /**
+     * Property key for the directory of the local job journal, which restores the jobs of in-memory job stores on restart
+     */
+    public static final String JOB_SCHEDULER_JOURNAL_PATH = "it.water.connectors.jobscheduler.journal.path";
+
+    /**
+     * Property key for the interval in milliseconds between the syncs of the job journal to the disk
+     */
+    public static final String JOB_SCHEDULER_JOURNAL_SYNC_INTERVAL = "it.water.connectors.jobscheduler.journal.sync.interval.ms";
+
+    /**
+     * Property key for the size in bytes of the job journal log which triggers a snapshot
+     */
+    public static final String JOB_SCHEDULER_JOURNAL_SNAPSHOT_THRESHOLD = "it.water.connectors.jobscheduler.journal.snapshot.bytes";
+
+    /**
+     * Property key for the width in milliseconds of the window coalescing the events fired for a job
+     */
+    public static final String JOB_SCHEDULER_EVENT_WINDOW = "it.water.connectors.jobscheduler.event.window.ms";
+
+    /**
+     * Property key enabling the adaptive sizing of the worker pool
+     */
+    public static final String JOB_SCHEDULER_POOL_ADAPTIVE = "it.water.connectors.jobscheduler.threadpool.adaptive.enabled";
+
+    /**
+     * Property key for the minimum number of workers of the adaptive pool
+     */
+    public static final String JOB_SCHEDULER_POOL_MIN = "it.water.connectors.jobscheduler.threadpool.adaptive.min";
+
+    /**
+     * Property key for the maximum number of workers of the adaptive pool
+     */
+    public static final String JOB_SCHEDULER_POOL_MAX = "it.water.connectors.jobscheduler.threadpool.adaptive.max";
+
+    /**
+     * Property key for the fire lag in milliseconds over which the adaptive pool grows
+     */
+    public static final String JOB_SCHEDULER_POOL_LAG_THRESHOLD = "it.water.connectors.jobscheduler.threadpool.adaptive.lag.threshold.ms";
+
+    /**
+     * Property key for the CPU usage percentage over which the adaptive pool does not grow
+     */
+    public static final String JOB_SCHEDULER_POOL_CPU_THRESHOLD = "it.water.connectors.jobscheduler.threadpool.adaptive.cpu.threshold.percent";
+
+    /**
+     * Property key for the interval in milliseconds between the resizes of the adaptive pool
+     */
+    public static final String JOB_SCHEDULER_POOL_INTERVAL = "it.water.connectors.jobscheduler.threadpool.adaptive.interval.ms";
+
+    /**
+     * Property key to initialize the scheduler in the background instead of on the component activation thread
+     */
+    public static final String JOB_SCHEDULER_ACTIVATION_ASYNC = "it.water.connectors.jobscheduler.activation.async";
+
     /**
      * Prefix for Quartz properties that will be passed to StdSchedulerFactory
      */
@@ -0,0 +1,52 @@
+package it.water.connectors.jobscheduler.model;
+
+/**
+ * Point-in-time view of the concurrency budget (bulkhead) of a job group.
+ */
+public class JobSchedulerGroupSnapshot {
+    private final int running;
+    private final int queued;
+    private final long deferredFires;
+    private final int maxConcurrency;
+    private final int reserved;
+
+    public JobSchedulerGroupSnapshot(int running, int queued, long deferredFires, int maxConcurrency, int reserved) {
+        this.running = running;
+        this.queued = queued;
+        this.deferredFires = deferredFires;
+        this.maxConcurrency = maxConcurrency;
+        this.reserved = reserved;
+    }
+
+    /**
+     * @return jobs of the group currently running
+     */
+    public int getRunning() {
+        return running;
+    }
+
+    /**
+     * @return jobs of the group waiting for a free slot
+     */
+    public int getQueued() {
+        return queued;
+    }
+
+    /**
+     * @return fires deferred because the group was over its budget, since the scheduler started
+     */
+    public long getDeferredFires() {
+        return deferredFires;
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /**
+     * @return workers reserved to the group
+     */
+    public int getReserved() {
+        return reserved;
+    }
+}
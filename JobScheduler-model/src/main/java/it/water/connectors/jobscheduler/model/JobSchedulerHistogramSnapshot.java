@@ -0,0 +1,47 @@
+package it.water.connectors.jobscheduler.model;
+
+/**
+ * Point-in-time view of a latency histogram collected by the JobScheduler.
+ * All values are expressed in milliseconds, percentiles are upper bounds of power-of-two buckets.
+ */
+public class JobSchedulerHistogramSnapshot {
+    private final long count;
+    private final double mean;
+    private final long max;
+    private final long p50;
+    private final long p90;
+    private final long p99;
+
+    public JobSchedulerHistogramSnapshot(long count, double mean, long max, long p50, long p90, long p99) {
+        this.count = count;
+        this.mean = mean;
+        this.max = max;
+        this.p50 = p50;
+        this.p90 = p90;
+        this.p99 = p99;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMean() {
+        return mean;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public long getP50() {
+        return p50;
+    }
+
+    public long getP90() {
+        return p90;
+    }
+
+    public long getP99() {
+        return p99;
+    }
+}
@@ -0,0 +1,150 @@
+package it.water.connectors.jobscheduler.model;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Point-in-time view of the JobScheduler health: worker usage, job outcomes, fire lag and run durations.
+ */
+public class JobSchedulerMetricsSnapshot {
+    private final long timestamp;
+    private final int poolSize;
+    private final int busyThreads;
+    private final int peakBusyThreads;
+    private final long firedJobs;
+    private final long failedJobs;
+    private final long misfires;
+    private final long vetoes;
+    private final long appliedUpdates;
+    private final long unchangedUpdates;
+    private final long lastTakeoverLatencyMillis;
+    private final JobSchedulerHistogramSnapshot fireLag;
+    private final Map<String, JobSchedulerHistogramSnapshot> runDurationByGroup;
+    private final Map<String, JobSchedulerGroupSnapshot> bulkheadByGroup;
+    private final int asyncJobsInFlight;
+    private final int misfireBacklog;
+    private final JobSchedulerConnectionPoolSnapshot connectionPool;
+
+    @SuppressWarnings("java:S107")
+    public JobSchedulerMetricsSnapshot(long timestamp, int poolSize, int busyThreads, int peakBusyThreads, long firedJobs, long failedJobs,
+                                       long misfires, long vetoes, long appliedUpdates, long unchangedUpdates, long lastTakeoverLatencyMillis, JobSchedulerHistogramSnapshot fireLag,
+                                       Map<String, JobSchedulerHistogramSnapshot> runDurationByGroup, Map<String, JobSchedulerGroupSnapshot> bulkheadByGroup,
+                                       int asyncJobsInFlight, int misfireBacklog, JobSchedulerConnectionPoolSnapshot connectionPool) {
+        this.timestamp = timestamp;
+        this.poolSize = poolSize;
+        this.busyThreads = busyThreads;
+        this.peakBusyThreads = peakBusyThreads;
+        this.firedJobs = firedJobs;
+        this.failedJobs = failedJobs;
+        this.misfires = misfires;
+        this.vetoes = vetoes;
+        this.appliedUpdates = appliedUpdates;
+        this.unchangedUpdates = unchangedUpdates;
+        this.lastTakeoverLatencyMillis = lastTakeoverLatencyMillis;
+        this.fireLag = fireLag;
+        this.runDurationByGroup = Collections.unmodifiableMap(runDurationByGroup);
+        this.bulkheadByGroup = Collections.unmodifiableMap(bulkheadByGroup);
+        this.asyncJobsInFlight = asyncJobsInFlight;
+        this.misfireBacklog = misfireBacklog;
+        this.connectionPool = connectionPool;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    public int getBusyThreads() {
+        return busyThreads;
+    }
+
+    public int getIdleThreads() {
+        return Math.max(0, poolSize - busyThreads);
+    }
+
+    /**
+     * @return highest number of jobs running at the same time, a value equal to the pool size means the pool has been saturated
+     */
+    public int getPeakBusyThreads() {
+        return peakBusyThreads;
+    }
+
+    /**
+     * @return asynchronous executions which have released their worker and are still completing
+     */
+    public int getAsyncJobsInFlight() {
+        return asyncJobsInFlight;
+    }
+
+    public long getFiredJobs() {
+        return firedJobs;
+    }
+
+    public long getFailedJobs() {
+        return failedJobs;
+    }
+
+    public long getMisfires() {
+        return misfires;
+    }
+
+    /**
+     * @return missed fires waiting to be run by the misfire catch-up
+     */
+    public int getMisfireBacklog() {
+        return misfireBacklog;
+    }
+
+    public long getVetoes() {
+        return vetoes;
+    }
+
+    /**
+     * @return job updates which actually changed the job or its trigger
+     */
+    public long getAppliedUpdates() {
+        return appliedUpdates;
+    }
+
+    /**
+     * @return job updates skipped because the job and its trigger were already up to date
+     */
+    public long getUnchangedUpdates() {
+        return unchangedUpdates;
+    }
+
+    public long getLastTakeoverLatencyMillis() {
+        return lastTakeoverLatencyMillis;
+    }
+
+    /**
+     * @return delay between the scheduled fire time and the actual start of the jobs
+     */
+    public JobSchedulerHistogramSnapshot getFireLag() {
+        return fireLag;
+    }
+
+    /**
+     * @return run duration of the jobs, by job group
+     */
+    public Map<String, JobSchedulerHistogramSnapshot> getRunDurationByGroup() {
+        return runDurationByGroup;
+    }
+
+    /**
+     * @return running and queued jobs of the groups with a concurrency budget, empty when bulkheads are not configured
+     */
+    public Map<String, JobSchedulerGroupSnapshot> getBulkheadByGroup() {
+        return bulkheadByGroup;
+    }
+
+    /**
+     * @return connections and statement cache of the JDBC job store, null when the job store does not use the JobScheduler connection pool
+     */
+    public JobSchedulerConnectionPoolSnapshot getConnectionPool() {
+        return connectionPool;
+    }
+}
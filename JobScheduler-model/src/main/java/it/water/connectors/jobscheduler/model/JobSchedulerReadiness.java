@@ -0,0 +1,23 @@
+package it.water.connectors.jobscheduler.model;
+
+/**
+ * State of the scheduler initialization on a node, e.g. for the readiness probes of the container.
+ */
+public enum JobSchedulerReadiness {
+    /**
+     * The component is not active
+     */
+    STOPPED,
+    /**
+     * The scheduler is being initialized in the background, added jobs are queued
+     */
+    STARTING,
+    /**
+     * The scheduler has been initialized, the node fires jobs when it leads them
+     */
+    READY,
+    /**
+     * The scheduler could not be initialized, see the log for the cause
+     */
+    FAILED
+}
@@ -0,0 +1,76 @@
+package it.water.connectors.jobscheduler.model;
+
+/**
+ * Job registered on the scheduler, together with the state of its trigger.
+ * Trigger fields are null (and the trigger state is NONE) for jobs which are not scheduled.
+ */
+public class JobSummary {
+    private final String jobGroup;
+    private final String jobName;
+    private final String jobClassName;
+    private final String description;
+    private final boolean durable;
+    private final String triggerState;
+    private final String cronExpression;
+    private final Long nextFireTime;
+    private final Long previousFireTime;
+
+    @SuppressWarnings("java:S107")
+    public JobSummary(String jobGroup, String jobName, String jobClassName, String description, boolean durable,
+                      String triggerState, String cronExpression, Long nextFireTime, Long previousFireTime) {
+        this.jobGroup = jobGroup;
+        this.jobName = jobName;
+        this.jobClassName = jobClassName;
+        this.description = description;
+        this.durable = durable;
+        this.triggerState = triggerState;
+        this.cronExpression = cronExpression;
+        this.nextFireTime = nextFireTime;
+        this.previousFireTime = previousFireTime;
+    }
+
+    public String getJobGroup() {
+        return jobGroup;
+    }
+
+    public String getJobName() {
+        return jobName;
+    }
+
+    public String getJobClassName() {
+        return jobClassName;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public boolean isDurable() {
+        return durable;
+    }
+
+    /**
+     * @return Quartz trigger state: NORMAL, PAUSED, COMPLETE, ERROR, BLOCKED or NONE
+     */
+    public String getTriggerState() {
+        return triggerState;
+    }
+
+    public String getCronExpression() {
+        return cronExpression;
+    }
+
+    /**
+     * @return epoch millis of the next fire time
+     */
+    public Long getNextFireTime() {
+        return nextFireTime;
+    }
+
+    /**
+     * @return epoch millis of the previous fire time
+     */
+    public Long getPreviousFireTime() {
+        return previousFireTime;
+    }
+}
@@ -0,0 +1,151 @@
+package it.water.connectors.jobscheduler.service;
+
+import it.water.connectors.jobscheduler.api.AsyncJob;
+import org.quartz.*;
+import org.quartz.impl.JobExecutionContextImpl;
+import org.quartz.listeners.TriggerListenerSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tracks the executions of {@link AsyncJob}s after their worker has been released.
+ * Job listeners wrapped by the tracker are notified of the end of an asynchronous execution when its completion
+ * stage completes, with the actual run time and the failure, if any; synchronous executions are notified as usual.
+ * As a trigger listener, it vetoes the fires of asynchronous jobs disallowing concurrent execution while a previous
+ * execution is still completing, since Quartz releases them as soon as the worker returns.
+ */
+public class AsyncJobTracker extends TriggerListenerSupport implements JobListener {
+    public static final String LISTENER_NAME = "WaterJobSchedulerAsyncJobs";
+    private static final Logger logger = LoggerFactory.getLogger(AsyncJobTracker.class);
+    private static final String EXECUTION_KEY = AsyncJobTracker.class.getName() + ".execution";
+
+    private final Map<JobKey, AtomicInteger> inFlightByJob = new ConcurrentHashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    @Override
+    public String getName() {
+        return LISTENER_NAME;
+    }
+
+    @Override
+    public boolean vetoJobExecution(Trigger trigger, JobExecutionContext context) {
+        if (!context.getJobDetail().isConcurrentExectionDisallowed())
+            return false;
+        AtomicInteger running = inFlightByJob.get(trigger.getJobKey());
+        if (running == null || running.get() == 0)
+            return false;
+        logger.debug("Job {} is still completing, concurrent fire vetoed", trigger.getJobKey());
+        return true;
+    }
+
+    @Override
+    public void jobToBeExecuted(JobExecutionContext context) {
+        // asynchronous executions are known once the worker returns
+    }
+
+    @Override
+    public void jobExecutionVetoed(JobExecutionContext context) {
+        // vetoed executions never start
+    }
+
+    /**
+     * Starts tracking the execution if the job returned a completion stage, it must be the first job listener.
+     */
+    @Override
+    public void jobWasExecuted(JobExecutionContext context, JobExecutionException jobException) {
+        execution(context, jobException);
+    }
+
+    /**
+     * @return asynchronous executions whose completion stage has not completed yet
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * @param delegate job listener
+     * @return listener notifying the delegate of the end of asynchronous executions when they complete
+     */
+    public JobListener wrap(JobListener delegate) {
+        return new JobListener() {
+            @Override
+            public String getName() {
+                return delegate.getName();
+            }
+
+            @Override
+            public void jobToBeExecuted(JobExecutionContext context) {
+                delegate.jobToBeExecuted(context);
+            }
+
+            @Override
+            public void jobExecutionVetoed(JobExecutionContext context) {
+                delegate.jobExecutionVetoed(context);
+            }
+
+            @Override
+            public void jobWasExecuted(JobExecutionContext context, JobExecutionException jobException) {
+                AsyncExecution execution = execution(context, jobException);
+                if (execution == null) {
+                    delegate.jobWasExecuted(context, jobException);
+                    return;
+                }
+                execution.completed.thenAccept(failure -> {
+                    try {
+                        delegate.jobWasExecuted(context, failure);
+                    } catch (RuntimeException e) {
+                        logger.warn("Listener {} failed on completion of job {}: {}", delegate.getName(), context.getJobDetail().getKey(), e.getMessage());
+                    }
+                });
+            }
+        };
+    }
+
+    /**
+     * @return asynchronous execution of the context, created by the first listener notified, null for synchronous executions
+     */
+    private AsyncExecution execution(JobExecutionContext context, JobExecutionException jobException) {
+        Object completion = context.get(AsyncJob.COMPLETION_KEY);
+        if (jobException != null || !(completion instanceof CompletionStage))
+            return null;
+        //listeners of the same execution are notified sequentially by the worker
+        AsyncExecution execution = (AsyncExecution) context.get(EXECUTION_KEY);
+        if (execution == null) {
+            execution = new AsyncExecution(context, (CompletionStage<?>) completion);
+            context.put(EXECUTION_KEY, execution);
+        }
+        return execution;
+    }
+
+    private final class AsyncExecution {
+        // completed with the failure of the execution, null if it succeeded, once the run time and result are set
+        private final CompletionStage<JobExecutionException> completed;
+
+        private AsyncExecution(JobExecutionContext context, CompletionStage<?> completion) {
+            JobKey jobKey = context.getJobDetail().getKey();
+            long startTime = System.currentTimeMillis() - Math.max(0, context.getJobRunTime());
+            inFlight.incrementAndGet();
+            inFlightByJob.computeIfAbsent(jobKey, k -> new AtomicInteger()).incrementAndGet();
+            this.completed = completion.handle((result, error) -> {
+                if (context instanceof JobExecutionContextImpl)
+                    ((JobExecutionContextImpl) context).setJobRunTime(System.currentTimeMillis() - startTime);
+                context.setResult(result);
+                inFlightByJob.computeIfPresent(jobKey, (k, running) -> running.decrementAndGet() == 0 ? null : running);
+                inFlight.decrementAndGet();
+                return error != null ? failure(error) : null;
+            });
+        }
+    }
+
+    private static JobExecutionException failure(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        return cause instanceof JobExecutionException ? (JobExecutionException) cause : new JobExecutionException(cause);
+    }
+}
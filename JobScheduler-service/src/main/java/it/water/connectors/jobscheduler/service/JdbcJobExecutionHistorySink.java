@@ -0,0 +1,77 @@
+package it.water.connectors.jobscheduler.service;
+
+import it.water.connectors.jobscheduler.api.JobExecutionHistorySink;
+import it.water.connectors.jobscheduler.model.JobExecutionRecord;
+
+import org.quartz.utils.DBConnectionManager;
+
+import java.sql.*;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Execution history sink writing to the database of the Quartz JDBC job store.
+ * Every batch is inserted with a single JDBC batch inside one transaction, the table is created on the first batch.
+ * Connections are taken from the data source of the job store, registered by Quartz when the scheduler is created.
+ */
+public class JdbcJobExecutionHistorySink implements JobExecutionHistorySink {
+    public static final String EXECUTIONS_TABLE = "WATER_JOB_EXECUTIONS";
+
+    private final String dataSourceName;
+    private final String table;
+    private boolean tableCreated;
+
+    public JdbcJobExecutionHistorySink(String dataSourceName, String table) {
+        this.dataSourceName = dataSourceName;
+        this.table = table;
+    }
+
+    /**
+     * @param quartzProperties Quartz properties
+     * @return sink writing to the data source of the Quartz job store, null if the job store has no data source
+     */
+    public static JdbcJobExecutionHistorySink fromQuartzProperties(Properties quartzProperties) {
+        String dataSourceName = quartzProperties.getProperty("org.quartz.jobStore.dataSource");
+        if (dataSourceName == null)
+            return null;
+        return new JdbcJobExecutionHistorySink(dataSourceName,
+                quartzProperties.getProperty("org.quartz.jobStore.tablePrefix", "QRTZ_") + EXECUTIONS_TABLE);
+    }
+
+    @Override
+    public void store(List<JobExecutionRecord> records) throws SQLException {
+        try (Connection connection = DBConnectionManager.getInstance().getConnection(dataSourceName)) {
+            if (!tableCreated) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("CREATE TABLE IF NOT EXISTS " + table + " (NODE_ID VARCHAR(64) NOT NULL, SEQUENCE_ID BIGINT NOT NULL, "
+                            + "JOB_GROUP VARCHAR(200) NOT NULL, JOB_NAME VARCHAR(200) NOT NULL, START_TIME BIGINT NOT NULL, "
+                            + "DURATION BIGINT NOT NULL, OUTCOME VARCHAR(16) NOT NULL, PRIMARY KEY (NODE_ID, SEQUENCE_ID))");
+                }
+                tableCreated = true;
+            }
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (PreparedStatement insert = connection.prepareStatement("INSERT INTO " + table
+                    + " (NODE_ID, SEQUENCE_ID, JOB_GROUP, JOB_NAME, START_TIME, DURATION, OUTCOME) VALUES (?, ?, ?, ?, ?, ?, ?)")) {
+                for (JobExecutionRecord executionRecord : records) {
+                    insert.setString(1, executionRecord.getNodeId());
+                    insert.setLong(2, executionRecord.getSequence());
+                    insert.setString(3, executionRecord.getJobGroup());
+                    insert.setString(4, executionRecord.getJobName());
+                    insert.setLong(5, executionRecord.getStartTime());
+                    insert.setLong(6, executionRecord.getDurationMillis());
+                    insert.setString(7, executionRecord.getOutcome().name());
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                // pooled connections are shared with the job store
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+    }
+}
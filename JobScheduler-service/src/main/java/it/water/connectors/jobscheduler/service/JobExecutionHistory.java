@@ -0,0 +1,250 @@
+package it.water.connectors.jobscheduler.service;
+
+import it.water.connectors.jobscheduler.api.JobExecutionHistorySink;
+import it.water.connectors.jobscheduler.model.JobExecutionPage;
+import it.water.connectors.jobscheduler.model.JobExecutionRecord;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+import org.quartz.JobKey;
+import org.quartz.JobListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Quartz listener keeping the last executions of this node in a fixed-size columnar ring buffer.
+ * Workers claim a slot with an atomic increment, write the columns and publish the slot sequence: recording
+ * never takes a lock and never waits for readers. Readers check the published sequence before and after
+ * reading a slot and skip the slots overwritten in the meantime.
+ * <p>
+ * When a sink is set, records are also offered to a bounded queue drained in batches by a dedicated thread;
+ * records are dropped, and counted, when the queue is full, so that a slow sink never slows down the workers.
+ * <p>
+ * Fires vetoed because they belong to another node or are deferred by a group budget are not executions
+ * of this node: they are only counted, so that they do not push the actual executions out of the buffer.
+ */
+public class JobExecutionHistory implements JobListener {
+    public static final String LISTENER_NAME = "WaterJobSchedulerExecutionHistory";
+    public static final int MAX_PAGE_SIZE = 1000;
+    /**
+     * Context key set by the trigger listeners which veto a fire that is not a lost execution of this node
+     */
+    public static final String SKIPPED_FIRE_KEY = JobExecutionHistory.class.getName() + ".skippedFire";
+    private static final Logger logger = LoggerFactory.getLogger(JobExecutionHistory.class);
+    private static final JobExecutionRecord.Outcome[] OUTCOMES = JobExecutionRecord.Outcome.values();
+
+    private final String nodeId;
+    private final int mask;
+    private final AtomicLong nextSequence = new AtomicLong();
+    //sequence + 1 of the record held by every slot, 0 while the slot is empty or being written
+    private final AtomicLongArray published;
+    private final JobKey[] jobKeys;
+    private final long[] startTimes;
+    private final long[] durations;
+    private final byte[] outcomes;
+
+    private final LongAdder droppedRecords = new LongAdder();
+    private final LongAdder skippedFires = new LongAdder();
+    private volatile BlockingQueue<JobExecutionRecord> sinkQueue;
+    private Thread sinkThread;
+
+    /**
+     * @param nodeId identifier of this node
+     * @param capacity number of executions kept, rounded up to a power of two
+     */
+    public JobExecutionHistory(String nodeId, int capacity) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("Execution history capacity must be greater than 0");
+        int size = Integer.highestOneBit(Math.min(capacity, 1 << 30));
+        if (size < capacity)
+            size <<= 1;
+        this.nodeId = nodeId;
+        this.mask = size - 1;
+        this.published = new AtomicLongArray(size);
+        this.jobKeys = new JobKey[size];
+        this.startTimes = new long[size];
+        this.durations = new long[size];
+        this.outcomes = new byte[size];
+    }
+
+    @Override
+    public String getName() {
+        return LISTENER_NAME;
+    }
+
+    @Override
+    public void jobToBeExecuted(JobExecutionContext context) {
+        // executions are recorded once completed
+    }
+
+    @Override
+    public void jobExecutionVetoed(JobExecutionContext context) {
+        if (context.get(SKIPPED_FIRE_KEY) != null) {
+            skippedFires.increment();
+            return;
+        }
+        record(context.getJobDetail().getKey(), startTime(context), 0, JobExecutionRecord.Outcome.VETOED);
+    }
+
+    @Override
+    public void jobWasExecuted(JobExecutionContext context, JobExecutionException jobException) {
+        record(context.getJobDetail().getKey(), startTime(context), Math.max(0, context.getJobRunTime()),
+                jobException == null ? JobExecutionRecord.Outcome.SUCCEEDED : JobExecutionRecord.Outcome.FAILED);
+    }
+
+    /**
+     * Records an execution
+     * @param jobKey executed job
+     * @param startTime execution start time
+     * @param durationMillis execution duration
+     * @param outcome how the execution ended
+     */
+    public void record(JobKey jobKey, long startTime, long durationMillis, JobExecutionRecord.Outcome outcome) {
+        long sequence = nextSequence.getAndIncrement();
+        int slot = (int) (sequence & mask);
+        published.set(slot, 0);
+        VarHandle.storeStoreFence();
+        jobKeys[slot] = jobKey;
+        startTimes[slot] = startTime;
+        durations[slot] = durationMillis;
+        outcomes[slot] = (byte) outcome.ordinal();
+        published.set(slot, sequence + 1);
+        BlockingQueue<JobExecutionRecord> queue = sinkQueue;
+        if (queue != null && !queue.offer(new JobExecutionRecord(sequence, jobKey.getGroup(), jobKey.getName(), startTime, durationMillis, outcome, nodeId)))
+            droppedRecords.increment();
+    }
+
+    /**
+     * Returns the executions older than the cursor, newest first.
+     * @param jobGroup job group filter, null for every group
+     * @param jobName job name filter, null for every name
+     * @param cursor sequence returned as next cursor by the previous page, null for the first page
+     * @param limit maximum number of records, capped to {@link #MAX_PAGE_SIZE}
+     * @return page of executions
+     */
+    public JobExecutionPage query(String jobGroup, String jobName, Long cursor, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        long last = nextSequence.get() - 1;
+        long from = cursor == null ? last : Math.min(cursor - 1, last);
+        long oldest = Math.max(0, last - mask);
+        List<JobExecutionRecord> records = new ArrayList<>(Math.min(pageSize, 64));
+        long sequence = from;
+        for (; sequence >= oldest && records.size() < pageSize; sequence--) {
+            JobExecutionRecord executionRecord = read(sequence);
+            if (executionRecord != null && matches(executionRecord, jobGroup, jobName))
+                records.add(executionRecord);
+        }
+        Long nextCursor = records.size() == pageSize && sequence >= oldest ? records.get(records.size() - 1).getSequence() : null;
+        return new JobExecutionPage(records, nextCursor);
+    }
+
+    /**
+     * @return records dropped because the sink queue was full or the sink failed
+     */
+    public long getDroppedRecords() {
+        return droppedRecords.sum();
+    }
+
+    /**
+     * @return fires vetoed because they are run by another node or deferred, which are not recorded
+     */
+    public long getSkippedFires() {
+        return skippedFires.sum();
+    }
+
+    /**
+     * Starts sending the new executions to the given sink
+     * @param sink persistent storage
+     * @param queueSize maximum number of records waiting to be stored
+     * @param batchSize maximum number of records stored at once
+     * @param flushIntervalMillis maximum time a record waits for a batch to be filled
+     */
+    public synchronized void startSink(JobExecutionHistorySink sink, int queueSize, int batchSize, long flushIntervalMillis) {
+        stopSink();
+        BlockingQueue<JobExecutionRecord> queue = new ArrayBlockingQueue<>(Math.max(1, queueSize));
+        sinkThread = new Thread(() -> drain(sink, queue, Math.max(1, batchSize), Math.max(1, flushIntervalMillis)), "WaterJobSchedulerHistorySink");
+        sinkThread.setDaemon(true);
+        sinkQueue = queue;
+        sinkThread.start();
+    }
+
+    /**
+     * Stops the sink thread, storing the records still queued
+     */
+    public synchronized void stopSink() {
+        if (sinkThread == null)
+            return;
+        sinkQueue = null;
+        sinkThread.interrupt();
+        try {
+            sinkThread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        sinkThread = null;
+    }
+
+    private void drain(JobExecutionHistorySink sink, BlockingQueue<JobExecutionRecord> queue, int batchSize, long flushIntervalMillis) {
+        List<JobExecutionRecord> batch = new ArrayList<>(batchSize);
+        boolean running = true;
+        while (running) {
+            try {
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+                while (batch.size() < batchSize) {
+                    JobExecutionRecord executionRecord = queue.poll(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                    if (executionRecord == null)
+                        break;
+                    batch.add(executionRecord);
+                    queue.drainTo(batch, batchSize - batch.size());
+                }
+            } catch (InterruptedException e) {
+                running = false;
+                queue.drainTo(batch);
+            }
+            for (int from = 0; from < batch.size(); from += batchSize)
+                store(sink, batch.subList(from, Math.min(batch.size(), from + batchSize)));
+            batch.clear();
+        }
+    }
+
+    private void store(JobExecutionHistorySink sink, List<JobExecutionRecord> batch) {
+        try {
+            sink.store(batch);
+        } catch (Exception e) {
+            droppedRecords.add(batch.size());
+            logger.warn("Could not store {} job executions: {}", batch.size(), e.getMessage());
+        }
+    }
+
+    private JobExecutionRecord read(long sequence) {
+        int slot = (int) (sequence & mask);
+        if (published.get(slot) != sequence + 1)
+            return null;
+        JobKey jobKey = jobKeys[slot];
+        long startTime = startTimes[slot];
+        long duration = durations[slot];
+        byte outcome = outcomes[slot];
+        VarHandle.loadLoadFence();
+        if (published.get(slot) != sequence + 1)
+            return null;
+        return new JobExecutionRecord(sequence, jobKey.getGroup(), jobKey.getName(), startTime, duration, OUTCOMES[outcome], nodeId);
+    }
+
+    private static boolean matches(JobExecutionRecord executionRecord, String jobGroup, String jobName) {
+        return (jobGroup == null || jobGroup.equals(executionRecord.getJobGroup()))
+                && (jobName == null || jobName.equals(executionRecord.getJobName()));
+    }
+
+    private static long startTime(JobExecutionContext context) {
+        return context.getFireTime() != null ? context.getFireTime().getTime() : System.currentTimeMillis();
+    }
+}
@@ -0,0 +1,42 @@
+package it.water.connectors.jobscheduler.service;
+
+import it.water.core.model.exceptions.WaterRuntimeException;
+import org.quartz.JobKey;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque cursor of the job listings: the key of the last job of a page, encoded so that any
+ * group or name can be carried in a query string.
+ */
+public final class JobListCursor {
+    private static final String INVALID_CURSOR = "Invalid job cursor";
+
+    private JobListCursor() {
+    }
+
+    static String encode(String jobGroup, String jobName) {
+        String value = jobGroup.length() + ":" + jobGroup + jobName;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param cursor encoded cursor
+     * @return key of the last job returned by the previous page
+     * @throws WaterRuntimeException if the cursor is not valid
+     */
+    public static JobKey decode(String cursor) {
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = value.indexOf(':');
+            int groupLength = Integer.parseInt(value.substring(0, Math.max(0, separator)));
+            int nameStart = separator + 1 + groupLength;
+            if (groupLength < 0 || nameStart > value.length())
+                throw new WaterRuntimeException(INVALID_CURSOR);
+            return new JobKey(value.substring(nameStart), value.substring(separator + 1, nameStart));
+        } catch (IllegalArgumentException e) {
+            throw new WaterRuntimeException(INVALID_CURSOR, e);
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package it.water.connectors.jobscheduler.service;
+
+import it.water.connectors.jobscheduler.model.JobSchedulerGroupSnapshot;
+import org.quartz.*;
+import org.quartz.listeners.TriggerListenerSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * Per-group concurrency limits (bulkheads) for job execution.
+ * Every job group can have a maximum number of jobs running at the same time and a number of workers reserved
+ * to it; workers which are not reserved are shared by every group. A fire which would exceed the budget of its
+ * group is vetoed before the job runs, so that it never holds a worker, and queued: when a job of any group
+ * completes, the oldest queued fire which now fits its budget is run again through a one-shot trigger.
+ * At most one fire per job is queued, later fires of a job which is already waiting are coalesced into it.
+ * <p>
+ * All the counters are guarded by the bulkhead monitor, critical sections never call the scheduler.
+ */
+public class JobSchedulerBulkhead extends TriggerListenerSupport implements JobListener {
+    public static final String LISTENER_NAME = "WaterJobSchedulerBulkhead";
+    private static final Logger logger = LoggerFactory.getLogger(JobSchedulerBulkhead.class);
+    // marks the executions holding a bulkhead slot, so that the slot is released when they end
+    private static final String SLOT_KEY = JobSchedulerBulkhead.class.getName() + ".slot";
+
+    private final int poolSize;
+    private final int sharedCapacity;
+    private final Map<String, Integer> maxConcurrency;
+    private final Map<String, Integer> reserved;
+    private final Map<String, GroupState> groups = new HashMap<>();
+    private final Deque<DeferredFire> deferred = new ArrayDeque<>();
+    private final Set<JobKey> deferredJobs = new HashSet<>();
+    private int sharedInUse;
+    private Scheduler scheduler;
+    private Predicate<JobKey> runsOnThisNode = jobKey -> true;
+
+    /**
+     * @param poolSize number of workers of the scheduler
+     * @param maxConcurrency maximum number of running jobs by group, groups not listed are only bound by the pool
+     * @param reserved number of workers reserved by group
+     */
+    public JobSchedulerBulkhead(int poolSize, Map<String, Integer> maxConcurrency, Map<String, Integer> reserved) {
+        int totalReserved = reserved.values().stream().mapToInt(Integer::intValue).sum();
+        if (totalReserved > poolSize)
+            throw new IllegalArgumentException("Reserved workers (" + totalReserved + ") exceed the pool size (" + poolSize + ")");
+        this.poolSize = poolSize;
+        this.sharedCapacity = poolSize - totalReserved;
+        this.maxConcurrency = new HashMap<>(maxConcurrency);
+        this.reserved = new HashMap<>(reserved);
+    }
+
+    /**
+     * @param scheduler scheduler used to run again the deferred fires
+     */
+    public void setScheduler(Scheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * @param runsOnThisNode tells whether a job is run by this node, fires of jobs run by other nodes are vetoed
+     *                       by the shard manager and must neither take a slot nor be queued
+     */
+    public void setRunsOnThisNode(Predicate<JobKey> runsOnThisNode) {
+        this.runsOnThisNode = runsOnThisNode;
+    }
+
+    @Override
+    public String getName() {
+        return LISTENER_NAME;
+    }
+
+    /**
+     * Vetoes, and queues, the fires exceeding the budget of their group.
+     */
+    @Override
+    public boolean vetoJobExecution(Trigger trigger, JobExecutionContext context) {
+        JobKey jobKey = trigger.getJobKey();
+        if (!runsOnThisNode.test(jobKey))
+            return false;
+        synchronized (this) {
+            if (tryAcquire(jobKey.getGroup())) {
+                context.put(SLOT_KEY, Boolean.TRUE);
+                return false;
+            }
+            GroupState state = group(jobKey.getGroup());
+            state.deferredFires++;
+            // deferred fires are counted by group, not recorded as vetoed executions
+            context.put(JobExecutionHistory.SKIPPED_FIRE_KEY, Boolean.TRUE);
+            if (deferredJobs.add(jobKey)) {
+                // the job store removes a non-durable job together with its last trigger, even when it is vetoed
+                boolean orphaned = !context.getJobDetail().isDurable() && trigger.getNextFireTime() == null;
+                deferred.addLast(new DeferredFire(context.getJobDetail(), trigger.getJobDataMap(), orphaned));
+                state.queued++;
+            }
+        }
+        logger.debug("Job {} exceeds the concurrency budget of its group, fire deferred", jobKey);
+        return true;
+    }
+
+    @Override
+    public void jobToBeExecuted(JobExecutionContext context) {
+        // slots are acquired when the trigger fires
+    }
+
+    @Override
+    public void jobExecutionVetoed(JobExecutionContext context) {
+        // another listener may have vetoed an execution which already got its slot
+        releaseSlot(context);
+    }
+
+    @Override
+    public void jobWasExecuted(JobExecutionContext context, JobExecutionException jobException) {
+        releaseSlot(context);
+    }
+
+    /**
+     * @return running and queued jobs of every group which has a budget or has run jobs
+     */
+    public synchronized Map<String, JobSchedulerGroupSnapshot> snapshot() {
+        Map<String, JobSchedulerGroupSnapshot> snapshot = new TreeMap<>();
+        Set<String> names = new HashSet<>(groups.keySet());
+        names.addAll(maxConcurrency.keySet());
+        names.addAll(reserved.keySet());
+        for (String name : names) {
+            GroupState state = groups.get(name);
+            snapshot.put(name, new JobSchedulerGroupSnapshot(state != null ? state.running : 0, state != null ? state.queued : 0,
+                    state != null ? state.deferredFires : 0, maxConcurrency.getOrDefault(name, poolSize), reserved.getOrDefault(name, 0)));
+        }
+        return snapshot;
+    }
+
+    /**
+     * Drops the queued fire of a job, called when the job is deleted so that it is not run again.
+     * @param jobKey deleted job
+     */
+    public synchronized void purge(JobKey jobKey) {
+        if (!deferredJobs.remove(jobKey))
+            return;
+        deferred.removeIf(fire -> fire.jobKey.equals(jobKey));
+        group(jobKey.getGroup()).queued--;
+    }
+
+    private void releaseSlot(JobExecutionContext context) {
+        if (context.get(SLOT_KEY) == null)
+            return;
+        context.put(SLOT_KEY, null);
+        DeferredFire next;
+        synchronized (this) {
+            release(context.getJobDetail().getKey().getGroup());
+            next = pollRunnable();
+        }
+        if (next != null)
+            refire(next);
+    }
+
+    private boolean tryAcquire(String groupName) {
+        GroupState state = group(groupName);
+        if (state.running >= maxConcurrency.getOrDefault(groupName, poolSize))
+            return false;
+        if (state.running >= reserved.getOrDefault(groupName, 0)) {
+            if (sharedInUse >= sharedCapacity)
+                return false;
+            sharedInUse++;
+        }
+        state.running++;
+        return true;
+    }
+
+    private void release(String groupName) {
+        GroupState state = group(groupName);
+        state.running--;
+        if (state.running >= reserved.getOrDefault(groupName, 0))
+            sharedInUse--;
+    }
+
+    /**
+     * @return oldest queued fire whose group has room for it, removed from the queue
+     */
+    private DeferredFire pollRunnable() {
+        Iterator<DeferredFire> iterator = deferred.iterator();
+        Set<String> fullGroups = new HashSet<>();
+        while (iterator.hasNext()) {
+            DeferredFire fire = iterator.next();
+            String groupName = fire.jobKey.getGroup();
+            if (fullGroups.contains(groupName))
+                continue;
+            if (hasRoom(groupName)) {
+                iterator.remove();
+                deferredJobs.remove(fire.jobKey);
+                group(groupName).queued--;
+                return fire;
+            }
+            fullGroups.add(groupName);
+        }
+        return null;
+    }
+
+    private boolean hasRoom(String groupName) {
+        GroupState state = group(groupName);
+        return state.running < maxConcurrency.getOrDefault(groupName, poolSize)
+                && (state.running < reserved.getOrDefault(groupName, 0) || sharedInUse < sharedCapacity);
+    }
+
+    /**
+     * Schedules a one-shot trigger running the deferred fire now, the fire goes through the bulkhead again
+     * and it is queued back if another job has taken the slot in the meantime.
+     * The fire is dropped if the job has been deleted meanwhile, unless the job store removed it together with
+     * the vetoed trigger: in that case the job is stored again with the one-shot trigger.
+     */
+    private void refire(DeferredFire fire) {
+        if (scheduler == null)
+            return;
+        Trigger trigger = TriggerBuilder.newTrigger()
+                .withIdentity("deferred-" + UUID.randomUUID(), fire.jobKey.getGroup())
+                .forJob(fire.jobKey)
+                .usingJobData(fire.jobDataMap)
+                .startNow()
+                .withSchedule(SimpleScheduleBuilder.simpleSchedule().withMisfireHandlingInstructionFireNow())
+                .build();
+        try {
+            if (scheduler.checkExists(fire.jobKey))
+                scheduler.scheduleJob(trigger);
+            else if (fire.orphaned)
+                scheduler.scheduleJob(fire.jobDetail, trigger);
+            else
+                logger.debug("Job {} has been deleted, deferred fire dropped", fire.jobKey);
+        } catch (SchedulerException e) {
+            logger.warn("Deferred fire of job {} could not be scheduled: {}", fire.jobKey, e.getMessage());
+        }
+    }
+
+    private GroupState group(String groupName) {
+        return groups.computeIfAbsent(groupName, name -> new GroupState());
+    }
+
+    private static final class GroupState {
+        private int running;
+        private int queued;
+        private long deferredFires;
+    }
+
+    private static final class DeferredFire {
+        private final JobDetail jobDetail;
+        private final JobKey jobKey;
+        private final JobDataMap jobDataMap;
+        private final boolean orphaned;
+
+        private DeferredFire(JobDetail jobDetail, JobDataMap jobDataMap, boolean orphaned) {
+            this.jobDetail = jobDetail;
+            this.orphaned = orphaned;
+            this.jobKey = jobDetail.getKey();
+            this.jobDataMap = jobDataMap != null ? new JobDataMap(jobDataMap.getWrappedMap()) : new JobDataMap();
+            // one-shot triggers have no misfire policy
+            this.jobDataMap.remove(JobSchedulerMisfireCatchUp.MISFIRE_POLICY_KEY);
+        }
+    }
+}
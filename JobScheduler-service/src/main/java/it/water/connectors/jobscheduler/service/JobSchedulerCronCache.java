@@ -0,0 +1,156 @@
+package it.water.connectors.jobscheduler.service;
+
+import org.quartz.CronExpression;
+
+import java.text.ParseException;
+import java.util.*;
+
+/**
+ * Bounded LRU cache of compiled cron expressions, keyed by expression and time zone.
+ * Jobs sharing the same expression share the same compiled instance, so that it is parsed once
+ * instead of once per add or update; instances are shared and must never be modified.
+ * Every entry also keeps the fire times computed by the last lookup, so that consecutive
+ * next-fire-times lookups are answered without running the cron expression again.
+ */
+public class JobSchedulerCronCache {
+    public static final int DEFAULT_MAX_SIZE = 1024;
+    private static final int PRECOMPUTED_FIRE_TIMES = 32;
+
+    private final Map<Key, Entry> entries;
+
+    public JobSchedulerCronCache(int maxSize) {
+        if (maxSize <= 0)
+            throw new IllegalArgumentException("Cron cache size must be greater than 0");
+        this.entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * @param cronExpression cron expression
+     * @param timeZone time zone of the expression
+     * @return shared compiled expression
+     * @throws ParseException if the expression is not valid, invalid expressions are not cached
+     */
+    public CronExpression get(String cronExpression, TimeZone timeZone) throws ParseException {
+        return entry(cronExpression, timeZone).expression;
+    }
+
+    /**
+     * @param cronExpression cron expression
+     * @param timeZone time zone of the expression
+     * @param after time after which fire times are computed
+     * @param count number of fire times
+     * @return the next fire times strictly after the given time, fewer than count if the expression stops firing
+     * @throws ParseException if the expression is not valid
+     */
+    public List<Date> getNextFireTimes(String cronExpression, TimeZone timeZone, Date after, int count) throws ParseException {
+        if (count <= 0)
+            return Collections.emptyList();
+        return entry(cronExpression, timeZone).nextFireTimes(after.getTime(), count);
+    }
+
+    /**
+     * @return number of cached expressions
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private Entry entry(String cronExpression, TimeZone timeZone) throws ParseException {
+        if (cronExpression == null)
+            throw new ParseException("Cron expression is null", 0);
+        Key key = new Key(cronExpression, timeZone.getID());
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null)
+                return entry;
+        }
+        //parsing out of the lock, two threads may compile the same expression but only one instance is kept
+        CronExpression expression = new CronExpression(cronExpression);
+        expression.setTimeZone(timeZone);
+        synchronized (this) {
+            return entries.computeIfAbsent(key, k -> new Entry(expression));
+        }
+    }
+
+    private static final class Key {
+        private final String expression;
+        private final String timeZoneId;
+
+        private Key(String expression, String timeZoneId) {
+            this.expression = expression;
+            this.timeZoneId = timeZoneId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (!(o instanceof Key))
+                return false;
+            Key key = (Key) o;
+            return expression.equals(key.expression) && timeZoneId.equals(key.timeZoneId);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * expression.hashCode() + timeZoneId.hashCode();
+        }
+    }
+
+    private static final class Entry {
+        private final CronExpression expression;
+        //consecutive fire times following "from", the list ends early when the expression has no more fire times
+        private long from = Long.MAX_VALUE;
+        private long[] fireTimes = new long[0];
+        private boolean exhausted;
+
+        private Entry(CronExpression expression) {
+            this.expression = expression;
+        }
+
+        private synchronized List<Date> nextFireTimes(long after, int count) {
+            int start = firstAfter(after);
+            if (start < 0 || (start + count > fireTimes.length && !exhausted))
+                start = compute(after, count);
+            int end = Math.min(fireTimes.length, start + count);
+            List<Date> result = new ArrayList<>(Math.max(0, end - start));
+            for (int i = start; i < end; i++)
+                result.add(new Date(fireTimes[i]));
+            return result;
+        }
+
+        /**
+         * @return index of the first precomputed fire time after the given time, -1 if the precomputed
+         * fire times do not cover it
+         */
+        private int firstAfter(long after) {
+            if (after < from)
+                return -1;
+            int index = Arrays.binarySearch(fireTimes, after);
+            index = index >= 0 ? index + 1 : -index - 1;
+            return index < fireTimes.length || exhausted ? index : -1;
+        }
+
+        private int compute(long after, int count) {
+            int size = Math.max(count, PRECOMPUTED_FIRE_TIMES);
+            long[] computed = new long[size];
+            int computedCount = 0;
+            Date next = expression.getNextValidTimeAfter(new Date(after));
+            while (next != null) {
+                computed[computedCount++] = next.getTime();
+                if (computedCount == size)
+                    break;
+                next = expression.getNextValidTimeAfter(next);
+            }
+            exhausted = computedCount < size;
+            fireTimes = computedCount < size ? Arrays.copyOf(computed, computedCount) : computed;
+            from = after;
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package it.water.connectors.jobscheduler.service;
+
+import org.quartz.JobKey;
+
+/**
+ * Spreads the jobs sharing a cron expression over a time window, so that jobs scheduled at the top of the hour
+ * or of the minute do not all fire in the same second.
+ * Every job is shifted by an offset derived from its job key only, so it keeps the same phase across restarts
+ * and on every node. The shift is applied to the seconds and minutes fields of the expression, within the
+ * period they define: expressions whose seconds or minutes fields are lists or ranges are left unchanged.
+ */
+public class JobSchedulerCronSmear {
+    private static final int SECONDS_PER_MINUTE = 60;
+    private static final int SECONDS_PER_HOUR = 3600;
+
+    private JobSchedulerCronSmear() {
+    }
+
+    /**
+     * @param cronExpression cron expression
+     * @param jobKey job the expression belongs to
+     * @param windowSeconds width of the window the jobs are spread on, capped to the period of the expression
+     * @return shifted expression, the given one if it cannot be shifted or the window is disabled
+     */
+    public static String smear(String cronExpression, JobKey jobKey, int windowSeconds) {
+        if (cronExpression == null || windowSeconds <= 1)
+            return cronExpression;
+        String[] fields = cronExpression.trim().split("\\s+");
+        if (fields.length < 6 || !isNumber(fields[0]))
+            return cronExpression;
+        int seconds = Integer.parseInt(fields[0]);
+        String minutes = fields[1];
+        int period;
+        int phase;
+        int step = 0;
+        if ("*".equals(minutes)) {
+            period = SECONDS_PER_MINUTE;
+            phase = seconds;
+        } else if (isNumber(minutes)) {
+            period = SECONDS_PER_HOUR;
+            phase = Integer.parseInt(minutes) * SECONDS_PER_MINUTE + seconds;
+        } else if (minutes.indexOf('/') > 0) {
+            String start = minutes.substring(0, minutes.indexOf('/'));
+            String increment = minutes.substring(minutes.indexOf('/') + 1);
+            if (!isNumber(increment) || !("*".equals(start) || isNumber(start)))
+                return cronExpression;
+            step = Integer.parseInt(increment);
+            int startMinute = "*".equals(start) ? 0 : Integer.parseInt(start);
+            //only steps dividing the hour repeat with the same period
+            if (step <= 0 || SECONDS_PER_MINUTE % step != 0 || startMinute >= step)
+                return cronExpression;
+            period = step * SECONDS_PER_MINUTE;
+            phase = startMinute * SECONDS_PER_MINUTE + seconds;
+        } else {
+            return cronExpression;
+        }
+        if (seconds >= SECONDS_PER_MINUTE)
+            return cronExpression;
+        int shiftedPhase = (phase + offsetSeconds(jobKey, Math.min(windowSeconds, period))) % period;
+        fields[0] = String.valueOf(shiftedPhase % SECONDS_PER_MINUTE);
+        if (step > 0)
+            fields[1] = shiftedPhase / SECONDS_PER_MINUTE + "/" + step;
+        else if (!"*".equals(minutes))
+            fields[1] = String.valueOf(shiftedPhase / SECONDS_PER_MINUTE);
+        return String.join(" ", fields);
+    }
+
+    /**
+     * @param jobKey job key
+     * @param windowSeconds width of the window
+     * @return offset of the job in the window, always the same for the same key and window
+     */
+    public static int offsetSeconds(JobKey jobKey, int windowSeconds) {
+        if (windowSeconds <= 1)
+            return 0;
+        //String.hashCode is specified, so offsets do not change across JVMs; the finalizer spreads similar keys
+        int hash = (jobKey.getGroup() + "." + jobKey.getName()).hashCode();
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+        return Math.floorMod(hash, windowSeconds);
+    }
+
+    private static boolean isNumber(String field) {
+        if (field.isEmpty() || field.length() > 2)
+            return false;
+        for (int i = 0; i < field.length(); i++) {
+            if (!Character.isDigit(field.charAt(i)))
+                return false;
+        }
+        return true;
+    }
+}
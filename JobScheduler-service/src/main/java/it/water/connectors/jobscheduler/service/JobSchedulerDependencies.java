@@ -0,0 +1,161 @@
+package it.water.connectors.jobscheduler.service;
+
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+import org.quartz.JobKey;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.quartz.listeners.JobListenerSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+
+/**
+ * Job dependencies: a job declared dependent on upstream jobs is fired as soon as all of them have completed
+ * successfully, so that pipelines run back to back instead of being ordered by staggered cron expressions.
+ * An upstream job may have many dependent jobs (fan-out) and a job may depend on many upstream jobs (fan-in):
+ * the upstream completions are collected for every dependent job and cleared when it is fired, failed
+ * executions are not counted. Completions of asynchronous jobs are notified when their completion stage completes,
+ * as long as the listener is wrapped by the {@link AsyncJobTracker}.
+ * Dependencies and completions are kept in memory, every node declares them on activation as done for the jobs;
+ * the service refuses them when the jobs may run on different nodes.
+ */
+public class JobSchedulerDependencies extends JobListenerSupport {
+    public static final String LISTENER_NAME = "WaterJobSchedulerDependencies";
+    private static final Logger logger = LoggerFactory.getLogger(JobSchedulerDependencies.class);
+
+    private final Map<JobKey, Set<JobKey>> upstreamJobs = new HashMap<>();
+    private final Map<JobKey, Set<JobKey>> downstreamJobs = new HashMap<>();
+    // upstream jobs completed since the last fire of every dependent job
+    private final Map<JobKey, Set<JobKey>> completedUpstreamJobs = new HashMap<>();
+    private Scheduler scheduler;
+
+    /**
+     * @param scheduler scheduler used to fire the dependent jobs
+     */
+    public void setScheduler(Scheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    @Override
+    public String getName() {
+        return LISTENER_NAME;
+    }
+
+    /**
+     * Replaces the upstream jobs of a job
+     * @param jobKey dependent job
+     * @param upstream jobs which must complete before the dependent job is fired, empty to remove the dependencies
+     * @throws IllegalArgumentException if the dependencies would make a cycle
+     */
+    public synchronized void setDependencies(JobKey jobKey, Collection<JobKey> upstream) {
+        Set<JobKey> newUpstream = new HashSet<>(upstream);
+        for (JobKey upstreamJob : newUpstream) {
+            if (dependsOn(upstreamJob, jobKey))
+                throw new IllegalArgumentException("Job " + jobKey + " cannot depend on " + upstreamJob + ": dependencies would make a cycle");
+        }
+        removeDependencies(jobKey);
+        if (newUpstream.isEmpty())
+            return;
+        upstreamJobs.put(jobKey, newUpstream);
+        newUpstream.forEach(upstreamJob -> downstreamJobs.computeIfAbsent(upstreamJob, k -> new HashSet<>()).add(jobKey));
+        completedUpstreamJobs.put(jobKey, new HashSet<>());
+    }
+
+    /**
+     * @param jobKey dependent job
+     * @return upstream jobs of the job, empty if it has no dependencies
+     */
+    public synchronized Set<JobKey> getDependencies(JobKey jobKey) {
+        Set<JobKey> upstream = upstreamJobs.get(jobKey);
+        return upstream != null ? Collections.unmodifiableSet(new HashSet<>(upstream)) : Collections.emptySet();
+    }
+
+    /**
+     * Removes a deleted job from the dependency graph, both as a dependent job and as an upstream job
+     * of the jobs which depended on it.
+     * @param jobKey deleted job
+     */
+    public synchronized void removeJob(JobKey jobKey) {
+        removeDependencies(jobKey);
+        Set<JobKey> downstream = downstreamJobs.remove(jobKey);
+        if (downstream == null)
+            return;
+        for (JobKey dependentJob : downstream) {
+            Set<JobKey> upstream = upstreamJobs.get(dependentJob);
+            upstream.remove(jobKey);
+            completedUpstreamJobs.get(dependentJob).remove(jobKey);
+            if (upstream.isEmpty()) {
+                upstreamJobs.remove(dependentJob);
+                completedUpstreamJobs.remove(dependentJob);
+            }
+        }
+    }
+
+    /**
+     * Fires the dependent jobs whose upstream jobs have all completed, once the execution succeeded.
+     */
+    @Override
+    public void jobWasExecuted(JobExecutionContext context, JobExecutionException jobException) {
+        if (jobException != null)
+            return;
+        for (JobKey ready : complete(context.getJobDetail().getKey())) {
+            try {
+                logger.debug("Upstream jobs of {} completed, firing it", ready);
+                scheduler.triggerJob(ready);
+            } catch (SchedulerException e) {
+                logger.warn("Dependent job {} has not been fired: {}", ready, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * @return dependent jobs ready to be fired after the completion of the upstream job
+     */
+    private synchronized List<JobKey> complete(JobKey upstreamJob) {
+        Set<JobKey> downstream = downstreamJobs.get(upstreamJob);
+        if (downstream == null)
+            return Collections.emptyList();
+        List<JobKey> ready = new ArrayList<>();
+        for (JobKey jobKey : downstream) {
+            Set<JobKey> completed = completedUpstreamJobs.get(jobKey);
+            completed.add(upstreamJob);
+            if (completed.containsAll(upstreamJobs.get(jobKey))) {
+                completed.clear();
+                ready.add(jobKey);
+            }
+        }
+        return ready;
+    }
+
+    private void removeDependencies(JobKey jobKey) {
+        Set<JobKey> oldUpstream = upstreamJobs.remove(jobKey);
+        completedUpstreamJobs.remove(jobKey);
+        if (oldUpstream == null)
+            return;
+        for (JobKey upstreamJob : oldUpstream) {
+            Set<JobKey> downstream = downstreamJobs.get(upstreamJob);
+            downstream.remove(jobKey);
+            if (downstream.isEmpty())
+                downstreamJobs.remove(upstreamJob);
+        }
+    }
+
+    /**
+     * @return true if the job is the target or depends on it, directly or through other jobs
+     */
+    private boolean dependsOn(JobKey jobKey, JobKey target) {
+        Deque<JobKey> toVisit = new ArrayDeque<>();
+        Set<JobKey> visited = new HashSet<>();
+        toVisit.push(jobKey);
+        while (!toVisit.isEmpty()) {
+            JobKey current = toVisit.pop();
+            if (current.equals(target))
+                return true;
+            if (visited.add(current))
+                toVisit.addAll(upstreamJobs.getOrDefault(current, Collections.emptySet()));
+        }
+        return false;
+    }
+}
@@ -0,0 +1,183 @@
+package it.water.connectors.jobscheduler.service;
+
+import org.quartz.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Event triggers: jobs run when something changes instead of polling with frequent cron expressions.
+ * The first event received for a job opens a coalescing window, the events received until the window closes
+ * are merged into a single run, whose data holds the union of the event payloads (later values win) and the
+ * number of events. The run is a one-shot trigger with a key derived from the job key, which stays in the job store
+ * until the run completes: while it exists, events are kept pending and the window is checked again later,
+ * so a burst never queues more than one run. Since the check is made on the job store, runs fired or executed
+ * by other nodes and jobs deleted meanwhile are taken into account.
+ */
+public class JobSchedulerEventTriggers {
+    /**
+     * Job data key holding the number of events coalesced into the run
+     */
+    public static final String EVENT_COUNT_KEY = "it.water.connectors.jobscheduler.event.count";
+    public static final int DEFAULT_WINDOW_MILLIS = 1000;
+    private static final String TRIGGER_NAME_PREFIX = "event-";
+    private static final long MIN_RETRY_MILLIS = 50;
+    private static final Logger logger = LoggerFactory.getLogger(JobSchedulerEventTriggers.class);
+
+    private final long windowMillis;
+    private final Map<JobKey, PendingEvents> pending = new HashMap<>();
+    private final LongAdder events = new LongAdder();
+    private final LongAdder runs = new LongAdder();
+    private Scheduler scheduler;
+    private ScheduledExecutorService executor;
+
+    /**
+     * @param windowMillis width of the coalescing window in milliseconds, 0 to fire on the first event
+     */
+    public JobSchedulerEventTriggers(long windowMillis) {
+        this.windowMillis = Math.max(0, windowMillis);
+    }
+
+    /**
+     * @param scheduler scheduler used to run the jobs
+     */
+    public void setScheduler(Scheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * @param jobKey job run by the events
+     * @return key of the trigger of the event run of the job
+     */
+    public static TriggerKey eventTriggerKey(JobKey jobKey) {
+        return new TriggerKey(TRIGGER_NAME_PREFIX + jobKey.getName(), jobKey.getGroup());
+    }
+
+    /**
+     * Starts closing the coalescing windows
+     */
+    public synchronized void start() {
+        if (executor != null)
+            return;
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "water-jobscheduler-events");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Stops closing the coalescing windows, the pending events are discarded
+     */
+    public synchronized void stop() {
+        if (executor == null)
+            return;
+        executor.shutdownNow();
+        executor = null;
+        pending.clear();
+    }
+
+    /**
+     * Records an event for the job, opening a coalescing window if none is open
+     * @param jobKey job to run
+     * @param payload event data, passed to the run
+     */
+    public void fire(JobKey jobKey, Map<String, Object> payload) {
+        events.increment();
+        synchronized (this) {
+            if (executor == null)
+                throw new IllegalStateException("Event triggers are stopped");
+            PendingEvents pendingEvents = pending.get(jobKey);
+            if (pendingEvents == null) {
+                pendingEvents = new PendingEvents();
+                pending.put(jobKey, pendingEvents);
+                executor.schedule(() -> closeWindow(jobKey), windowMillis, TimeUnit.MILLISECONDS);
+            }
+            if (payload != null)
+                pendingEvents.payload.putAll(payload);
+            pendingEvents.count++;
+        }
+    }
+
+    /**
+     * @return events received since the start
+     */
+    public long getEvents() {
+        return events.sum();
+    }
+
+    /**
+     * @return runs fired for the events received, the difference with the events is the number of coalesced events
+     */
+    public long getRuns() {
+        return runs.sum();
+    }
+
+    /**
+     * Fires the pending events of the job, unless its previous run has not completed yet: in that case
+     * the window is checked again later. Windows are closed by a single thread, one job at a time.
+     */
+    private void closeWindow(JobKey jobKey) {
+        TriggerKey triggerKey = eventTriggerKey(jobKey);
+        try {
+            if (scheduler.checkExists(triggerKey)) {
+                retry(jobKey);
+                return;
+            }
+        } catch (SchedulerException e) {
+            logger.warn("Could not check the event run of job {}: {}", jobKey, e.getMessage());
+            retry(jobKey);
+            return;
+        }
+        PendingEvents ready;
+        synchronized (this) {
+            ready = pending.remove(jobKey);
+        }
+        if (ready != null)
+            run(jobKey, triggerKey, ready);
+    }
+
+    private synchronized void retry(JobKey jobKey) {
+        if (executor != null)
+            executor.schedule(() -> closeWindow(jobKey), Math.max(windowMillis, MIN_RETRY_MILLIS), TimeUnit.MILLISECONDS);
+    }
+
+    private void run(JobKey jobKey, TriggerKey triggerKey, PendingEvents pendingEvents) {
+        JobDataMap jobDataMap = new JobDataMap(pendingEvents.payload);
+        jobDataMap.put(EVENT_COUNT_KEY, pendingEvents.count);
+        Trigger trigger = TriggerBuilder.newTrigger().withIdentity(triggerKey).forJob(jobKey).usingJobData(jobDataMap).startNow().build();
+        try {
+            scheduler.scheduleJob(trigger);
+            runs.increment();
+            logger.debug("Job {} fired for {} events", jobKey, pendingEvents.count);
+        } catch (ObjectAlreadyExistsException e) {
+            // another node has fired the job meanwhile, the events wait for that run
+            requeue(jobKey, pendingEvents);
+        } catch (SchedulerException e) {
+            logger.warn("Job {} has not been fired for {} events: {}", jobKey, pendingEvents.count, e.getMessage());
+        }
+    }
+
+    private void requeue(JobKey jobKey, PendingEvents pendingEvents) {
+        synchronized (this) {
+            PendingEvents later = pending.put(jobKey, pendingEvents);
+            if (later != null) {
+                // events received meanwhile are newer, their window is already scheduled
+                pendingEvents.payload.putAll(later.payload);
+                pendingEvents.count += later.count;
+                return;
+            }
+        }
+        retry(jobKey);
+    }
+
+    private static final class PendingEvents {
+        private final Map<String, Object> payload = new HashMap<>();
+        private int count;
+    }
+}
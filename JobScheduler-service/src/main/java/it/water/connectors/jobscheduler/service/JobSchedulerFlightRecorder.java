@@ -0,0 +1,102 @@
+package it.water.connectors.jobscheduler.service;
+
+import it.water.connectors.jobscheduler.api.AsyncJob;
+import it.water.connectors.jobscheduler.service.jfr.JobDispatchEvent;
+import it.water.connectors.jobscheduler.service.jfr.JobExecutionEvent;
+import it.water.connectors.jobscheduler.service.jfr.TriggerMisfireEvent;
+import org.quartz.*;
+import org.quartz.listeners.TriggerListenerSupport;
+
+/**
+ * Quartz listener emitting the Java Flight Recorder events of the job lifecycle: dispatch of the fired triggers,
+ * job executions and misfires.
+ * Events are allocated only while a recording enables them, so the listener costs a check per callback otherwise.
+ * Correlation with GC pauses and lock contention comes from the start time, duration and thread of the events,
+ * recorded by JFR on the same timeline as the JVM events.
+ */
+public class JobSchedulerFlightRecorder extends TriggerListenerSupport implements JobListener {
+    public static final String LISTENER_NAME = "WaterJobSchedulerFlightRecorder";
+    private static final String EXECUTION_EVENT_KEY = JobSchedulerFlightRecorder.class.getName() + ".execution";
+
+    @Override
+    public String getName() {
+        return LISTENER_NAME;
+    }
+
+    @Override
+    public void triggerFired(Trigger trigger, JobExecutionContext context) {
+        JobDispatchEvent event = new JobDispatchEvent();
+        if (!event.isEnabled())
+            return;
+        event.jobName = trigger.getJobKey().getName();
+        event.jobGroup = trigger.getJobKey().getGroup();
+        event.triggerName = trigger.getKey().getName();
+        event.triggerGroup = trigger.getKey().getGroup();
+        event.fireInstanceId = context.getFireInstanceId();
+        if (context.getScheduledFireTime() != null) {
+            event.scheduledFireTime = context.getScheduledFireTime().getTime();
+            event.fireLag = System.currentTimeMillis() - event.scheduledFireTime;
+        }
+        event.recovering = context.isRecovering();
+        event.commit();
+    }
+
+    @Override
+    public void triggerMisfired(Trigger trigger) {
+        TriggerMisfireEvent event = new TriggerMisfireEvent();
+        if (!event.isEnabled())
+            return;
+        event.jobName = trigger.getJobKey().getName();
+        event.jobGroup = trigger.getJobKey().getGroup();
+        event.triggerName = trigger.getKey().getName();
+        event.triggerGroup = trigger.getKey().getGroup();
+        // the job store notifies the misfire before moving the trigger, its next fire time is the missed one
+        if (trigger.getNextFireTime() != null) {
+            event.missedFireTime = trigger.getNextFireTime().getTime();
+            event.misfireLag = System.currentTimeMillis() - event.missedFireTime;
+        }
+        event.misfireInstruction = trigger.getMisfireInstruction();
+        event.commit();
+    }
+
+    @Override
+    public void jobToBeExecuted(JobExecutionContext context) {
+        JobExecutionEvent event = new JobExecutionEvent();
+        if (!event.isEnabled())
+            return;
+        JobKey jobKey = context.getJobDetail().getKey();
+        event.jobName = jobKey.getName();
+        event.jobGroup = jobKey.getGroup();
+        event.triggerName = context.getTrigger().getKey().getName();
+        event.fireInstanceId = context.getFireInstanceId();
+        event.workerThread = Thread.currentThread();
+        if (context.getScheduledFireTime() != null) {
+            event.scheduledFireTime = context.getScheduledFireTime().getTime();
+            event.fireLag = System.currentTimeMillis() - event.scheduledFireTime;
+        }
+        event.refireCount = context.getRefireCount();
+        context.put(EXECUTION_EVENT_KEY, event);
+        event.begin();
+    }
+
+    @Override
+    public void jobExecutionVetoed(JobExecutionContext context) {
+        // vetoed fires are not executed, jobToBeExecuted has not been called
+    }
+
+    @Override
+    public void jobWasExecuted(JobExecutionContext context, JobExecutionException jobException) {
+        Object event = context.get(EXECUTION_EVENT_KEY);
+        if (!(event instanceof JobExecutionEvent))
+            return;
+        JobExecutionEvent executionEvent = (JobExecutionEvent) event;
+        executionEvent.end();
+        if (!executionEvent.shouldCommit())
+            return;
+        executionEvent.async = context.get(AsyncJob.COMPLETION_KEY) != null;
+        executionEvent.failed = jobException != null;
+        if (jobException != null)
+            executionEvent.failure = jobException.getMessage();
+        executionEvent.commit();
+    }
+}
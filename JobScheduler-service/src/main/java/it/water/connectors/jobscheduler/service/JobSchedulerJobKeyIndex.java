@@ -0,0 +1,63 @@
+package it.water.connectors.jobscheduler.service;
+
+import org.quartz.JobDetail;
+import org.quartz.JobKey;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.quartz.impl.matchers.GroupMatcher;
+import org.quartz.listeners.SchedulerListenerSupport;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sorted job names of every group, used to page the job listings of in-memory job stores without loading
+ * and sorting the keys of a group on every page.
+ * The names of a group are loaded at the first listing and dropped when a job of the group is added or deleted.
+ * A name deleted without notification is harmless, listings skip the jobs which no longer exist.
+ */
+public class JobSchedulerJobKeyIndex extends SchedulerListenerSupport {
+    private final Map<String, String[]> sortedNames = new ConcurrentHashMap<>();
+    // changes at every invalidation, names loaded meanwhile are dropped since they may miss the change
+    private final AtomicLong version = new AtomicLong();
+
+    /**
+     * @param scheduler scheduler owning the jobs
+     * @param group job group
+     * @return names of the jobs of the group, in ascending order
+     * @throws SchedulerException if the job keys cannot be read
+     */
+    public String[] getSortedNames(Scheduler scheduler, String group) throws SchedulerException {
+        String[] names = sortedNames.get(group);
+        if (names != null)
+            return names;
+        long loadedVersion = version.get();
+        names = scheduler.getJobKeys(GroupMatcher.jobGroupEquals(group)).stream().map(JobKey::getName).sorted().toArray(String[]::new);
+        sortedNames.put(group, names);
+        if (version.get() != loadedVersion)
+            sortedNames.remove(group, names);
+        return names;
+    }
+
+    @Override
+    public void jobAdded(JobDetail jobDetail) {
+        invalidate(jobDetail.getKey().getGroup());
+    }
+
+    @Override
+    public void jobDeleted(JobKey jobKey) {
+        invalidate(jobKey.getGroup());
+    }
+
+    @Override
+    public void schedulingDataCleared() {
+        version.incrementAndGet();
+        sortedNames.clear();
+    }
+
+    private void invalidate(String group) {
+        version.incrementAndGet();
+        sortedNames.remove(group);
+    }
+}
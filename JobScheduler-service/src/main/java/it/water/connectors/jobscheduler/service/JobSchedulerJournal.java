@@ -0,0 +1,440 @@
+package it.water.connectors.jobscheduler.service;
+
+import org.quartz.JobKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Local journal of the job definitions, which lets in-memory job stores survive restarts without a database.
+ * <p>
+ * Every job mutation is appended to a write-ahead log; when the log grows over the snapshot threshold, it is
+ * rotated and the latest definition of every job is written to a compact snapshot, after which older files are
+ * deleted. On activation the latest snapshot is loaded and the logs written after it are replayed.
+ * Both files are written and read through memory-mapped buffers: appends are plain memory writes which survive
+ * a crash of the process, and they are forced to the disk every sync interval.
+ * <p>
+ * Files are named jobs-&lt;generation&gt;.wal and jobs-&lt;generation&gt;.snapshot: the snapshot of a generation holds
+ * the definitions existing when the log of the same generation was started. Both start with a magic number, a
+ * version and the generation, followed by records made of length, CRC32 and the binary form of a
+ * {@link ReplicatedJob}. A zero length marks the end of the file, a corrupted record the end of a torn write.
+ * A record whose checksum matches but which cannot be read is skipped, records with job data refused by
+ * {@link ReplicatedJob#SERIAL_FILTER} are not appended at all.
+ */
+public class JobSchedulerJournal implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(JobSchedulerJournal.class);
+    public static final long DEFAULT_SNAPSHOT_THRESHOLD = 64L * 1024 * 1024;
+    public static final int DEFAULT_SYNC_INTERVAL_MILLIS = 1000;
+    private static final int WAL_MAGIC = 0x574A574C;
+    private static final int SNAPSHOT_MAGIC = 0x574A534E;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 2 * Integer.BYTES + Long.BYTES;
+    private static final int RECORD_HEADER_SIZE = 2 * Integer.BYTES;
+    private static final int CHUNK_SIZE = 16 * 1024 * 1024;
+    private static final int READ_WINDOW = 256 * 1024 * 1024;
+    private static final String PREFIX = "jobs-";
+    private static final String WAL_SUFFIX = ".wal";
+    private static final String SNAPSHOT_SUFFIX = ".snapshot";
+
+    private final Path directory;
+    private final long snapshotThreshold;
+    // latest definition of every existing job, written to the next snapshot
+    private final Map<JobKey, ReplicatedJob> definitions = new LinkedHashMap<>();
+    private final RecordEncoder walEncoder = new RecordEncoder();
+    private final RecordEncoder snapshotEncoder = new RecordEncoder();
+    private final Object snapshotLock = new Object();
+    private MappedWriter wal;
+    private long generation;
+    private ScheduledExecutorService executor;
+
+    /**
+     * @param directory directory of the journal files
+     * @param snapshotThreshold size in bytes of the write-ahead log which triggers a snapshot
+     */
+    public JobSchedulerJournal(Path directory, long snapshotThreshold) {
+        this.directory = directory;
+        this.snapshotThreshold = snapshotThreshold;
+    }
+
+    /**
+     * Restores the job definitions from the latest snapshot and the following logs, then opens the log for appending.
+     * @return latest definition of every job recorded in the journal
+     * @throws IOException if the journal cannot be read or opened
+     */
+    public synchronized Collection<ReplicatedJob> open() throws IOException {
+        Files.createDirectories(directory);
+        definitions.clear();
+        long snapshotGeneration = generations(SNAPSHOT_SUFFIX).stream().mapToLong(Long::longValue).max().orElse(0);
+        Path snapshotPath = file(snapshotGeneration, SNAPSHOT_SUFFIX);
+        if (Files.exists(snapshotPath))
+            read(snapshotPath, SNAPSHOT_MAGIC, snapshotGeneration);
+        generation = snapshotGeneration;
+        long validEnd = -1;
+        for (long walGeneration : generations(WAL_SUFFIX)) {
+            if (walGeneration < snapshotGeneration) {
+                // left by a crash right after a snapshot, already included in it
+                Files.deleteIfExists(file(walGeneration, WAL_SUFFIX));
+                continue;
+            }
+            generation = walGeneration;
+            validEnd = read(file(walGeneration, WAL_SUFFIX), WAL_MAGIC, walGeneration);
+        }
+        wal = validEnd >= 0 ? MappedWriter.append(file(generation, WAL_SUFFIX), validEnd)
+                : MappedWriter.create(file(generation, WAL_SUFFIX), WAL_MAGIC, generation);
+        return new ArrayList<>(definitions.values());
+    }
+
+    /**
+     * Appends a job mutation to the log
+     * @param record job mutation
+     * @throws IOException if the record cannot be written
+     */
+    public synchronized void append(ReplicatedJob record) throws IOException {
+        if (wal == null)
+            throw new IOException("Job scheduler journal is not open");
+        walEncoder.encode(record);
+        wal.write(walEncoder);
+        apply(record);
+    }
+
+    /**
+     * Forces the records appended so far to the disk
+     */
+    public synchronized void sync() {
+        if (wal != null)
+            wal.force();
+    }
+
+    /**
+     * @return size in bytes of the current log
+     */
+    public synchronized long getLogSize() {
+        return wal != null ? wal.position : 0;
+    }
+
+    /**
+     * @return number of jobs recorded in the journal
+     */
+    public synchronized int size() {
+        return definitions.size();
+    }
+
+    /**
+     * Starts a new log and writes the latest definition of every job to a snapshot of the new generation,
+     * then deletes the files of the previous generations. Appends are only blocked while the log is rotated.
+     * @throws IOException if the snapshot cannot be written
+     */
+    public void snapshot() throws IOException {
+        synchronized (snapshotLock) {
+            List<ReplicatedJob> jobs;
+            long snapshotGeneration;
+            synchronized (this) {
+                if (wal == null)
+                    throw new IOException("Job scheduler journal is not open");
+                jobs = new ArrayList<>(definitions.values());
+                wal.close();
+                generation++;
+                wal = MappedWriter.create(file(generation, WAL_SUFFIX), WAL_MAGIC, generation);
+                snapshotGeneration = generation;
+            }
+            Path tmpPath = directory.resolve(PREFIX + snapshotGeneration + SNAPSHOT_SUFFIX + ".tmp");
+            try (MappedWriter writer = MappedWriter.create(tmpPath, SNAPSHOT_MAGIC, snapshotGeneration)) {
+                for (ReplicatedJob job : jobs) {
+                    snapshotEncoder.encode(job);
+                    writer.write(snapshotEncoder);
+                }
+            }
+            Files.move(tmpPath, file(snapshotGeneration, SNAPSHOT_SUFFIX), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            for (long walGeneration : generations(WAL_SUFFIX)) {
+                if (walGeneration < snapshotGeneration)
+                    Files.deleteIfExists(file(walGeneration, WAL_SUFFIX));
+            }
+            for (long oldGeneration : generations(SNAPSHOT_SUFFIX)) {
+                if (oldGeneration < snapshotGeneration)
+                    Files.deleteIfExists(file(oldGeneration, SNAPSHOT_SUFFIX));
+            }
+            logger.info("Job scheduler journal snapshot written with {} jobs", jobs.size());
+        }
+    }
+
+    /**
+     * Starts forcing the log to the disk every sync interval, with a snapshot when the log grows over the threshold
+     * @param syncIntervalMillis sync interval in milliseconds
+     */
+    public synchronized void start(long syncIntervalMillis) {
+        if (executor != null)
+            return;
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "water-jobscheduler-journal");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = Math.max(1, syncIntervalMillis);
+        executor.scheduleWithFixedDelay(() -> {
+            try {
+                sync();
+                if (getLogSize() > snapshotThreshold)
+                    snapshot();
+            } catch (IOException | RuntimeException e) {
+                logger.warn("Could not snapshot the job scheduler journal: {}", e.getMessage());
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the background sync and closes the log, forcing it to the disk
+     */
+    @Override
+    public void close() {
+        ScheduledExecutorService toStop;
+        synchronized (this) {
+            toStop = executor;
+            executor = null;
+        }
+        if (toStop != null) {
+            toStop.shutdown();
+            try {
+                toStop.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (this) {
+            if (wal != null)
+                wal.close();
+            wal = null;
+        }
+    }
+
+    private void apply(ReplicatedJob record) {
+        if (record.getOperation() == ReplicatedJob.Operation.UPSERT)
+            definitions.put(record.getJobKey(), record);
+        else
+            definitions.remove(record.getJobKey());
+    }
+
+    private Path file(long fileGeneration, String suffix) {
+        return directory.resolve(PREFIX + fileGeneration + suffix);
+    }
+
+    /**
+     * @return generations of the files with the given suffix, in ascending order
+     */
+    private List<Long> generations(String suffix) throws IOException {
+        List<Long> found = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(PREFIX) && name.endsWith(suffix))
+                    .forEach(name -> {
+                        try {
+                            found.add(Long.parseLong(name.substring(PREFIX.length(), name.length() - suffix.length())));
+                        } catch (NumberFormatException e) {
+                            logger.warn("Ignoring unexpected file {} in job scheduler journal", name);
+                        }
+                    });
+        }
+        Collections.sort(found);
+        return found;
+    }
+
+    /**
+     * Applies the records of a journal file
+     * @return offset following the last valid record
+     */
+    private long read(Path path, int magic, long expectedGeneration) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE)
+                throw new IOException("Journal file " + path + " is truncated");
+            ByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, READ_WINDOW));
+            if (window.getInt() != magic || window.getInt() != VERSION || window.getLong() != expectedGeneration)
+                throw new IOException("File " + path + " is not a job scheduler journal of generation " + expectedGeneration);
+            long windowStart = 0;
+            long offset = HEADER_SIZE;
+            RecordDecoder decoder = new RecordDecoder();
+            int records = 0;
+            while (offset + RECORD_HEADER_SIZE <= size) {
+                if (offset + RECORD_HEADER_SIZE > windowStart + window.limit()) {
+                    windowStart = offset;
+                    window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, Math.min(size - windowStart, READ_WINDOW));
+                }
+                int position = (int) (offset - windowStart);
+                int length = window.getInt(position);
+                if (length <= 0 || offset + RECORD_HEADER_SIZE + length > size)
+                    break;
+                if (position + RECORD_HEADER_SIZE + length > window.limit()) {
+                    windowStart = offset;
+                    window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, Math.min(size - windowStart, Math.max(READ_WINDOW, RECORD_HEADER_SIZE + length)));
+                    position = 0;
+                }
+                int crc = window.getInt(position + Integer.BYTES);
+                ByteBuffer payload = window.duplicate();
+                payload.limit(position + RECORD_HEADER_SIZE + length).position(position + RECORD_HEADER_SIZE);
+                ReplicatedJob record;
+                try {
+                    record = decoder.decode(payload, crc);
+                } catch (IOException e) {
+                    // complete record which cannot be read, e.g. job data refused by the serial filter: the following ones are still valid
+                    logger.warn("Skipping unreadable record at offset {} of journal file {}: {}", offset, path, e.getMessage());
+                    offset += RECORD_HEADER_SIZE + length;
+                    continue;
+                }
+                if (record == null) {
+                    logger.warn("Journal file {} ends with a torn record at offset {}, ignoring the rest of the file", path, offset);
+                    break;
+                }
+                apply(record);
+                records++;
+                offset += RECORD_HEADER_SIZE + length;
+            }
+            logger.debug("Read {} records from journal file {}", records, path);
+            return offset;
+        }
+    }
+
+    /**
+     * Binary form of a record and its checksum, reusing the same buffers for every record.
+     */
+    private static final class RecordEncoder {
+        private final ExposedByteArrayOutputStream bytes = new ExposedByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(bytes);
+        private final CRC32 crc = new CRC32();
+
+        private void encode(ReplicatedJob record) throws IOException {
+            bytes.reset();
+            record.writeTo(out);
+            crc.reset();
+            crc.update(bytes.buffer(), 0, bytes.size());
+        }
+    }
+
+    private static final class RecordDecoder {
+        private final CRC32 crc = new CRC32();
+        private final ByteBufferInputStream input = new ByteBufferInputStream();
+        private final DataInputStream in = new DataInputStream(input);
+
+        /**
+         * @return record read, null if the checksum does not match
+         * @throws IOException if the checksum matches but the record cannot be read
+         */
+        private ReplicatedJob decode(ByteBuffer payload, int expectedCrc) throws IOException {
+            crc.reset();
+            crc.update(payload.duplicate());
+            if ((int) crc.getValue() != expectedCrc)
+                return null;
+            input.buffer = payload;
+            try {
+                return ReplicatedJob.readFrom(in);
+            } catch (RuntimeException e) {
+                throw new IOException("Malformed record: " + e, e);
+            }
+        }
+    }
+
+    private static final class ExposedByteArrayOutputStream extends ByteArrayOutputStream {
+        private ExposedByteArrayOutputStream() {
+            super(256);
+        }
+
+        private byte[] buffer() {
+            return buf;
+        }
+    }
+
+    private static final class ByteBufferInputStream extends InputStream {
+        private ByteBuffer buffer;
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0)
+                return 0;
+            if (!buffer.hasRemaining())
+                return -1;
+            int read = Math.min(len, buffer.remaining());
+            buffer.get(b, off, read);
+            return read;
+        }
+    }
+
+    /**
+     * Sequential writer of a journal file through memory-mapped chunks.
+     */
+    private static final class MappedWriter implements Closeable {
+        private final FileChannel channel;
+        private MappedByteBuffer chunk;
+        private long position;
+
+        private MappedWriter(FileChannel channel, long position) {
+            this.channel = channel;
+            this.position = position;
+        }
+
+        private static MappedWriter create(Path path, int magic, long generation) throws IOException {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            MappedWriter writer = new MappedWriter(channel, 0);
+            writer.reserve(HEADER_SIZE);
+            writer.chunk.putInt(magic).putInt(VERSION).putLong(generation);
+            writer.force();
+            return writer;
+        }
+
+        /**
+         * Opens an existing file for appending, dropping whatever follows the last valid record
+         */
+        private static MappedWriter append(Path path, long validEnd) throws IOException {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            channel.truncate(validEnd);
+            return new MappedWriter(channel, validEnd);
+        }
+
+        private void write(RecordEncoder record) throws IOException {
+            int length = record.bytes.size();
+            reserve(RECORD_HEADER_SIZE + length);
+            chunk.putInt(length).putInt((int) record.crc.getValue()).put(record.bytes.buffer(), 0, length);
+        }
+
+        private void reserve(int bytes) throws IOException {
+            if (chunk == null || chunk.remaining() < bytes) {
+                if (chunk != null)
+                    chunk.force();
+                chunk = channel.map(FileChannel.MapMode.READ_WRITE, position, Math.max(CHUNK_SIZE, bytes));
+            }
+            position += bytes;
+        }
+
+        private void force() {
+            if (chunk != null)
+                chunk.force();
+        }
+
+        @Override
+        public void close() {
+            force();
+            try {
+                channel.close();
+            } catch (IOException e) {
+                logger.debug("Could not close journal file: {}", e.getMessage());
+            }
+        }
+    }
+}
@@ -14,6 +14,7 @@ import org.slf4j.LoggerFactory;
  * Leadership registrar for JobScheduler.
  * Registers a leadership latch on Zookeeper to ensure that only one node
  * in the cluster runs the Quartz scheduler.
+ * In sharded mode the nodes register as members of the cluster instead, see {@link #getMembershipPath()}.
  */
 @FrameworkComponent
 public class JobSchedulerLeadershipRegistrar {
@@ -28,11 +29,13 @@ public class JobSchedulerLeadershipRegistrar {
     private ZookeeperConnectorSystemApi zookeeperConnectorSystemApi;
 
     private String leadershipPath;
+    private String membershipPath;
 
     @OnActivate
     public void activate(ApplicationProperties applicationProperties) {
         String layer = clusterNodeOptions.getLayer();
         leadershipPath = "/" + layer + "/jobs/quartz/executor";
+        membershipPath = "/" + layer + "/jobs/quartz/members";
         logger.info("*** WATER JOB SCHEDULER CLUSTER SCHEDULER LEADERSHIP PATH: {} ***", leadershipPath);
         zookeeperConnectorSystemApi.registerLeadershipComponent(leadershipPath);
     }
@@ -40,4 +43,11 @@ public class JobSchedulerLeadershipRegistrar {
     public String getLeadershipPath() {
         return leadershipPath;
     }
+
+    /**
+     * @return parent path of the member nodes of the sharded mode, a sibling of the executor path
+     */
+    public String getMembershipPath() {
+        return membershipPath;
+    }
 }
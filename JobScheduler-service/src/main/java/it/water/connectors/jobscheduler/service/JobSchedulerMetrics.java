@@ -0,0 +1,124 @@
+package it.water.connectors.jobscheduler.service;
+
+import it.water.connectors.jobscheduler.api.AsyncJob;
+import it.water.connectors.jobscheduler.model.JobSchedulerConnectionPoolSnapshot;
+import it.water.connectors.jobscheduler.model.JobSchedulerGroupSnapshot;
+import it.water.connectors.jobscheduler.model.JobSchedulerHistogramSnapshot;
+import it.water.connectors.jobscheduler.model.JobSchedulerMetricsSnapshot;
+import org.quartz.*;
+import org.quartz.listeners.SchedulerListenerSupport;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Quartz listener collecting the JobScheduler metrics: fire lag, run duration by job group,
+ * misfires, vetoes, failures, busy workers and applied or unchanged job updates.
+ * Every callback only updates counters and histograms, so listeners never slow down job dispatch.
+ */
+public class JobSchedulerMetrics extends SchedulerListenerSupport implements JobListener, TriggerListener {
+    public static final String LISTENER_NAME = "WaterJobSchedulerMetrics";
+
+    private final LatencyHistogram fireLag = new LatencyHistogram();
+    private final Map<String, LatencyHistogram> runDurationByGroup = new ConcurrentHashMap<>();
+    private final LongAdder firedJobs = new LongAdder();
+    private final LongAdder failedJobs = new LongAdder();
+    private final LongAdder misfires = new LongAdder();
+    private final LongAdder vetoes = new LongAdder();
+    private final LongAdder appliedUpdates = new LongAdder();
+    private final LongAdder unchangedUpdates = new LongAdder();
+    private final AtomicInteger busyThreads = new AtomicInteger();
+    private final LongAccumulator peakBusyThreads = new LongAccumulator(Long::max, 0);
+
+    @Override
+    public String getName() {
+        return LISTENER_NAME;
+    }
+
+    @Override
+    public void jobToBeExecuted(JobExecutionContext context) {
+        firedJobs.increment();
+        peakBusyThreads.accumulate(busyThreads.incrementAndGet());
+        if (context.getScheduledFireTime() != null)
+            fireLag.record(System.currentTimeMillis() - context.getScheduledFireTime().getTime());
+    }
+
+    @Override
+    public void jobExecutionVetoed(JobExecutionContext context) {
+        vetoes.increment();
+    }
+
+    @Override
+    public void jobWasExecuted(JobExecutionContext context, JobExecutionException jobException) {
+        if (!isAsync(context))
+            busyThreads.decrementAndGet();
+        if (jobException != null)
+            failedJobs.increment();
+        String group = context.getJobDetail().getKey().getGroup();
+        runDurationByGroup.computeIfAbsent(group, g -> new LatencyHistogram()).record(context.getJobRunTime());
+    }
+
+    @Override
+    public void triggerFired(Trigger trigger, JobExecutionContext context) {
+        // fire lag is measured when the job is about to be executed
+    }
+
+    @Override
+    public boolean vetoJobExecution(Trigger trigger, JobExecutionContext context) {
+        return false;
+    }
+
+    @Override
+    public void triggerMisfired(Trigger trigger) {
+        misfires.increment();
+    }
+
+    @Override
+    public void triggerComplete(Trigger trigger, JobExecutionContext context, Trigger.CompletedExecutionInstruction triggerInstructionCode) {
+        // completion is tracked by jobWasExecuted, asynchronous jobs release their worker here, before completing
+        if (isAsync(context))
+            busyThreads.decrementAndGet();
+    }
+
+    @Override
+    public void schedulerError(String msg, SchedulerException cause) {
+        getLog().warn("Scheduler error: {}", msg);
+    }
+
+    private static boolean isAsync(JobExecutionContext context) {
+        return context.get(AsyncJob.COMPLETION_KEY) != null;
+    }
+
+    /**
+     * Records the outcome of a job update
+     * @param applied true if the update has been written to the scheduler, false if the job was already up to date
+     */
+    public void recordUpdate(boolean applied) {
+        if (applied)
+            appliedUpdates.increment();
+        else
+            unchangedUpdates.increment();
+    }
+
+    /**
+     * @param poolSize current size of the Quartz thread pool
+     * @param lastTakeoverLatencyMillis last leadership takeover latency
+     * @param bulkheadByGroup concurrency budgets of the job groups
+     * @param asyncJobsInFlight asynchronous executions not completed yet
+     * @param misfireBacklog missed fires waiting for the misfire catch-up
+     * @param connectionPool state of the JDBC job store connection pool, null when it is not used
+     * @return snapshot of the collected metrics
+     */
+    public JobSchedulerMetricsSnapshot snapshot(int poolSize, long lastTakeoverLatencyMillis, Map<String, JobSchedulerGroupSnapshot> bulkheadByGroup,
+                                                int asyncJobsInFlight, int misfireBacklog, JobSchedulerConnectionPoolSnapshot connectionPool) {
+        Map<String, JobSchedulerHistogramSnapshot> runDurations = new TreeMap<>();
+        runDurationByGroup.forEach((group, histogram) -> runDurations.put(group, histogram.snapshot()));
+        return new JobSchedulerMetricsSnapshot(System.currentTimeMillis(), poolSize, Math.max(0, busyThreads.get()), (int) peakBusyThreads.get(),
+                firedJobs.sum(), failedJobs.sum(), misfires.sum(), vetoes.sum(), appliedUpdates.sum(), unchangedUpdates.sum(),
+                lastTakeoverLatencyMillis, fireLag.snapshot(), runDurations, bulkheadByGroup, asyncJobsInFlight, misfireBacklog, connectionPool);
+    }
+}
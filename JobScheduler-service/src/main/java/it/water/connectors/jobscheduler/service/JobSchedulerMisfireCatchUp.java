@@ -0,0 +1,249 @@
+package it.water.connectors.jobscheduler.service;
+
+import it.water.connectors.jobscheduler.model.JobMisfirePolicy;
+import org.quartz.*;
+import org.quartz.listeners.TriggerListenerSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * Misfire catch-up: runs the fires missed by the jobs, e.g. during a leadership handover or a long pause,
+ * at a bounded rate instead of all at once.
+ * Cron triggers are stored with the "do nothing" misfire instruction and the misfire policy of their job;
+ * when the job store detects a misfire, the missed fires allowed by the policy are added to a backlog ordered
+ * by scheduled fire time, so that the most late fires run first. A dedicated thread drains the backlog
+ * through one-shot triggers, which carry the scheduled fire time of the missed fire.
+ */
+public class JobSchedulerMisfireCatchUp extends TriggerListenerSupport {
+    public static final String LISTENER_NAME = "WaterJobSchedulerMisfireCatchUp";
+    /**
+     * Trigger data key holding the misfire policy of the job, removed from the job data seen by the jobs
+     */
+    public static final String MISFIRE_POLICY_KEY = "it.water.connectors.jobscheduler.misfire.policy";
+    /**
+     * Trigger data key holding the scheduled fire time of the missed fire, in milliseconds
+     */
+    public static final String SCHEDULED_FIRE_TIME_KEY = "it.water.connectors.jobscheduler.misfire.scheduled.fire.time";
+    public static final int DEFAULT_FIRES_PER_SECOND = 10;
+    public static final int DEFAULT_MAX_FIRES_PER_JOB = 10;
+    public static final int DEFAULT_MAX_BACKLOG = 10000;
+    private static final Logger logger = LoggerFactory.getLogger(JobSchedulerMisfireCatchUp.class);
+
+    private final int firesPerSecond;
+    private final int maxFiresPerJob;
+    private final int maxBacklog;
+    private final PriorityQueue<MissedFire> backlog = new PriorityQueue<>();
+    private final LongAdder droppedFires = new LongAdder();
+    private long nextSequence;
+    private Scheduler scheduler;
+    private ScheduledExecutorService executor;
+    private Predicate<JobKey> runsOnThisNode = jobKey -> true;
+
+    /**
+     * @param firesPerSecond missed fires run every second, 0 or less to run them as fast as possible
+     * @param maxFiresPerJob maximum missed fires run for a job with the fire-all-bounded policy
+     * @param maxBacklog maximum missed fires waiting to run, further fires are dropped
+     */
+    public JobSchedulerMisfireCatchUp(int firesPerSecond, int maxFiresPerJob, int maxBacklog) {
+        this.firesPerSecond = firesPerSecond;
+        this.maxFiresPerJob = Math.max(1, maxFiresPerJob);
+        this.maxBacklog = Math.max(1, maxBacklog);
+    }
+
+    /**
+     * @param scheduler scheduler used to run the missed fires
+     */
+    public void setScheduler(Scheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * @param runsOnThisNode tells whether a job is run by this node, missed fires of other jobs are ignored
+     */
+    public void setRunsOnThisNode(Predicate<JobKey> runsOnThisNode) {
+        this.runsOnThisNode = runsOnThisNode;
+    }
+
+    @Override
+    public String getName() {
+        return LISTENER_NAME;
+    }
+
+    /**
+     * Hides the misfire policy from the job, it is bookkeeping of the cron trigger and not job data
+     */
+    @Override
+    public void triggerFired(Trigger trigger, JobExecutionContext context) {
+        context.getMergedJobDataMap().remove(MISFIRE_POLICY_KEY);
+    }
+
+    /**
+     * Adds to the backlog the missed fires of cron triggers allowed by the job policy.
+     * The job store notifies the trigger before updating it, so its next fire time is the first missed fire.
+     */
+    @Override
+    public void triggerMisfired(Trigger trigger) {
+        //one-shot triggers, including the catch-up ones, are fired now by Quartz itself
+        if (!(trigger instanceof CronTrigger))
+            return;
+        JobMisfirePolicy policy = policyOf(trigger);
+        Date firstMissed = trigger.getNextFireTime();
+        if (policy == JobMisfirePolicy.SKIP || firstMissed == null || !runsOnThisNode.test(trigger.getJobKey()))
+            return;
+        Deque<Long> missedFireTimes = new ArrayDeque<>();
+        if (policy == JobMisfirePolicy.FIRE_ALL_BOUNDED) {
+            Date now = new Date();
+            for (Date fireTime = firstMissed; fireTime != null && !fireTime.after(now); fireTime = trigger.getFireTimeAfter(fireTime)) {
+                missedFireTimes.addLast(fireTime.getTime());
+                if (missedFireTimes.size() > maxFiresPerJob)
+                    missedFireTimes.removeFirst();
+            }
+        } else {
+            missedFireTimes.add(firstMissed.getTime());
+        }
+        int dropped = 0;
+        synchronized (this) {
+            for (long scheduledFireTime : missedFireTimes) {
+                if (backlog.size() >= maxBacklog)
+                    dropped++;
+                else
+                    backlog.add(new MissedFire(trigger.getJobKey(), trigger.getJobDataMap(), scheduledFireTime, nextSequence++));
+            }
+        }
+        if (dropped > 0) {
+            droppedFires.add(dropped);
+            logger.warn("Misfire backlog is full, {} missed fires of job {} dropped", dropped, trigger.getJobKey());
+        }
+        logger.debug("Job {} misfired, {} fires queued with policy {}", trigger.getJobKey(), missedFireTimes.size() - dropped, policy);
+    }
+
+    /**
+     * Starts draining the backlog
+     */
+    public synchronized void start() {
+        if (executor != null)
+            return;
+        long period = firesPerSecond > 0 ? Math.max(1, 1000 / firesPerSecond) : 10;
+        int firesPerPeriod = firesPerSecond > 0 ? (int) Math.max(1, firesPerSecond * period / 1000) : Integer.MAX_VALUE;
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "water-jobscheduler-misfire-catchup");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(() -> drain(firesPerPeriod), period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops draining the backlog, the missed fires still queued are discarded
+     */
+    public synchronized void stop() {
+        if (executor == null)
+            return;
+        executor.shutdownNow();
+        executor = null;
+    }
+
+    /**
+     * @return missed fires waiting to run
+     */
+    public synchronized int getBacklog() {
+        return backlog.size();
+    }
+
+    /**
+     * @return missed fires dropped because the backlog was full
+     */
+    public long getDroppedFires() {
+        return droppedFires.sum();
+    }
+
+    /**
+     * Runs up to the given number of missed fires, the most late first
+     * @param maxFires maximum number of fires to run
+     * @return number of fires run
+     */
+    int drain(int maxFires) {
+        int released = 0;
+        while (released < maxFires) {
+            MissedFire missedFire;
+            synchronized (this) {
+                missedFire = backlog.poll();
+            }
+            if (missedFire == null)
+                break;
+            release(missedFire);
+            released++;
+        }
+        return released;
+    }
+
+    private void release(MissedFire missedFire) {
+        JobDataMap jobDataMap = new JobDataMap(missedFire.jobDataMap);
+        jobDataMap.put(SCHEDULED_FIRE_TIME_KEY, missedFire.scheduledFireTime);
+        Trigger trigger = TriggerBuilder.newTrigger()
+                .withIdentity("catchup-" + UUID.randomUUID(), missedFire.jobKey.getGroup())
+                .forJob(missedFire.jobKey)
+                .usingJobData(jobDataMap)
+                .startNow()
+                .withSchedule(SimpleScheduleBuilder.simpleSchedule().withMisfireHandlingInstructionFireNow())
+                .build();
+        try {
+            scheduler.scheduleJob(trigger);
+        } catch (SchedulerException e) {
+            logger.warn("Missed fire of job {} could not be run: {}", missedFire.jobKey, e.getMessage());
+        }
+    }
+
+    /**
+     * @return misfire policy stored in the trigger data, fire once for triggers stored without policy
+     */
+    static JobMisfirePolicy policyOf(Trigger trigger) {
+        Object policy = trigger.getJobDataMap().get(MISFIRE_POLICY_KEY);
+        if (policy == null)
+            return JobMisfirePolicy.FIRE_ONCE;
+        try {
+            return JobMisfirePolicy.valueOf(policy.toString());
+        } catch (IllegalArgumentException e) {
+            return JobMisfirePolicy.FIRE_ONCE;
+        }
+    }
+
+    private static final class MissedFire implements Comparable<MissedFire> {
+        private final JobKey jobKey;
+        private final Map<String, Object> jobDataMap;
+        private final long scheduledFireTime;
+        private final long sequence;
+
+        private MissedFire(JobKey jobKey, JobDataMap jobDataMap, long scheduledFireTime, long sequence) {
+            this.jobKey = jobKey;
+            this.jobDataMap = jobDataMap != null ? new HashMap<>(jobDataMap.getWrappedMap()) : new HashMap<>();
+            // one-shot triggers have no misfire policy
+            this.jobDataMap.remove(MISFIRE_POLICY_KEY);
+            this.scheduledFireTime = scheduledFireTime;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(MissedFire other) {
+            int byFireTime = Long.compare(scheduledFireTime, other.scheduledFireTime);
+            return byFireTime != 0 ? byFireTime : Long.compare(sequence, other.sequence);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof MissedFire && ((MissedFire) o).sequence == sequence;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(sequence);
+        }
+    }
+}
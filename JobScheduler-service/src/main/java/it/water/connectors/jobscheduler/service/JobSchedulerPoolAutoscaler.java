@@ -0,0 +1,163 @@
+package it.water.connectors.jobscheduler.service;
+
+import it.water.connectors.jobscheduler.service.quartz.ResizableThreadPool;
+import org.quartz.JobExecutionContext;
+import org.quartz.listeners.JobListenerSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Adaptive sizing of the worker pool within configured bounds, so that nodes are not provisioned for the peak.
+ * At every interval the pool grows by a quarter when fires are late or the scheduler waited for a free worker,
+ * unless the CPU is already over the threshold, since more workers would only add contention.
+ * CPU usage is the system CPU load reported by the JVM, when it is not available the threshold is ignored.
+ * It shrinks by a quarter, never below the workers used at the same time, after three intervals with jobs on time,
+ * no wait for workers and less than half of the workers used.
+ * Fire lag is measured as a job listener, the wait for workers by the {@link ResizableThreadPool}.
+ */
+public class JobSchedulerPoolAutoscaler extends JobListenerSupport {
+    public static final String LISTENER_NAME = "WaterJobSchedulerPoolAutoscaler";
+    public static final int DEFAULT_INTERVAL_MILLIS = 5000;
+    public static final int DEFAULT_LAG_THRESHOLD_MILLIS = 1000;
+    public static final int DEFAULT_CPU_THRESHOLD_PERCENT = 80;
+    private static final int IDLE_INTERVALS_BEFORE_SHRINK = 3;
+    private static final Logger logger = LoggerFactory.getLogger(JobSchedulerPoolAutoscaler.class);
+
+    private final ResizableThreadPool pool;
+    private final int minSize;
+    private final int maxSize;
+    private final long lagThresholdMillis;
+    private final double cpuThreshold;
+    private final LongAccumulator maxFireLag = new LongAccumulator(Long::max, 0);
+    private DoubleSupplier cpuLoad = JobSchedulerPoolAutoscaler::systemCpuLoad;
+    private long lastSaturationWaitNanos;
+    private int idleIntervals;
+    private ScheduledExecutorService executor;
+
+    /**
+     * @param pool worker pool to resize
+     * @param minSize minimum number of workers
+     * @param maxSize maximum number of workers
+     * @param lagThresholdMillis fire lag over which the pool grows
+     * @param cpuThresholdPercent CPU usage over which the pool does not grow
+     */
+    public JobSchedulerPoolAutoscaler(ResizableThreadPool pool, int minSize, int maxSize, long lagThresholdMillis, int cpuThresholdPercent) {
+        if (minSize <= 0 || maxSize < minSize)
+            throw new IllegalArgumentException("Invalid thread pool bounds: min " + minSize + ", max " + maxSize);
+        this.pool = pool;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.lagThresholdMillis = lagThresholdMillis;
+        this.cpuThreshold = cpuThresholdPercent / 100d;
+        this.lastSaturationWaitNanos = pool.getSaturationWaitNanos();
+    }
+
+    @Override
+    public String getName() {
+        return LISTENER_NAME;
+    }
+
+    @Override
+    public void jobToBeExecuted(JobExecutionContext context) {
+        if (context.getScheduledFireTime() != null)
+            maxFireLag.accumulate(System.currentTimeMillis() - context.getScheduledFireTime().getTime());
+    }
+
+    /**
+     * @param cpuLoad current CPU usage between 0 and 1, negative if not available
+     */
+    void setCpuLoad(DoubleSupplier cpuLoad) {
+        this.cpuLoad = cpuLoad;
+    }
+
+    /**
+     * Starts resizing the pool at every interval
+     * @param intervalMillis interval between the resizes in milliseconds
+     */
+    public synchronized void start(long intervalMillis) {
+        if (executor != null)
+            return;
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "water-jobscheduler-pool-autoscaler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = Math.max(100, intervalMillis);
+        executor.scheduleWithFixedDelay(() -> {
+            try {
+                adjust();
+            } catch (RuntimeException e) {
+                logger.warn("Could not resize the thread pool: {}", e.getMessage());
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (executor == null)
+            return;
+        executor.shutdownNow();
+        executor = null;
+    }
+
+    /**
+     * Resizes the pool within the bounds, the following adjustments start from the new size
+     * @param size requested number of workers
+     * @return number of workers set
+     */
+    public synchronized int resize(int size) {
+        int bounded = Math.max(minSize, Math.min(maxSize, size));
+        pool.resize(bounded);
+        idleIntervals = 0;
+        return bounded;
+    }
+
+    /**
+     * Resizes the pool according to the load observed since the previous adjustment
+     * @return new number of workers
+     */
+    synchronized int adjust() {
+        int size = pool.getPoolSize();
+        int peakBusy = pool.getAndResetPeakBusyCount();
+        long saturationWaitNanos = pool.getSaturationWaitNanos();
+        boolean saturated = saturationWaitNanos > lastSaturationWaitNanos;
+        lastSaturationWaitNanos = saturationWaitNanos;
+        long fireLag = maxFireLag.getThenReset();
+        double cpu = cpuLoad.getAsDouble();
+        // without a CPU reading the pool grows on lag and saturation alone
+        boolean cpuBusy = cpu >= 0 && cpu >= cpuThreshold;
+        int newSize = size;
+        if (fireLag > lagThresholdMillis || saturated) {
+            idleIntervals = 0;
+            if (!cpuBusy)
+                newSize = Math.min(maxSize, size + Math.max(1, size / 4));
+        } else if (peakBusy * 2 < size && ++idleIntervals >= IDLE_INTERVALS_BEFORE_SHRINK) {
+            idleIntervals = 0;
+            newSize = Math.max(minSize, Math.max(peakBusy + 1, size - Math.max(1, size / 4)));
+        } else if (peakBusy * 2 >= size) {
+            idleIntervals = 0;
+        }
+        // bounds may have changed since the pool was sized
+        newSize = Math.max(minSize, Math.min(maxSize, newSize));
+        if (newSize != size) {
+            logger.debug("Fire lag {} ms, saturated {}, peak busy {}, CPU {}: resizing pool to {}", fireLag, saturated, peakBusy, cpu, newSize);
+            pool.resize(newSize);
+        }
+        return newSize;
+    }
+
+    /**
+     * @return recent CPU usage of the whole system between 0 and 1, negative if not available
+     */
+    private static double systemCpuLoad() {
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        return os instanceof com.sun.management.OperatingSystemMXBean ? ((com.sun.management.OperatingSystemMXBean) os).getCpuLoad() : -1;
+    }
+}
@@ -0,0 +1,228 @@
+package it.water.connectors.jobscheduler.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Append-only replication log of job definitions, shared by the nodes of the cluster through a common file system.
+ * Every node appends the mutations it applies and tails the log to apply the ones written by the other nodes,
+ * so a follower already knows every job when it becomes leader.
+ * <p>
+ * File layout: a header made of a magic number and a generation, followed by length-prefixed serialized
+ * {@link ReplicatedJob} records. Compaction rewrites the file with a new generation keeping the latest record
+ * of every job, deletions included, so readers which detect a generation change restart from the first record
+ * and still remove the jobs deleted meanwhile (applying a record twice is harmless).
+ * Nodes do not report what they have applied, so deletions are never expired: a compacted log holds one record
+ * for every job key ever used, and grows with the number of distinct jobs rather than with the number of mutations.
+ * Records are deserialized through the allow-list of {@link ReplicatedJob#SERIAL_FILTER}, which is also checked
+ * on append so that records the other nodes could not read are refused. Records which cannot be read anyway,
+ * e.g. written by an older version, are kept as they are by compaction.
+ * Writers and compaction are serialized across processes through a lock on a sibling ".lock" file.
+ */
+public class JobSchedulerReplicationLog {
+    private static final Logger logger = LoggerFactory.getLogger(JobSchedulerReplicationLog.class);
+    private static final int MAGIC = 0x57524C47;
+    private static final int HEADER_SIZE = Integer.BYTES + Long.BYTES;
+
+    private final Path logPath;
+    private final Path lockPath;
+    private long generation = -1;
+    private long readOffset = HEADER_SIZE;
+
+    public JobSchedulerReplicationLog(Path logPath) {
+        this.logPath = logPath;
+        this.lockPath = logPath.resolveSibling(logPath.getFileName() + ".lock");
+    }
+
+    /**
+     * Appends a record at the end of the log, creating the log if needed
+     * @param record job mutation
+     * @throws IOException if the record cannot be serialized or written, or if it would be refused by the readers
+     */
+    public synchronized void append(ReplicatedJob record) throws IOException {
+        byte[] bytes = serialize(record);
+        try {
+            readRecord(bytes);
+        } catch (IOException | ClassNotFoundException e) {
+            throw new IOException("Job " + record.getJobKey() + " cannot be replicated, job data values must be strings, "
+                    + "primitive wrappers, dates or job keys: " + e.getMessage(), e);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + bytes.length);
+        buffer.putInt(bytes.length).put(bytes).flip();
+        FileChannel lockChannel = lock(false);
+        try (lockChannel) {
+            initializeIfMissing();
+            try (FileChannel channel = FileChannel.open(logPath, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                while (buffer.hasRemaining())
+                    channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * Reads the records appended since the previous call.
+     * @return new records, in log order
+     * @throws IOException if the log cannot be read
+     */
+    public synchronized List<ReplicatedJob> readNew() throws IOException {
+        List<ReplicatedJob> records = new ArrayList<>();
+        if (!Files.exists(logPath))
+            return records;
+        FileChannel lockChannel = lock(true);
+        try (lockChannel; FileChannel channel = FileChannel.open(logPath, StandardOpenOption.READ)) {
+            long fileGeneration = readGeneration(channel);
+            if (fileGeneration != generation) {
+                generation = fileGeneration;
+                readOffset = HEADER_SIZE;
+            }
+            long size = channel.size();
+            ByteBuffer lengthBuffer = ByteBuffer.allocate(Integer.BYTES);
+            while (readOffset + Integer.BYTES <= size) {
+                lengthBuffer.clear();
+                readFully(channel, lengthBuffer, readOffset);
+                int length = lengthBuffer.flip().getInt();
+                if (readOffset + Integer.BYTES + length > size)
+                    break;
+                ByteBuffer recordBuffer = ByteBuffer.allocate(length);
+                readFully(channel, recordBuffer, readOffset + Integer.BYTES);
+                readOffset += Integer.BYTES + length;
+                ReplicatedJob record = deserialize(recordBuffer.array());
+                if (record != null)
+                    records.add(record);
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Rewrites the log keeping only the latest record of every job: the definition of existing jobs
+     * and the deletion of the removed ones, which followers still have to apply.
+     * Unreadable records are kept in place, since the job they belong to is not known.
+     * @throws IOException if the log cannot be rewritten
+     */
+    public synchronized void compact() throws IOException {
+        if (!Files.exists(logPath))
+            return;
+        FileChannel lockChannel = lock(false);
+        try (lockChannel) {
+            // records are rewritten as they were read, keyed by job or by a placeholder for the unreadable ones
+            Map<Object, byte[]> latest = new LinkedHashMap<>();
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(logPath)))) {
+                in.skipBytes(HEADER_SIZE);
+                while (in.available() >= Integer.BYTES) {
+                    byte[] bytes = new byte[in.readInt()];
+                    in.readFully(bytes);
+                    ReplicatedJob record = deserialize(bytes);
+                    Object key = record != null ? record.getJobKey() : new Object();
+                    latest.remove(key);
+                    latest.put(key, bytes);
+                }
+            }
+            Path tmpPath = logPath.resolveSibling(logPath.getFileName() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpPath)))) {
+                out.writeInt(MAGIC);
+                out.writeLong(newGeneration());
+                for (byte[] bytes : latest.values()) {
+                    out.writeInt(bytes.length);
+                    out.write(bytes);
+                }
+            }
+            Files.move(tmpPath, logPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            logger.info("Job scheduler replication log compacted to {} records", latest.size());
+        }
+    }
+
+    /**
+     * @return current size of the log in bytes
+     * @throws IOException if the size cannot be read
+     */
+    public long size() throws IOException {
+        return Files.exists(logPath) ? Files.size(logPath) : 0;
+    }
+
+    /**
+     * @param shared true for a lock shared with the other readers
+     * @return channel of the lock file holding the lock, released when the channel is closed
+     */
+    private FileChannel lock(boolean shared) throws IOException {
+        Path parent = logPath.toAbsolutePath().getParent();
+        if (parent != null)
+            Files.createDirectories(parent);
+        FileChannel lockChannel = FileChannel.open(lockPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            lockChannel.lock(0, Long.MAX_VALUE, shared);
+            return lockChannel;
+        } catch (IOException | RuntimeException e) {
+            lockChannel.close();
+            throw e;
+        }
+    }
+
+    private void initializeIfMissing() throws IOException {
+        if (Files.exists(logPath) && Files.size(logPath) >= HEADER_SIZE)
+            return;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putLong(newGeneration()).flip();
+        try (FileChannel channel = FileChannel.open(logPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (header.hasRemaining())
+                channel.write(header);
+        }
+    }
+
+    private static long newGeneration() {
+        return ThreadLocalRandom.current().nextLong();
+    }
+
+    private long readGeneration(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        readFully(channel, header, 0);
+        header.flip();
+        if (header.getInt() != MAGIC)
+            throw new IOException("File " + logPath + " is not a job scheduler replication log");
+        return header.getLong();
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0)
+                throw new EOFException();
+        }
+    }
+
+    private static byte[] serialize(ReplicatedJob record) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+            oos.writeObject(record);
+        }
+        return bos.toByteArray();
+    }
+
+    private ReplicatedJob deserialize(byte[] bytes) {
+        try {
+            return readRecord(bytes);
+        } catch (IOException | ClassNotFoundException e) {
+            logger.error("Skipping unreadable record of replication log {}: {}", logPath, e.getMessage());
+            return null;
+        }
+    }
+
+    private static ReplicatedJob readRecord(byte[] bytes) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream ois = new ReplicatedJob.FilteredObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return (ReplicatedJob) ois.readObject();
+        }
+    }
+}
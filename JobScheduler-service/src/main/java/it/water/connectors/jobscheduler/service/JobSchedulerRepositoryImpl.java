@@ -1,7 +1,14 @@
 package it.water.connectors.jobscheduler.service;
 
 import it.water.connectors.jobscheduler.api.JobSchedulerRepository;
+import it.water.connectors.jobscheduler.model.JobListQuery;
+import it.water.connectors.jobscheduler.model.JobSummary;
 import it.water.core.interceptors.annotations.FrameworkComponent;
+import it.water.core.model.exceptions.WaterRuntimeException;
+import org.quartz.JobKey;
+import org.quartz.Trigger;
+import org.quartz.impl.jdbcjobstore.Constants;
+import org.quartz.utils.DBConnectionManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -9,35 +16,293 @@ import java.io.BufferedReader;
 import java.io.FileInputStream;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
  * Repository implementation for JobScheduler.
  * This is not related to a JPA Entity; it is used just for interacting
  * with the Quartz database to create scheduler tables.
+ * The script is applied as a single batch inside one transaction and a schema version row,
+ * holding the hash of the script, lets the following startups skip the whole bootstrap with one query.
+ * Job listings are read with a single keyset query joining jobs and triggers, instead of loading every
+ * job and trigger through the scheduler.
  */
 @FrameworkComponent
 public class JobSchedulerRepositoryImpl implements JobSchedulerRepository {
     public static final String QUARTZ_CREATION_SQL_POSTGRES_FILE = "quartz_creation_postgres.sql";
+    public static final String SCHEMA_VERSION_TABLE = "WATER_SCHEMA_VERSION";
     private static final Logger logger = LoggerFactory.getLogger(JobSchedulerRepositoryImpl.class);
 
     @Override
     public void createQuartzTableIfNotExists(String filePath) {
+        createQuartzTableIfNotExists(filePath, new Properties());
+    }
+
+    @Override
+    public void createQuartzTableIfNotExists(String filePath, Properties quartzProperties) {
+        String dataSourceName = quartzProperties.getProperty("org.quartz.jobStore.dataSource");
+        if (dataSourceName == null) {
+            logger.info("Quartz job store has no JDBC data source, skipping table creation");
+            return;
+        }
+        String dataSourcePrefix = "org.quartz.dataSource." + dataSourceName + ".";
+        String url = quartzProperties.getProperty(dataSourcePrefix + "URL");
+        if (url == null) {
+            logger.warn("Quartz data source {} has no URL, skipping table creation", dataSourceName);
+            return;
+        }
         try {
-            try (InputStream is = filePath == null
+            String sql = loadScript(filePath);
+            if (sql == null) {
+                logger.warn("Quartz SQL script not found, skipping table creation");
+                return;
+            }
+            String driver = quartzProperties.getProperty(dataSourcePrefix + "driver");
+            if (driver != null)
+                Class.forName(driver);
+            String versionTable = quartzProperties.getProperty("org.quartz.jobStore.tablePrefix", "QRTZ_") + SCHEMA_VERSION_TABLE;
+            try (Connection connection = DriverManager.getConnection(url, quartzProperties.getProperty(dataSourcePrefix + "user"),
+                    quartzProperties.getProperty(dataSourcePrefix + "password"))) {
+                applyScript(connection, versionTable, sql);
+            }
+        } catch (Exception t) {
+            logger.error(t.getMessage(), t);
+        }
+    }
+
+    @Override
+    public String findJobs(Properties quartzProperties, String schedulerName, JobListQuery query, Consumer<JobSummary> consumer) {
+        String dataSourceName = quartzProperties.getProperty("org.quartz.jobStore.dataSource");
+        if (dataSourceName == null)
+            throw new WaterRuntimeException("Quartz job store has no JDBC data source");
+        String tablePrefix = quartzProperties.getProperty("org.quartz.jobStore.tablePrefix", "QRTZ_");
+        List<Object> params = new ArrayList<>();
+        String sql = buildFindJobsQuery(tablePrefix, schedulerName, query, params);
+        // connections come from the pool of the scheduler data source, registered when the scheduler is created
+        try (Connection connection = DBConnectionManager.getInstance().getConnection(dataSourceName);
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (int i = 0; i < params.size(); i++)
+                statement.setObject(i + 1, params.get(i));
+            // one more row tells whether a next page exists
+            statement.setMaxRows(query.getLimit() + 1);
+            statement.setFetchSize(Math.min(query.getLimit() + 1, 500));
+            return readJobs(statement, query.getLimit(), consumer);
+        } catch (SQLException e) {
+            throw new WaterRuntimeException("Could not list jobs: " + e.getMessage(), e);
+        }
+    }
+
+    private static String buildFindJobsQuery(String tablePrefix, String schedulerName, JobListQuery query, List<Object> params) {
+        StringBuilder sql = new StringBuilder("SELECT J.JOB_GROUP, J.JOB_NAME, J.JOB_CLASS_NAME, J.DESCRIPTION, J.IS_DURABLE, ")
+                .append("T.TRIGGER_STATE, T.NEXT_FIRE_TIME, T.PREV_FIRE_TIME, C.CRON_EXPRESSION FROM ")
+                .append(tablePrefix).append("JOB_DETAILS J LEFT JOIN ").append(tablePrefix).append("TRIGGERS T")
+                .append(" ON T.SCHED_NAME = J.SCHED_NAME AND T.TRIGGER_GROUP = J.JOB_GROUP AND T.TRIGGER_NAME = J.JOB_NAME")
+                .append(" AND T.JOB_GROUP = J.JOB_GROUP AND T.JOB_NAME = J.JOB_NAME LEFT JOIN ").append(tablePrefix).append("CRON_TRIGGERS C")
+                .append(" ON C.SCHED_NAME = T.SCHED_NAME AND C.TRIGGER_GROUP = T.TRIGGER_GROUP AND C.TRIGGER_NAME = T.TRIGGER_NAME")
+                .append(" WHERE J.SCHED_NAME = ?");
+        params.add(schedulerName);
+        if (query.getCursor() != null) {
+            JobKey last = JobListCursor.decode(query.getCursor());
+            sql.append(" AND (J.JOB_GROUP > ? OR (J.JOB_GROUP = ? AND J.JOB_NAME > ?))");
+            params.add(last.getGroup());
+            params.add(last.getGroup());
+            params.add(last.getName());
+        }
+        if (query.getJobGroup() != null) {
+            sql.append(" AND J.JOB_GROUP = ?");
+            params.add(query.getJobGroup());
+        }
+        if (query.getTriggerState() != null)
+            sql.append(" AND ").append(triggerStateCondition(query.getTriggerState()));
+        if (query.getNextFireTimeBefore() != null) {
+            sql.append(" AND T.NEXT_FIRE_TIME <= ?");
+            params.add(query.getNextFireTimeBefore());
+        }
+        return sql.append(" ORDER BY J.JOB_GROUP, J.JOB_NAME").toString();
+    }
+
+    /**
+     * Maps a Quartz trigger state to the job store states, as JobStoreSupport.getTriggerState does
+     */
+    private static String triggerStateCondition(String triggerState) {
+        Trigger.TriggerState state;
+        try {
+            state = Trigger.TriggerState.valueOf(triggerState);
+        } catch (IllegalArgumentException e) {
+            throw new WaterRuntimeException("Invalid trigger state " + triggerState);
+        }
+        switch (state) {
+            case NONE:
+                return "(T.TRIGGER_STATE IS NULL OR T.TRIGGER_STATE = '" + Constants.STATE_DELETED + "')";
+            case COMPLETE:
+                return "T.TRIGGER_STATE = '" + Constants.STATE_COMPLETE + "'";
+            case PAUSED:
+                return "T.TRIGGER_STATE IN ('" + Constants.STATE_PAUSED + "', '" + Constants.STATE_PAUSED_BLOCKED + "')";
+            case BLOCKED:
+                return "T.TRIGGER_STATE = '" + Constants.STATE_BLOCKED + "'";
+            case ERROR:
+                return "T.TRIGGER_STATE = '" + Constants.STATE_ERROR + "'";
+            default:
+                return "T.TRIGGER_STATE NOT IN ('" + Constants.STATE_DELETED + "', '" + Constants.STATE_COMPLETE + "', '" + Constants.STATE_PAUSED
+                        + "', '" + Constants.STATE_PAUSED_BLOCKED + "', '" + Constants.STATE_BLOCKED + "', '" + Constants.STATE_ERROR + "')";
+        }
+    }
+
+    private static String readJobs(PreparedStatement statement, int limit, Consumer<JobSummary> consumer) throws SQLException {
+        int count = 0;
+        String lastGroup = null;
+        String lastName = null;
+        try (ResultSet rs = statement.executeQuery()) {
+            while (rs.next()) {
+                if (count == limit)
+                    return JobListCursor.encode(lastGroup, lastName);
+                lastGroup = rs.getString(1);
+                lastName = rs.getString(2);
+                String storeState = rs.getString(6);
+                long nextFireTime = rs.getLong(7);
+                boolean hasNextFireTime = !rs.wasNull() && nextFireTime > 0;
+                long previousFireTime = rs.getLong(8);
+                boolean hasPreviousFireTime = !rs.wasNull() && previousFireTime > 0;
+                consumer.accept(new JobSummary(lastGroup, lastName, rs.getString(3), rs.getString(4), rs.getBoolean(5),
+                        toTriggerState(storeState).name(), rs.getString(9), hasNextFireTime ? nextFireTime : null,
+                        hasPreviousFireTime ? previousFireTime : null));
+                count++;
+            }
+        }
+        return null;
+    }
+
+    private static Trigger.TriggerState toTriggerState(String storeState) {
+        if (storeState == null || storeState.equals(Constants.STATE_DELETED))
+            return Trigger.TriggerState.NONE;
+        if (storeState.equals(Constants.STATE_COMPLETE))
+            return Trigger.TriggerState.COMPLETE;
+        if (storeState.equals(Constants.STATE_PAUSED) || storeState.equals(Constants.STATE_PAUSED_BLOCKED))
+            return Trigger.TriggerState.PAUSED;
+        if (storeState.equals(Constants.STATE_ERROR))
+            return Trigger.TriggerState.ERROR;
+        if (storeState.equals(Constants.STATE_BLOCKED))
+            return Trigger.TriggerState.BLOCKED;
+        return Trigger.TriggerState.NORMAL;
+    }
+
+    private void applyScript(Connection connection, String versionTable, String sql) throws SQLException {
+        long start = System.currentTimeMillis();
+        String version = hash(sql);
+        if (version.equals(readSchemaVersion(connection, versionTable))) {
+            logger.info("Quartz schema version {} already applied, skipping table creation", version);
+            return;
+        }
+        List<String> statements = splitStatements(sql);
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (Statement statement = connection.createStatement()) {
+            for (String ddl : statements) {
+                statement.addBatch(ddl);
+            }
+            statement.addBatch("CREATE TABLE IF NOT EXISTS " + versionTable + " (SCHEMA_VERSION VARCHAR(64) NOT NULL, APPLIED_AT BIGINT NOT NULL)");
+            statement.addBatch("DELETE FROM " + versionTable);
+            statement.executeBatch();
+            try (PreparedStatement insert = connection.prepareStatement("INSERT INTO " + versionTable + " (SCHEMA_VERSION, APPLIED_AT) VALUES (?, ?)")) {
+                insert.setString(1, version);
+                insert.setLong(2, System.currentTimeMillis());
+                insert.executeUpdate();
+            }
+            connection.commit();
+            logger.info("Quartz schema version {} applied with {} statements in {} ms", version, statements.size(), System.currentTimeMillis() - start);
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    private String readSchemaVersion(Connection connection, String versionTable) {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT SCHEMA_VERSION FROM " + versionTable)) {
+            return rs.next() ? rs.getString(1) : null;
+        } catch (SQLException e) {
+            // version table does not exist yet
+            return null;
+        }
+    }
+
+    private String loadScript(String filePath) throws java.io.IOException {
+        try (InputStream is = filePath == null
                 ? this.getClass().getClassLoader().getResourceAsStream(QUARTZ_CREATION_SQL_POSTGRES_FILE)
                 : new FileInputStream(filePath)) {
-                if (is != null) {
-                    try (BufferedReader br = new BufferedReader(new InputStreamReader(is))) {
-                        String sql = br.lines().collect(Collectors.joining("\n"));
-                        logger.info("Quartz SQL script loaded ({} chars). Execution depends on DataSource availability.", sql.length());
-                    }
-                } else {
-                    logger.warn("Quartz SQL script not found, skipping table creation");
+            if (is == null)
+                return null;
+            try (BufferedReader br = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8))) {
+                return br.lines().collect(Collectors.joining("\n"));
+            }
+        }
+    }
+
+    /**
+     * Splits a SQL script into statements, dropping comments and ignoring separators inside quoted strings.
+     * @param sql SQL script
+     * @return statements of the script
+     */
+    static List<String> splitStatements(String sql) {
+        List<String> statements = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        int length = sql.length();
+        int i = 0;
+        while (i < length) {
+            char c = sql.charAt(i);
+            char next = i + 1 < length ? sql.charAt(i + 1) : 0;
+            if (c == '-' && next == '-') {
+                int end = sql.indexOf('\n', i);
+                i = end < 0 ? length : end;
+            } else if (c == '/' && next == '*') {
+                int end = sql.indexOf("*/", i + 2);
+                i = end < 0 ? length : end + 2;
+            } else if (c == '\'') {
+                int end = i + 1;
+                while (end < length && !(sql.charAt(end) == '\'' && (end + 1 >= length || sql.charAt(end + 1) != '\''))) {
+                    end += sql.charAt(end) == '\'' ? 2 : 1;
                 }
+                current.append(sql, i, Math.min(end + 1, length));
+                i = end + 1;
+            } else if (c == ';') {
+                addStatement(statements, current);
+                i++;
+            } else {
+                current.append(c);
+                i++;
             }
-        } catch (Exception t) {
-            logger.error(t.getMessage(), t);
+        }
+        addStatement(statements, current);
+        return statements;
+    }
+
+    private static void addStatement(List<String> statements, StringBuilder current) {
+        String statement = current.toString().trim();
+        if (!statement.isEmpty())
+            statements.add(statement);
+        current.setLength(0);
+    }
+
+    private static String hash(String sql) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(sql.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
         }
     }
 }
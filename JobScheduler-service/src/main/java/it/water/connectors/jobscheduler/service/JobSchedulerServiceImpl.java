@@ -2,6 +2,12 @@ package it.water.connectors.jobscheduler.service;
 
 import it.water.connectors.jobscheduler.api.JobSchedulerApi;
 import it.water.connectors.jobscheduler.api.JobSchedulerSystemApi;
+import it.water.connectors.jobscheduler.model.JobExecutionPage;
+import it.water.connectors.jobscheduler.model.JobFireHistogram;
+import it.water.connectors.jobscheduler.model.JobListQuery;
+import it.water.connectors.jobscheduler.model.JobSchedulerMetricsSnapshot;
+import it.water.connectors.jobscheduler.model.JobSchedulerReadiness;
+import it.water.connectors.jobscheduler.model.JobSummary;
 import it.water.core.api.registry.ComponentRegistry;
 import it.water.core.interceptors.annotations.FrameworkComponent;
 import it.water.core.interceptors.annotations.Inject;
@@ -9,6 +15,8 @@ import it.water.core.service.BaseServiceImpl;
 import lombok.Getter;
 import lombok.Setter;
 
+import java.util.function.Consumer;
+
 
 /**
  * @Generated by Water Generator
@@ -32,4 +40,29 @@ public class JobSchedulerServiceImpl extends BaseServiceImpl implements JobSched
     }
 
     //use getLog to retrieve Logger instance automatically instantiated for this class
+
+    @Override
+    public JobSchedulerMetricsSnapshot getMetrics() {
+        return systemService.getMetrics();
+    }
+
+    @Override
+    public JobSchedulerReadiness getReadiness() {
+        return systemService.getReadiness();
+    }
+
+    @Override
+    public JobFireHistogram getFireHistogram(int horizonSeconds) {
+        return systemService.getFireHistogram(horizonSeconds);
+    }
+
+    @Override
+    public JobExecutionPage getExecutionHistory(String jobGroup, String jobName, Long cursor, int limit) {
+        return systemService.getExecutionHistory(jobGroup, jobName, cursor, limit);
+    }
+
+    @Override
+    public String listJobs(JobListQuery query, Consumer<JobSummary> consumer) {
+        return systemService.listJobs(query, consumer);
+    }
 }
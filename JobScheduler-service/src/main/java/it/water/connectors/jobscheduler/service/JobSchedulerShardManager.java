@@ -0,0 +1,137 @@
+package it.water.connectors.jobscheduler.service;
+
+import org.quartz.JobExecutionContext;
+import org.quartz.JobKey;
+import org.quartz.Trigger;
+import org.quartz.listeners.TriggerListenerSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Sharded scheduling support for JobScheduler.
+ * Jobs are hashed into a fixed number of partitions and every partition is assigned to one of the live nodes
+ * by rendezvous hashing over the cluster membership: each node runs only the triggers of the partitions it owns.
+ * When a node joins, it takes over the partitions it wins from the other nodes; when a node leaves,
+ * only its partitions move, spread over the remaining nodes.
+ * Every node must hold its own copy of the triggers (e.g. RAM store plus replication), since the triggers
+ * of partitions owned by other nodes are vetoed: with a shared job store the vetoed fires would be lost.
+ */
+public class JobSchedulerShardManager extends TriggerListenerSupport {
+    public static final String SHARDING_KEY_GROUP = "group";
+    public static final String SHARDING_KEY_NAME = "name";
+    private static final Logger logger = LoggerFactory.getLogger(JobSchedulerShardManager.class);
+
+    private final int partitions;
+    private final boolean shardByGroup;
+    private final AtomicIntegerArray ownedPartitions;
+
+    public JobSchedulerShardManager(int partitions, String shardingKey) {
+        if (partitions <= 0)
+            throw new IllegalArgumentException("Number of partitions must be greater than 0");
+        this.partitions = partitions;
+        this.shardByGroup = !SHARDING_KEY_NAME.equalsIgnoreCase(shardingKey);
+        this.ownedPartitions = new AtomicIntegerArray(partitions);
+    }
+
+    @Override
+    public String getName() {
+        return "WaterJobSchedulerShardManager";
+    }
+
+    /**
+     * Vetoes the execution of jobs whose partition is not led by this node.
+     */
+    @Override
+    public boolean vetoJobExecution(Trigger trigger, JobExecutionContext context) {
+        if (isOwned(trigger.getJobKey()))
+            return false;
+        context.put(JobExecutionHistory.SKIPPED_FIRE_KEY, Boolean.TRUE);
+        return true;
+    }
+
+    /**
+     * @param jobKey job key
+     * @return partition the job belongs to, computed from its group or from its full key
+     */
+    public int partitionOf(JobKey jobKey) {
+        String shardingValue = shardByGroup ? jobKey.getGroup() : jobKey.getGroup() + "." + jobKey.getName();
+        return Math.floorMod(shardingValue.hashCode(), partitions);
+    }
+
+    public boolean isOwned(JobKey jobKey) {
+        return ownedPartitions.get(partitionOf(jobKey)) == 1;
+    }
+
+    public void setOwned(int partition, boolean owned) {
+        if (ownedPartitions.getAndSet(partition, owned ? 1 : 0) != (owned ? 1 : 0))
+            logger.info("Job scheduler partition {} is {} owned by this node, owned partitions: {}", partition, owned ? "now" : "no longer", getOwnedPartitions());
+    }
+
+    /**
+     * @return partitions currently led by this node
+     */
+    public Set<Integer> getOwnedPartitions() {
+        Set<Integer> owned = new TreeSet<>();
+        for (int i = 0; i < partitions; i++) {
+            if (ownedPartitions.get(i) == 1)
+                owned.add(i);
+        }
+        return owned;
+    }
+
+    public int getPartitions() {
+        return partitions;
+    }
+
+    /**
+     * Assigns the partitions to the live nodes, this node keeps the partitions for which it has the highest score
+     * @param nodeId id of this node
+     * @param members ids of the live nodes, including this node
+     */
+    public void rebalance(String nodeId, Collection<String> members) {
+        for (int i = 0; i < partitions; i++)
+            setOwned(i, nodeId.equals(ownerOf(i, members)));
+    }
+
+    /**
+     * @param partition partition index
+     * @param members ids of the live nodes
+     * @return node owning the partition, the same on every node seeing the same members, null without members
+     */
+    static String ownerOf(int partition, Collection<String> members) {
+        String owner = null;
+        long ownerScore = Long.MIN_VALUE;
+        for (String member : members) {
+            long score = score(partition, member);
+            if (owner == null || score > ownerScore || (score == ownerScore && member.compareTo(owner) < 0)) {
+                owner = member;
+                ownerScore = score;
+            }
+        }
+        return owner;
+    }
+
+    // 64 bit FNV-1a of the member id and the partition, String.hashCode would cluster similar ids
+    private static long score(int partition, String member) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : member.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        for (int shift = 0; shift < 32; shift += 8) {
+            hash ^= (partition >>> shift) & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        // final avalanche, so that partitions differing by one bit get unrelated scores
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
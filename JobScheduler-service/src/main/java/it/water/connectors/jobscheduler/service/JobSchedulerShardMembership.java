@@ -0,0 +1,58 @@
+package it.water.connectors.jobscheduler.service;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.framework.recipes.nodes.GroupMember;
+import org.apache.curator.retry.ExponentialBackoffRetry;
+
+import java.io.Closeable;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Live nodes of a sharded scheduler.
+ * Every node keeps an ephemeral member node under the membership path, removed by Zookeeper when the session
+ * of the node expires, so the partitions of a crashed node are reassigned by the remaining nodes.
+ * While this node is disconnected from Zookeeper it reports no member, so it owns no partition
+ * instead of firing partitions that may have been reassigned meanwhile.
+ */
+public class JobSchedulerShardMembership implements Closeable {
+    private final CuratorFramework client;
+    private final GroupMember groupMember;
+    private final String nodeId;
+
+    /**
+     * @param connectString Zookeeper connection string
+     * @param membershipPath parent path of the member nodes
+     * @param nodeId id of this node
+     */
+    public JobSchedulerShardMembership(String connectString, String membershipPath, String nodeId) {
+        this.client = CuratorFrameworkFactory.newClient(connectString, new ExponentialBackoffRetry(1000, 3));
+        this.groupMember = new GroupMember(client, membershipPath, nodeId, nodeId.getBytes(StandardCharsets.UTF_8));
+        this.nodeId = nodeId;
+    }
+
+    public void start() {
+        client.start();
+        groupMember.start();
+    }
+
+    /**
+     * @return ids of the live nodes, including this node, empty while this node is disconnected
+     */
+    public Set<String> getMembers() {
+        if (!client.getZookeeperClient().isConnected())
+            return Collections.emptySet();
+        Set<String> members = new TreeSet<>(groupMember.getCurrentMembers().keySet());
+        members.add(nodeId);
+        return members;
+    }
+
+    @Override
+    public void close() {
+        groupMember.close();
+        client.close();
+    }
+}
@@ -1,9 +1,21 @@
 package it.water.connectors.jobscheduler.service;
 
+import it.water.connectors.jobscheduler.api.JobExecutionHistorySink;
 import it.water.connectors.jobscheduler.api.JobSchedulerRepository;
 import it.water.connectors.jobscheduler.api.JobSchedulerSystemApi;
 import it.water.connectors.jobscheduler.api.WaterJob;
+import it.water.connectors.jobscheduler.model.JobBatchReport;
+import it.water.connectors.jobscheduler.model.JobExecutionPage;
+import it.water.connectors.jobscheduler.model.JobFireHistogram;
+import it.water.connectors.jobscheduler.model.JobListQuery;
+import it.water.connectors.jobscheduler.model.JobMisfirePolicy;
+import it.water.connectors.jobscheduler.model.JobSchedulerMetricsSnapshot;
+import it.water.connectors.jobscheduler.model.JobSchedulerReadiness;
 import it.water.connectors.jobscheduler.model.JobSchedulerConstants;
+import it.water.connectors.jobscheduler.model.JobSummary;
+import it.water.connectors.jobscheduler.service.jfr.LeadershipChangeEvent;
+import it.water.connectors.jobscheduler.service.quartz.PooledConnectionProvider;
+import it.water.connectors.jobscheduler.service.quartz.ResizableThreadPool;
 import it.water.connectors.zookeeper.api.ZookeeperConnectorSystemApi;
 import it.water.core.api.bundle.ApplicationProperties;
 import it.water.core.api.interceptors.OnActivate;
@@ -16,10 +28,21 @@ import lombok.Setter;
 import org.apache.curator.framework.recipes.leader.LeaderLatchListener;
 import org.quartz.*;
 import org.quartz.impl.StdSchedulerFactory;
+import org.quartz.impl.jdbcjobstore.JobStoreSupport;
+import org.quartz.impl.matchers.GroupMatcher;
+import org.quartz.utils.DBConnectionManager;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Paths;
+import java.sql.SQLException;
 import java.text.ParseException;
-import java.util.Properties;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 import static org.quartz.CronScheduleBuilder.cronSchedule;
 
@@ -31,9 +54,79 @@ import static org.quartz.CronScheduleBuilder.cronSchedule;
 @FrameworkComponent
 public class JobSchedulerSystemServiceImpl extends BaseSystemServiceImpl implements JobSchedulerSystemApi {
 
+    /**
+     * JobScheduler properties which can be overridden through ApplicationProperties
+     */
+    private static final String[] JOB_SCHEDULER_PROPERTIES = {
+            JobSchedulerConstants.JOB_SCHEDULER_INIT_SCRIPT,
+            JobSchedulerConstants.JOB_SCHEDULER_SHARDING_PARTITIONS,
+            JobSchedulerConstants.JOB_SCHEDULER_SHARDING_KEY,
+            JobSchedulerConstants.JOB_SCHEDULER_SHARDING_ZOOKEEPER,
+            JobSchedulerConstants.JOB_SCHEDULER_SHARDING_REBALANCE_INTERVAL,
+            JobSchedulerConstants.JOB_SCHEDULER_STANDBY_WARM,
+            JobSchedulerConstants.JOB_SCHEDULER_STANDBY_LOG_PATH,
+            JobSchedulerConstants.JOB_SCHEDULER_STANDBY_POLL_INTERVAL,
+            JobSchedulerConstants.JOB_SCHEDULER_STANDBY_COMPACT_THRESHOLD,
+            JobSchedulerConstants.JOB_SCHEDULER_CRON_CACHE_SIZE,
+            JobSchedulerConstants.JOB_SCHEDULER_CRON_SMEAR_WINDOW,
+            JobSchedulerConstants.JOB_SCHEDULER_HISTORY_SIZE,
+            JobSchedulerConstants.JOB_SCHEDULER_HISTORY_SINK_JDBC,
+            JobSchedulerConstants.JOB_SCHEDULER_HISTORY_SINK_BATCH_SIZE,
+            JobSchedulerConstants.JOB_SCHEDULER_HISTORY_SINK_FLUSH_INTERVAL,
+            JobSchedulerConstants.JOB_SCHEDULER_MISFIRE_CATCHUP_RATE,
+            JobSchedulerConstants.JOB_SCHEDULER_MISFIRE_MAX_FIRES_PER_JOB,
+            JobSchedulerConstants.JOB_SCHEDULER_MISFIRE_MAX_BACKLOG,
+            JobSchedulerConstants.JOB_SCHEDULER_DATASOURCE_POOL,
+            JobSchedulerConstants.JOB_SCHEDULER_JOURNAL_PATH,
+            JobSchedulerConstants.JOB_SCHEDULER_JOURNAL_SYNC_INTERVAL,
+            JobSchedulerConstants.JOB_SCHEDULER_JOURNAL_SNAPSHOT_THRESHOLD,
+            JobSchedulerConstants.JOB_SCHEDULER_EVENT_WINDOW,
+            JobSchedulerConstants.JOB_SCHEDULER_POOL_ADAPTIVE,
+            JobSchedulerConstants.JOB_SCHEDULER_POOL_MIN,
+            JobSchedulerConstants.JOB_SCHEDULER_POOL_MAX,
+            JobSchedulerConstants.JOB_SCHEDULER_POOL_LAG_THRESHOLD,
+            JobSchedulerConstants.JOB_SCHEDULER_POOL_CPU_THRESHOLD,
+            JobSchedulerConstants.JOB_SCHEDULER_POOL_INTERVAL,
+            JobSchedulerConstants.JOB_SCHEDULER_ACTIVATION_ASYNC
+    };
+    private static final String DEFAULT_STANDBY_LOG_PATH = "data/jobscheduler/replication.log";
+    private static final int DEFAULT_HISTORY_SIZE = 8192;
+    // jobs read by a single listing page on in-memory job stores, whatever the filters
+    private static final int MAX_SCANNED_JOBS = 10000;
+    private static final int MAX_FIRE_HISTOGRAM_HORIZON = 24 * 3600;
+    private static final int JOURNAL_RESTORE_BATCH_SIZE = 10000;
+    private static final long ACTIVATION_STOP_TIMEOUT_MILLIS = 10000;
+
     private Properties quartzProps;
     private Properties jobschedulerProps;
-    private Scheduler scheduler;
+    private volatile Scheduler scheduler;
+    private volatile JobSchedulerReadiness readiness = JobSchedulerReadiness.STOPPED;
+    private volatile CountDownLatch initialized = new CountDownLatch(0);
+    private Thread activationThread;
+    // jobs added while the scheduler is starting, guarded by itself
+    private final List<WaterJob> queuedJobs = new ArrayList<>();
+    private boolean queueingJobs;
+    private JobSchedulerShardManager shardManager;
+    private JobSchedulerShardMembership shardMembership;
+    private ScheduledExecutorService shardingExecutor;
+    private final JobSchedulerMetrics metrics = new JobSchedulerMetrics();
+    private final AsyncJobTracker asyncJobs = new AsyncJobTracker();
+    private final JobSchedulerDependencies dependencies = new JobSchedulerDependencies();
+    private final JobSchedulerJobKeyIndex jobKeyIndex = new JobSchedulerJobKeyIndex();
+    private final JobSchedulerFlightRecorder flightRecorder = new JobSchedulerFlightRecorder();
+    private final String nodeId = UUID.randomUUID().toString();
+    private JobSchedulerReplicationLog replicationLog;
+    private ScheduledExecutorService standbyExecutor;
+    private volatile long lastTakeoverLatencyMillis = -1;
+    private JobSchedulerCronCache cronCache = new JobSchedulerCronCache(JobSchedulerCronCache.DEFAULT_MAX_SIZE);
+    private JobExecutionHistory executionHistory;
+    private JobSchedulerBulkhead bulkhead;
+    private int cronSmearWindowSeconds;
+    private JobSchedulerMisfireCatchUp misfireCatchUp;
+    private PooledConnectionProvider connectionPool;
+    private JobSchedulerJournal journal;
+    private JobSchedulerEventTriggers eventTriggers;
+    private JobSchedulerPoolAutoscaler poolAutoscaler;
 
     @Inject
     @Setter
@@ -47,35 +140,181 @@ public class JobSchedulerSystemServiceImpl extends BaseSystemServiceImpl impleme
     @Setter
     private JobSchedulerLeadershipRegistrar jobSchedulerLeadershipRegistrar;
 
+    /**
+     * Initializes the scheduler on a background thread, unless the asynchronous activation is disabled,
+     * so the component activation does not wait for the job store and Zookeeper.
+     * Jobs added meanwhile are queued and added as a batch before the scheduler starts, see {@link #getReadiness()}.
+     */
     @OnActivate
     public void onActivate(ApplicationProperties applicationProperties) {
+        readiness = JobSchedulerReadiness.STARTING;
+        initialized = new CountDownLatch(1);
+        loadProperties(applicationProperties);
+        if (!Boolean.parseBoolean(jobschedulerProps.getProperty(JobSchedulerConstants.JOB_SCHEDULER_ACTIVATION_ASYNC, "true"))) {
+            initialize();
+            return;
+        }
+        synchronized (queuedJobs) {
+            queueingJobs = true;
+        }
+        activationThread = new Thread(this::initialize, "water-jobscheduler-activation");
+        activationThread.setDaemon(true);
+        activationThread.start();
+    }
+
+    private void initialize() {
+        getLog().info("Initializing scheduler");
         try {
-            loadProperties(applicationProperties);
+            int cronCacheSize = getIntProperty(JobSchedulerConstants.JOB_SCHEDULER_CRON_CACHE_SIZE, JobSchedulerCronCache.DEFAULT_MAX_SIZE);
+            if (cronCacheSize > 0)
+                cronCache = new JobSchedulerCronCache(cronCacheSize);
+            cronSmearWindowSeconds = getIntProperty(JobSchedulerConstants.JOB_SCHEDULER_CRON_SMEAR_WINDOW, 0);
             // Create Quartz tables if they don't exist
             this.repository.createQuartzTableIfNotExists(
-                    jobschedulerProps.getProperty(JobSchedulerConstants.JOB_SCHEDULER_INIT_SCRIPT, null));
+                    jobschedulerProps.getProperty(JobSchedulerConstants.JOB_SCHEDULER_INIT_SCRIPT, null), quartzProps);
             // Get the scheduler
             getLog().info("Get scheduler");
             StdSchedulerFactory stdSchedulerFactory = getSchedulerFactory();
             scheduler = stdSchedulerFactory.getScheduler();
-            if (zookeeperConnectorSystemApi.isLeader(jobSchedulerLeadershipRegistrar.getLeadershipPath())) {
-                getLog().info("Scheduler is on zk leader, start");
-                scheduler.start();
+            registerMetricsListeners();
+            startExecutionHistory();
+            startBulkhead();
+            startMisfireCatchUp();
+            startEventTriggers();
+            startPoolAutoscaler();
+            startJournal();
+            if (Boolean.parseBoolean(jobschedulerProps.getProperty(JobSchedulerConstants.JOB_SCHEDULER_STANDBY_WARM, "false")))
+                startWarmStandby();
+            addQueuedJobs();
+            int partitions = getIntProperty(JobSchedulerConstants.JOB_SCHEDULER_SHARDING_PARTITIONS, 0);
+            if (partitions > 0) {
+                startSharded(partitions);
+            } else {
+                if (zookeeperConnectorSystemApi.isLeader(jobSchedulerLeadershipRegistrar.getLeadershipPath())) {
+                    getLog().info("Scheduler is on zk leader, start");
+                    scheduler.start();
+                }
+                addLeaderLatchListener();
             }
-            addLeaderLatchListener();
-        } catch (SchedulerException e) {
+            addQueuedJobsAndSetReady();
+            getLog().info("Scheduler initialized");
+        } catch (SchedulerException | RuntimeException e) {
             getLog().error(e.getMessage(), e);
+            readiness = JobSchedulerReadiness.FAILED;
+            dropQueuedJobs();
+        } finally {
+            initialized.countDown();
+        }
+    }
+
+    /**
+     * Adds in a single batch the jobs queued while the scheduler was starting, before the scheduler starts
+     */
+    private void addQueuedJobs() {
+        synchronized (queuedJobs) {
+            if (queuedJobs.isEmpty())
+                return;
+            getLog().info("Adding {} jobs queued during scheduler startup", queuedJobs.size());
+            JobBatchReport report = addJobsToScheduler(new ArrayList<>(queuedJobs));
+            queuedJobs.clear();
+            if (!report.isSuccessful())
+                getLog().error("Jobs queued during scheduler startup have not been added: {}", report.getErrors());
+        }
+    }
+
+    /**
+     * Adds the jobs queued while the scheduler was being started, then lets later jobs be added directly
+     */
+    private void addQueuedJobsAndSetReady() {
+        synchronized (queuedJobs) {
+            addQueuedJobs();
+            queueingJobs = false;
+            readiness = JobSchedulerReadiness.READY;
+        }
+    }
+
+    private void dropQueuedJobs() {
+        synchronized (queuedJobs) {
+            queueingJobs = false;
+            if (!queuedJobs.isEmpty())
+                getLog().error("Scheduler has not been initialized, {} queued jobs have not been added", queuedJobs.size());
+            queuedJobs.clear();
+        }
+    }
+
+    /**
+     * Queues the jobs if the scheduler is starting
+     * @return true if the jobs have been queued, false if they must be added to the scheduler
+     */
+    private boolean queueIfStarting(Collection<WaterJob> jobs) {
+        synchronized (queuedJobs) {
+            if (!queueingJobs) {
+                checkReady();
+                return false;
+            }
+            queuedJobs.addAll(jobs);
+            getLog().info("Scheduler is starting, {} jobs queued", jobs.size());
+            return true;
+        }
+    }
+
+    private void checkReady() {
+        JobSchedulerReadiness current = readiness;
+        if (current == JobSchedulerReadiness.STARTING || current == JobSchedulerReadiness.FAILED)
+            throw new WaterRuntimeException("Scheduler is not ready: " + current);
+    }
+
+    @Override
+    public JobSchedulerReadiness getReadiness() {
+        return readiness;
+    }
+
+    @Override
+    public boolean awaitReady(long timeoutMillis) {
+        try {
+            initialized.await(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
+        return readiness == JobSchedulerReadiness.READY;
     }
 
     @OnDeactivate
     public void onDeactivate() {
+        if (activationThread != null && activationThread.isAlive()) {
+            // a pending initialization is interrupted, the scheduler is shut down once it has ended
+            activationThread.interrupt();
+            try {
+                activationThread.join(ACTIVATION_STOP_TIMEOUT_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (activationThread.isAlive())
+                getLog().warn("Scheduler initialization has not stopped within {} ms, shutting down anyway", ACTIVATION_STOP_TIMEOUT_MILLIS);
+        }
+        readiness = JobSchedulerReadiness.STOPPED;
+        if (standbyExecutor != null)
+            standbyExecutor.shutdownNow();
+        if (shardingExecutor != null)
+            shardingExecutor.shutdownNow();
+        if (misfireCatchUp != null)
+            misfireCatchUp.stop();
+        if (eventTriggers != null)
+            eventTriggers.stop();
+        if (poolAutoscaler != null)
+            poolAutoscaler.stop();
         try {
             if (scheduler != null)
                 scheduler.shutdown();
         } catch (SchedulerException e) {
             getLog().error(e.getMessage(), e);
         }
+        if (executionHistory != null)
+            executionHistory.stopSink();
+        if (journal != null)
+            journal.close();
+        if (shardMembership != null)
+            shardMembership.close();
     }
 
     @Override
@@ -86,6 +325,8 @@ public class JobSchedulerSystemServiceImpl extends BaseSystemServiceImpl impleme
             getLog().error(errorMsg);
             throw new WaterRuntimeException(errorMsg);
         }
+        if (queueIfStarting(Collections.singletonList(job)))
+            return;
         JobKey jobKey = jobDetail.getKey();
         getLog().info("Adding job {} to scheduler", jobKey);
         try {
@@ -94,6 +335,7 @@ public class JobSchedulerSystemServiceImpl extends BaseSystemServiceImpl impleme
                 if (job.isActive()) {
                     schedule(job);
                 }
+                replicate(ReplicatedJob.upsert(nodeId, job));
             } else
                 getLog().warn("Job {} already exists, it has not been added", jobKey);
         } catch (ParseException | SchedulerException e) {
@@ -105,6 +347,7 @@ public class JobSchedulerSystemServiceImpl extends BaseSystemServiceImpl impleme
 
     @Override
     public void deleteJob(WaterJob job) {
+        checkReady();
         JobKey jobKey = job.getJobKey();
         if (jobKey == null) {
             String errorMsg = "Could not delete job: jobKey was null";
@@ -126,6 +369,7 @@ public class JobSchedulerSystemServiceImpl extends BaseSystemServiceImpl impleme
 
     @Override
     public void updateJob(WaterJob job) {
+        checkReady();
         JobDetail jobDetail = job.getJobDetail();
         if (jobDetail == null) {
             String errorMsg = "Could not update job: jobDetail was null";
@@ -135,15 +379,22 @@ public class JobSchedulerSystemServiceImpl extends BaseSystemServiceImpl impleme
         JobKey jobKey = job.getJobKey();
         getLog().info("Updating job {} to scheduler", jobKey);
         try {
-            if (scheduler.checkExists(jobKey)) {
+            JobDetail storedJobDetail = scheduler.getJobDetail(jobKey);
+            if (storedJobDetail == null) {
+                getLog().warn("Job does not exist, it has been neither updated nor scheduled");
+            } else if (isUpToDate(job, storedJobDetail, scheduler.getTrigger(new TriggerKey(jobKey.getName(), jobKey.getGroup())))) {
+                getLog().debug("Job {} is unchanged, update skipped", jobKey);
+                metrics.recordUpdate(false);
+            } else {
                 scheduler.addJob(jobDetail, true);
                 if (job.isActive()) {
                     schedule(job);
                 } else {
                     unschedule(job);
                 }
-            } else
-                getLog().warn("Job does not exist, it has been neither updated nor scheduled");
+                replicate(ReplicatedJob.upsert(nodeId, job));
+                metrics.recordUpdate(true);
+            }
         } catch (ParseException | SchedulerException e) {
             //getLog().error("Job {} has not been updated: {}", jobKey, e.getMessage());
             String errorMessage = String.format("Job %s has not been updated: %s", jobKey, e.getMessage());
@@ -151,6 +402,178 @@ public class JobSchedulerSystemServiceImpl extends BaseSystemServiceImpl impleme
         }
     }
 
+    @Override
+    public JobBatchReport addJobs(Collection<WaterJob> jobs) {
+        JobBatchReport report = new JobBatchReport();
+        if (queueIfStarting(jobs)) {
+            jobs.forEach(job -> report.record(String.valueOf(job.getJobKey()), JobBatchReport.Outcome.QUEUED));
+            return report;
+        }
+        return addJobsToScheduler(jobs);
+    }
+
+    private JobBatchReport addJobsToScheduler(Collection<WaterJob> jobs) {
+        JobBatchReport report = new JobBatchReport();
+        Map<JobDetail, Set<? extends Trigger>> jobsAndTriggers = new LinkedHashMap<>();
+        getLog().info("Adding batch of {} jobs to scheduler", jobs.size());
+        try {
+            Set<JobKey> existingKeys = findExistingJobKeys(jobs);
+            for (WaterJob job : jobs) {
+                JobDetail jobDetail = job.getJobDetail();
+                if (jobDetail == null) {
+                    report.recordFailure(String.valueOf(job.getJobKey()), "jobDetail was null");
+                    continue;
+                }
+                JobKey jobKey = jobDetail.getKey();
+                if (!existingKeys.add(jobKey)) {
+                    getLog().warn("Job {} already exists, it has not been added", jobKey);
+                    report.record(jobKey.toString(), JobBatchReport.Outcome.SKIPPED);
+                    continue;
+                }
+                try {
+                    Set<Trigger> triggers = job.isActive() ? Collections.singleton(buildTrigger(job, null)) : Collections.emptySet();
+                    jobsAndTriggers.put(jobDetail, triggers);
+                } catch (ParseException e) {
+                    report.recordFailure(jobKey.toString(), e.getMessage());
+                }
+            }
+            if (!jobsAndTriggers.isEmpty())
+                scheduler.scheduleJobs(jobsAndTriggers, false);
+            jobsAndTriggers.keySet().forEach(jobDetail -> report.record(jobDetail.getKey().toString(), JobBatchReport.Outcome.ADDED));
+            replicate(jobs, jobsAndTriggers.keySet());
+        } catch (SchedulerException e) {
+            getLog().error("Batch of jobs has not been added: {}", e.getMessage());
+            jobsAndTriggers.keySet().forEach(jobDetail -> report.recordFailure(jobDetail.getKey().toString(), e.getMessage()));
+        }
+        getLog().info("Batch add completed: {}", report);
+        return report;
+    }
+
+    @Override
+    public JobBatchReport updateJobs(Collection<WaterJob> jobs) {
+        checkReady();
+        JobBatchReport report = new JobBatchReport();
+        Map<JobDetail, Set<? extends Trigger>> jobsAndTriggers = new LinkedHashMap<>();
+        List<TriggerKey> triggersToUnschedule = new ArrayList<>();
+        getLog().info("Updating batch of {} jobs to scheduler", jobs.size());
+        try {
+            Set<JobKey> existingKeys = findExistingJobKeys(jobs);
+            Set<TriggerKey> existingTriggerKeys = findExistingTriggerKeys(jobs);
+            for (WaterJob job : jobs) {
+                JobDetail jobDetail = job.getJobDetail();
+                if (jobDetail == null) {
+                    report.recordFailure(String.valueOf(job.getJobKey()), "jobDetail was null");
+                    continue;
+                }
+                JobKey jobKey = jobDetail.getKey();
+                if (!existingKeys.contains(jobKey)) {
+                    getLog().warn("Job {} does not exist, it has been neither updated nor scheduled", jobKey);
+                    report.record(jobKey.toString(), JobBatchReport.Outcome.SKIPPED);
+                    continue;
+                }
+                TriggerKey triggerKey = new TriggerKey(jobKey.getName(), jobKey.getGroup());
+                boolean triggerExists = existingTriggerKeys.contains(triggerKey);
+                try {
+                    //the stored trigger of active jobs is both compared and reused to build the new one
+                    Trigger storedTrigger = triggerExists && job.isActive() ? scheduler.getTrigger(triggerKey) : null;
+                    //active jobs without trigger and inactive ones with a trigger have changed, nothing else is loaded for them
+                    if (triggerExists == job.isActive() && isUpToDate(job, null, storedTrigger)) {
+                        report.record(jobKey.toString(), JobBatchReport.Outcome.UNCHANGED);
+                        metrics.recordUpdate(false);
+                    } else if (job.isActive()) {
+                        jobsAndTriggers.put(jobDetail, Collections.singleton(buildTrigger(job, storedTrigger)));
+                    } else {
+                        jobsAndTriggers.put(jobDetail, Collections.emptySet());
+                        if (triggerExists)
+                            triggersToUnschedule.add(triggerKey);
+                    }
+                } catch (ParseException e) {
+                    report.recordFailure(jobKey.toString(), e.getMessage());
+                }
+            }
+            if (!jobsAndTriggers.isEmpty())
+                scheduler.scheduleJobs(jobsAndTriggers, true);
+            if (!triggersToUnschedule.isEmpty())
+                scheduler.unscheduleJobs(triggersToUnschedule);
+            jobsAndTriggers.keySet().forEach(jobDetail -> {
+                report.record(jobDetail.getKey().toString(), JobBatchReport.Outcome.UPDATED);
+                metrics.recordUpdate(true);
+            });
+            replicate(jobs, jobsAndTriggers.keySet());
+        } catch (SchedulerException e) {
+            getLog().error("Batch of jobs has not been updated: {}", e.getMessage());
+            jobsAndTriggers.keySet().forEach(jobDetail -> report.recordFailure(jobDetail.getKey().toString(), e.getMessage()));
+        }
+        getLog().info("Batch update completed: {}", report);
+        return report;
+    }
+
+    @Override
+    public JobBatchReport deleteJobs(Collection<WaterJob> jobs) {
+        checkReady();
+        JobBatchReport report = new JobBatchReport();
+        List<JobKey> jobKeys = new ArrayList<>();
+        getLog().info("Removing batch of {} jobs from scheduler", jobs.size());
+        try {
+            Set<JobKey> existingKeys = findExistingJobKeys(jobs);
+            for (WaterJob job : jobs) {
+                JobKey jobKey = job.getJobKey();
+                if (jobKey == null) {
+                    report.recordFailure(String.valueOf(jobKey), "jobKey was null");
+                } else if (!existingKeys.remove(jobKey)) {
+                    getLog().warn("Job {} does not exist", jobKey);
+                    report.record(jobKey.toString(), JobBatchReport.Outcome.SKIPPED);
+                } else {
+                    jobKeys.add(jobKey);
+                }
+            }
+            if (!jobKeys.isEmpty())
+                scheduler.deleteJobs(jobKeys);
+            jobKeys.forEach(this::forgetJob);
+            jobKeys.forEach(jobKey -> report.record(jobKey.toString(), JobBatchReport.Outcome.DELETED));
+            jobKeys.forEach(jobKey -> replicate(ReplicatedJob.delete(nodeId, jobKey)));
+        } catch (SchedulerException e) {
+            getLog().error("Batch of jobs has not been removed: {}", e.getMessage());
+            jobKeys.forEach(jobKey -> report.recordFailure(jobKey.toString(), e.getMessage()));
+        }
+        getLog().info("Batch delete completed: {}", report);
+        return report;
+    }
+
+    /**
+     * Loads the keys of the jobs already stored in the scheduler with one lookup per job group,
+     * instead of one existence check per job.
+     */
+    private Set<JobKey> findExistingJobKeys(Collection<WaterJob> jobs) throws SchedulerException {
+        Set<JobKey> existingKeys = new HashSet<>();
+        for (String group : jobGroups(jobs)) {
+            existingKeys.addAll(scheduler.getJobKeys(GroupMatcher.jobGroupEquals(group)));
+        }
+        return existingKeys;
+    }
+
+    /**
+     * Loads the keys of the triggers already stored in the scheduler with one lookup per job group,
+     * the trigger of a job shares its name and group.
+     */
+    private Set<TriggerKey> findExistingTriggerKeys(Collection<WaterJob> jobs) throws SchedulerException {
+        Set<TriggerKey> existingKeys = new HashSet<>();
+        for (String group : jobGroups(jobs)) {
+            existingKeys.addAll(scheduler.getTriggerKeys(GroupMatcher.triggerGroupEquals(group)));
+        }
+        return existingKeys;
+    }
+
+    private static Set<String> jobGroups(Collection<WaterJob> jobs) {
+        Set<String> groups = new HashSet<>();
+        for (WaterJob job : jobs) {
+            JobKey jobKey = job.getJobKey();
+            if (jobKey != null)
+                groups.add(jobKey.getGroup());
+        }
+        return groups;
+    }
+
     /**
      * Adds a LeaderLatchListener for scheduler start/standby transitions.
      */
@@ -161,26 +584,591 @@ public class JobSchedulerSystemServiceImpl extends BaseSystemServiceImpl impleme
             @Override
             public void isLeader() {
                 getLog().info("This node has become a zk leader, start scheduler");
+                LeadershipChangeEvent event = beginLeadershipChange(true);
+                long takeoverStart = System.nanoTime();
                 try {
+                    if (replicationLog != null)
+                        synchronizeStandby();
                     scheduler.start();
+                    lastTakeoverLatencyMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - takeoverStart);
+                    getLog().info("Scheduler started {} ms after leadership takeover", lastTakeoverLatencyMillis);
+                    event.succeeded = true;
                 } catch (SchedulerException e) {
                     getLog().error("Scheduler has not been started: {}", e.getMessage());
                 }
+                event.commit();
             }
 
             @Override
             public void notLeader() {
                 getLog().info("This node is not a zk leader anymore, standby scheduler");
+                LeadershipChangeEvent event = beginLeadershipChange(false);
                 try {
                     scheduler.standby();
+                    event.succeeded = true;
                 } catch (SchedulerException e) {
                     getLog().error("Scheduler has not been paused: {}", e.getMessage());
                 }
+                event.commit();
+            }
+
+            private LeadershipChangeEvent beginLeadershipChange(boolean leader) {
+                LeadershipChangeEvent event = new LeadershipChangeEvent();
+                event.nodeId = nodeId;
+                event.leadershipPath = leadershipPath;
+                event.leader = leader;
+                event.begin();
+                return event;
             }
 
         }, leadershipPath);
     }
 
+    /**
+     * Starts the scheduler in sharded mode: every node runs the scheduler and executes only the jobs
+     * belonging to the partitions assigned to it among the live nodes, reassigned periodically as nodes join or leave.
+     * Every node fires its own copy of the triggers, so the mode is refused on JDBC job stores, shared by the nodes.
+     */
+    private void startSharded(int partitions) throws SchedulerException {
+        if (JobStoreSupport.class.isAssignableFrom(scheduler.getMetaData().getJobStoreClass()))
+            throw new WaterRuntimeException("Sharded mode requires a job store local to each node, "
+                    + scheduler.getMetaData().getJobStoreClass().getName() + " is shared by the nodes");
+        String connectString = jobschedulerProps.getProperty(JobSchedulerConstants.JOB_SCHEDULER_SHARDING_ZOOKEEPER);
+        if (connectString == null)
+            throw new WaterRuntimeException("Sharded mode requires " + JobSchedulerConstants.JOB_SCHEDULER_SHARDING_ZOOKEEPER);
+        String shardingKey = jobschedulerProps.getProperty(JobSchedulerConstants.JOB_SCHEDULER_SHARDING_KEY, JobSchedulerShardManager.SHARDING_KEY_GROUP);
+        getLog().info("Scheduler runs in sharded mode with {} partitions by job {}", partitions, shardingKey);
+        shardManager = new JobSchedulerShardManager(partitions, shardingKey);
+        scheduler.getListenerManager().addTriggerListener(shardManager);
+        if (bulkhead != null)
+            bulkhead.setRunsOnThisNode(shardManager::isOwned);
+        if (misfireCatchUp != null)
+            misfireCatchUp.setRunsOnThisNode(shardManager::isOwned);
+        shardMembership = createShardMembership(connectString, jobSchedulerLeadershipRegistrar.getMembershipPath());
+        shardMembership.start();
+        rebalanceShards();
+        int rebalanceInterval = getIntProperty(JobSchedulerConstants.JOB_SCHEDULER_SHARDING_REBALANCE_INTERVAL, 1000);
+        shardingExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "water-jobscheduler-sharding");
+            thread.setDaemon(true);
+            return thread;
+        });
+        shardingExecutor.scheduleWithFixedDelay(this::rebalanceShards, rebalanceInterval, rebalanceInterval, TimeUnit.MILLISECONDS);
+        scheduler.start();
+    }
+
+    /**
+     * @param connectString Zookeeper connection string
+     * @param membershipPath parent path of the member nodes
+     * @return membership of this node, not started yet
+     */
+    protected JobSchedulerShardMembership createShardMembership(String connectString, String membershipPath) {
+        return new JobSchedulerShardMembership(connectString, membershipPath, nodeId);
+    }
+
+    private void rebalanceShards() {
+        try {
+            shardManager.rebalance(nodeId, shardMembership.getMembers());
+        } catch (RuntimeException e) {
+            getLog().error("Partitions have not been reassigned: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public long getLastTakeoverLatencyMillis() {
+        return lastTakeoverLatencyMillis;
+    }
+
+    @Override
+    public JobSchedulerMetricsSnapshot getMetrics() {
+        int poolSize = 0;
+        try {
+            if (scheduler != null && scheduler.getMetaData() != null)
+                poolSize = scheduler.getMetaData().getThreadPoolSize();
+        } catch (SchedulerException e) {
+            getLog().warn("Could not read scheduler thread pool size: {}", e.getMessage());
+        }
+        return metrics.snapshot(poolSize, lastTakeoverLatencyMillis, bulkhead != null ? bulkhead.snapshot() : Collections.emptyMap(), asyncJobs.getInFlight(),
+                misfireCatchUp != null ? misfireCatchUp.getBacklog() : 0, connectionPool != null ? connectionPool.snapshot() : null);
+    }
+
+    @Override
+    public List<Date> getNextFireTimes(String cronExpression, int count) {
+        try {
+            return cronCache.getNextFireTimes(cronExpression, TimeZone.getDefault(), new Date(), count);
+        } catch (ParseException e) {
+            throw new WaterRuntimeException("Invalid cron expression " + cronExpression + ": " + e.getMessage());
+        }
+    }
+
+    @Override
+    public JobFireHistogram getFireHistogram(int horizonSeconds) {
+        checkReady();
+        int horizon = Math.max(1, Math.min(horizonSeconds, MAX_FIRE_HISTOGRAM_HORIZON));
+        long from = System.currentTimeMillis() / 1000 * 1000 + 1000;
+        long to = from + horizon * 1000L;
+        // triggers sharing a cron expression share the same fire times, computed once
+        Map<CronExpression, Integer> cronTriggers = new HashMap<>();
+        List<Trigger> otherTriggers = new ArrayList<>();
+        try {
+            for (String triggerGroup : scheduler.getTriggerGroupNames()) {
+                for (TriggerKey triggerKey : scheduler.getTriggerKeys(GroupMatcher.triggerGroupEquals(triggerGroup))) {
+                    Trigger trigger = scheduler.getTrigger(triggerKey);
+                    if (trigger == null || scheduler.getTriggerState(triggerKey) != Trigger.TriggerState.NORMAL)
+                        continue;
+                    if (trigger instanceof CronTrigger && trigger.getEndTime() == null && !trigger.getStartTime().after(new Date(from))) {
+                        CronTrigger cronTrigger = (CronTrigger) trigger;
+                        cronTriggers.merge(cronCache.get(cronTrigger.getCronExpression(), cronTrigger.getTimeZone()), 1, Integer::sum);
+                    } else {
+                        otherTriggers.add(trigger);
+                    }
+                }
+            }
+        } catch (SchedulerException | ParseException e) {
+            throw new WaterRuntimeException("Fire histogram could not be computed: " + e.getMessage(), e);
+        }
+        SortedMap<Long, Integer> firesBySecond = new TreeMap<>();
+        long[] totalFires = {0};
+        cronTriggers.forEach((cronExpression, triggers) -> {
+            for (Date fireTime = cronExpression.getNextValidTimeAfter(new Date(from - 1)); fireTime != null && fireTime.getTime() < to;
+                 fireTime = cronExpression.getNextValidTimeAfter(fireTime)) {
+                firesBySecond.merge(fireTime.getTime() / 1000 * 1000, triggers, Integer::sum);
+                totalFires[0] += triggers;
+            }
+        });
+        for (Trigger trigger : otherTriggers) {
+            for (Date fireTime = trigger.getFireTimeAfter(new Date(from - 1)); fireTime != null && fireTime.getTime() < to;
+                 fireTime = trigger.getFireTimeAfter(fireTime)) {
+                firesBySecond.merge(fireTime.getTime() / 1000 * 1000, 1, Integer::sum);
+                totalFires[0]++;
+            }
+        }
+        return new JobFireHistogram(from, horizon, totalFires[0], firesBySecond);
+    }
+
+    @Override
+    public JobExecutionPage getExecutionHistory(String jobGroup, String jobName, Long cursor, int limit) {
+        if (executionHistory == null)
+            return new JobExecutionPage(Collections.emptyList(), null);
+        return executionHistory.query(jobGroup, jobName, cursor, limit);
+    }
+
+    @Override
+    public void setExecutionHistorySink(JobExecutionHistorySink sink) {
+        if (executionHistory == null) {
+            getLog().warn("Execution history is disabled, sink has not been set");
+            return;
+        }
+        if (sink == null) {
+            executionHistory.stopSink();
+            return;
+        }
+        executionHistory.startSink(sink, getIntProperty(JobSchedulerConstants.JOB_SCHEDULER_HISTORY_SIZE, DEFAULT_HISTORY_SIZE),
+                getIntProperty(JobSchedulerConstants.JOB_SCHEDULER_HISTORY_SINK_BATCH_SIZE, 256),
+                getIntProperty(JobSchedulerConstants.JOB_SCHEDULER_HISTORY_SINK_FLUSH_INTERVAL, 1000));
+    }
+
+    /**
+     * Dependencies are tracked by the node running the upstream jobs, so they are refused when the jobs of a dependency
+     * may run on different nodes: on a clustered job store the completions would be split among the nodes,
+     * in sharded mode the dependent job would be vetoed by the nodes which do not own its partition.
+     */
+    @Override
+    public void setJobDependencies(JobKey jobKey, Collection<JobKey> upstreamJobKeys) {
+        if (upstreamJobKeys != null && !upstreamJobKeys.isEmpty()) {
+            if (quartzProps != null && Boolean.parseBoolean(quartzProps.getProperty("org.quartz.jobStore.isClustered", "false")))
+                throw new WaterRuntimeException("Job dependencies are not supported on clustered job stores");
+            if (jobschedulerProps != null && getIntProperty(JobSchedulerConstants.JOB_SCHEDULER_SHARDING_PARTITIONS, 0) > 0)
+                throw new WaterRuntimeException("Job dependencies are not supported in sharded mode");
+        }
+        try {
+            dependencies.setDependencies(jobKey, upstreamJobKeys != null ? upstreamJobKeys : Collections.emptySet());
+        } catch (IllegalArgumentException e) {
+            getLog().error(e.getMessage());
+            throw new WaterRuntimeException(e.getMessage());
+        }
+        getLog().info("Job {} depends on {}", jobKey, upstreamJobKeys);
+    }
+
+    @Override
+    public Set<JobKey> getJobDependencies(JobKey jobKey) {
+        return dependencies.getDependencies(jobKey);
+    }
+
+    @Override
+    public void fire(JobKey jobKey, Map<String, Object> payload) {
+        checkReady();
+        try {
+            if (!scheduler.checkExists(jobKey))
+                throw new WaterRuntimeException("Could not fire job " + jobKey + ": job does not exist");
+            eventTriggers.fire(jobKey, payload);
+        } catch (SchedulerException | IllegalStateException e) {
+            getLog().error(e.getMessage(), e);
+            throw new WaterRuntimeException(e.getMessage());
+        }
+    }
+
+    @Override
+    public int resizeThreadPool(int size) {
+        checkReady();
+        try {
+            ResizableThreadPool pool = ResizableThreadPool.forScheduler(scheduler.getSchedulerName());
+            if (pool == null)
+                throw new WaterRuntimeException("Could not resize the thread pool: org.quartz.threadPool.class is not " + ResizableThreadPool.class.getName());
+            if (bulkhead != null)
+                throw new WaterRuntimeException("Could not resize the thread pool: job group budgets are computed on the configured pool size");
+            if (poolAutoscaler != null)
+                return poolAutoscaler.resize(size);
+            pool.resize(size);
+            return size;
+        } catch (SchedulerException | IllegalArgumentException e) {
+            getLog().error(e.getMessage());
+            throw new WaterRuntimeException(e.getMessage());
+        }
+    }
+
+    @Override
+    public String listJobs(JobListQuery query, Consumer<JobSummary> consumer) {
+        checkReady();
+        try {
+            if (quartzProps != null && quartzProps.getProperty("org.quartz.jobStore.dataSource") != null)
+                return repository.findJobs(quartzProps, scheduler.getSchedulerName(), query, consumer);
+            return listSchedulerJobs(query, consumer);
+        } catch (SchedulerException e) {
+            throw new WaterRuntimeException("Could not list jobs: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Lists the jobs of in-memory job stores through the scheduler, one group at a time, following the sorted job names
+     * cached by {@link JobSchedulerJobKeyIndex}.
+     * A page stops after {@link #MAX_SCANNED_JOBS} jobs even if it is not full, so that selective filters
+     * do not turn a page into a scan of the whole store; listings go on until the next cursor is null.
+     */
+    private String listSchedulerJobs(JobListQuery query, Consumer<JobSummary> consumer) throws SchedulerException {
+        Trigger.TriggerState triggerState = parseTriggerState(query.getTriggerState());
+        JobKey last = query.getCursor() != null ? JobListCursor.decode(query.getCursor()) : null;
+        List<String> groups = query.getJobGroup() != null ? Collections.singletonList(query.getJobGroup()) : new ArrayList<>(scheduler.getJobGroupNames());
+        Collections.sort(groups);
+        int count = 0;
+        int scanned = 0;
+        JobKey lastListed = null;
+        for (String group : groups) {
+            if (last != null && group.compareTo(last.getGroup()) < 0)
+                continue;
+            String[] names = jobKeyIndex.getSortedNames(scheduler, group);
+            int from = 0;
+            if (last != null && group.equals(last.getGroup())) {
+                int position = Arrays.binarySearch(names, last.getName());
+                from = position >= 0 ? position + 1 : -position - 1;
+            }
+            for (int i = from; i < names.length; i++) {
+                JobKey jobKey = new JobKey(names[i], group);
+                if (scanned++ == MAX_SCANNED_JOBS)
+                    return JobListCursor.encode(lastListed.getGroup(), lastListed.getName());
+                JobSummary summary = summarize(jobKey);
+                if (summary != null && matches(summary, triggerState, query.getNextFireTimeBefore())) {
+                    if (count == query.getLimit())
+                        return JobListCursor.encode(lastListed.getGroup(), lastListed.getName());
+                    consumer.accept(summary);
+                    count++;
+                }
+                lastListed = jobKey;
+            }
+        }
+        return null;
+    }
+
+    private JobSummary summarize(JobKey jobKey) throws SchedulerException {
+        JobDetail jobDetail = scheduler.getJobDetail(jobKey);
+        if (jobDetail == null)
+            return null;
+        TriggerKey triggerKey = new TriggerKey(jobKey.getName(), jobKey.getGroup());
+        Trigger trigger = scheduler.getTrigger(triggerKey);
+        if (trigger == null)
+            return new JobSummary(jobKey.getGroup(), jobKey.getName(), jobDetail.getJobClass().getName(), jobDetail.getDescription(),
+                    jobDetail.isDurable(), Trigger.TriggerState.NONE.name(), null, null, null);
+        return new JobSummary(jobKey.getGroup(), jobKey.getName(), jobDetail.getJobClass().getName(), jobDetail.getDescription(),
+                jobDetail.isDurable(), scheduler.getTriggerState(triggerKey).name(),
+                trigger instanceof CronTrigger ? ((CronTrigger) trigger).getCronExpression() : null,
+                trigger.getNextFireTime() != null ? trigger.getNextFireTime().getTime() : null,
+                trigger.getPreviousFireTime() != null ? trigger.getPreviousFireTime().getTime() : null);
+    }
+
+    private static boolean matches(JobSummary summary, Trigger.TriggerState triggerState, Long nextFireTimeBefore) {
+        return (triggerState == null || triggerState.name().equals(summary.getTriggerState()))
+                && (nextFireTimeBefore == null || (summary.getNextFireTime() != null && summary.getNextFireTime() <= nextFireTimeBefore));
+    }
+
+    private static Trigger.TriggerState parseTriggerState(String triggerState) {
+        if (triggerState == null)
+            return null;
+        try {
+            return Trigger.TriggerState.valueOf(triggerState);
+        } catch (IllegalArgumentException e) {
+            throw new WaterRuntimeException("Invalid trigger state " + triggerState);
+        }
+    }
+
+    private void startExecutionHistory() throws SchedulerException {
+        int historySize = getIntProperty(JobSchedulerConstants.JOB_SCHEDULER_HISTORY_SIZE, DEFAULT_HISTORY_SIZE);
+        if (historySize <= 0) {
+            getLog().info("Job execution history is disabled");
+            return;
+        }
+        executionHistory = new JobExecutionHistory(nodeId, historySize);
+        scheduler.getListenerManager().addJobListener(asyncJobs.wrap(executionHistory));
+        if (Boolean.parseBoolean(jobschedulerProps.getProperty(JobSchedulerConstants.JOB_SCHEDULER_HISTORY_SINK_JDBC, "false"))) {
+            JdbcJobExecutionHistorySink sink = JdbcJobExecutionHistorySink.fromQuartzProperties(quartzProps);
+            if (sink != null)
+                setExecutionHistorySink(sink);
+            else
+                getLog().warn("Quartz job store has no JDBC data source, execution history will not be persisted");
+        }
+    }
+
+    /**
+     * Enforces the per-group concurrency budgets, if any group has one.
+     * Budgets are read from the configuration file only, since group names are not known in advance.
+     */
+    private void startBulkhead() throws SchedulerException {
+        Map<String, Integer> maxConcurrency = new HashMap<>();
+        Map<String, Integer> reserved = new HashMap<>();
+        for (String key : jobschedulerProps.stringPropertyNames()) {
+            if (!key.startsWith(JobSchedulerConstants.JOB_SCHEDULER_BULKHEAD_PREFIX))
+                continue;
+            String groupKey = key.substring(JobSchedulerConstants.JOB_SCHEDULER_BULKHEAD_PREFIX.length());
+            if (groupKey.endsWith(".max"))
+                maxConcurrency.put(groupKey.substring(0, groupKey.length() - ".max".length()), getIntProperty(key, Integer.MAX_VALUE));
+            else if (groupKey.endsWith(".reserved"))
+                reserved.put(groupKey.substring(0, groupKey.length() - ".reserved".length()), Math.max(0, getIntProperty(key, 0)));
+            else
+                getLog().warn("Unknown job group budget property {}", key);
+        }
+        if (maxConcurrency.isEmpty() && reserved.isEmpty())
+            return;
+        int poolSize = scheduler.getMetaData().getThreadPoolSize();
+        try {
+            bulkhead = new JobSchedulerBulkhead(poolSize, maxConcurrency, reserved);
+        } catch (IllegalArgumentException e) {
+            throw new WaterRuntimeException("Invalid job group budgets: " + e.getMessage(), e);
+        }
+        bulkhead.setScheduler(scheduler);
+        getLog().info("Job group budgets enabled, max running jobs: {}, reserved workers: {}", maxConcurrency, reserved);
+        ListenerManager listenerManager = scheduler.getListenerManager();
+        listenerManager.addTriggerListener(bulkhead);
+        listenerManager.addJobListener(asyncJobs.wrap(bulkhead));
+    }
+
+    /**
+     * Starts the adaptive sizing of the worker pool, if enabled
+     */
+    private void startPoolAutoscaler() throws SchedulerException {
+        if (!Boolean.parseBoolean(jobschedulerProps.getProperty(JobSchedulerConstants.JOB_SCHEDULER_POOL_ADAPTIVE, "false")))
+            return;
+        ResizableThreadPool pool = ResizableThreadPool.forScheduler(scheduler.getSchedulerName());
+        if (pool == null) {
+            getLog().warn("Adaptive thread pool requires org.quartz.threadPool.class={}, pool size is fixed", ResizableThreadPool.class.getName());
+            return;
+        }
+        //reserved workers and shared slots of the budgets are computed once on the configured pool size
+        if (bulkhead != null)
+            throw new WaterRuntimeException("Adaptive thread pool cannot be enabled together with job group budgets");
+        try {
+            poolAutoscaler = new JobSchedulerPoolAutoscaler(pool,
+                    getIntProperty(JobSchedulerConstants.JOB_SCHEDULER_POOL_MIN, 1),
+                    getIntProperty(JobSchedulerConstants.JOB_SCHEDULER_POOL_MAX, pool.getPoolSize() * 4),
+                    getIntProperty(JobSchedulerConstants.JOB_SCHEDULER_POOL_LAG_THRESHOLD, JobSchedulerPoolAutoscaler.DEFAULT_LAG_THRESHOLD_MILLIS),
+                    getIntProperty(JobSchedulerConstants.JOB_SCHEDULER_POOL_CPU_THRESHOLD, JobSchedulerPoolAutoscaler.DEFAULT_CPU_THRESHOLD_PERCENT));
+        } catch (IllegalArgumentException e) {
+            getLog().error("Adaptive thread pool disabled: {}", e.getMessage());
+            return;
+        }
+        scheduler.getListenerManager().addJobListener(poolAutoscaler);
+        poolAutoscaler.start(getIntProperty(JobSchedulerConstants.JOB_SCHEDULER_POOL_INTERVAL, JobSchedulerPoolAutoscaler.DEFAULT_INTERVAL_MILLIS));
+    }
+
+    /**
+     * Starts the event triggers, which coalesce the events fired for a job into single runs
+     */
+    private void startEventTriggers() {
+        eventTriggers = new JobSchedulerEventTriggers(
+                getIntProperty(JobSchedulerConstants.JOB_SCHEDULER_EVENT_WINDOW, JobSchedulerEventTriggers.DEFAULT_WINDOW_MILLIS));
+        eventTriggers.setScheduler(scheduler);
+        eventTriggers.start();
+    }
+
+    /**
+     * Starts the misfire catch-up, which runs the fires missed by the jobs at a bounded rate
+     */
+    private void startMisfireCatchUp() throws SchedulerException {
+        misfireCatchUp = new JobSchedulerMisfireCatchUp(
+                getIntProperty(JobSchedulerConstants.JOB_SCHEDULER_MISFIRE_CATCHUP_RATE, JobSchedulerMisfireCatchUp.DEFAULT_FIRES_PER_SECOND),
+                getIntProperty(JobSchedulerConstants.JOB_SCHEDULER_MISFIRE_MAX_FIRES_PER_JOB, JobSchedulerMisfireCatchUp.DEFAULT_MAX_FIRES_PER_JOB),
+                getIntProperty(JobSchedulerConstants.JOB_SCHEDULER_MISFIRE_MAX_BACKLOG, JobSchedulerMisfireCatchUp.DEFAULT_MAX_BACKLOG));
+        misfireCatchUp.setScheduler(scheduler);
+        scheduler.getListenerManager().addTriggerListener(misfireCatchUp);
+        misfireCatchUp.start();
+    }
+
+    private void registerMetricsListeners() throws SchedulerException {
+        ListenerManager listenerManager = scheduler.getListenerManager();
+        // the async job tracker must be the first job listener, it follows the executions of the listeners it wraps
+        listenerManager.addJobListener(asyncJobs);
+        listenerManager.addTriggerListener(asyncJobs);
+        listenerManager.addJobListener(asyncJobs.wrap(metrics));
+        dependencies.setScheduler(scheduler);
+        listenerManager.addJobListener(asyncJobs.wrap(dependencies));
+        listenerManager.addJobListener(asyncJobs.wrap(flightRecorder));
+        listenerManager.addTriggerListener(metrics);
+        listenerManager.addTriggerListener(flightRecorder);
+        listenerManager.addSchedulerListener(metrics);
+        listenerManager.addSchedulerListener(jobKeyIndex);
+    }
+
+    /**
+     * Starts the warm-standby mode: the replication log is replayed once to restore every known job definition,
+     * then it is tailed periodically so this node is ready to fire as soon as it becomes leader.
+     */
+    private void startWarmStandby() {
+        String logPath = jobschedulerProps.getProperty(JobSchedulerConstants.JOB_SCHEDULER_STANDBY_LOG_PATH, DEFAULT_STANDBY_LOG_PATH);
+        int pollInterval = getIntProperty(JobSchedulerConstants.JOB_SCHEDULER_STANDBY_POLL_INTERVAL, 1000);
+        getLog().info("Scheduler runs in warm-standby mode, replication log: {}", logPath);
+        replicationLog = new JobSchedulerReplicationLog(Paths.get(logPath));
+        synchronizeStandby();
+        standbyExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "water-jobscheduler-standby");
+            thread.setDaemon(true);
+            return thread;
+        });
+        standbyExecutor.scheduleWithFixedDelay(this::synchronizeStandby, pollInterval, pollInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Applies to the local scheduler the job definitions written to the replication log by the other nodes.
+     * The leader also compacts the log when it grows over the configured threshold.
+     */
+    private synchronized void synchronizeStandby() {
+        try {
+            Map<JobKey, ReplicatedJob> pending = new LinkedHashMap<>();
+            for (ReplicatedJob replicatedJob : replicationLog.readNew()) {
+                if (!nodeId.equals(replicatedJob.getOrigin())) {
+                    pending.remove(replicatedJob.getJobKey());
+                    pending.put(replicatedJob.getJobKey(), replicatedJob);
+                }
+            }
+            for (ReplicatedJob replicatedJob : pending.values()) {
+                applyReplicatedJob(replicatedJob);
+            }
+            if (!pending.isEmpty())
+                getLog().debug("Applied {} replicated job definitions", pending.size());
+            long compactThreshold = getIntProperty(JobSchedulerConstants.JOB_SCHEDULER_STANDBY_COMPACT_THRESHOLD, 64 * 1024 * 1024);
+            if (scheduler.isStarted() && !scheduler.isInStandbyMode() && replicationLog.size() > compactThreshold)
+                replicationLog.compact();
+        } catch (IOException | SchedulerException e) {
+            getLog().warn("Could not synchronize replicated job definitions: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Restores the jobs recorded by the local journal, if configured, before the scheduler is started.
+     * Jobs are scheduled in bulk, then every following change is appended to the journal.
+     */
+    private void startJournal() throws SchedulerException {
+        String journalPath = jobschedulerProps.getProperty(JobSchedulerConstants.JOB_SCHEDULER_JOURNAL_PATH);
+        if (journalPath == null || journalPath.isBlank())
+            return;
+        long start = System.currentTimeMillis();
+        JobSchedulerJournal jobJournal = new JobSchedulerJournal(Paths.get(journalPath.trim()),
+                getIntProperty(JobSchedulerConstants.JOB_SCHEDULER_JOURNAL_SNAPSHOT_THRESHOLD, (int) JobSchedulerJournal.DEFAULT_SNAPSHOT_THRESHOLD));
+        Collection<ReplicatedJob> jobs;
+        try {
+            jobs = jobJournal.open();
+        } catch (IOException e) {
+            getLog().error("Could not open the job journal {}: {}", journalPath, e.getMessage());
+            return;
+        }
+        Map<JobDetail, Set<? extends Trigger>> batch = new HashMap<>();
+        for (ReplicatedJob job : jobs) {
+            try {
+                batch.put(job.getJobDetail(), job.isActive() ? Collections.singleton(buildTrigger(job, null)) : Collections.emptySet());
+            } catch (ParseException | IllegalStateException e) {
+                getLog().warn("Journaled job {} has not been restored: {}", job.getJobKey(), e.getMessage());
+            }
+            if (batch.size() >= JOURNAL_RESTORE_BATCH_SIZE) {
+                scheduler.scheduleJobs(batch, true);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty())
+            scheduler.scheduleJobs(batch, true);
+        journal = jobJournal;
+        journal.start(getIntProperty(JobSchedulerConstants.JOB_SCHEDULER_JOURNAL_SYNC_INTERVAL, JobSchedulerJournal.DEFAULT_SYNC_INTERVAL_MILLIS));
+        getLog().info("Restored {} jobs from the job journal {} in {} ms", jobs.size(), journalPath, System.currentTimeMillis() - start);
+    }
+
+    private void applyReplicatedJob(ReplicatedJob replicatedJob) {
+        JobKey jobKey = replicatedJob.getJobKey();
+        journal(replicatedJob);
+        try {
+            if (replicatedJob.getOperation() == ReplicatedJob.Operation.DELETE) {
+                scheduler.deleteJob(jobKey);
+                forgetJob(jobKey);
+                return;
+            }
+            Set<Trigger> triggers = replicatedJob.isActive() ? Collections.singleton(buildTrigger(replicatedJob, null)) : Collections.emptySet();
+            scheduler.scheduleJobs(Collections.singletonMap(replicatedJob.getJobDetail(), triggers), true);
+            if (!replicatedJob.isActive())
+                scheduler.unscheduleJob(new TriggerKey(jobKey.getName(), jobKey.getGroup()));
+        } catch (ParseException | SchedulerException | IllegalStateException e) {
+            getLog().warn("Replicated job {} has not been applied: {}", jobKey, e.getMessage());
+        }
+    }
+
+    private void replicate(Collection<WaterJob> jobs, Set<JobDetail> appliedJobs) {
+        if (replicationLog == null && journal == null)
+            return;
+        Set<JobKey> appliedKeys = new HashSet<>();
+        appliedJobs.forEach(jobDetail -> appliedKeys.add(jobDetail.getKey()));
+        for (WaterJob job : jobs) {
+            if (job.getJobDetail() != null && appliedKeys.remove(job.getJobDetail().getKey()))
+                replicate(ReplicatedJob.upsert(nodeId, job));
+        }
+    }
+
+    private void replicate(ReplicatedJob replicatedJob) {
+        journal(replicatedJob);
+        if (replicationLog == null)
+            return;
+        try {
+            replicationLog.append(replicatedJob);
+        } catch (IOException e) {
+            getLog().error("Job {} has not been replicated: {}", replicatedJob.getJobKey(), e.getMessage());
+        }
+    }
+
+    private void journal(ReplicatedJob replicatedJob) {
+        if (journal == null)
+            return;
+        try {
+            journal.append(replicatedJob);
+        } catch (IOException e) {
+            getLog().error("Job {} has not been journaled: {}", replicatedJob.getJobKey(), e.getMessage());
+        }
+    }
+
+    private int getIntProperty(String key, int defaultValue) {
+        String value = jobschedulerProps.getProperty(key);
+        if (value == null || value.isBlank())
+            return defaultValue;
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            getLog().warn("Invalid value {} for property {}, using default {}", value, key, defaultValue);
+            return defaultValue;
+        }
+    }
+
     private void loadProperties(ApplicationProperties applicationProperties) {
         if (quartzProps == null) {
             quartzProps = new Properties();
@@ -204,10 +1192,11 @@ public class JobSchedulerSystemServiceImpl extends BaseSystemServiceImpl impleme
                 getLog().warn("Could not load it.water.connectors.jobscheduler.cfg from classpath: {}", e.getMessage());
             }
             // Also check ApplicationProperties for any overrides
-            String initScript = applicationProperties.getPropertyOrDefault(
-                    JobSchedulerConstants.JOB_SCHEDULER_INIT_SCRIPT, null);
-            if (initScript != null) {
-                jobschedulerProps.put(JobSchedulerConstants.JOB_SCHEDULER_INIT_SCRIPT, initScript);
+            for (String key : JOB_SCHEDULER_PROPERTIES) {
+                String value = applicationProperties.getPropertyOrDefault(key, null);
+                if (value != null) {
+                    jobschedulerProps.put(key, value);
+                }
             }
             getLog().debug("Loaded properties for JobScheduler: {}", quartzProps);
         }
@@ -216,27 +1205,83 @@ public class JobSchedulerSystemServiceImpl extends BaseSystemServiceImpl impleme
     private void schedule(WaterJob job) throws ParseException, SchedulerException {
         JobKey jobKey = job.getJobKey();
         getLog().info("Scheduling job {}", jobKey);
-        String cronExpression = job.getCronExpression();
-        CronExpression.validateExpression(cronExpression);
         TriggerKey triggerKey = new TriggerKey(jobKey.getName(), jobKey.getGroup());
-        TriggerBuilder<Trigger> triggerBuilder;
+        Trigger existingTrigger = scheduler.checkExists(triggerKey) ? scheduler.getTrigger(triggerKey) : null;
+        Trigger trigger = buildTrigger(job, existingTrigger);
+        if (scheduler.checkExists(triggerKey))
+            scheduler.rescheduleJob(triggerKey, trigger);
+        else
+            scheduler.scheduleJob(trigger);
+    }
 
-        if (scheduler.checkExists(triggerKey)) {
+    /**
+     * Builds the cron trigger of the given job. When an existing trigger is given, its builder is reused
+     * so that the trigger settings not managed by WaterJob are preserved.
+     */
+    private Trigger buildTrigger(WaterJob job, Trigger existingTrigger) throws ParseException {
+        JobKey jobKey = job.getJobKey();
+        //compiled expressions are shared through the cache, triggers copy them when stored
+        CronExpression cronExpression = cronCache.get(effectiveCronExpression(job), TimeZone.getDefault());
+        TriggerKey triggerKey = new TriggerKey(jobKey.getName(), jobKey.getGroup());
+        TriggerBuilder<Trigger> triggerBuilder;
+        if (existingTrigger != null) {
             @SuppressWarnings("unchecked")
-            TriggerBuilder<Trigger> existingBuilder = (TriggerBuilder<Trigger>) scheduler.getTrigger(triggerKey).getTriggerBuilder();
+            TriggerBuilder<Trigger> existingBuilder = (TriggerBuilder<Trigger>) existingTrigger.getTriggerBuilder();
             triggerBuilder = existingBuilder;
         } else {
             triggerBuilder = TriggerBuilder.newTrigger().withIdentity(triggerKey);
         }
-
-        Trigger trigger = triggerBuilder
-                .withSchedule(cronSchedule(cronExpression).withMisfireHandlingInstructionFireAndProceed())
+        //missed fires are run by the misfire catch-up according to the job policy
+        return triggerBuilder
+                .withSchedule(cronSchedule(cronExpression).withMisfireHandlingInstructionDoNothing())
+                .usingJobData(JobSchedulerMisfireCatchUp.MISFIRE_POLICY_KEY, misfirePolicy(job).name())
                 .forJob(jobKey)
                 .build();
-        if (scheduler.checkExists(triggerKey))
-            scheduler.rescheduleJob(triggerKey, trigger);
-        else
-            scheduler.scheduleJob(trigger);
+    }
+
+    /**
+     * Tells if the stored job and trigger already match the given job, so that updating it would only rewrite
+     * the same definition: same job class, flags and data map, same cron expression, time zone, misfire
+     * instruction and misfire policy for active jobs and no trigger for inactive ones. Triggers in error state are always rescheduled.
+     * The trigger is compared first, the stored job detail and the trigger state are loaded only when it matches.
+     * @param storedJobDetail stored job detail, null to load it when needed
+     */
+    private boolean isUpToDate(WaterJob job, JobDetail storedJobDetail, Trigger storedTrigger) throws SchedulerException {
+        if (!job.isActive())
+            return storedTrigger == null && isUpToDate(job.getJobDetail(), storedJobDetail);
+        if (!(storedTrigger instanceof CronTrigger) || job.getCronExpression() == null)
+            return false;
+        CronTrigger cronTrigger = (CronTrigger) storedTrigger;
+        //quartz stores cron expressions upper case
+        return effectiveCronExpression(job).toUpperCase(Locale.US).equals(cronTrigger.getCronExpression())
+                && TimeZone.getDefault().getID().equals(cronTrigger.getTimeZone().getID())
+                && cronTrigger.getMisfireInstruction() == CronTrigger.MISFIRE_INSTRUCTION_DO_NOTHING
+                && misfirePolicy(job).name().equals(cronTrigger.getJobDataMap().get(JobSchedulerMisfireCatchUp.MISFIRE_POLICY_KEY))
+                && job.getJobKey().equals(cronTrigger.getJobKey())
+                && isUpToDate(job.getJobDetail(), storedJobDetail)
+                && scheduler.getTriggerState(cronTrigger.getKey()) != Trigger.TriggerState.ERROR;
+    }
+
+    private boolean isUpToDate(JobDetail jobDetail, JobDetail storedJobDetail) throws SchedulerException {
+        if (storedJobDetail == null)
+            storedJobDetail = scheduler.getJobDetail(jobDetail.getKey());
+        return storedJobDetail != null
+                && Objects.equals(storedJobDetail.getJobClass(), jobDetail.getJobClass())
+                && storedJobDetail.isDurable() == jobDetail.isDurable()
+                && storedJobDetail.requestsRecovery() == jobDetail.requestsRecovery()
+                && Objects.equals(storedJobDetail.getDescription(), jobDetail.getDescription())
+                && storedJobDetail.getJobDataMap().equals(jobDetail.getJobDataMap());
+    }
+
+    private static JobMisfirePolicy misfirePolicy(WaterJob job) {
+        return job.getMisfirePolicy() != null ? job.getMisfirePolicy() : JobMisfirePolicy.FIRE_ONCE;
+    }
+
+    /**
+     * @return cron expression of the job, shifted by its smear offset when the smear is enabled
+     */
+    private String effectiveCronExpression(WaterJob job) {
+        return JobSchedulerCronSmear.smear(job.getCronExpression(), job.getJobKey(), cronSmearWindowSeconds);
     }
 
     private void deleteJobFromScheduler(WaterJob job) throws SchedulerException {
@@ -244,11 +1289,22 @@ public class JobSchedulerSystemServiceImpl extends BaseSystemServiceImpl impleme
         getLog().info("Unscheduling job {}", jobKey);
         if (scheduler.checkExists(jobKey)) {
             scheduler.deleteJob(jobKey);
+            forgetJob(jobKey);
+            replicate(ReplicatedJob.delete(nodeId, jobKey));
             getLog().info("Job {} has been unscheduled successfully", jobKey);
         } else
             getLog().info("Job {} has not been scheduled yet", jobKey);
     }
 
+    /**
+     * Drops the state kept outside the job store for a deleted job: its deferred fire and its dependencies.
+     */
+    private void forgetJob(JobKey jobKey) {
+        if (bulkhead != null)
+            bulkhead.purge(jobKey);
+        dependencies.removeJob(jobKey);
+    }
+
     private void unschedule(WaterJob job) throws SchedulerException {
         JobKey jobKey = job.getJobKey();
         TriggerKey triggerKey = new TriggerKey(jobKey.getName(), jobKey.getGroup());
@@ -259,6 +1315,40 @@ public class JobSchedulerSystemServiceImpl extends BaseSystemServiceImpl impleme
     }
 
     protected StdSchedulerFactory getSchedulerFactory() throws SchedulerException {
-        return new StdSchedulerFactory(quartzProps);
+        return new StdSchedulerFactory(withConnectionPool(quartzProps));
+    }
+
+    /**
+     * Replaces the Quartz built-in provider of the JDBC job store data source with the JobScheduler connection pool,
+     * registered in the Quartz connection manager before the scheduler is created.
+     * Data sources with their own connection provider or JNDI lookup are left untouched.
+     *
+     * @return Quartz properties without the pooled data source
+     */
+    private Properties withConnectionPool(Properties props) throws SchedulerException {
+        String dataSource = props.getProperty("org.quartz.jobStore.dataSource");
+        String prefix = StdSchedulerFactory.PROP_DATASOURCE_PREFIX + "." + dataSource + ".";
+        if (dataSource == null || props.getProperty(prefix + "URL") == null
+                || props.getProperty(prefix + StdSchedulerFactory.PROP_CONNECTION_PROVIDER_CLASS) != null
+                || !Boolean.parseBoolean(jobschedulerProps.getProperty(JobSchedulerConstants.JOB_SCHEDULER_DATASOURCE_POOL, "true")))
+            return props;
+        Properties factoryProps = new Properties();
+        Properties dataSourceProps = new Properties();
+        for (String key : props.stringPropertyNames()) {
+            if (key.startsWith(prefix))
+                dataSourceProps.setProperty(key.substring(prefix.length()), props.getProperty(key));
+            else
+                factoryProps.setProperty(key, props.getProperty(key));
+        }
+        PooledConnectionProvider pool = PooledConnectionProvider.fromProperties(dataSourceProps);
+        try {
+            pool.initialize();
+        } catch (SQLException e) {
+            throw new SchedulerException("Could not create the connection pool of data source " + dataSource, e);
+        }
+        DBConnectionManager.getInstance().addConnectionProvider(dataSource, pool);
+        connectionPool = pool;
+        getLog().info("Data source {} uses the JobScheduler connection pool", dataSource);
+        return factoryProps;
     }
 }
@@ -0,0 +1,372 @@
+package it.water.connectors.jobscheduler.service;
+
+import it.water.connectors.jobscheduler.api.WaterJob;
+import it.water.connectors.jobscheduler.model.JobMisfirePolicy;
+import org.quartz.Job;
+import org.quartz.JobBuilder;
+import org.quartz.JobDataMap;
+import org.quartz.JobDetail;
+import org.quartz.JobKey;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Serializable definition of a job mutation, written to the replication log by the node which applied it
+ * and replayed by the other nodes in order to keep their job store warm.
+ * The job class is stored by name and loaded only when the definition is applied.
+ * Besides Java serialization, definitions have a compact binary form used by the local job journal.
+ * Serialized definitions are read only through {@link #SERIAL_FILTER}: job data values must be strings,
+ * primitive wrappers, dates, job keys or job data maps, records carrying other classes are rejected.
+ */
+public class ReplicatedJob implements WaterJob, Serializable {
+    private static final long serialVersionUID = 1L;
+    private static final int FLAG_DURABLE = 1;
+    private static final int FLAG_REQUESTS_RECOVERY = 2;
+    private static final int FLAG_ACTIVE = 4;
+    private static final int SERIALIZED_JOB_DATA = -2;
+    private static final byte TYPE_NULL = 0;
+    private static final byte TYPE_STRING = 1;
+    private static final byte TYPE_INT = 2;
+    private static final byte TYPE_LONG = 3;
+    private static final byte TYPE_DOUBLE = 4;
+    private static final byte TYPE_BOOLEAN = 5;
+
+    /**
+     * Allow-list of the classes which may appear in a serialized definition
+     */
+    static final ObjectInputFilter SERIAL_FILTER = ObjectInputFilter.Config.createFilter(
+            ReplicatedJob.class.getName() + ";" + Operation.class.getName() + ";" + JobMisfirePolicy.class.getName() + ";"
+                    + "org.quartz.JobKey;org.quartz.utils.Key;org.quartz.JobDataMap;org.quartz.utils.StringKeyDirtyFlagMap;"
+                    + "org.quartz.utils.DirtyFlagMap;java.util.HashMap;java.util.Map$Entry;java.util.Date;java.lang.Enum;java.lang.Number;java.lang.String;"
+                    + "java.lang.Boolean;java.lang.Character;java.lang.Byte;java.lang.Short;java.lang.Integer;java.lang.Long;"
+                    + "java.lang.Float;java.lang.Double;maxdepth=8;!*");
+
+    /**
+     * Kind of mutation
+     */
+    public enum Operation {
+        UPSERT,
+        DELETE
+    }
+
+    private final Operation operation;
+    private final String origin;
+    private final String name;
+    private final String group;
+    private final String className;
+    private final String description;
+    private final boolean durable;
+    private final boolean requestsRecovery;
+    private final HashMap<String, Object> jobData;
+    private final String cronExpression;
+    private final boolean active;
+    // null in records written before misfire policies were replicated
+    private final JobMisfirePolicy misfirePolicy;
+
+    private ReplicatedJob(Operation operation, String origin, JobKey jobKey, JobDetail jobDetail, String cronExpression, boolean active,
+                          JobMisfirePolicy misfirePolicy) {
+        this.operation = operation;
+        this.origin = origin;
+        this.name = jobKey.getName();
+        this.group = jobKey.getGroup();
+        this.className = jobDetail != null ? jobDetail.getJobClass().getName() : null;
+        this.description = jobDetail != null ? jobDetail.getDescription() : null;
+        this.durable = jobDetail != null && jobDetail.isDurable();
+        this.requestsRecovery = jobDetail != null && jobDetail.requestsRecovery();
+        this.jobData = jobDetail != null ? new HashMap<>(jobDetail.getJobDataMap().getWrappedMap()) : null;
+        this.cronExpression = cronExpression;
+        this.active = active;
+        this.misfirePolicy = misfirePolicy;
+    }
+
+    @SuppressWarnings("java:S107")
+    private ReplicatedJob(Operation operation, String origin, String name, String group, String className, String description,
+                          boolean durable, boolean requestsRecovery, HashMap<String, Object> jobData, String cronExpression,
+                          boolean active, JobMisfirePolicy misfirePolicy) {
+        this.operation = operation;
+        this.origin = origin;
+        this.name = name;
+        this.group = group;
+        this.className = className;
+        this.description = description;
+        this.durable = durable;
+        this.requestsRecovery = requestsRecovery;
+        this.jobData = jobData;
+        this.cronExpression = cronExpression;
+        this.active = active;
+        this.misfirePolicy = misfirePolicy;
+    }
+
+    /**
+     * @param origin id of the node which applied the mutation
+     * @param job added or updated job
+     * @return replication record of the job definition
+     */
+    public static ReplicatedJob upsert(String origin, WaterJob job) {
+        JobDetail jobDetail = job.getJobDetail();
+        return new ReplicatedJob(Operation.UPSERT, origin, jobDetail.getKey(), jobDetail, job.getCronExpression(), job.isActive(), job.getMisfirePolicy());
+    }
+
+    /**
+     * @param origin id of the node which applied the mutation
+     * @param jobKey deleted job
+     * @return replication record of the deletion
+     */
+    public static ReplicatedJob delete(String origin, JobKey jobKey) {
+        return new ReplicatedJob(Operation.DELETE, origin, jobKey, null, null, false, null);
+    }
+
+    public Operation getOperation() {
+        return operation;
+    }
+
+    public String getOrigin() {
+        return origin;
+    }
+
+    @Override
+    public String getClassName() {
+        return className;
+    }
+
+    @Override
+    public String getCronExpression() {
+        return cronExpression;
+    }
+
+    /**
+     * Builds the job detail, loading the job class through the context class loader.
+     * @throws IllegalStateException if the job class is not available on this node
+     */
+    @Override
+    public JobDetail getJobDetail() {
+        if (className == null)
+            return null;
+        return JobBuilder.newJob(loadJobClass())
+                .withIdentity(getJobKey())
+                .withDescription(description)
+                .storeDurably(durable)
+                .requestRecovery(requestsRecovery)
+                .usingJobData(new JobDataMap(jobData))
+                .build();
+    }
+
+    @Override
+    public JobKey getJobKey() {
+        return new JobKey(name, group);
+    }
+
+    @Override
+    public Map<String, Object> getJobParams() {
+        return jobData;
+    }
+
+    @Override
+    public boolean isActive() {
+        return active;
+    }
+
+    @Override
+    public JobMisfirePolicy getMisfirePolicy() {
+        return misfirePolicy != null ? misfirePolicy : JobMisfirePolicy.FIRE_ONCE;
+    }
+
+    /**
+     * Writes the compact binary form of the definition: job data made only of strings, numbers and booleans
+     * is written field by field, any other job data map is written with Java serialization.
+     * @param out destination
+     * @throws IOException if the definition cannot be written
+     */
+    void writeTo(DataOutput out) throws IOException {
+        out.writeByte(operation.ordinal());
+        writeString(out, origin);
+        writeString(out, name);
+        writeString(out, group);
+        writeString(out, className);
+        writeString(out, description);
+        out.writeByte((durable ? FLAG_DURABLE : 0) | (requestsRecovery ? FLAG_REQUESTS_RECOVERY : 0) | (active ? FLAG_ACTIVE : 0));
+        writeString(out, cronExpression);
+        out.writeByte(misfirePolicy != null ? misfirePolicy.ordinal() : -1);
+        writeJobData(out);
+    }
+
+    /**
+     * @param in source positioned on a definition written by {@link #writeTo(DataOutput)}
+     * @return definition read
+     * @throws IOException if the definition cannot be read
+     */
+    static ReplicatedJob readFrom(DataInput in) throws IOException {
+        Operation operation = Operation.values()[in.readByte()];
+        String origin = readString(in);
+        String name = readString(in);
+        String group = readString(in);
+        String className = readString(in);
+        String description = readString(in);
+        int flags = in.readByte();
+        String cronExpression = readString(in);
+        int policy = in.readByte();
+        HashMap<String, Object> jobData = readJobData(in);
+        return new ReplicatedJob(operation, origin, name, group, className, description, (flags & FLAG_DURABLE) != 0,
+                (flags & FLAG_REQUESTS_RECOVERY) != 0, jobData, cronExpression, (flags & FLAG_ACTIVE) != 0,
+                policy >= 0 ? JobMisfirePolicy.values()[policy] : null);
+    }
+
+    private void writeJobData(DataOutput out) throws IOException {
+        if (jobData == null) {
+            out.writeInt(-1);
+            return;
+        }
+        if (!jobData.values().stream().allMatch(ReplicatedJob::isPlainValue)) {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            try (ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+                oos.writeObject(jobData);
+            }
+            byte[] bytes = bos.toByteArray();
+            // refused now rather than lost when read back
+            try {
+                readSerializedJobData(bytes);
+            } catch (InvalidClassException e) {
+                throw new IOException("Job data of job " + getJobKey() + " cannot be journaled, values must be strings, primitive wrappers, dates or job keys: "
+                        + e.getMessage(), e);
+            }
+            out.writeInt(SERIALIZED_JOB_DATA);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+            return;
+        }
+        out.writeInt(jobData.size());
+        for (Map.Entry<String, Object> entry : jobData.entrySet()) {
+            writeString(out, entry.getKey());
+            Object value = entry.getValue();
+            if (value == null) {
+                out.writeByte(TYPE_NULL);
+            } else if (value instanceof String) {
+                out.writeByte(TYPE_STRING);
+                writeString(out, (String) value);
+            } else if (value instanceof Integer) {
+                out.writeByte(TYPE_INT);
+                out.writeInt((Integer) value);
+            } else if (value instanceof Long) {
+                out.writeByte(TYPE_LONG);
+                out.writeLong((Long) value);
+            } else if (value instanceof Double) {
+                out.writeByte(TYPE_DOUBLE);
+                out.writeDouble((Double) value);
+            } else {
+                out.writeByte(TYPE_BOOLEAN);
+                out.writeBoolean((Boolean) value);
+            }
+        }
+    }
+
+    private static HashMap<String, Object> readJobData(DataInput in) throws IOException {
+        int size = in.readInt();
+        if (size == -1)
+            return null;
+        if (size == SERIALIZED_JOB_DATA) {
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            return readSerializedJobData(bytes);
+        }
+        HashMap<String, Object> jobData = new HashMap<>(Math.max(4, size * 2));
+        for (int i = 0; i < size; i++) {
+            String key = readString(in);
+            byte type = in.readByte();
+            switch (type) {
+                case TYPE_NULL:
+                    jobData.put(key, null);
+                    break;
+                case TYPE_STRING:
+                    jobData.put(key, readString(in));
+                    break;
+                case TYPE_INT:
+                    jobData.put(key, in.readInt());
+                    break;
+                case TYPE_LONG:
+                    jobData.put(key, in.readLong());
+                    break;
+                case TYPE_DOUBLE:
+                    jobData.put(key, in.readDouble());
+                    break;
+                case TYPE_BOOLEAN:
+                    jobData.put(key, in.readBoolean());
+                    break;
+                default:
+                    throw new IOException("Unknown job data type " + type);
+            }
+        }
+        return jobData;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static HashMap<String, Object> readSerializedJobData(byte[] bytes) throws IOException {
+        try (ObjectInputStream ois = new FilteredObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return (HashMap<String, Object>) ois.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Job data class not available: " + e.getMessage(), e);
+        }
+    }
+
+    private static boolean isPlainValue(Object value) {
+        return value == null || value instanceof String || value instanceof Integer || value instanceof Long
+                || value instanceof Double || value instanceof Boolean;
+    }
+
+    private static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0)
+            return null;
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Class<? extends Job> loadJobClass() {
+        try {
+            ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+            if (classLoader == null)
+                classLoader = ReplicatedJob.class.getClassLoader();
+            return (Class<? extends Job>) Class.forName(className, false, classLoader);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("Job class " + className + " is not available on this node", e);
+        }
+    }
+
+    /**
+     * Object stream restricted to {@link #SERIAL_FILTER}, resolving classes through the context class loader first
+     * since job data classes usually belong to other bundles.
+     */
+    static class FilteredObjectInputStream extends ObjectInputStream {
+        FilteredObjectInputStream(InputStream in) throws IOException {
+            super(in);
+            setObjectInputFilter(SERIAL_FILTER);
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+            if (classLoader != null) {
+                try {
+                    return Class.forName(desc.getName(), false, classLoader);
+                } catch (ClassNotFoundException e) {
+                    // falling back to the default resolution
+                }
+            }
+            return super.resolveClass(desc);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package it.water.connectors.jobscheduler.service.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * Flight recorder event marking the hand-off of a fired trigger to a worker thread, before the listeners
+ * may veto the execution.
+ */
+@Name(JobDispatchEvent.NAME)
+@Label("Job Dispatch")
+@Category({"Water", "JobScheduler"})
+@Description("Fired trigger handed to a worker thread")
+@StackTrace(false)
+public class JobDispatchEvent extends Event {
+    public static final String NAME = "it.water.connectors.jobscheduler.JobDispatch";
+
+    @Label("Job Name")
+    public String jobName;
+
+    @Label("Job Group")
+    public String jobGroup;
+
+    @Label("Trigger Name")
+    public String triggerName;
+
+    @Label("Trigger Group")
+    public String triggerGroup;
+
+    @Label("Fire Instance Id")
+    public String fireInstanceId;
+
+    @Label("Scheduled Fire Time")
+    @Timestamp(Timestamp.MILLISECONDS_SINCE_EPOCH)
+    public long scheduledFireTime;
+
+    @Label("Fire Lag")
+    @Timespan(Timespan.MILLISECONDS)
+    public long fireLag;
+
+    @Label("Recovering")
+    public boolean recovering;
+}
@@ -0,0 +1,53 @@
+package it.water.connectors.jobscheduler.service.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * Flight recorder event spanning a job execution, from the start of <code>execute()</code> to the end of the job,
+ * which is the completion of the returned stage for asynchronous jobs.
+ * The worker thread is recorded explicitly, as asynchronous executions are committed by the completing thread:
+ * GC pauses and lock contention events overlapping the execution on the worker explain its run time.
+ */
+@Name(JobExecutionEvent.NAME)
+@Label("Job Execution")
+@Category({"Water", "JobScheduler"})
+@Description("Execution of a scheduled job")
+@StackTrace(false)
+public class JobExecutionEvent extends Event {
+    public static final String NAME = "it.water.connectors.jobscheduler.JobExecution";
+
+    @Label("Job Name")
+    public String jobName;
+
+    @Label("Job Group")
+    public String jobGroup;
+
+    @Label("Trigger Name")
+    public String triggerName;
+
+    @Label("Fire Instance Id")
+    public String fireInstanceId;
+
+    @Label("Worker Thread")
+    public Thread workerThread;
+
+    @Label("Scheduled Fire Time")
+    @Timestamp(Timestamp.MILLISECONDS_SINCE_EPOCH)
+    public long scheduledFireTime;
+
+    @Label("Fire Lag")
+    @Timespan(Timespan.MILLISECONDS)
+    public long fireLag;
+
+    @Label("Refire Count")
+    public int refireCount;
+
+    @Label("Asynchronous")
+    public boolean async;
+
+    @Label("Failed")
+    public boolean failed;
+
+    @Label("Failure")
+    public String failure;
+}
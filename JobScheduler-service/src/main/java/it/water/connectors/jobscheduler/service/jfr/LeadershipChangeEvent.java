@@ -0,0 +1,28 @@
+package it.water.connectors.jobscheduler.service.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * Flight recorder event spanning a leadership transition of this node, from the notification of the leader latch
+ * to the start or the standby of the scheduler.
+ */
+@Name(LeadershipChangeEvent.NAME)
+@Label("Leadership Change")
+@Category({"Water", "JobScheduler"})
+@Description("Scheduler started or put in standby after a leadership change")
+@StackTrace(false)
+public class LeadershipChangeEvent extends Event {
+    public static final String NAME = "it.water.connectors.jobscheduler.LeadershipChange";
+
+    @Label("Node Id")
+    public String nodeId;
+
+    @Label("Leadership Path")
+    public String leadershipPath;
+
+    @Label("Leader")
+    public boolean leader;
+
+    @Label("Succeeded")
+    public boolean succeeded;
+}
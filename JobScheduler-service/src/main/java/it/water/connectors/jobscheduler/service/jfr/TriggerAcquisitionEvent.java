@@ -0,0 +1,50 @@
+package it.water.connectors.jobscheduler.service.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * Flight recorder event spanning the acquisition of a batch of due triggers by the job store,
+ * on the scheduler thread.
+ */
+@Name(TriggerAcquisitionEvent.NAME)
+@Label("Trigger Acquisition")
+@Category({"Water", "JobScheduler"})
+@Description("Batch of due triggers acquired by the job store")
+@StackTrace(false)
+public class TriggerAcquisitionEvent extends Event {
+    public static final String NAME = "it.water.connectors.jobscheduler.TriggerAcquisition";
+
+    @Label("Job Store")
+    public String jobStore;
+
+    @Label("No Later Than")
+    @Timestamp(Timestamp.MILLISECONDS_SINCE_EPOCH)
+    public long noLaterThan;
+
+    @Label("Time Window")
+    @Timespan(Timespan.MILLISECONDS)
+    public long timeWindow;
+
+    @Label("Max Count")
+    public int maxCount;
+
+    @Label("Acquired")
+    public int acquired;
+
+    /**
+     * Ends the event and commits it, with its fields, if the recording keeps it
+     * @param jobStore job store that acquired the triggers
+     * @param acquired number of acquired triggers
+     */
+    public void complete(Object jobStore, long noLaterThan, int maxCount, long timeWindow, int acquired) {
+        end();
+        if (!shouldCommit())
+            return;
+        this.jobStore = jobStore.getClass().getName();
+        this.noLaterThan = noLaterThan;
+        this.maxCount = maxCount;
+        this.timeWindow = timeWindow;
+        this.acquired = acquired;
+        commit();
+    }
+}
@@ -0,0 +1,38 @@
+package it.water.connectors.jobscheduler.service.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * Flight recorder event marking a trigger that missed its fire time by more than the misfire threshold.
+ */
+@Name(TriggerMisfireEvent.NAME)
+@Label("Trigger Misfire")
+@Category({"Water", "JobScheduler"})
+@Description("Trigger fire time missed by more than the misfire threshold")
+@StackTrace(false)
+public class TriggerMisfireEvent extends Event {
+    public static final String NAME = "it.water.connectors.jobscheduler.TriggerMisfire";
+
+    @Label("Job Name")
+    public String jobName;
+
+    @Label("Job Group")
+    public String jobGroup;
+
+    @Label("Trigger Name")
+    public String triggerName;
+
+    @Label("Trigger Group")
+    public String triggerGroup;
+
+    @Label("Missed Fire Time")
+    @Timestamp(Timestamp.MILLISECONDS_SINCE_EPOCH)
+    public long missedFireTime;
+
+    @Label("Misfire Lag")
+    @Timespan(Timespan.MILLISECONDS)
+    public long misfireLag;
+
+    @Label("Misfire Instruction")
+    public int misfireInstruction;
+}
@@ -0,0 +1,41 @@
+package it.water.connectors.jobscheduler.service.quartz;
+
+import it.water.connectors.jobscheduler.service.jfr.TriggerAcquisitionEvent;
+import org.quartz.JobPersistenceException;
+import org.quartz.impl.jdbcjobstore.JobStoreTX;
+import org.quartz.spi.OperableTrigger;
+
+import java.util.List;
+
+/**
+ * Quartz JobStoreTX emitting a {@link TriggerAcquisitionEvent} for every batch of acquired triggers.
+ * Subclasses change how triggers are acquired by overriding {@link #acquireTriggers(long, int, long)},
+ * which is still covered by the event.
+ * <p>
+ * Select it with:
+ * <pre>
+ * org.quartz.jobStore.class=it.water.connectors.jobscheduler.service.quartz.InstrumentedJobStoreTX
+ * </pre>
+ */
+// JobStoreTX overrides the generic executeInLock of JobStoreSupport with a raw type, which cannot be redeclared
+@SuppressWarnings("unchecked")
+public class InstrumentedJobStoreTX extends JobStoreTX {
+
+    @Override
+    public List<OperableTrigger> acquireNextTriggers(long noLaterThan, int maxCount, long timeWindow)
+            throws JobPersistenceException {
+        TriggerAcquisitionEvent event = new TriggerAcquisitionEvent();
+        event.begin();
+        List<OperableTrigger> acquired = acquireTriggers(noLaterThan, maxCount, timeWindow);
+        event.complete(this, noLaterThan, maxCount, timeWindow, acquired.size());
+        return acquired;
+    }
+
+    /**
+     * @return due triggers acquired like the standard JobStoreTX does
+     */
+    protected List<OperableTrigger> acquireTriggers(long noLaterThan, int maxCount, long timeWindow)
+            throws JobPersistenceException {
+        return super.acquireNextTriggers(noLaterThan, maxCount, timeWindow);
+    }
+}
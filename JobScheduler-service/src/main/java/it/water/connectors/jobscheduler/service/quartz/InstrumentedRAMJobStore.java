@@ -0,0 +1,28 @@
+package it.water.connectors.jobscheduler.service.quartz;
+
+import it.water.connectors.jobscheduler.service.jfr.TriggerAcquisitionEvent;
+import org.quartz.simpl.RAMJobStore;
+import org.quartz.spi.OperableTrigger;
+
+import java.util.List;
+
+/**
+ * Quartz RAMJobStore emitting a {@link TriggerAcquisitionEvent} for every batch of acquired triggers,
+ * with no other change to its behaviour.
+ * <p>
+ * Select it with:
+ * <pre>
+ * org.quartz.jobStore.class=it.water.connectors.jobscheduler.service.quartz.InstrumentedRAMJobStore
+ * </pre>
+ */
+public class InstrumentedRAMJobStore extends RAMJobStore {
+
+    @Override
+    public List<OperableTrigger> acquireNextTriggers(long noLaterThan, int maxCount, long timeWindow) {
+        TriggerAcquisitionEvent event = new TriggerAcquisitionEvent();
+        event.begin();
+        List<OperableTrigger> acquired = super.acquireNextTriggers(noLaterThan, maxCount, timeWindow);
+        event.complete(this, noLaterThan, maxCount, timeWindow, acquired.size());
+        return acquired;
+    }
+}
@@ -0,0 +1,466 @@
+package it.water.connectors.jobscheduler.service.quartz;
+
+import it.water.connectors.jobscheduler.model.JobSchedulerConnectionPoolSnapshot;
+import it.water.connectors.jobscheduler.service.LatencyHistogram;
+import org.quartz.utils.ConnectionProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Connection pool for the Quartz JDBC job store, with per-connection prepared statement caching,
+ * connection validation and pool metrics.
+ * <p>
+ * Checkouts take a permit from a semaphore and then the most recently used idle connection, so that a burst of
+ * trigger acquisitions and misfire scans reuses warm connections and their cached statements; new connections are
+ * only opened while fewer than maxConnections are open. A connection idle for longer than
+ * idleConnectionValidationSeconds (or every connection, with validateOnCheckout) is validated before being handed
+ * out, with the validation query or {@link Connection#isValid(int)}.
+ * Statements prepared with {@link Connection#prepareStatement(String)} are kept open in a small LRU cache per
+ * connection: closing them only resets their parameters and limits.
+ * <p>
+ * The JobScheduler uses it for the data source of the JDBC job store unless a connection provider is configured;
+ * it accepts the properties of the Quartz data sources:
+ * <pre>
+ * org.quartz.dataSource.water.driver=org.postgresql.Driver
+ * org.quartz.dataSource.water.URL=jdbc:postgresql://localhost:5432/water
+ * org.quartz.dataSource.water.maxConnections=10
+ * org.quartz.dataSource.water.validationQuery=SELECT 1
+ * org.quartz.dataSource.water.idleConnectionValidationSeconds=50
+ * org.quartz.dataSource.water.maxCachedStatementsPerConnection=120
+ * org.quartz.dataSource.water.maxWaitMillis=30000
+ * </pre>
+ */
+public class PooledConnectionProvider implements ConnectionProvider {
+    private static final Logger logger = LoggerFactory.getLogger(PooledConnectionProvider.class);
+    public static final int DEFAULT_MAX_CONNECTIONS = 10;
+    public static final int DEFAULT_MAX_CACHED_STATEMENTS = 120;
+    public static final int DEFAULT_IDLE_VALIDATION_SECONDS = 50;
+    public static final long DEFAULT_MAX_WAIT_MILLIS = 30000;
+    private static final int VALIDATION_TIMEOUT_SECONDS = 5;
+
+    private String driver;
+    private String url;
+    private String user;
+    private String password;
+    private String validationQuery;
+    private int maxConnections = DEFAULT_MAX_CONNECTIONS;
+    private int maxCachedStatementsPerConnection = DEFAULT_MAX_CACHED_STATEMENTS;
+    private int idleConnectionValidationSeconds = DEFAULT_IDLE_VALIDATION_SECONDS;
+    private int discardIdleConnectionsSeconds;
+    private boolean validateOnCheckout;
+    private long maxWaitMillis = DEFAULT_MAX_WAIT_MILLIS;
+
+    // most recently released first
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final LongAdder checkouts = new LongAdder();
+    private final LongAdder checkoutTimeouts = new LongAdder();
+    private final LongAdder validationFailures = new LongAdder();
+    private final LongAdder statementCacheHits = new LongAdder();
+    private final LongAdder statementCacheMisses = new LongAdder();
+    private final LatencyHistogram checkoutWait = new LatencyHistogram();
+    private Semaphore permits;
+    private volatile boolean shutdown;
+
+    /**
+     * @param dataSourceProperties properties of a Quartz data source, without the org.quartz.dataSource.name. prefix
+     * @return pool configured with the given properties, unknown properties are ignored
+     */
+    public static PooledConnectionProvider fromProperties(Properties dataSourceProperties) {
+        PooledConnectionProvider provider = new PooledConnectionProvider();
+        for (String name : dataSourceProperties.stringPropertyNames()) {
+            String value = dataSourceProperties.getProperty(name).trim();
+            switch (name) {
+                case "driver":
+                    provider.setDriver(value);
+                    break;
+                case "URL":
+                    provider.setURL(value);
+                    break;
+                case "user":
+                    provider.setUser(value);
+                    break;
+                case "password":
+                    provider.setPassword(value);
+                    break;
+                case "maxConnections":
+                    provider.setMaxConnections(Integer.parseInt(value));
+                    break;
+                case "validationQuery":
+                    provider.setValidationQuery(value);
+                    break;
+                case "idleConnectionValidationSeconds":
+                    provider.setIdleConnectionValidationSeconds(Integer.parseInt(value));
+                    break;
+                case "discardIdleConnectionsSeconds":
+                    provider.setDiscardIdleConnectionsSeconds(Integer.parseInt(value));
+                    break;
+                case "validateOnCheckout":
+                    provider.setValidateOnCheckout(Boolean.parseBoolean(value));
+                    break;
+                case "maxCachedStatementsPerConnection":
+                    provider.setMaxCachedStatementsPerConnection(Integer.parseInt(value));
+                    break;
+                case "maxWaitMillis":
+                    provider.setMaxWaitMillis(Long.parseLong(value));
+                    break;
+                default:
+                    logger.warn("Unsupported data source property {} ignored by the connection pool", name);
+            }
+        }
+        return provider;
+    }
+
+    @Override
+    public void initialize() throws SQLException {
+        if (url == null)
+            throw new SQLException("Connection pool URL not set");
+        if (driver != null) {
+            try {
+                Class.forName(driver, true, PooledConnectionProvider.class.getClassLoader());
+            } catch (ClassNotFoundException e) {
+                throw new SQLException("JDBC driver " + driver + " not found", e);
+            }
+        }
+        permits = new Semaphore(Math.max(1, maxConnections), true);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (shutdown)
+            throw new SQLException("Connection pool has been shut down");
+        long start = System.nanoTime();
+        waiting.incrementAndGet();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection", e);
+        } finally {
+            waiting.decrementAndGet();
+        }
+        if (!acquired) {
+            checkoutTimeouts.increment();
+            throw new SQLException("No connection available in " + maxWaitMillis + " ms, " + maxConnections + " connections in use");
+        }
+        try {
+            PooledConnection pooled = checkout();
+            active.incrementAndGet();
+            checkouts.increment();
+            checkoutWait.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            return pooled.lease();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public void shutdown() throws SQLException {
+        shutdown = true;
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null)
+            pooled.closePhysical();
+    }
+
+    /**
+     * @return current state of the pool
+     */
+    public JobSchedulerConnectionPoolSnapshot snapshot() {
+        return new JobSchedulerConnectionPoolSnapshot(maxConnections, active.get(), idle.size(), waiting.get(), checkouts.sum(),
+                checkoutTimeouts.sum(), validationFailures.sum(), statementCacheHits.sum(), statementCacheMisses.sum(), checkoutWait.snapshot());
+    }
+
+    private PooledConnection checkout() throws SQLException {
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            long idleMillis = System.currentTimeMillis() - pooled.lastUsed;
+            if (discardIdleConnectionsSeconds > 0 && idleMillis > discardIdleConnectionsSeconds * 1000L) {
+                pooled.closePhysical();
+            } else if ((validateOnCheckout || idleMillis > idleConnectionValidationSeconds * 1000L) && !isValid(pooled.physical)) {
+                validationFailures.increment();
+                logger.debug("Pooled connection failed validation, it will be replaced");
+                pooled.closePhysical();
+            } else {
+                return pooled;
+            }
+        }
+        return new PooledConnection(DriverManager.getConnection(url, user, password));
+    }
+
+    private boolean isValid(Connection connection) {
+        try {
+            if (validationQuery == null)
+                return connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+            try (Statement statement = connection.createStatement()) {
+                statement.setQueryTimeout(VALIDATION_TIMEOUT_SECONDS);
+                statement.execute(validationQuery);
+                return true;
+            }
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void release(PooledConnection pooled) {
+        try {
+            if (!shutdown && !pooled.physical.isClosed()) {
+                if (!pooled.physical.getAutoCommit()) {
+                    // work left uncommitted by the borrower must not leak into the next checkout
+                    pooled.physical.rollback();
+                    pooled.physical.setAutoCommit(true);
+                }
+                pooled.lastUsed = System.currentTimeMillis();
+                idle.offerFirst(pooled);
+            } else {
+                pooled.closePhysical();
+            }
+        } catch (SQLException e) {
+            logger.debug("Pooled connection could not be reset, it will be closed: {}", e.getMessage());
+            pooled.closePhysical();
+        } finally {
+            active.decrementAndGet();
+            permits.release();
+        }
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Physical connection with its statement cache, used by one borrower at a time.
+     */
+    private final class PooledConnection {
+        private final Connection physical;
+        private final Map<String, CachedStatement> statements = new LinkedHashMap<>(16, 0.75f, true);
+        private long lastUsed = System.currentTimeMillis();
+
+        private PooledConnection(Connection physical) {
+            this.physical = physical;
+        }
+
+        /**
+         * @return connection handed to the borrower, closing it gives the physical connection back to the pool
+         */
+        private Connection lease() {
+            return (Connection) Proxy.newProxyInstance(PooledConnectionProvider.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, new LeasedConnection(this));
+        }
+
+        private PreparedStatement prepare(String sql, Connection leased) throws SQLException {
+            CachedStatement cached = statements.get(sql);
+            if (cached == null) {
+                statementCacheMisses.increment();
+                cached = new CachedStatement(physical.prepareStatement(sql));
+                statements.put(sql, cached);
+                evictEldest();
+            } else if (cached.inUse) {
+                // the same query is open twice on this connection, the second one is not cached
+                statementCacheMisses.increment();
+                return physical.prepareStatement(sql);
+            } else {
+                statementCacheHits.increment();
+            }
+            cached.inUse = true;
+            return (PreparedStatement) Proxy.newProxyInstance(PooledConnectionProvider.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class}, new LeasedStatement(cached, leased));
+        }
+
+        private void evictEldest() {
+            if (statements.size() <= maxCachedStatementsPerConnection)
+                return;
+            Map.Entry<String, CachedStatement> eldest = statements.entrySet().iterator().next();
+            statements.remove(eldest.getKey());
+            eldest.getValue().evicted = true;
+            if (!eldest.getValue().inUse)
+                eldest.getValue().closePhysical();
+        }
+
+        private void closePhysical() {
+            statements.values().forEach(CachedStatement::closePhysical);
+            statements.clear();
+            try {
+                physical.close();
+            } catch (SQLException e) {
+                logger.debug("Could not close pooled connection: {}", e.getMessage());
+            }
+        }
+    }
+
+    private static final class CachedStatement {
+        private final PreparedStatement physical;
+        private boolean inUse;
+        private boolean evicted;
+
+        private CachedStatement(PreparedStatement physical) {
+            this.physical = physical;
+        }
+
+        /**
+         * Resets the statement for the next borrower, or closes it if it is no longer cached or cannot be reset.
+         */
+        private void giveBack() {
+            inUse = false;
+            if (evicted) {
+                closePhysical();
+                return;
+            }
+            try {
+                physical.clearParameters();
+                physical.setMaxRows(0);
+                physical.setFetchSize(0);
+                physical.setQueryTimeout(0);
+            } catch (SQLException e) {
+                evicted = true;
+                closePhysical();
+            }
+        }
+
+        private void closePhysical() {
+            try {
+                physical.close();
+            } catch (SQLException e) {
+                logger.debug("Could not close cached statement: {}", e.getMessage());
+            }
+        }
+    }
+
+    private final class LeasedConnection implements InvocationHandler {
+        private final PooledConnection pooled;
+        private boolean closed;
+
+        private LeasedConnection(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        release(pooled);
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || pooled.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled" + pooled.physical;
+                default:
+                    break;
+            }
+            if (closed)
+                throw new SQLException("Connection has been given back to the pool");
+            if ("prepareStatement".equals(method.getName()) && args.length == 1 && maxCachedStatementsPerConnection > 0)
+                return pooled.prepare((String) args[0], (Connection) proxy);
+            return PooledConnectionProvider.invoke(pooled.physical, method, args);
+        }
+    }
+
+    private static final class LeasedStatement implements InvocationHandler {
+        private final CachedStatement cached;
+        private final Connection leased;
+        private boolean closed;
+
+        private LeasedStatement(CachedStatement cached, Connection leased) {
+            this.cached = cached;
+            this.leased = leased;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        cached.giveBack();
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || cached.physical.isClosed();
+                case "getConnection":
+                    return leased;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Cached" + cached.physical;
+                default:
+                    break;
+            }
+            if (closed)
+                throw new SQLException("Statement has been closed");
+            return PooledConnectionProvider.invoke(cached.physical, method, args);
+        }
+    }
+
+    public void setDriver(String driver) {
+        this.driver = driver;
+    }
+
+    public void setURL(String url) {
+        this.url = url;
+    }
+
+    public void setUser(String user) {
+        this.user = user;
+    }
+
+    public void setPassword(String password) {
+        this.password = password;
+    }
+
+    public void setMaxConnections(int maxConnections) {
+        this.maxConnections = maxConnections;
+    }
+
+    public void setValidationQuery(String validationQuery) {
+        this.validationQuery = validationQuery == null || validationQuery.isBlank() ? null : validationQuery;
+    }
+
+    public void setIdleConnectionValidationSeconds(int idleConnectionValidationSeconds) {
+        this.idleConnectionValidationSeconds = idleConnectionValidationSeconds;
+    }
+
+    public void setDiscardIdleConnectionsSeconds(int discardIdleConnectionsSeconds) {
+        this.discardIdleConnectionsSeconds = discardIdleConnectionsSeconds;
+    }
+
+    public void setValidateOnCheckout(boolean validateOnCheckout) {
+        this.validateOnCheckout = validateOnCheckout;
+    }
+
+    public void setMaxCachedStatementsPerConnection(int maxCachedStatementsPerConnection) {
+        this.maxCachedStatementsPerConnection = maxCachedStatementsPerConnection;
+    }
+
+    public void setMaxWaitMillis(long maxWaitMillis) {
+        this.maxWaitMillis = maxWaitMillis;
+    }
+}
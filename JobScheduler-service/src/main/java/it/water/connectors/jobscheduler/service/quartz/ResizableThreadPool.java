@@ -0,0 +1,290 @@
+package it.water.connectors.jobscheduler.service.quartz;
+
+import org.quartz.SchedulerConfigException;
+import org.quartz.spi.ThreadPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Quartz ThreadPool whose number of workers can be changed while the scheduler runs.
+ * Workers are platform threads, created on demand and retired after being idle for keepAliveSeconds;
+ * when the pool shrinks, running jobs complete and no new job starts until the busy workers fit the new size.
+ * The pool also records for how long the scheduler waited for a free worker, which tells that fires are queuing.
+ * <p>
+ * It accepts the same properties as SimpleThreadPool, select it with:
+ * <pre>
+ * org.quartz.threadPool.class=it.water.connectors.jobscheduler.service.quartz.ResizableThreadPool
+ * org.quartz.threadPool.threadCount=10
+ * </pre>
+ * The pool of a scheduler is found by its instance name through {@link #forScheduler(String)}.
+ */
+public class ResizableThreadPool implements ThreadPool {
+    private static final Logger logger = LoggerFactory.getLogger(ResizableThreadPool.class);
+    private static final Map<String, ResizableThreadPool> POOLS = new ConcurrentHashMap<>();
+    public static final int DEFAULT_KEEP_ALIVE_SECONDS = 60;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition workerReleased = lock.newCondition();
+    private final LongAdder saturationWaitNanos = new LongAdder();
+    private int threadCount = 10;
+    private int threadPriority = Thread.NORM_PRIORITY;
+    private int keepAliveSeconds = DEFAULT_KEEP_ALIVE_SECONDS;
+    private boolean makeThreadsDaemons;
+    private boolean threadsInheritContextClassLoaderOfInitializingThread;
+    private boolean threadsInheritGroupOfInitializingThread = true;
+    private String threadNamePrefix;
+    private String instanceName = "QuartzScheduler";
+    private ThreadPoolExecutor executor;
+    private int busy;
+    private int peakBusy;
+    private boolean shutdown;
+
+    /**
+     * @param schedulerName instance name of the scheduler
+     * @return resizable pool of the scheduler, null if the scheduler does not run on a resizable pool
+     */
+    public static ResizableThreadPool forScheduler(String schedulerName) {
+        return POOLS.get(schedulerName);
+    }
+
+    @Override
+    public boolean runInThread(Runnable runnable) {
+        if (runnable == null)
+            return false;
+        lock.lock();
+        try {
+            awaitFreeWorker();
+            if (shutdown)
+                return false;
+            busy++;
+            peakBusy = Math.max(peakBusy, busy);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            lock.unlock();
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    runnable.run();
+                } finally {
+                    release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // shut down meanwhile
+            release();
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int blockForAvailableThreads() {
+        lock.lock();
+        try {
+            awaitFreeWorker();
+            return shutdown ? 0 : threadCount - busy;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void initialize() throws SchedulerConfigException {
+        if (threadCount <= 0)
+            throw new SchedulerConfigException("threadCount must be greater than 0");
+        if (threadPriority < Thread.MIN_PRIORITY || threadPriority > Thread.MAX_PRIORITY)
+            throw new SchedulerConfigException("threadPriority must be between " + Thread.MIN_PRIORITY + " and " + Thread.MAX_PRIORITY);
+        if (threadNamePrefix == null)
+            threadNamePrefix = instanceName + "_Worker-";
+        // workers are created on demand by the scheduler thread, group and class loader are captured now as SimpleThreadPool does
+        ThreadGroup threadGroup = threadsInheritGroupOfInitializingThread
+                ? Thread.currentThread().getThreadGroup() : new ThreadGroup(instanceName + "-ResizableThreadPool");
+        ClassLoader contextClassLoader = threadsInheritContextClassLoaderOfInitializingThread ? Thread.currentThread().getContextClassLoader() : null;
+        AtomicLong counter = new AtomicLong();
+        executor = new ThreadPoolExecutor(threadCount, threadCount, Math.max(1, keepAliveSeconds), TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(threadGroup, runnable, threadNamePrefix + counter.incrementAndGet());
+            thread.setPriority(threadPriority);
+            thread.setDaemon(makeThreadsDaemons);
+            if (contextClassLoader != null)
+                thread.setContextClassLoader(contextClassLoader);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        shutdown = false;
+        POOLS.put(instanceName, this);
+    }
+
+    @Override
+    public void shutdown(boolean waitForJobsToComplete) {
+        lock.lock();
+        try {
+            shutdown = true;
+            workerReleased.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        POOLS.remove(instanceName, this);
+        if (executor == null)
+            return;
+        if (!waitForJobsToComplete) {
+            executor.shutdownNow();
+            return;
+        }
+        executor.shutdown();
+        try {
+            while (!executor.awaitTermination(1, TimeUnit.SECONDS))
+                logger.debug("Waiting for {} jobs to complete", getBusyCount());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Changes the number of workers: new workers are available at once, exceeding workers retire as soon as their job completes
+     * @param size new number of workers
+     */
+    public void resize(int size) {
+        if (size <= 0)
+            throw new IllegalArgumentException("Thread pool size must be greater than 0");
+        lock.lock();
+        try {
+            if (size == threadCount)
+                return;
+            // the maximum size can never be lower than the core size
+            if (size > threadCount) {
+                executor.setMaximumPoolSize(size);
+                executor.setCorePoolSize(size);
+            } else {
+                executor.setCorePoolSize(size);
+                executor.setMaximumPoolSize(size);
+            }
+            logger.info("Thread pool of scheduler {} resized from {} to {} workers", instanceName, threadCount, size);
+            threadCount = size;
+            workerReleased.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int getPoolSize() {
+        lock.lock();
+        try {
+            return threadCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return number of jobs which are running now
+     */
+    public int getBusyCount() {
+        lock.lock();
+        try {
+            return busy;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return highest number of jobs run at the same time since the previous call
+     */
+    public int getAndResetPeakBusyCount() {
+        lock.lock();
+        try {
+            int peak = peakBusy;
+            peakBusy = busy;
+            return peak;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return total time the scheduler waited for a free worker, in nanoseconds
+     */
+    public long getSaturationWaitNanos() {
+        return saturationWaitNanos.sum();
+    }
+
+    @Override
+    public void setInstanceId(String schedInstId) {
+        // not used: threads are named after the instance name
+    }
+
+    @Override
+    public void setInstanceName(String schedName) {
+        this.instanceName = schedName;
+    }
+
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    public void setThreadCount(int threadCount) {
+        this.threadCount = threadCount;
+    }
+
+    public void setThreadPriority(int threadPriority) {
+        this.threadPriority = threadPriority;
+    }
+
+    public void setKeepAliveSeconds(int keepAliveSeconds) {
+        this.keepAliveSeconds = keepAliveSeconds;
+    }
+
+    public void setMakeThreadsDaemons(boolean makeThreadsDaemons) {
+        this.makeThreadsDaemons = makeThreadsDaemons;
+    }
+
+    public void setThreadNamePrefix(String threadNamePrefix) {
+        this.threadNamePrefix = threadNamePrefix;
+    }
+
+    public void setThreadsInheritContextClassLoaderOfInitializingThread(boolean inheritLoader) {
+        this.threadsInheritContextClassLoaderOfInitializingThread = inheritLoader;
+    }
+
+    public void setThreadsInheritGroupOfInitializingThread(boolean inheritGroup) {
+        this.threadsInheritGroupOfInitializingThread = inheritGroup;
+    }
+
+    private void awaitFreeWorker() throws InterruptedException {
+        if (shutdown || busy < threadCount)
+            return;
+        long start = System.nanoTime();
+        while (!shutdown && busy >= threadCount)
+            workerReleased.await();
+        saturationWaitNanos.add(System.nanoTime() - start);
+    }
+
+    private void release() {
+        lock.lock();
+        try {
+            busy--;
+            workerReleased.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package it.water.connectors.jobscheduler.service.quartz;
+
+import org.quartz.JobPersistenceException;
+import org.quartz.impl.jdbcjobstore.FiredTriggerRecord;
+import org.quartz.spi.OperableTrigger;
+
+import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * JDBC job store acquiring the due triggers without the global TRIGGER_ACCESS row lock.
+ * <p>
+ * In a cluster, the standard JobStoreTX serializes every acquisition on the TRIGGER_ACCESS row of QRTZ_LOCKS,
+ * so only one node at a time can pull work. With the {@link SkipLockedPostgreSQLDelegate}, each node locks
+ * its own batch of trigger rows with <code>FOR UPDATE SKIP LOCKED</code> and moves them to the acquired
+ * state in the same transaction, so nodes acquire disjoint batches concurrently. Firing, completion and
+ * misfire handling still take the TRIGGER_ACCESS lock, as they update several rows per trigger.
+ * With any other delegate the store acquires triggers like the standard JobStoreTX.
+ * Acquisitions are recorded as flight recorder events, see {@link InstrumentedJobStoreTX}.
+ * <p>
+ * Select it with:
+ * <pre>
+ * org.quartz.jobStore.class=it.water.connectors.jobscheduler.service.quartz.SkipLockedJobStoreTX
+ * org.quartz.jobStore.driverDelegateClass=it.water.connectors.jobscheduler.service.quartz.SkipLockedPostgreSQLDelegate
+ * org.quartz.jobStore.isClustered=true
+ * org.quartz.scheduler.batchTriggerAcquisitionMaxCount=10
+ * </pre>
+ */
+// raw executeInLock inherited from JobStoreTX, see InstrumentedJobStoreTX
+@SuppressWarnings("unchecked")
+public class SkipLockedJobStoreTX extends InstrumentedJobStoreTX {
+
+    @Override
+    protected List<OperableTrigger> acquireTriggers(long noLaterThan, int maxCount, long timeWindow)
+            throws JobPersistenceException {
+        if (!(getDelegate() instanceof SkipLockedPostgreSQLDelegate))
+            return super.acquireTriggers(noLaterThan, maxCount, timeWindow);
+        return executeInNonManagedTXLock(null,
+                conn -> acquireNextTrigger(conn, noLaterThan, maxCount, timeWindow),
+                (conn, acquired) -> {
+                    //the commit outcome is unknown: the acquisition succeeded if this node recorded any of the fires
+                    try {
+                        Set<String> fireInstanceIds = new HashSet<>();
+                        for (FiredTriggerRecord fired : getDelegate().selectInstancesFiredTriggerRecords(conn, getInstanceId()))
+                            fireInstanceIds.add(fired.getFireInstanceId());
+                        return acquired.stream().anyMatch(trigger -> fireInstanceIds.contains(trigger.getFireInstanceId()));
+                    } catch (SQLException e) {
+                        throw new JobPersistenceException("error validating trigger acquisition", e);
+                    }
+                });
+    }
+}
@@ -0,0 +1,45 @@
+package it.water.connectors.jobscheduler.service.quartz;
+
+import org.quartz.TriggerKey;
+import org.quartz.impl.jdbcjobstore.PostgreSQLDelegate;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * PostgreSQL driver delegate selecting the triggers to acquire with <code>FOR UPDATE SKIP LOCKED</code>.
+ * <p>
+ * The selected trigger rows stay locked until the acquiring transaction commits, and the rows already locked by
+ * other nodes are skipped instead of waited for, so that several nodes can acquire different batches of due
+ * triggers at the same time. It works on the tables of quartz_creation_postgres.sql and is meant to be used
+ * with the {@link SkipLockedJobStoreTX}, which acquires triggers without the global TRIGGER_ACCESS lock.
+ */
+public class SkipLockedPostgreSQLDelegate extends PostgreSQLDelegate {
+    static final String SELECT_NEXT_TRIGGER_TO_ACQUIRE_SKIP_LOCKED = SELECT_NEXT_TRIGGER_TO_ACQUIRE
+            + " LIMIT ? FOR UPDATE SKIP LOCKED";
+
+    @Override
+    public List<TriggerKey> selectTriggerToAcquire(Connection conn, long noLaterThan, long noEarlierThan, int maxCount)
+            throws SQLException {
+        //rows are locked while they are returned, the limit keeps the batch locked by this node small
+        int batchSize = Math.max(1, maxCount);
+        List<TriggerKey> nextTriggers = new ArrayList<>(batchSize);
+        try (PreparedStatement ps = conn.prepareStatement(rtp(SELECT_NEXT_TRIGGER_TO_ACQUIRE_SKIP_LOCKED))) {
+            ps.setFetchSize(batchSize);
+            ps.setString(1, STATE_WAITING);
+            ps.setBigDecimal(2, new BigDecimal(String.valueOf(noLaterThan)));
+            ps.setBigDecimal(3, new BigDecimal(String.valueOf(noEarlierThan)));
+            ps.setInt(4, batchSize);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next())
+                    nextTriggers.add(TriggerKey.triggerKey(rs.getString(COL_TRIGGER_NAME), rs.getString(COL_TRIGGER_GROUP)));
+            }
+        }
+        return nextTriggers;
+    }
+}
@@ -0,0 +1,1097 @@
+package it.water.connectors.jobscheduler.service.quartz;
+
+import it.water.connectors.jobscheduler.service.jfr.TriggerAcquisitionEvent;
+import org.quartz.*;
+import org.quartz.Calendar;
+import org.quartz.Trigger.CompletedExecutionInstruction;
+import org.quartz.Trigger.TriggerState;
+import org.quartz.impl.matchers.GroupMatcher;
+import org.quartz.impl.matchers.StringMatcher;
+import org.quartz.spi.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory Quartz JobStore meant for very large numbers of triggers, with the same semantics as the RAMJobStore.
+ * <p>
+ * Waiting triggers are kept in a hierarchical timing wheel instead of a sorted set, so adding, rescheduling and
+ * removing a trigger is O(1) and acquisition only touches the triggers which are about to fire.
+ * Instead of one global lock, jobs and their triggers are guarded by a lock stripe chosen from the job key,
+ * so that operations on different jobs run in parallel; the wheel has its own short-lived lock.
+ * Locks are always taken in the order stripe, then wheel. While the scheduler runs, a background thread keeps
+ * the wheel advanced a little ahead of the current time, so that acquisitions only poll triggers already due.
+ * <p>
+ * Select it with:
+ * <pre>
+ * org.quartz.jobStore.class=it.water.connectors.jobscheduler.service.quartz.TimingWheelJobStore
+ * org.quartz.jobStore.tickMillis=10
+ * org.quartz.jobStore.lockStripes=256
+ * org.quartz.jobStore.lookAheadMillis=60000
+ * org.quartz.jobStore.misfireThreshold=5000
+ * </pre>
+ */
+public class TimingWheelJobStore implements JobStore {
+    private static final Logger logger = LoggerFactory.getLogger(TimingWheelJobStore.class);
+    public static final long DEFAULT_TICK_MILLIS = 10;
+    public static final int DEFAULT_LOCK_STRIPES = 256;
+    public static final long DEFAULT_LOOK_AHEAD_MILLIS = 60000;
+    private static final int ADVANCE_BUDGET = 512;
+
+    static final int STATE_WAITING = 0;
+    static final int STATE_ACQUIRED = 1;
+    static final int STATE_COMPLETE = 3;
+    static final int STATE_PAUSED = 4;
+    static final int STATE_BLOCKED = 5;
+    static final int STATE_PAUSED_BLOCKED = 6;
+    static final int STATE_ERROR = 7;
+    static final int STATE_DELETED = -1;
+
+    private final ConcurrentHashMap<JobKey, JobRecord> jobsByKey = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<TriggerKey, TriggerRecord> triggersByKey = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Set<JobKey>> jobsByGroup = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Set<TriggerKey>> triggersByGroup = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Calendar> calendarsByName = new ConcurrentHashMap<>();
+    private final Set<String> pausedTriggerGroups = ConcurrentHashMap.newKeySet();
+    private final Set<String> pausedJobGroups = ConcurrentHashMap.newKeySet();
+    private final AtomicLong firedTriggerRecordId = new AtomicLong(System.currentTimeMillis());
+
+    private long tickMillis = DEFAULT_TICK_MILLIS;
+    private int lockStripes = DEFAULT_LOCK_STRIPES;
+    private long misfireThreshold = 5000L;
+    private long lookAheadMillis = DEFAULT_LOOK_AHEAD_MILLIS;
+    private String instanceName = "QuartzScheduler";
+    private ReentrantLock[] locks;
+    private TriggerTimingWheel wheel;
+    private SchedulerSignaler signaler;
+    private Thread advancer;
+
+    /**
+     * Job definition with the triggers pointing to it, guarded by the lock stripe of the job key.
+     */
+    private static class JobRecord {
+        private JobDetail jobDetail;
+        private final List<TriggerRecord> triggers = new ArrayList<>(1);
+        private boolean blocked;
+
+        private JobRecord(JobDetail jobDetail) {
+            this.jobDetail = jobDetail;
+        }
+    }
+
+    /**
+     * Trigger stored in the wheel, guarded by the lock stripe of its job key.
+     */
+    private static class TriggerRecord extends TriggerTimingWheel.Node {
+        private final JobKey jobKey;
+        private final OperableTrigger trigger;
+        private volatile int state = STATE_WAITING;
+
+        private TriggerRecord(OperableTrigger trigger) {
+            super(trigger.getKey());
+            this.jobKey = trigger.getJobKey();
+            this.trigger = trigger;
+        }
+    }
+
+    public long getTickMillis() {
+        return tickMillis;
+    }
+
+    public void setTickMillis(long tickMillis) {
+        if (tickMillis < 1)
+            throw new IllegalArgumentException("Tick must be larger than 0");
+        this.tickMillis = tickMillis;
+    }
+
+    public int getLockStripes() {
+        return lockStripes;
+    }
+
+    public void setLockStripes(int lockStripes) {
+        if (lockStripes < 1)
+            throw new IllegalArgumentException("Lock stripes must be larger than 0");
+        this.lockStripes = lockStripes;
+    }
+
+    public long getLookAheadMillis() {
+        return lookAheadMillis;
+    }
+
+    /**
+     * @param lookAheadMillis how far ahead of the current time the wheel is advanced in background,
+     *                        it should be larger than org.quartz.scheduler.idleWaitTime (30 seconds by default)
+     */
+    public void setLookAheadMillis(long lookAheadMillis) {
+        if (lookAheadMillis < 0)
+            throw new IllegalArgumentException("Look ahead must not be negative");
+        this.lookAheadMillis = lookAheadMillis;
+    }
+
+    public long getMisfireThreshold() {
+        return misfireThreshold;
+    }
+
+    public void setMisfireThreshold(long misfireThreshold) {
+        if (misfireThreshold < 1)
+            throw new IllegalArgumentException("Misfire threshold must be larger than 0");
+        this.misfireThreshold = misfireThreshold;
+    }
+
+    @Override
+    public void initialize(ClassLoadHelper loadHelper, SchedulerSignaler signaler) {
+        this.signaler = signaler;
+        //rounding up to a power of two so that the stripe is a mask of the hash
+        int stripes = 1;
+        while (stripes < lockStripes)
+            stripes <<= 1;
+        this.locks = new ReentrantLock[stripes];
+        for (int i = 0; i < locks.length; i++)
+            locks[i] = new ReentrantLock();
+        this.wheel = new TriggerTimingWheel(tickMillis, System.currentTimeMillis());
+        logger.info("TimingWheelJobStore initialized with tick of {} ms and {} lock stripes", tickMillis, locks.length);
+    }
+
+    /**
+     * Starts the thread which keeps the wheel advanced ahead of the current time, so that cascades are done
+     * in small steps outside of acquisitions.
+     */
+    @Override
+    public synchronized void schedulerStarted() {
+        if (advancer != null || lookAheadMillis == 0)
+            return;
+        advancer = new Thread(this::advanceWheel, instanceName + "_TimingWheelAdvancer");
+        advancer.setDaemon(true);
+        advancer.start();
+    }
+
+    @Override
+    public void schedulerPaused() {
+        // nothing to do
+    }
+
+    @Override
+    public void schedulerResumed() {
+        // nothing to do
+    }
+
+    @Override
+    public synchronized void shutdown() {
+        if (advancer != null) {
+            advancer.interrupt();
+            advancer = null;
+        }
+    }
+
+    @Override
+    public boolean supportsPersistence() {
+        return false;
+    }
+
+    @Override
+    public long getEstimatedTimeToReleaseAndAcquireTrigger() {
+        return 5;
+    }
+
+    @Override
+    public boolean isClustered() {
+        return false;
+    }
+
+    @Override
+    public void storeJobAndTrigger(JobDetail newJob, OperableTrigger newTrigger) throws JobPersistenceException {
+        storeJob(newJob, false);
+        storeTrigger(newTrigger, false);
+    }
+
+    @Override
+    public void storeJob(JobDetail newJob, boolean replaceExisting) throws ObjectAlreadyExistsException {
+        JobDetail jobDetail = (JobDetail) newJob.clone();
+        JobKey jobKey = jobDetail.getKey();
+        ReentrantLock lock = lockOf(jobKey);
+        lock.lock();
+        try {
+            JobRecord existing = jobsByKey.get(jobKey);
+            if (existing != null) {
+                if (!replaceExisting)
+                    throw new ObjectAlreadyExistsException(newJob);
+                existing.jobDetail = jobDetail;
+                return;
+            }
+            jobsByKey.put(jobKey, new JobRecord(jobDetail));
+            addToGroup(jobsByGroup, jobKey.getGroup(), jobKey);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void storeJobsAndTriggers(Map<JobDetail, Set<? extends Trigger>> triggersAndJobs, boolean replace) throws JobPersistenceException {
+        if (!replace) {
+            for (Map.Entry<JobDetail, Set<? extends Trigger>> e : triggersAndJobs.entrySet()) {
+                if (checkExists(e.getKey().getKey()))
+                    throw new ObjectAlreadyExistsException(e.getKey());
+                for (Trigger trigger : e.getValue()) {
+                    if (checkExists(trigger.getKey()))
+                        throw new ObjectAlreadyExistsException(trigger);
+                }
+            }
+        }
+        for (Map.Entry<JobDetail, Set<? extends Trigger>> e : triggersAndJobs.entrySet()) {
+            storeJob(e.getKey(), true);
+            for (Trigger trigger : e.getValue()) {
+                storeTrigger((OperableTrigger) trigger, true);
+            }
+        }
+    }
+
+    @Override
+    public boolean removeJob(JobKey jobKey) {
+        ReentrantLock lock = lockOf(jobKey);
+        lock.lock();
+        try {
+            return removeJobLocked(jobKey);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean removeJobs(List<JobKey> jobKeys) {
+        boolean allFound = true;
+        for (JobKey jobKey : jobKeys)
+            allFound = removeJob(jobKey) && allFound;
+        return allFound;
+    }
+
+    @Override
+    public JobDetail retrieveJob(JobKey jobKey) {
+        ReentrantLock lock = lockOf(jobKey);
+        lock.lock();
+        try {
+            JobRecord job = jobsByKey.get(jobKey);
+            return job != null ? (JobDetail) job.jobDetail.clone() : null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void storeTrigger(OperableTrigger newTrigger, boolean replaceExisting) throws JobPersistenceException {
+        OperableTrigger trigger = (OperableTrigger) newTrigger.clone();
+        TriggerKey triggerKey = trigger.getKey();
+        JobKey jobKey = trigger.getJobKey();
+        while (true) {
+            TriggerRecord existing = triggersByKey.get(triggerKey);
+            ReentrantLock[] held = lockJobs(jobKey, existing != null ? existing.jobKey : jobKey);
+            try {
+                if (triggersByKey.get(triggerKey) != existing)
+                    continue;
+                if (existing != null && !replaceExisting)
+                    throw new ObjectAlreadyExistsException(newTrigger);
+                JobRecord job = jobsByKey.get(jobKey);
+                if (job == null)
+                    throw new JobPersistenceException("The job (" + jobKey + ") referenced by the trigger does not exist.");
+                TriggerRecord trig = new TriggerRecord(trigger);
+                if (existing != null) {
+                    if (!triggersByKey.replace(triggerKey, existing, trig))
+                        continue;
+                    detachTrigger(existing);
+                } else {
+                    if (triggersByKey.putIfAbsent(triggerKey, trig) != null)
+                        continue;
+                    addToGroup(triggersByGroup, triggerKey.getGroup(), triggerKey);
+                }
+                attachTrigger(job, trig);
+                return;
+            } finally {
+                unlock(held);
+            }
+        }
+    }
+
+    @Override
+    public boolean removeTrigger(TriggerKey triggerKey) {
+        TriggerRecord trig = lockTrigger(triggerKey);
+        if (trig == null)
+            return false;
+        try {
+            removeTriggerLocked(trig, true);
+            return true;
+        } finally {
+            lockOf(trig.jobKey).unlock();
+        }
+    }
+
+    @Override
+    public boolean removeTriggers(List<TriggerKey> triggerKeys) {
+        boolean allFound = true;
+        for (TriggerKey triggerKey : triggerKeys)
+            allFound = removeTrigger(triggerKey) && allFound;
+        return allFound;
+    }
+
+    @Override
+    public boolean replaceTrigger(TriggerKey triggerKey, OperableTrigger newTrigger) throws JobPersistenceException {
+        TriggerRecord existing = lockTrigger(triggerKey);
+        if (existing == null)
+            return false;
+        try {
+            if (!existing.jobKey.equals(newTrigger.getJobKey()))
+                throw new JobPersistenceException("New trigger is not related to the same job as the old trigger.");
+            TriggerRecord trig = new TriggerRecord((OperableTrigger) newTrigger.clone());
+            if (trig.key.equals(triggerKey)) {
+                triggersByKey.replace(triggerKey, existing, trig);
+            } else {
+                if (triggersByKey.putIfAbsent(trig.key, trig) != null)
+                    throw new ObjectAlreadyExistsException(newTrigger);
+                addToGroup(triggersByGroup, trig.key.getGroup(), trig.key);
+                triggersByKey.remove(triggerKey, existing);
+                removeFromGroup(triggersByGroup, triggerKey.getGroup(), triggerKey);
+            }
+            detachTrigger(existing);
+            attachTrigger(jobsByKey.get(existing.jobKey), trig);
+            return true;
+        } finally {
+            lockOf(existing.jobKey).unlock();
+        }
+    }
+
+    @Override
+    public OperableTrigger retrieveTrigger(TriggerKey triggerKey) {
+        TriggerRecord trig = lockTrigger(triggerKey);
+        if (trig == null)
+            return null;
+        try {
+            return (OperableTrigger) trig.trigger.clone();
+        } finally {
+            lockOf(trig.jobKey).unlock();
+        }
+    }
+
+    @Override
+    public boolean checkExists(JobKey jobKey) {
+        return jobsByKey.containsKey(jobKey);
+    }
+
+    @Override
+    public boolean checkExists(TriggerKey triggerKey) {
+        return triggersByKey.containsKey(triggerKey);
+    }
+
+    @Override
+    public void clearAllSchedulingData() throws JobPersistenceException {
+        for (TriggerKey triggerKey : new ArrayList<>(triggersByKey.keySet()))
+            removeTrigger(triggerKey);
+        for (JobKey jobKey : new ArrayList<>(jobsByKey.keySet()))
+            removeJob(jobKey);
+        for (String calendarName : new ArrayList<>(calendarsByName.keySet()))
+            removeCalendar(calendarName);
+    }
+
+    @Override
+    public void storeCalendar(String name, Calendar calendar, boolean replaceExisting, boolean updateTriggers) throws ObjectAlreadyExistsException {
+        Calendar cal = (Calendar) calendar.clone();
+        Calendar previous = calendarsByName.putIfAbsent(name, cal);
+        if (previous == null)
+            return;
+        if (!replaceExisting)
+            throw new ObjectAlreadyExistsException("Calendar with name '" + name + "' already exists.");
+        calendarsByName.put(name, cal);
+        if (!updateTriggers)
+            return;
+        for (TriggerRecord candidate : triggersByKey.values()) {
+            if (!name.equals(candidate.trigger.getCalendarName()))
+                continue;
+            TriggerRecord trig = lockTrigger(candidate.key);
+            if (trig == null)
+                continue;
+            try {
+                boolean scheduled = wheel.cancel(trig);
+                trig.trigger.updateWithNewCalendar(cal, getMisfireThreshold());
+                if (scheduled)
+                    schedule(trig);
+            } finally {
+                lockOf(trig.jobKey).unlock();
+            }
+        }
+    }
+
+    @Override
+    public boolean removeCalendar(String calName) throws JobPersistenceException {
+        for (TriggerRecord trig : triggersByKey.values()) {
+            if (calName.equals(trig.trigger.getCalendarName()))
+                throw new JobPersistenceException("Calender cannot be removed if it referenced by a Trigger!");
+        }
+        return calendarsByName.remove(calName) != null;
+    }
+
+    @Override
+    public Calendar retrieveCalendar(String calName) {
+        Calendar cal = calendarsByName.get(calName);
+        return cal != null ? (Calendar) cal.clone() : null;
+    }
+
+    @Override
+    public int getNumberOfJobs() {
+        return jobsByKey.size();
+    }
+
+    @Override
+    public int getNumberOfTriggers() {
+        return triggersByKey.size();
+    }
+
+    @Override
+    public int getNumberOfCalendars() {
+        return calendarsByName.size();
+    }
+
+    @Override
+    public Set<JobKey> getJobKeys(GroupMatcher<JobKey> matcher) {
+        return matchingKeys(jobsByGroup, matcher.getCompareWithOperator(), matcher.getCompareToValue());
+    }
+
+    @Override
+    public Set<TriggerKey> getTriggerKeys(GroupMatcher<TriggerKey> matcher) {
+        return matchingKeys(triggersByGroup, matcher.getCompareWithOperator(), matcher.getCompareToValue());
+    }
+
+    @Override
+    public List<String> getJobGroupNames() {
+        return new LinkedList<>(jobsByGroup.keySet());
+    }
+
+    @Override
+    public List<String> getTriggerGroupNames() {
+        return new LinkedList<>(triggersByGroup.keySet());
+    }
+
+    @Override
+    public List<String> getCalendarNames() {
+        return new LinkedList<>(calendarsByName.keySet());
+    }
+
+    @Override
+    public List<OperableTrigger> getTriggersForJob(JobKey jobKey) {
+        List<OperableTrigger> triggers = new ArrayList<>();
+        ReentrantLock lock = lockOf(jobKey);
+        lock.lock();
+        try {
+            JobRecord job = jobsByKey.get(jobKey);
+            if (job != null) {
+                for (TriggerRecord trig : job.triggers)
+                    triggers.add((OperableTrigger) trig.trigger.clone());
+            }
+        } finally {
+            lock.unlock();
+        }
+        return triggers;
+    }
+
+    @Override
+    public TriggerState getTriggerState(TriggerKey triggerKey) {
+        TriggerRecord trig = triggersByKey.get(triggerKey);
+        if (trig == null)
+            return TriggerState.NONE;
+        switch (trig.state) {
+            case STATE_COMPLETE:
+                return TriggerState.COMPLETE;
+            case STATE_PAUSED:
+            case STATE_PAUSED_BLOCKED:
+                return TriggerState.PAUSED;
+            case STATE_BLOCKED:
+                return TriggerState.BLOCKED;
+            case STATE_ERROR:
+                return TriggerState.ERROR;
+            case STATE_DELETED:
+                return TriggerState.NONE;
+            default:
+                return TriggerState.NORMAL;
+        }
+    }
+
+    @Override
+    public void resetTriggerFromErrorState(TriggerKey triggerKey) {
+        TriggerRecord trig = lockTrigger(triggerKey);
+        if (trig == null)
+            return;
+        try {
+            if (trig.state != STATE_ERROR)
+                return;
+            if (pausedTriggerGroups.contains(triggerKey.getGroup())) {
+                trig.state = STATE_PAUSED;
+            } else {
+                trig.state = STATE_WAITING;
+                schedule(trig);
+            }
+        } finally {
+            lockOf(trig.jobKey).unlock();
+        }
+    }
+
+    @Override
+    public void pauseTrigger(TriggerKey triggerKey) {
+        TriggerRecord trig = lockTrigger(triggerKey);
+        if (trig == null)
+            return;
+        try {
+            pauseLocked(trig);
+        } finally {
+            lockOf(trig.jobKey).unlock();
+        }
+    }
+
+    @Override
+    public Collection<String> pauseTriggers(GroupMatcher<TriggerKey> matcher) {
+        List<String> pausedGroups = new LinkedList<>();
+        StringMatcher.StringOperatorName operator = matcher.getCompareWithOperator();
+        if (operator == StringMatcher.StringOperatorName.EQUALS) {
+            if (pausedTriggerGroups.add(matcher.getCompareToValue()))
+                pausedGroups.add(matcher.getCompareToValue());
+        } else {
+            for (String group : triggersByGroup.keySet()) {
+                if (operator.evaluate(group, matcher.getCompareToValue()) && pausedTriggerGroups.add(group))
+                    pausedGroups.add(group);
+            }
+        }
+        for (String pausedGroup : pausedGroups) {
+            for (TriggerKey triggerKey : getTriggerKeys(GroupMatcher.triggerGroupEquals(pausedGroup)))
+                pauseTrigger(triggerKey);
+        }
+        return pausedGroups;
+    }
+
+    @Override
+    public void pauseJob(JobKey jobKey) {
+        ReentrantLock lock = lockOf(jobKey);
+        lock.lock();
+        try {
+            JobRecord job = jobsByKey.get(jobKey);
+            if (job != null) {
+                for (TriggerRecord trig : job.triggers)
+                    pauseLocked(trig);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Collection<String> pauseJobs(GroupMatcher<JobKey> matcher) {
+        List<String> pausedGroups = new LinkedList<>();
+        StringMatcher.StringOperatorName operator = matcher.getCompareWithOperator();
+        if (operator == StringMatcher.StringOperatorName.EQUALS) {
+            if (pausedJobGroups.add(matcher.getCompareToValue()))
+                pausedGroups.add(matcher.getCompareToValue());
+        } else {
+            for (String group : jobsByGroup.keySet()) {
+                if (operator.evaluate(group, matcher.getCompareToValue()) && pausedJobGroups.add(group))
+                    pausedGroups.add(group);
+            }
+        }
+        for (String pausedGroup : pausedGroups) {
+            for (JobKey jobKey : getJobKeys(GroupMatcher.jobGroupEquals(pausedGroup)))
+                pauseJob(jobKey);
+        }
+        return pausedGroups;
+    }
+
+    @Override
+    public void resumeTrigger(TriggerKey triggerKey) {
+        TriggerRecord trig = lockTrigger(triggerKey);
+        if (trig == null)
+            return;
+        try {
+            resumeLocked(trig);
+        } finally {
+            lockOf(trig.jobKey).unlock();
+        }
+    }
+
+    @Override
+    public Collection<String> resumeTriggers(GroupMatcher<TriggerKey> matcher) {
+        Set<String> groups = new HashSet<>();
+        for (TriggerKey triggerKey : getTriggerKeys(matcher)) {
+            groups.add(triggerKey.getGroup());
+            TriggerRecord trig = triggersByKey.get(triggerKey);
+            if (trig != null && pausedJobGroups.contains(trig.jobKey.getGroup()))
+                continue;
+            resumeTrigger(triggerKey);
+        }
+        StringMatcher.StringOperatorName operator = matcher.getCompareWithOperator();
+        if (operator == StringMatcher.StringOperatorName.EQUALS) {
+            pausedTriggerGroups.remove(matcher.getCompareToValue());
+        } else {
+            pausedTriggerGroups.removeIf(group -> operator.evaluate(group, matcher.getCompareToValue()));
+        }
+        return new ArrayList<>(groups);
+    }
+
+    @Override
+    public Set<String> getPausedTriggerGroups() {
+        return new HashSet<>(pausedTriggerGroups);
+    }
+
+    @Override
+    public void resumeJob(JobKey jobKey) {
+        ReentrantLock lock = lockOf(jobKey);
+        lock.lock();
+        try {
+            JobRecord job = jobsByKey.get(jobKey);
+            if (job != null) {
+                for (TriggerRecord trig : new ArrayList<>(job.triggers))
+                    resumeLocked(trig);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Collection<String> resumeJobs(GroupMatcher<JobKey> matcher) {
+        Set<String> resumedGroups = new HashSet<>();
+        Set<JobKey> jobKeys = getJobKeys(matcher);
+        for (String pausedJobGroup : pausedJobGroups) {
+            if (matcher.getCompareWithOperator().evaluate(pausedJobGroup, matcher.getCompareToValue()))
+                resumedGroups.add(pausedJobGroup);
+        }
+        pausedJobGroups.removeAll(resumedGroups);
+        for (JobKey jobKey : jobKeys)
+            resumeJob(jobKey);
+        return resumedGroups;
+    }
+
+    @Override
+    public void pauseAll() {
+        for (String group : getTriggerGroupNames())
+            pauseTriggers(GroupMatcher.triggerGroupEquals(group));
+    }
+
+    @Override
+    public void resumeAll() {
+        pausedJobGroups.clear();
+        resumeTriggers(GroupMatcher.anyTriggerGroup());
+    }
+
+    @Override
+    public List<OperableTrigger> acquireNextTriggers(long noLaterThan, int maxCount, long timeWindow) {
+        TriggerAcquisitionEvent event = new TriggerAcquisitionEvent();
+        event.begin();
+        List<OperableTrigger> result = acquireFromWheel(noLaterThan, maxCount, timeWindow);
+        event.complete(this, noLaterThan, maxCount, timeWindow, result.size());
+        return result;
+    }
+
+    private List<OperableTrigger> acquireFromWheel(long noLaterThan, int maxCount, long timeWindow) {
+        List<OperableTrigger> result = new ArrayList<>();
+        if (triggersByKey.isEmpty())
+            return result;
+        Set<JobKey> acquiredJobKeysForNoConcurrentExec = new HashSet<>();
+        List<TriggerRecord> excludedTriggers = new ArrayList<>();
+        long batchEnd = noLaterThan;
+        while (result.size() < maxCount) {
+            TriggerRecord trig = (TriggerRecord) wheel.pollFirst(batchEnd);
+            if (trig == null)
+                break;
+            ReentrantLock lock = lockOf(trig.jobKey);
+            lock.lock();
+            try {
+                //the trigger may have been changed between the poll and the lock
+                if (triggersByKey.get(trig.key) != trig || trig.state != STATE_WAITING || wheel.isScheduled(trig))
+                    continue;
+                if (trig.trigger.getNextFireTime() == null)
+                    continue;
+                if (applyMisfire(trig)) {
+                    if (trig.trigger.getNextFireTime() != null)
+                        schedule(trig);
+                    continue;
+                }
+                long nextFireTime = trig.trigger.getNextFireTime().getTime();
+                if (nextFireTime > batchEnd) {
+                    schedule(trig);
+                    break;
+                }
+                JobRecord job = jobsByKey.get(trig.jobKey);
+                if (job.jobDetail.isConcurrentExectionDisallowed() && !acquiredJobKeysForNoConcurrentExec.add(trig.jobKey)) {
+                    excludedTriggers.add(trig);
+                    continue;
+                }
+                trig.state = STATE_ACQUIRED;
+                trig.trigger.setFireInstanceId(String.valueOf(firedTriggerRecordId.incrementAndGet()));
+                if (result.isEmpty())
+                    batchEnd = Math.max(nextFireTime, System.currentTimeMillis()) + timeWindow;
+                result.add((OperableTrigger) trig.trigger.clone());
+            } finally {
+                lock.unlock();
+            }
+        }
+        for (TriggerRecord trig : excludedTriggers) {
+            ReentrantLock lock = lockOf(trig.jobKey);
+            lock.lock();
+            try {
+                if (triggersByKey.get(trig.key) == trig && trig.state == STATE_WAITING)
+                    schedule(trig);
+            } finally {
+                lock.unlock();
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void releaseAcquiredTrigger(OperableTrigger trigger) {
+        TriggerRecord trig = lockTrigger(trigger.getKey());
+        if (trig == null)
+            return;
+        try {
+            if (trig.state == STATE_ACQUIRED) {
+                trig.state = STATE_WAITING;
+                schedule(trig);
+            }
+        } finally {
+            lockOf(trig.jobKey).unlock();
+        }
+    }
+
+    @Override
+    public List<TriggerFiredResult> triggersFired(List<OperableTrigger> firedTriggers) {
+        List<TriggerFiredResult> results = new ArrayList<>();
+        for (OperableTrigger trigger : firedTriggers) {
+            TriggerRecord trig = lockTrigger(trigger.getKey());
+            if (trig == null)
+                continue;
+            try {
+                //was the trigger completed, paused, blocked, etc. since being acquired?
+                if (trig.state != STATE_ACQUIRED)
+                    continue;
+                Calendar cal = null;
+                if (trig.trigger.getCalendarName() != null) {
+                    cal = retrieveCalendar(trig.trigger.getCalendarName());
+                    if (cal == null)
+                        continue;
+                }
+                Date prevFireTime = trigger.getPreviousFireTime();
+                wheel.cancel(trig);
+                trig.trigger.triggered(cal);
+                trigger.triggered(cal);
+                trig.state = STATE_WAITING;
+                JobRecord job = jobsByKey.get(trig.jobKey);
+                JobDetail jobDetail = (JobDetail) job.jobDetail.clone();
+                TriggerFiredBundle bundle = new TriggerFiredBundle(jobDetail, trigger, cal, false, new Date(),
+                        trigger.getPreviousFireTime(), prevFireTime, trigger.getNextFireTime());
+                if (jobDetail.isConcurrentExectionDisallowed()) {
+                    for (TriggerRecord jobTrigger : job.triggers) {
+                        if (jobTrigger.state == STATE_WAITING)
+                            jobTrigger.state = STATE_BLOCKED;
+                        if (jobTrigger.state == STATE_PAUSED)
+                            jobTrigger.state = STATE_PAUSED_BLOCKED;
+                        wheel.cancel(jobTrigger);
+                    }
+                    job.blocked = true;
+                } else if (trig.trigger.getNextFireTime() != null) {
+                    schedule(trig);
+                }
+                results.add(new TriggerFiredResult(bundle));
+            } finally {
+                lockOf(trig.jobKey).unlock();
+            }
+        }
+        return results;
+    }
+
+    @Override
+    public void triggeredJobComplete(OperableTrigger trigger, JobDetail jobDetail, CompletedExecutionInstruction triggerInstCode) {
+        ReentrantLock[] held = lockJobs(jobDetail.getKey(), trigger.getJobKey());
+        try {
+            JobRecord job = jobsByKey.get(jobDetail.getKey());
+            if (job != null) {
+                JobDetail jd = job.jobDetail;
+                if (jd.isPersistJobDataAfterExecution()) {
+                    JobDataMap newData = jobDetail.getJobDataMap();
+                    if (newData != null) {
+                        newData = (JobDataMap) newData.clone();
+                        newData.clearDirtyFlag();
+                    }
+                    jd = jd.getJobBuilder().setJobData(newData).build();
+                    job.jobDetail = jd;
+                }
+                if (jd.isConcurrentExectionDisallowed()) {
+                    job.blocked = false;
+                    for (TriggerRecord jobTrigger : job.triggers) {
+                        if (jobTrigger.state == STATE_BLOCKED) {
+                            jobTrigger.state = STATE_WAITING;
+                            schedule(jobTrigger);
+                        }
+                        if (jobTrigger.state == STATE_PAUSED_BLOCKED)
+                            jobTrigger.state = STATE_PAUSED;
+                    }
+                    signaler.signalSchedulingChange(0L);
+                }
+            }
+            TriggerRecord trig = triggersByKey.get(trigger.getKey());
+            //only the stripe of the completed trigger's job is held
+            if (trig == null || !trig.jobKey.equals(trigger.getJobKey()))
+                return;
+            completeTrigger(trig, trigger, triggerInstCode);
+        } finally {
+            unlock(held);
+        }
+    }
+
+    @Override
+    public void setInstanceId(String schedInstId) {
+        //
+    }
+
+    @Override
+    public void setInstanceName(String schedName) {
+        this.instanceName = schedName;
+    }
+
+    @Override
+    public void setThreadPoolSize(int poolSize) {
+        //
+    }
+
+    @Override
+    public long getAcquireRetryDelay(int failureCount) {
+        return 20;
+    }
+
+    /**
+     * @return number of triggers currently waiting in the timing wheel
+     */
+    public int getScheduledTriggerCount() {
+        return wheel.size();
+    }
+
+    private void advanceWheel() {
+        long sleepMillis = Math.max(tickMillis, 50);
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                long target = System.currentTimeMillis() + lookAheadMillis;
+                //the wheel lock is released between two steps, giving way to acquisitions and updates
+                while (!wheel.advanceTo(target, ADVANCE_BUDGET))
+                    Thread.yield();
+                Thread.sleep(sleepMillis);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void completeTrigger(TriggerRecord trig, OperableTrigger trigger, CompletedExecutionInstruction triggerInstCode) {
+        if (triggerInstCode == CompletedExecutionInstruction.DELETE_TRIGGER) {
+            if (trigger.getNextFireTime() == null) {
+                //double check for possible reschedule within job execution, which would cancel the need to delete
+                if (trig.trigger.getNextFireTime() == null)
+                    removeTriggerLocked(trig, true);
+            } else {
+                removeTriggerLocked(trig, true);
+                signaler.signalSchedulingChange(0L);
+            }
+        } else if (triggerInstCode == CompletedExecutionInstruction.SET_TRIGGER_COMPLETE) {
+            trig.state = STATE_COMPLETE;
+            wheel.cancel(trig);
+            signaler.signalSchedulingChange(0L);
+        } else if (triggerInstCode == CompletedExecutionInstruction.SET_TRIGGER_ERROR) {
+            logger.info("Trigger {} set to ERROR state.", trigger.getKey());
+            trig.state = STATE_ERROR;
+            wheel.cancel(trig);
+            signaler.signalSchedulingChange(0L);
+        } else if (triggerInstCode == CompletedExecutionInstruction.SET_ALL_JOB_TRIGGERS_ERROR) {
+            logger.info("All triggers of Job {} set to ERROR state.", trigger.getJobKey());
+            setAllTriggersOfJobToState(trig.jobKey, STATE_ERROR);
+            signaler.signalSchedulingChange(0L);
+        } else if (triggerInstCode == CompletedExecutionInstruction.SET_ALL_JOB_TRIGGERS_COMPLETE) {
+            setAllTriggersOfJobToState(trig.jobKey, STATE_COMPLETE);
+            signaler.signalSchedulingChange(0L);
+        }
+    }
+
+    private void setAllTriggersOfJobToState(JobKey jobKey, int state) {
+        JobRecord job = jobsByKey.get(jobKey);
+        if (job == null)
+            return;
+        for (TriggerRecord trig : job.triggers) {
+            trig.state = state;
+            wheel.cancel(trig);
+        }
+    }
+
+    private boolean removeJobLocked(JobKey jobKey) {
+        boolean found = false;
+        JobRecord job = jobsByKey.get(jobKey);
+        if (job != null) {
+            for (TriggerRecord trig : new ArrayList<>(job.triggers)) {
+                removeTriggerLocked(trig, false);
+                found = true;
+            }
+        }
+        found = (jobsByKey.remove(jobKey) != null) | found;
+        if (found)
+            removeFromGroup(jobsByGroup, jobKey.getGroup(), jobKey);
+        return found;
+    }
+
+    private void removeTriggerLocked(TriggerRecord trig, boolean removeOrphanedJob) {
+        if (triggersByKey.remove(trig.key, trig))
+            removeFromGroup(triggersByGroup, trig.key.getGroup(), trig.key);
+        detachTrigger(trig);
+        JobRecord job = jobsByKey.get(trig.jobKey);
+        if (removeOrphanedJob && job != null && job.triggers.isEmpty() && !job.jobDetail.isDurable()
+                && removeJobLocked(trig.jobKey)) {
+            signaler.notifySchedulerListenersJobDeleted(trig.jobKey);
+        }
+    }
+
+    private void detachTrigger(TriggerRecord trig) {
+        JobRecord job = jobsByKey.get(trig.jobKey);
+        if (job != null)
+            job.triggers.remove(trig);
+        wheel.cancel(trig);
+        trig.state = STATE_DELETED;
+    }
+
+    private void attachTrigger(JobRecord job, TriggerRecord trig) {
+        job.triggers.add(trig);
+        //the trigger is already visible in the group index, so a concurrent group pause either sees it or is seen here
+        if (pausedTriggerGroups.contains(trig.key.getGroup()) || pausedJobGroups.contains(trig.jobKey.getGroup())) {
+            trig.state = job.blocked ? STATE_PAUSED_BLOCKED : STATE_PAUSED;
+        } else if (job.blocked) {
+            trig.state = STATE_BLOCKED;
+        } else {
+            trig.state = STATE_WAITING;
+            schedule(trig);
+        }
+    }
+
+    private void pauseLocked(TriggerRecord trig) {
+        if (trig.state == STATE_COMPLETE || trig.state == STATE_DELETED)
+            return;
+        trig.state = trig.state == STATE_BLOCKED ? STATE_PAUSED_BLOCKED : STATE_PAUSED;
+        wheel.cancel(trig);
+    }
+
+    private void resumeLocked(TriggerRecord trig) {
+        if (trig.state != STATE_PAUSED && trig.state != STATE_PAUSED_BLOCKED)
+            return;
+        JobRecord job = jobsByKey.get(trig.jobKey);
+        trig.state = job != null && job.blocked ? STATE_BLOCKED : STATE_WAITING;
+        applyMisfire(trig);
+        if (trig.state == STATE_WAITING)
+            schedule(trig);
+    }
+
+    private boolean applyMisfire(TriggerRecord trig) {
+        long misfireTime = System.currentTimeMillis();
+        if (getMisfireThreshold() > 0)
+            misfireTime -= getMisfireThreshold();
+        Date nextFireTime = trig.trigger.getNextFireTime();
+        if (nextFireTime == null || nextFireTime.getTime() > misfireTime
+                || trig.trigger.getMisfireInstruction() == Trigger.MISFIRE_INSTRUCTION_IGNORE_MISFIRE_POLICY) {
+            return false;
+        }
+        Calendar cal = null;
+        if (trig.trigger.getCalendarName() != null)
+            cal = retrieveCalendar(trig.trigger.getCalendarName());
+        signaler.notifyTriggerListenersMisfired((OperableTrigger) trig.trigger.clone());
+        trig.trigger.updateAfterMisfire(cal);
+        if (trig.trigger.getNextFireTime() == null) {
+            trig.state = STATE_COMPLETE;
+            signaler.notifySchedulerListenersFinalized(trig.trigger);
+            wheel.cancel(trig);
+        } else if (nextFireTime.equals(trig.trigger.getNextFireTime())) {
+            return false;
+        }
+        return true;
+    }
+
+    private void schedule(TriggerRecord trig) {
+        Date nextFireTime = trig.trigger.getNextFireTime();
+        if (nextFireTime != null)
+            wheel.schedule(trig, nextFireTime.getTime(), trig.trigger.getPriority());
+        else
+            wheel.cancel(trig);
+    }
+
+    /**
+     * Locks the stripe of the trigger's job.
+     * @return the current record of the trigger, with its stripe locked, or null if the trigger does not exist
+     */
+    private TriggerRecord lockTrigger(TriggerKey triggerKey) {
+        while (true) {
+            TriggerRecord trig = triggersByKey.get(triggerKey);
+            if (trig == null)
+                return null;
+            ReentrantLock lock = lockOf(trig.jobKey);
+            lock.lock();
+            if (triggersByKey.get(triggerKey) == trig)
+                return trig;
+            lock.unlock();
+        }
+    }
+
+    private ReentrantLock lockOf(JobKey jobKey) {
+        return locks[stripeOf(jobKey)];
+    }
+
+    private int stripeOf(JobKey jobKey) {
+        int hash = jobKey.hashCode();
+        return (hash ^ (hash >>> 16)) & (locks.length - 1);
+    }
+
+    private ReentrantLock[] lockJobs(JobKey first, JobKey second) {
+        int firstStripe = stripeOf(first);
+        int secondStripe = stripeOf(second);
+        ReentrantLock[] held;
+        if (firstStripe == secondStripe)
+            held = new ReentrantLock[]{locks[firstStripe]};
+        else
+            //stripes are always locked in index order to avoid deadlocks between two jobs
+            held = new ReentrantLock[]{locks[Math.min(firstStripe, secondStripe)], locks[Math.max(firstStripe, secondStripe)]};
+        for (ReentrantLock lock : held)
+            lock.lock();
+        return held;
+    }
+
+    private static void unlock(ReentrantLock[] held) {
+        for (int i = held.length - 1; i >= 0; i--)
+            held[i].unlock();
+    }
+
+    private static <K> void addToGroup(ConcurrentHashMap<String, Set<K>> groups, String group, K key) {
+        groups.compute(group, (name, keys) -> {
+            Set<K> groupKeys = keys != null ? keys : ConcurrentHashMap.newKeySet();
+            groupKeys.add(key);
+            return groupKeys;
+        });
+    }
+
+    private static <K> void removeFromGroup(ConcurrentHashMap<String, Set<K>> groups, String group, K key) {
+        groups.computeIfPresent(group, (name, keys) -> {
+            keys.remove(key);
+            return keys.isEmpty() ? null : keys;
+        });
+    }
+
+    private static <K> Set<K> matchingKeys(ConcurrentHashMap<String, Set<K>> groups, StringMatcher.StringOperatorName operator, String compareToValue) {
+        Set<K> keys = new HashSet<>();
+        if (operator == StringMatcher.StringOperatorName.EQUALS) {
+            Set<K> groupKeys = groups.get(compareToValue);
+            if (groupKeys != null)
+                keys.addAll(groupKeys);
+            return keys;
+        }
+        for (Map.Entry<String, Set<K>> entry : groups.entrySet()) {
+            if (operator.evaluate(entry.getKey(), compareToValue))
+                keys.addAll(entry.getValue());
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,299 @@
+package it.water.connectors.jobscheduler.service.quartz;
+
+import org.quartz.TriggerKey;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.TreeSet;
+
+/**
+ * Hierarchical timing wheel holding the triggers waiting to be acquired.
+ * The root level has 256 slots of one tick each, the three upper levels have 64 slots each covering
+ * the whole previous level; farther triggers are parked in an overflow list. Triggers are cascaded
+ * to the lower levels as the wheel advances, so insertion and cancellation are O(1) whatever the number of triggers.
+ * Triggers whose tick has been reached are moved to a small ordered "due" set, ordered like the RAMJobStore
+ * (fire time, then priority, then key), from which they are polled.
+ * Cascades can be performed a few triggers at a time through {@link #advanceTo(long, int)}, so that a crowded
+ * upper slot does not stall the wheel lock for the whole time needed to move it.
+ * <p>
+ * All the methods are synchronized, critical sections are short and never call back into the job store.
+ */
+final class TriggerTimingWheel {
+    private static final int ROOT_BITS = 8;
+    private static final int LEVEL_BITS = 6;
+    private static final int ROOT_SIZE = 1 << ROOT_BITS;
+    private static final int LEVEL_SIZE = 1 << LEVEL_BITS;
+    private static final int LEVELS = 4;
+    private static final int OVERFLOW = LEVELS;
+    private static final int DUE = LEVELS + 1;
+    private static final int UNLINKED = -1;
+
+    private static final Comparator<Node> DUE_ORDER = (n1, n2) -> {
+        int comparison = Long.compare(n1.time, n2.time);
+        if (comparison != 0)
+            return comparison;
+        comparison = Integer.compare(n2.priority, n1.priority);
+        if (comparison != 0)
+            return comparison;
+        return n1.key.compareTo(n2.key);
+    };
+
+    /**
+     * Intrusive list node, extended by the job store trigger records.
+     * Fields are guarded by the wheel monitor.
+     */
+    static class Node {
+        final TriggerKey key;
+        private long time;
+        private int priority;
+        private int level = UNLINKED;
+        private int slot;
+        private Node prev;
+        private Node next;
+
+        Node(TriggerKey key) {
+            this.key = key;
+        }
+    }
+
+    private final long tickMillis;
+    private final Node[][] slots = new Node[LEVELS + 1][];
+    private final TreeSet<Node> due = new TreeSet<>(DUE_ORDER);
+    private long currentTick;
+    private int rootCount;
+    private int pending;
+    private int cascadeLevel;
+    private boolean drainPending;
+
+    TriggerTimingWheel(long tickMillis, long startTime) {
+        if (tickMillis <= 0)
+            throw new IllegalArgumentException("Tick must be greater than 0");
+        this.tickMillis = tickMillis;
+        this.currentTick = Math.floorDiv(startTime, tickMillis);
+        slots[0] = new Node[ROOT_SIZE];
+        for (int level = 1; level < LEVELS; level++)
+            slots[level] = new Node[LEVEL_SIZE];
+        slots[OVERFLOW] = new Node[1];
+    }
+
+    /**
+     * Adds the node to the wheel, moving it if it was already scheduled.
+     * @param node trigger record
+     * @param time fire time
+     * @param priority trigger priority, used to order triggers with the same fire time
+     */
+    synchronized void schedule(Node node, long time, int priority) {
+        unlink(node);
+        node.time = time;
+        node.priority = priority;
+        place(node);
+    }
+
+    /**
+     * @param node trigger record
+     * @return true if the node was scheduled
+     */
+    synchronized boolean cancel(Node node) {
+        return unlink(node);
+    }
+
+    synchronized boolean isScheduled(Node node) {
+        return node.level != UNLINKED;
+    }
+
+    /**
+     * Advances the wheel up to the given time and removes the first trigger due not later than it.
+     * @param limitTime latest fire time accepted
+     * @return first due trigger, null if no trigger fires until limitTime
+     */
+    synchronized Node pollFirst(long limitTime) {
+        advance(Math.floorDiv(limitTime, tickMillis), Integer.MAX_VALUE);
+        if (due.isEmpty() || due.first().time > limitTime)
+            return null;
+        Node first = due.pollFirst();
+        first.level = UNLINKED;
+        return first;
+    }
+
+    /**
+     * Advances the wheel towards the given time, moving at most budget triggers, so that cascades of crowded
+     * slots can be spread over several calls instead of being paid by a single acquisition.
+     * @param targetTime time the wheel should reach
+     * @param budget maximum number of triggers moved by this call
+     * @return true if the wheel reached targetTime
+     */
+    synchronized boolean advanceTo(long targetTime, int budget) {
+        return advance(Math.floorDiv(targetTime, tickMillis), budget);
+    }
+
+    /**
+     * @return number of scheduled triggers
+     */
+    synchronized int size() {
+        return pending + due.size();
+    }
+
+    synchronized void clear() {
+        for (Node[] level : slots)
+            Arrays.fill(level, null);
+        for (Node node : due)
+            node.level = UNLINKED;
+        due.clear();
+        rootCount = 0;
+        pending = 0;
+        cascadeLevel = 0;
+        drainPending = false;
+    }
+
+    private boolean advance(long targetTick, int budget) {
+        int moved = 0;
+        while (true) {
+            //a cascade in progress must be completed before the root slot of the current tick is drained
+            while (cascadeLevel > 0) {
+                if (moved >= budget)
+                    return false;
+                moved += cascadeStep(budget - moved);
+            }
+            if (drainPending) {
+                moved += drainRoot();
+                drainPending = false;
+            }
+            if (currentTick >= targetTick)
+                return true;
+            if (moved >= budget)
+                return false;
+            if (pending == 0) {
+                currentTick = targetTick;
+                return true;
+            }
+            if (rootCount == 0) {
+                //nothing to drain until the next cascade, jumping to the end of the root rotation
+                long lastOfRotation = currentTick | (ROOT_SIZE - 1);
+                if (lastOfRotation >= targetTick) {
+                    currentTick = targetTick;
+                    return true;
+                }
+                currentTick = lastOfRotation;
+            }
+            currentTick++;
+            if ((currentTick & (ROOT_SIZE - 1)) == 0)
+                cascadeLevel = 1;
+            drainPending = true;
+        }
+    }
+
+    /**
+     * Moves up to budget triggers of the slot being cascaded to the lower levels.
+     * @return number of triggers moved
+     */
+    private int cascadeStep(int budget) {
+        int moved = 0;
+        if (cascadeLevel == OVERFLOW) {
+            //once every 2^26 ticks: the overflow list is re-placed at once, since re-placed triggers may go back to it
+            Node node = slots[OVERFLOW][0];
+            slots[OVERFLOW][0] = null;
+            while (node != null) {
+                Node next = node.next;
+                node.prev = null;
+                node.next = null;
+                node.level = UNLINKED;
+                pending--;
+                place(node);
+                moved++;
+                node = next;
+            }
+            cascadeLevel = 0;
+            return moved;
+        }
+        int index = (int) ((currentTick >> (ROOT_BITS + (cascadeLevel - 1) * LEVEL_BITS)) & (LEVEL_SIZE - 1));
+        //new triggers are never placed in the slot being cascaded, so draining it from the head terminates
+        Node node = slots[cascadeLevel][index];
+        while (node != null && moved < budget) {
+            Node next = node.next;
+            unlink(node);
+            place(node);
+            moved++;
+            node = next;
+        }
+        if (node == null)
+            cascadeLevel = index == 0 ? cascadeLevel + 1 : 0;
+        return moved;
+    }
+
+    private int drainRoot() {
+        int drained = 0;
+        int index = (int) (currentTick & (ROOT_SIZE - 1));
+        Node node = slots[0][index];
+        slots[0][index] = null;
+        while (node != null) {
+            Node next = node.next;
+            node.prev = null;
+            node.next = null;
+            rootCount--;
+            pending--;
+            node.level = DUE;
+            due.add(node);
+            drained++;
+            node = next;
+        }
+        return drained;
+    }
+
+    private void place(Node node) {
+        long tick = Math.floorDiv(node.time, tickMillis);
+        if (tick <= currentTick) {
+            node.level = DUE;
+            due.add(node);
+            return;
+        }
+        long delta = tick - currentTick;
+        if (delta < ROOT_SIZE) {
+            link(node, 0, (int) (tick & (ROOT_SIZE - 1)));
+            return;
+        }
+        for (int level = 1; level < LEVELS; level++) {
+            int shift = ROOT_BITS + level * LEVEL_BITS;
+            if (delta < (1L << shift)) {
+                link(node, level, (int) ((tick >> (shift - LEVEL_BITS)) & (LEVEL_SIZE - 1)));
+                return;
+            }
+        }
+        link(node, OVERFLOW, 0);
+    }
+
+    private void link(Node node, int level, int slot) {
+        Node head = slots[level][slot];
+        node.level = level;
+        node.slot = slot;
+        node.prev = null;
+        node.next = head;
+        if (head != null)
+            head.prev = node;
+        slots[level][slot] = node;
+        pending++;
+        if (level == 0)
+            rootCount++;
+    }
+
+    private boolean unlink(Node node) {
+        if (node.level == UNLINKED)
+            return false;
+        if (node.level == DUE) {
+            due.remove(node);
+        } else {
+            if (node.prev != null)
+                node.prev.next = node.next;
+            else
+                slots[node.level][node.slot] = node.next;
+            if (node.next != null)
+                node.next.prev = node.prev;
+            pending--;
+            if (node.level == 0)
+                rootCount--;
+        }
+        node.prev = null;
+        node.next = null;
+        node.level = UNLINKED;
+        return true;
+    }
+}
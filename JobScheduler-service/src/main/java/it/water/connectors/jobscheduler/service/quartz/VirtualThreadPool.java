@@ -0,0 +1,163 @@
+package it.water.connectors.jobscheduler.service.quartz;
+
+import org.quartz.SchedulerConfigException;
+import org.quartz.spi.ThreadPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Quartz ThreadPool which runs every job on its own virtual thread.
+ * There is no pool of workers: the number of jobs running at the same time is bounded by a semaphore,
+ * configured through org.quartz.threadPool.maxConcurrency.
+ * On JVMs without virtual threads every job runs on a new platform daemon thread, with the same bound.
+ * <p>
+ * Select it with:
+ * <pre>
+ * org.quartz.threadPool.class=it.water.connectors.jobscheduler.service.quartz.VirtualThreadPool
+ * org.quartz.threadPool.maxConcurrency=500
+ * </pre>
+ * threadCount and threadPriority are accepted so that the SimpleThreadPool configuration can be kept, but they are ignored.
+ */
+public class VirtualThreadPool implements ThreadPool {
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadPool.class);
+    public static final int DEFAULT_MAX_CONCURRENCY = 256;
+
+    private int maxConcurrency = DEFAULT_MAX_CONCURRENCY;
+    private String threadNamePrefix;
+    private String instanceName = "QuartzScheduler";
+    private Semaphore permits;
+    private ThreadFactory threadFactory;
+    private volatile boolean shutdown;
+
+    @Override
+    public boolean runInThread(Runnable runnable) {
+        if (runnable == null || shutdown)
+            return false;
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        if (shutdown) {
+            permits.release();
+            return false;
+        }
+        Thread thread = threadFactory.newThread(() -> {
+            try {
+                runnable.run();
+            } finally {
+                permits.release();
+            }
+        });
+        thread.start();
+        return true;
+    }
+
+    @Override
+    public int blockForAvailableThreads() {
+        try {
+            permits.acquire();
+            permits.release();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return Math.max(1, permits.availablePermits());
+    }
+
+    @Override
+    public void initialize() throws SchedulerConfigException {
+        if (maxConcurrency <= 0)
+            throw new SchedulerConfigException("maxConcurrency must be greater than 0");
+        if (threadNamePrefix == null)
+            threadNamePrefix = instanceName + "_Worker-";
+        permits = new Semaphore(maxConcurrency);
+        threadFactory = createThreadFactory(threadNamePrefix);
+        shutdown = false;
+    }
+
+    @Override
+    public void shutdown(boolean waitForJobsToComplete) {
+        shutdown = true;
+        if (waitForJobsToComplete && permits != null) {
+            permits.acquireUninterruptibly(maxConcurrency);
+            permits.release(maxConcurrency);
+        }
+    }
+
+    @Override
+    public int getPoolSize() {
+        return maxConcurrency;
+    }
+
+    /**
+     * @return number of jobs which are running now
+     */
+    public int getBusyCount() {
+        return permits == null ? 0 : maxConcurrency - permits.availablePermits();
+    }
+
+    @Override
+    public void setInstanceId(String schedInstId) {
+        // not used: threads are named after the instance name
+    }
+
+    @Override
+    public void setInstanceName(String schedName) {
+        this.instanceName = schedName;
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public void setMaxConcurrency(int maxConcurrency) {
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    public void setThreadNamePrefix(String threadNamePrefix) {
+        this.threadNamePrefix = threadNamePrefix;
+    }
+
+    /**
+     * Accepted for compatibility with the SimpleThreadPool configuration, concurrency is set by maxConcurrency
+     */
+    public void setThreadCount(int threadCount) {
+        logger.debug("threadCount {} ignored by VirtualThreadPool, maxConcurrency is {}", threadCount, maxConcurrency);
+    }
+
+    /**
+     * Accepted for compatibility with the SimpleThreadPool configuration, virtual threads have a fixed priority
+     */
+    public void setThreadPriority(int threadPriority) {
+        logger.debug("threadPriority {} ignored by VirtualThreadPool", threadPriority);
+    }
+
+    /**
+     * Builds a virtual thread factory through reflection, so that this class can be loaded on JVMs without virtual threads.
+     */
+    private static ThreadFactory createThreadFactory(String namePrefix) {
+        try {
+            Method ofVirtual = Thread.class.getMethod("ofVirtual");
+            Object builder = ofVirtual.invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, namePrefix, 0L);
+            ThreadFactory factory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+            logger.info("Quartz jobs will run on virtual threads");
+            return factory;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            logger.warn("Virtual threads are not available on this JVM, Quartz jobs will run on new platform threads");
+            AtomicLong counter = new AtomicLong();
+            return runnable -> {
+                Thread thread = new Thread(runnable, namePrefix + counter.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            };
+        }
+    }
+}
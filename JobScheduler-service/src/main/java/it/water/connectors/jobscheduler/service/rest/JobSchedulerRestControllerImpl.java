@@ -1,14 +1,33 @@
 
 package it.water.connectors.jobscheduler.service.rest;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
 import it.water.connectors.jobscheduler.api.JobSchedulerApi;
 import it.water.connectors.jobscheduler.api.rest.JobSchedulerRestApi;
+import it.water.connectors.jobscheduler.model.JobExecutionPage;
+import it.water.connectors.jobscheduler.model.JobFireHistogram;
+import it.water.connectors.jobscheduler.model.JobListQuery;
+import it.water.connectors.jobscheduler.model.JobSchedulerMetricsSnapshot;
+import it.water.connectors.jobscheduler.model.JobSchedulerReadiness;
+import it.water.connectors.jobscheduler.model.JobSummary;
+import it.water.connectors.jobscheduler.service.JobListCursor;
 import it.water.core.api.service.rest.FrameworkRestController;
 import it.water.core.interceptors.annotations.Inject;
+import it.water.core.model.exceptions.WaterRuntimeException;
 import lombok.Setter;
+import org.quartz.Trigger;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 
 /**
  * @Generated by Water Generator
@@ -19,6 +38,7 @@ import org.slf4j.LoggerFactory;
 public class JobSchedulerRestControllerImpl  implements JobSchedulerRestApi {
     @SuppressWarnings("java:S1068") //still mantain the variable even if not used
     private static Logger log = LoggerFactory.getLogger(JobSchedulerRestControllerImpl.class.getName());
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
     
     @Inject
     @Setter
@@ -28,4 +48,102 @@ public class JobSchedulerRestControllerImpl  implements JobSchedulerRestApi {
 
     //ATTENTION: use always JobSchedulerApi in order to ensure the user is requesting operations has the right privileges to do it
 
+    @Override
+    public JobSchedulerMetricsSnapshot getMetrics() {
+        return jobSchedulerApi.getMetrics();
+    }
+
+    @Override
+    public Response getReadiness() {
+        JobSchedulerReadiness readiness = jobSchedulerApi.getReadiness();
+        Response.Status status = readiness == JobSchedulerReadiness.READY ? Response.Status.OK : Response.Status.SERVICE_UNAVAILABLE;
+        return Response.status(status).entity(Collections.singletonMap("readiness", readiness)).type(MediaType.APPLICATION_JSON).build();
+    }
+
+    @Override
+    public JobFireHistogram getFireHistogram(int horizonSeconds) {
+        return jobSchedulerApi.getFireHistogram(horizonSeconds);
+    }
+
+    @Override
+    public JobExecutionPage getExecutionHistory(String jobGroup, String jobName, Long cursor, int limit) {
+        return jobSchedulerApi.getExecutionHistory(jobGroup, jobName, cursor, limit);
+    }
+
+    /**
+     * Reads the page and streams it as JSON. Since errors cannot change the status of a response already streaming,
+     * parameters and readiness are checked and the page is read from the job store before the response is built:
+     * a page holds at most {@link JobListQuery#MAX_LIMIT} jobs, only the JSON document is written as a stream.
+     */
+    @Override
+    public Response getJobs(String jobGroup, String triggerState, Long nextFireTimeBefore, String cursor, int limit) {
+        String error = validateJobsQuery(triggerState, cursor, limit);
+        if (error != null)
+            return Response.status(Response.Status.BAD_REQUEST).entity(Collections.singletonMap("error", error)).type(MediaType.APPLICATION_JSON).build();
+        JobSchedulerReadiness readiness = jobSchedulerApi.getReadiness();
+        if (readiness != JobSchedulerReadiness.READY)
+            return Response.status(Response.Status.SERVICE_UNAVAILABLE).entity(Collections.singletonMap("readiness", readiness)).type(MediaType.APPLICATION_JSON).build();
+        JobListQuery query = new JobListQuery(jobGroup, triggerState, nextFireTimeBefore, cursor, limit);
+        List<JobSummary> jobs = new ArrayList<>(Math.min(limit, 64));
+        String nextCursor = jobSchedulerApi.listJobs(query, jobs::add);
+        StreamingOutput body = output -> {
+            try (JsonGenerator generator = JSON_FACTORY.createGenerator(output)) {
+                generator.writeStartObject();
+                generator.writeArrayFieldStart("jobs");
+                for (JobSummary job : jobs)
+                    writeJob(generator, job);
+                generator.writeEndArray();
+                generator.writeStringField("nextCursor", nextCursor);
+                generator.writeEndObject();
+            }
+        };
+        return Response.ok(body, MediaType.APPLICATION_JSON).build();
+    }
+
+    /**
+     * @return error message, null if the parameters are valid
+     */
+    private static String validateJobsQuery(String triggerState, String cursor, int limit) {
+        if (limit < 1 || limit > JobListQuery.MAX_LIMIT)
+            return "Invalid limit " + limit + ", it must be between 1 and " + JobListQuery.MAX_LIMIT;
+        if (triggerState != null) {
+            try {
+                Trigger.TriggerState.valueOf(triggerState);
+            } catch (IllegalArgumentException e) {
+                return "Invalid trigger state " + triggerState;
+            }
+        }
+        if (cursor != null) {
+            try {
+                JobListCursor.decode(cursor);
+            } catch (WaterRuntimeException e) {
+                return e.getMessage();
+            }
+        }
+        return null;
+    }
+
+    private static void writeJob(JsonGenerator generator, JobSummary job) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("jobGroup", job.getJobGroup());
+        generator.writeStringField("jobName", job.getJobName());
+        generator.writeStringField("jobClassName", job.getJobClassName());
+        generator.writeStringField("description", job.getDescription());
+        generator.writeBooleanField("durable", job.isDurable());
+        generator.writeStringField("triggerState", job.getTriggerState());
+        generator.writeStringField("cronExpression", job.getCronExpression());
+        generator.writeFieldName("nextFireTime");
+        writeNullableLong(generator, job.getNextFireTime());
+        generator.writeFieldName("previousFireTime");
+        writeNullableLong(generator, job.getPreviousFireTime());
+        generator.writeEndObject();
+    }
+
+    private static void writeNullableLong(JsonGenerator generator, Long value) throws IOException {
+        if (value == null)
+            generator.writeNull();
+        else
+            generator.writeNumber(value);
+    }
+
 }
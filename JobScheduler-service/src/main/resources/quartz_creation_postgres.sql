@@ -20,6 +20,8 @@
 --
 -- In your Quartz properties file, you'll need to set:
 -- org.quartz.jobStore.driverDelegateClass = org.quartz.impl.jdbcjobstore.PostgreSQLDelegate
+-- or, for clustered nodes acquiring triggers with FOR UPDATE SKIP LOCKED:
+-- org.quartz.jobStore.driverDelegateClass = it.water.connectors.jobscheduler.service.quartz.SkipLockedPostgreSQLDelegate
 
 
 CREATE TABLE IF NOT EXISTS QRTZ_JOB_DETAILS
@@ -170,6 +172,8 @@ CREATE INDEX IF NOT EXISTS IDX_QRTZ_J_REQ_RECOVERY
   ON QRTZ_JOB_DETAILS (SCHED_NAME, REQUESTS_RECOVERY);
 CREATE INDEX IF NOT EXISTS IDX_QRTZ_J_GRP
   ON QRTZ_JOB_DETAILS (SCHED_NAME, JOB_GROUP);
+CREATE INDEX IF NOT EXISTS IDX_QRTZ_J_GRP_NAME
+  ON QRTZ_JOB_DETAILS (SCHED_NAME, JOB_GROUP, JOB_NAME);
 
 CREATE INDEX IF NOT EXISTS IDX_QRTZ_T_J
   ON QRTZ_TRIGGERS (SCHED_NAME, JOB_NAME, JOB_GROUP);
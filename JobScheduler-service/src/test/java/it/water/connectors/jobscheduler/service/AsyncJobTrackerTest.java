@@ -0,0 +1,136 @@
+package it.water.connectors.jobscheduler.service;
+
+import it.water.connectors.jobscheduler.api.AsyncJob;
+import it.water.connectors.jobscheduler.model.JobSchedulerMetricsSnapshot;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.quartz.*;
+import org.quartz.impl.StdSchedulerFactory;
+import org.quartz.listeners.JobListenerSupport;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+class AsyncJobTrackerTest {
+    private static final Map<String, CompletableFuture<Object>> tasks = new ConcurrentHashMap<>();
+    private static final Map<String, Integer> starts = new ConcurrentHashMap<>();
+
+    @Test
+    void workerShouldBeReleasedBeforeCompletion() throws Exception {
+        AsyncJobTracker tracker = new AsyncJobTracker();
+        JobSchedulerMetrics metrics = new JobSchedulerMetrics();
+        RecordingListener listener = new RecordingListener();
+        Scheduler scheduler = newScheduler();
+        ListenerManager listenerManager = scheduler.getListenerManager();
+        listenerManager.addJobListener(tracker);
+        listenerManager.addTriggerListener(tracker);
+        listenerManager.addJobListener(tracker.wrap(metrics));
+        listenerManager.addTriggerListener(metrics);
+        listenerManager.addJobListener(tracker.wrap(listener));
+        try {
+            scheduler.start();
+            // a single worker dispatches every job without waiting for the previous ones
+            for (int i = 0; i < 5; i++) {
+                tasks.put("io" + i, new CompletableFuture<>());
+                scheduler.scheduleJob(JobBuilder.newJob(PendingAsyncJob.class).withIdentity("io" + i, "async").build(),
+                        TriggerBuilder.newTrigger().withIdentity("io" + i, "async").startNow().build());
+            }
+            awaitCondition(() -> tracker.getInFlight() == 5);
+            Assertions.assertTrue(listener.completions.isEmpty());
+            JobSchedulerMetricsSnapshot running = metrics.snapshot(1, -1, Collections.emptyMap(), tracker.getInFlight(), 0, null);
+            Assertions.assertEquals(0, running.getBusyThreads());
+            Assertions.assertEquals(5, running.getAsyncJobsInFlight());
+
+            Thread.sleep(20);
+            for (int i = 0; i < 4; i++)
+                tasks.get("io" + i).complete("done");
+            tasks.get("io4").completeExceptionally(new IllegalStateException("unavailable"));
+            awaitCondition(() -> listener.completions.size() == 5);
+
+            Assertions.assertEquals(0, tracker.getInFlight());
+            Assertions.assertEquals(1, listener.completions.values().stream().filter(Objects::nonNull).count());
+            Assertions.assertTrue(listener.completions.get("io4") instanceof JobExecutionException);
+            Assertions.assertTrue(listener.runTimes.values().stream().allMatch(runTime -> runTime >= 20));
+            Assertions.assertEquals("done", listener.results.get("io0"));
+            JobSchedulerMetricsSnapshot completed = metrics.snapshot(1, -1, Collections.emptyMap(), tracker.getInFlight(), 0, null);
+            Assertions.assertEquals(5, completed.getFiredJobs());
+            Assertions.assertEquals(1, completed.getFailedJobs());
+            Assertions.assertEquals(0, completed.getBusyThreads());
+        } finally {
+            scheduler.shutdown(true);
+        }
+    }
+
+    @Test
+    void concurrentFiresShouldBeVetoedWhileCompleting() throws Exception {
+        AsyncJobTracker tracker = new AsyncJobTracker();
+        Scheduler scheduler = newScheduler();
+        scheduler.getListenerManager().addJobListener(tracker);
+        scheduler.getListenerManager().addTriggerListener(tracker);
+        tasks.put("serial", new CompletableFuture<>());
+        starts.remove("serial");
+        try {
+            scheduler.start();
+            scheduler.scheduleJob(JobBuilder.newJob(SerialAsyncJob.class).withIdentity("serial", "async").build(),
+                    TriggerBuilder.newTrigger().withIdentity("serial", "async").startNow()
+                            .withSchedule(SimpleScheduleBuilder.repeatSecondlyForever(1).withIntervalInMilliseconds(20)).build());
+            Thread.sleep(300);
+            Assertions.assertEquals(1, starts.get("serial"));
+
+            tasks.get("serial").complete(null);
+            awaitCondition(() -> starts.get("serial") > 1);
+        } finally {
+            scheduler.shutdown(true);
+        }
+    }
+
+    private static Scheduler newScheduler() throws SchedulerException {
+        Properties props = new Properties();
+        props.setProperty("org.quartz.scheduler.instanceName", "async-" + UUID.randomUUID());
+        props.setProperty("org.quartz.scheduler.skipUpdateCheck", "true");
+        props.setProperty("org.quartz.threadPool.threadCount", "1");
+        return new StdSchedulerFactory(props).getScheduler();
+    }
+
+    private static void awaitCondition(Callable<Boolean> condition) throws Exception {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.call()) {
+            if (System.currentTimeMillis() > deadline)
+                Assertions.fail("Condition not met in time");
+            Thread.sleep(10);
+        }
+    }
+
+    private static class RecordingListener extends JobListenerSupport {
+        private final Map<String, JobExecutionException> completions = Collections.synchronizedMap(new HashMap<>());
+        private final Map<String, Long> runTimes = new ConcurrentHashMap<>();
+        private final Map<String, Object> results = new ConcurrentHashMap<>();
+
+        @Override
+        public String getName() {
+            return "recording";
+        }
+
+        @Override
+        public void jobWasExecuted(JobExecutionContext context, JobExecutionException jobException) {
+            String name = context.getJobDetail().getKey().getName();
+            runTimes.put(name, context.getJobRunTime());
+            if (context.getResult() != null)
+                results.put(name, context.getResult());
+            completions.put(name, jobException);
+        }
+    }
+
+    public static class PendingAsyncJob implements AsyncJob {
+        @Override
+        public CompletionStage<?> executeAsync(JobExecutionContext context) {
+            String name = context.getJobDetail().getKey().getName();
+            starts.merge(name, 1, Integer::sum);
+            return tasks.get(name);
+        }
+    }
+
+    @DisallowConcurrentExecution
+    public static class SerialAsyncJob extends PendingAsyncJob {
+    }
+}
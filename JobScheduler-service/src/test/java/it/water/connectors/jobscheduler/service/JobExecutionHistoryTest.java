@@ -0,0 +1,213 @@
+package it.water.connectors.jobscheduler.service;
+
+import it.water.connectors.jobscheduler.model.JobExecutionPage;
+import it.water.connectors.jobscheduler.model.JobExecutionRecord;
+import it.water.connectors.jobscheduler.service.quartz.PooledConnectionProvider;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.quartz.JobBuilder;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+import org.quartz.JobKey;
+import org.quartz.utils.DBConnectionManager;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class JobExecutionHistoryTest {
+    private static final JobKey JOB_A = new JobKey("a", "g1");
+    private static final JobKey JOB_B = new JobKey("b", "g2");
+
+    @Test
+    void listenerShouldRecordOutcomes() {
+        JobExecutionHistory history = new JobExecutionHistory("node-1", 16);
+        JobExecutionContext context = mock(JobExecutionContext.class);
+        when(context.getJobDetail()).thenReturn(JobBuilder.newJob(JobSchedulerSystemServiceImplTest.NoOpQuartzJob.class).withIdentity(JOB_A).build());
+        when(context.getFireTime()).thenReturn(new Date(1000));
+        when(context.getJobRunTime()).thenReturn(25L);
+
+        history.jobWasExecuted(context, null);
+        history.jobWasExecuted(context, new JobExecutionException("boom"));
+        history.jobExecutionVetoed(context);
+
+        List<JobExecutionRecord> records = history.query(null, null, null, 10).getRecords();
+        Assertions.assertEquals(3, records.size());
+        Assertions.assertEquals(JobExecutionRecord.Outcome.VETOED, records.get(0).getOutcome());
+        Assertions.assertEquals(JobExecutionRecord.Outcome.FAILED, records.get(1).getOutcome());
+        Assertions.assertEquals(JobExecutionRecord.Outcome.SUCCEEDED, records.get(2).getOutcome());
+        Assertions.assertEquals(25, records.get(2).getDurationMillis());
+        Assertions.assertEquals(1000, records.get(2).getStartTime());
+        Assertions.assertEquals("node-1", records.get(2).getNodeId());
+        Assertions.assertEquals("g1", records.get(2).getJobGroup());
+    }
+
+    @Test
+    void skippedFiresShouldOnlyBeCounted() {
+        JobExecutionHistory history = new JobExecutionHistory("node-1", 4);
+        JobExecutionContext skipped = mock(JobExecutionContext.class);
+        when(skipped.get(JobExecutionHistory.SKIPPED_FIRE_KEY)).thenReturn(Boolean.TRUE);
+        for (int i = 0; i < 10; i++)
+            history.jobExecutionVetoed(skipped);
+
+        Assertions.assertTrue(history.query(null, null, null, 10).getRecords().isEmpty());
+        Assertions.assertEquals(10, history.getSkippedFires());
+    }
+
+    @Test
+    void queryShouldPaginateNewestFirstWithFilters() {
+        JobExecutionHistory history = new JobExecutionHistory("node-1", 64);
+        for (int i = 0; i < 30; i++)
+            history.record(i % 3 == 0 ? JOB_B : JOB_A, i, 1, JobExecutionRecord.Outcome.SUCCEEDED);
+
+        List<Long> sequences = new ArrayList<>();
+        Long cursor = null;
+        int pages = 0;
+        do {
+            JobExecutionPage page = history.query("g1", "a", cursor, 7);
+            page.getRecords().forEach(r -> sequences.add(r.getSequence()));
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+
+        Assertions.assertEquals(20, sequences.size());
+        Assertions.assertEquals(3, pages);
+        Assertions.assertEquals(29, sequences.get(0));
+        for (int i = 1; i < sequences.size(); i++)
+            Assertions.assertTrue(sequences.get(i) < sequences.get(i - 1));
+        Assertions.assertTrue(sequences.stream().noneMatch(s -> s % 3 == 0));
+        Assertions.assertEquals(10, history.query("g2", null, null, 100).getRecords().size());
+    }
+
+    @Test
+    void ringShouldKeepOnlyTheLastExecutions() {
+        JobExecutionHistory history = new JobExecutionHistory("node-1", 10);
+        for (int i = 0; i < 100; i++)
+            history.record(JOB_A, i, 1, JobExecutionRecord.Outcome.SUCCEEDED);
+
+        JobExecutionPage page = history.query(null, null, null, 1000);
+
+        // capacity is rounded up to 16
+        Assertions.assertEquals(16, page.getRecords().size());
+        Assertions.assertEquals(99, page.getRecords().get(0).getStartTime());
+        Assertions.assertEquals(84, page.getRecords().get(15).getStartTime());
+        Assertions.assertNull(page.getNextCursor());
+        Assertions.assertTrue(history.query(null, null, 50L, 10).getRecords().isEmpty());
+    }
+
+    @Test
+    void concurrentWritersShouldNotLoseSequences() throws InterruptedException {
+        JobExecutionHistory history = new JobExecutionHistory("node-1", 1 << 14);
+        int writers = 4;
+        int perWriter = 2000;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                for (int i = 0; i < perWriter; i++)
+                    history.record(JOB_A, i, i, JobExecutionRecord.Outcome.SUCCEEDED);
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads)
+            thread.join();
+
+        Set<Long> sequences = new HashSet<>();
+        Long cursor = null;
+        do {
+            JobExecutionPage page = history.query(null, null, cursor, JobExecutionHistory.MAX_PAGE_SIZE);
+            page.getRecords().forEach(r -> {
+                sequences.add(r.getSequence());
+                Assertions.assertEquals(r.getStartTime(), r.getDurationMillis());
+            });
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        Assertions.assertEquals(writers * perWriter, sequences.size());
+    }
+
+    @Test
+    void sinkShouldReceiveBatchesAndBeFlushedOnStop() {
+        JobExecutionHistory history = new JobExecutionHistory("node-1", 1024);
+        List<List<JobExecutionRecord>> batches = new CopyOnWriteArrayList<>();
+        history.startSink(records -> batches.add(new ArrayList<>(records)), 1024, 10, 60_000);
+
+        for (int i = 0; i < 35; i++)
+            history.record(JOB_A, i, 1, JobExecutionRecord.Outcome.SUCCEEDED);
+        history.stopSink();
+
+        Assertions.assertEquals(35, batches.stream().mapToInt(List::size).sum());
+        Assertions.assertTrue(batches.stream().allMatch(batch -> batch.size() <= 10));
+        Assertions.assertEquals(0, batches.get(0).get(0).getSequence());
+        Assertions.assertEquals(0, history.getDroppedRecords());
+    }
+
+    @Test
+    void failingSinkShouldCountDroppedRecords() {
+        JobExecutionHistory history = new JobExecutionHistory("node-1", 16);
+        history.startSink(records -> {
+            throw new IllegalStateException("unavailable");
+        }, 16, 4, 60_000);
+
+        for (int i = 0; i < 6; i++)
+            history.record(JOB_A, i, 1, JobExecutionRecord.Outcome.SUCCEEDED);
+        history.stopSink();
+
+        Assertions.assertEquals(6, history.getDroppedRecords());
+        Assertions.assertEquals(6, history.query(null, null, null, 100).getRecords().size());
+    }
+
+    @Test
+    void jdbcSinkShouldStoreBatches() throws Exception {
+        String url = "jdbc:h2:mem:history-" + UUID.randomUUID() + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1";
+        String dataSourceName = "history-" + UUID.randomUUID();
+        Properties dataSourceProperties = new Properties();
+        dataSourceProperties.setProperty("driver", "org.h2.Driver");
+        dataSourceProperties.setProperty("URL", url);
+        dataSourceProperties.setProperty("user", "sa");
+        dataSourceProperties.setProperty("password", "");
+        dataSourceProperties.setProperty("maxConnections", "1");
+        PooledConnectionProvider pool = PooledConnectionProvider.fromProperties(dataSourceProperties);
+        pool.initialize();
+        // registered by Quartz when the scheduler is created
+        DBConnectionManager.getInstance().addConnectionProvider(dataSourceName, pool);
+        Properties quartzProperties = new Properties();
+        quartzProperties.setProperty("org.quartz.jobStore.dataSource", dataSourceName);
+        JdbcJobExecutionHistorySink sink = JdbcJobExecutionHistorySink.fromQuartzProperties(quartzProperties);
+
+        try {
+            sink.store(Arrays.asList(
+                    new JobExecutionRecord(0, "g1", "a", 10, 5, JobExecutionRecord.Outcome.SUCCEEDED, "node-1"),
+                    new JobExecutionRecord(1, "g1", "a", 20, 7, JobExecutionRecord.Outcome.FAILED, "node-1")));
+            sink.store(Collections.singletonList(new JobExecutionRecord(2, "g2", "b", 30, 0, JobExecutionRecord.Outcome.VETOED, "node-1")));
+            // the single pooled connection is given back as the job store expects it
+            try (Connection connection = pool.getConnection()) {
+                Assertions.assertTrue(connection.getAutoCommit());
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        try (Connection connection = DriverManager.getConnection(url, "sa", "");
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT COUNT(*), SUM(DURATION) FROM QRTZ_WATER_JOB_EXECUTIONS WHERE OUTCOME <> 'VETOED'")) {
+            Assertions.assertTrue(rs.next());
+            Assertions.assertEquals(2, rs.getInt(1));
+            Assertions.assertEquals(12, rs.getLong(2));
+        }
+        Assertions.assertNull(JdbcJobExecutionHistorySink.fromQuartzProperties(new Properties()));
+    }
+}
@@ -0,0 +1,204 @@
+package it.water.connectors.jobscheduler.service;
+
+import it.water.connectors.jobscheduler.model.JobSchedulerGroupSnapshot;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.quartz.*;
+import org.quartz.impl.StdSchedulerFactory;
+import org.quartz.spi.OperableTrigger;
+
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class JobSchedulerBulkheadTest {
+
+    @Test
+    void groupsShouldNotExceedTheirBudget() {
+        // 4 workers, 2 reserved to "critical", 2 shared
+        JobSchedulerBulkhead bulkhead = new JobSchedulerBulkhead(4, Map.of("reports", 2), Map.of("critical", 2));
+
+        Assertions.assertFalse(fire(bulkhead, new JobKey("r1", "reports")));
+        Assertions.assertFalse(fire(bulkhead, new JobKey("r2", "reports")));
+        Assertions.assertTrue(fire(bulkhead, new JobKey("r3", "reports")));
+        // shared workers are taken by "reports", only reserved ones are left
+        Assertions.assertTrue(fire(bulkhead, new JobKey("o1", "other")));
+        Assertions.assertFalse(fire(bulkhead, new JobKey("c1", "critical")));
+        Assertions.assertFalse(fire(bulkhead, new JobKey("c2", "critical")));
+        Assertions.assertTrue(fire(bulkhead, new JobKey("c3", "critical")));
+
+        Map<String, JobSchedulerGroupSnapshot> snapshot = bulkhead.snapshot();
+        Assertions.assertEquals(2, snapshot.get("reports").getRunning());
+        Assertions.assertEquals(1, snapshot.get("reports").getQueued());
+        Assertions.assertEquals(2, snapshot.get("reports").getMaxConcurrency());
+        Assertions.assertEquals(2, snapshot.get("critical").getRunning());
+        Assertions.assertEquals(2, snapshot.get("critical").getReserved());
+        Assertions.assertEquals(1, snapshot.get("other").getQueued());
+    }
+
+    @Test
+    void completedJobShouldRunTheOldestDeferredFireWhichFits() throws SchedulerException {
+        JobSchedulerBulkhead bulkhead = new JobSchedulerBulkhead(2, Map.of("reports", 1), Collections.emptyMap());
+        Scheduler scheduler = mock(Scheduler.class);
+        when(scheduler.checkExists(any(JobKey.class))).thenReturn(true);
+        bulkhead.setScheduler(scheduler);
+        JobExecutionContext running = context(new JobKey("r1", "reports"));
+        JobKey deferred = new JobKey("r2", "reports");
+
+        Assertions.assertFalse(bulkhead.vetoJobExecution(trigger(running.getJobDetail().getKey()), running));
+        Assertions.assertTrue(fire(bulkhead, deferred));
+        // later fires of a queued job are coalesced
+        Assertions.assertTrue(fire(bulkhead, deferred));
+        Assertions.assertEquals(1, bulkhead.snapshot().get("reports").getQueued());
+        Assertions.assertEquals(2, bulkhead.snapshot().get("reports").getDeferredFires());
+
+        bulkhead.jobWasExecuted(running, null);
+
+        ArgumentCaptor<Trigger> refire = ArgumentCaptor.forClass(Trigger.class);
+        verify(scheduler).scheduleJob(refire.capture());
+        Assertions.assertEquals(deferred, refire.getValue().getJobKey());
+        Assertions.assertEquals("value", refire.getValue().getJobDataMap().getString("key"));
+        Assertions.assertEquals(0, bulkhead.snapshot().get("reports").getQueued());
+        Assertions.assertEquals(0, bulkhead.snapshot().get("reports").getRunning());
+        // a second completion of the same execution must not release the slot twice
+        bulkhead.jobExecutionVetoed(running);
+        verify(scheduler, times(1)).scheduleJob(any(Trigger.class));
+    }
+
+    @Test
+    void deferredFireOfADeletedJobShouldNotBeRun() throws SchedulerException {
+        JobSchedulerBulkhead bulkhead = new JobSchedulerBulkhead(2, Map.of("reports", 1), Collections.emptyMap());
+        Scheduler scheduler = mock(Scheduler.class);
+        bulkhead.setScheduler(scheduler);
+        JobExecutionContext running = context(new JobKey("r1", "reports"));
+        Assertions.assertFalse(bulkhead.vetoJobExecution(trigger(running.getJobDetail().getKey()), running));
+
+        // deleted while its fire was queued: the fire is purged
+        JobKey purged = new JobKey("r2", "reports");
+        Assertions.assertTrue(fire(bulkhead, purged));
+        bulkhead.purge(purged);
+        Assertions.assertEquals(0, bulkhead.snapshot().get("reports").getQueued());
+
+        // deleted while its fire was being run again: the job is not stored back
+        JobKey deleted = new JobKey("r3", "reports");
+        OperableTrigger recurring = (OperableTrigger) trigger(deleted);
+        recurring.computeFirstFireTime(null);
+        Assertions.assertTrue(bulkhead.vetoJobExecution(recurring, context(deleted)));
+        when(scheduler.checkExists(deleted)).thenReturn(false);
+        bulkhead.jobWasExecuted(running, null);
+
+        verify(scheduler).checkExists(deleted);
+        verify(scheduler, never()).scheduleJob(any(Trigger.class));
+        verify(scheduler, never()).scheduleJob(any(JobDetail.class), any(Trigger.class));
+        Assertions.assertEquals(0, bulkhead.snapshot().get("reports").getQueued());
+    }
+
+    @Test
+    void nonDurableJobRemovedWithItsLastTriggerShouldBeStoredAgain() throws SchedulerException {
+        JobSchedulerBulkhead bulkhead = new JobSchedulerBulkhead(2, Map.of("reports", 1), Collections.emptyMap());
+        Scheduler scheduler = mock(Scheduler.class);
+        bulkhead.setScheduler(scheduler);
+        JobExecutionContext running = context(new JobKey("r1", "reports"));
+        Assertions.assertFalse(bulkhead.vetoJobExecution(trigger(running.getJobDetail().getKey()), running));
+        JobKey oneShot = new JobKey("r2", "reports");
+        Assertions.assertTrue(fire(bulkhead, oneShot));
+
+        bulkhead.jobWasExecuted(running, null);
+
+        ArgumentCaptor<JobDetail> stored = ArgumentCaptor.forClass(JobDetail.class);
+        verify(scheduler).scheduleJob(stored.capture(), any(Trigger.class));
+        Assertions.assertEquals(oneShot, stored.getValue().getKey());
+    }
+
+    @Test
+    void jobsRunByOtherNodesShouldBeIgnored() {
+        JobSchedulerBulkhead bulkhead = new JobSchedulerBulkhead(1, Map.of("reports", 1), Collections.emptyMap());
+        bulkhead.setRunsOnThisNode(jobKey -> !jobKey.getName().startsWith("remote"));
+
+        Assertions.assertFalse(fire(bulkhead, new JobKey("local", "reports")));
+        Assertions.assertFalse(fire(bulkhead, new JobKey("remote", "reports")));
+        Assertions.assertEquals(0, bulkhead.snapshot().get("reports").getQueued());
+    }
+
+    @Test
+    void reservedWorkersShouldNotExceedThePool() {
+        Map<String, Integer> reserved = Map.of("a", 2, "b", 2);
+        Map<String, Integer> noLimits = Collections.emptyMap();
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new JobSchedulerBulkhead(3, noLimits, reserved));
+    }
+
+    @Test
+    void schedulerShouldRunDeferredJobsWithinTheGroupBudget() throws Exception {
+        Properties props = new Properties();
+        props.setProperty("org.quartz.scheduler.instanceName", "bulkhead-" + UUID.randomUUID());
+        props.setProperty("org.quartz.scheduler.skipUpdateCheck", "true");
+        props.setProperty("org.quartz.threadPool.threadCount", "3");
+        Scheduler scheduler = new StdSchedulerFactory(props).getScheduler();
+        JobSchedulerBulkhead bulkhead = new JobSchedulerBulkhead(3, Map.of("reports", 1), Collections.emptyMap());
+        bulkhead.setScheduler(scheduler);
+        scheduler.getListenerManager().addTriggerListener(bulkhead);
+        scheduler.getListenerManager().addJobListener(bulkhead);
+        CountingJob.reset(3);
+        try {
+            scheduler.start();
+            for (int i = 0; i < 3; i++)
+                scheduler.scheduleJob(JobBuilder.newJob(CountingJob.class).withIdentity("job" + i, "reports").build(),
+                        TriggerBuilder.newTrigger().withIdentity("job" + i, "reports").startNow().build());
+
+            Assertions.assertTrue(CountingJob.completed.await(10, TimeUnit.SECONDS));
+            Assertions.assertEquals(1, CountingJob.maxRunning.get());
+        } finally {
+            scheduler.shutdown(true);
+        }
+        Assertions.assertEquals(0, bulkhead.snapshot().get("reports").getRunning());
+        Assertions.assertEquals(0, bulkhead.snapshot().get("reports").getQueued());
+    }
+
+    private static boolean fire(JobSchedulerBulkhead bulkhead, JobKey jobKey) {
+        return bulkhead.vetoJobExecution(trigger(jobKey), context(jobKey));
+    }
+
+    private static Trigger trigger(JobKey jobKey) {
+        return TriggerBuilder.newTrigger().forJob(jobKey).usingJobData("key", "value").build();
+    }
+
+    private static JobExecutionContext context(JobKey jobKey) {
+        Map<Object, Object> data = new HashMap<>();
+        JobExecutionContext context = mock(JobExecutionContext.class);
+        JobDetail jobDetail = JobBuilder.newJob(JobSchedulerSystemServiceImplTest.NoOpQuartzJob.class).withIdentity(jobKey).build();
+        when(context.getJobDetail()).thenReturn(jobDetail);
+        doAnswer(invocation -> data.put(invocation.getArgument(0), invocation.getArgument(1))).when(context).put(any(), any());
+        when(context.get(any())).thenAnswer(invocation -> data.get(invocation.getArgument(0)));
+        return context;
+    }
+
+    public static class CountingJob implements Job {
+        private static final AtomicInteger running = new AtomicInteger();
+        private static final AtomicInteger maxRunning = new AtomicInteger();
+        private static CountDownLatch completed;
+
+        static void reset(int executions) {
+            running.set(0);
+            maxRunning.set(0);
+            completed = new CountDownLatch(executions);
+        }
+
+        @Override
+        public void execute(JobExecutionContext context) throws JobExecutionException {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                running.decrementAndGet();
+                completed.countDown();
+            }
+        }
+    }
+}
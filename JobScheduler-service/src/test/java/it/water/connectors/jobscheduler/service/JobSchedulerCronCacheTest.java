@@ -0,0 +1,93 @@
+package it.water.connectors.jobscheduler.service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.quartz.CronExpression;
+
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+
+class JobSchedulerCronCacheTest {
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+    private static final TimeZone ROME = TimeZone.getTimeZone("Europe/Rome");
+
+    @Test
+    void cacheShouldShareCompiledExpressionsByExpressionAndTimeZone() throws ParseException {
+        JobSchedulerCronCache cache = new JobSchedulerCronCache(16);
+        CronExpression expression = cache.get("0 0/5 * * * ?", UTC);
+
+        Assertions.assertSame(expression, cache.get("0 0/5 * * * ?", UTC));
+        Assertions.assertEquals(UTC, expression.getTimeZone());
+        CronExpression romeExpression = cache.get("0 0/5 * * * ?", ROME);
+        Assertions.assertNotSame(expression, romeExpression);
+        Assertions.assertEquals(ROME, romeExpression.getTimeZone());
+        Assertions.assertEquals(2, cache.size());
+    }
+
+    @Test
+    void cacheShouldEvictLeastRecentlyUsedExpressions() throws ParseException {
+        JobSchedulerCronCache cache = new JobSchedulerCronCache(2);
+        CronExpression first = cache.get("0 0 1 * * ?", UTC);
+        CronExpression second = cache.get("0 0 2 * * ?", UTC);
+        cache.get("0 0 1 * * ?", UTC);
+        cache.get("0 0 3 * * ?", UTC);
+
+        Assertions.assertEquals(2, cache.size());
+        Assertions.assertSame(first, cache.get("0 0 1 * * ?", UTC));
+        Assertions.assertNotSame(second, cache.get("0 0 2 * * ?", UTC));
+    }
+
+    @Test
+    void invalidExpressionsShouldNotBeCached() {
+        JobSchedulerCronCache cache = new JobSchedulerCronCache(16);
+
+        Assertions.assertThrows(ParseException.class, () -> cache.get("not a cron", UTC));
+        Assertions.assertThrows(ParseException.class, () -> cache.get(null, UTC));
+        Assertions.assertEquals(0, cache.size());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new JobSchedulerCronCache(0));
+    }
+
+    @Test
+    void nextFireTimesShouldMatchCronExpression() throws ParseException {
+        JobSchedulerCronCache cache = new JobSchedulerCronCache(16);
+        CronExpression reference = new CronExpression("0 15 10 ? * MON-FRI");
+        reference.setTimeZone(ROME);
+        Date after = new Date(1_700_000_000_000L);
+
+        //first lookup computes the fire times, the following ones inside and across the precomputed run reuse or extend it
+        Assertions.assertEquals(expectedFireTimes(reference, after, 5), cache.getNextFireTimes("0 15 10 ? * MON-FRI", ROME, after, 5));
+        Date later = new Date(after.getTime() + 3 * 24 * 3600 * 1000L);
+        Assertions.assertEquals(expectedFireTimes(reference, later, 10), cache.getNextFireTimes("0 15 10 ? * MON-FRI", ROME, later, 10));
+        Date firstFireTime = reference.getNextValidTimeAfter(after);
+        Assertions.assertEquals(expectedFireTimes(reference, firstFireTime, 3), cache.getNextFireTimes("0 15 10 ? * MON-FRI", ROME, firstFireTime, 3));
+        Assertions.assertEquals(expectedFireTimes(reference, after, 100), cache.getNextFireTimes("0 15 10 ? * MON-FRI", ROME, after, 100));
+        Date earlier = new Date(after.getTime() - 24 * 3600 * 1000L);
+        Assertions.assertEquals(expectedFireTimes(reference, earlier, 2), cache.getNextFireTimes("0 15 10 ? * MON-FRI", ROME, earlier, 2));
+        Assertions.assertTrue(cache.getNextFireTimes("0 15 10 ? * MON-FRI", ROME, after, 0).isEmpty());
+    }
+
+    @Test
+    void nextFireTimesShouldStopWhenExpressionStopsFiring() throws ParseException {
+        JobSchedulerCronCache cache = new JobSchedulerCronCache(16);
+        Date after = new Date(1_700_000_000_000L);
+
+        List<Date> fireTimes = cache.getNextFireTimes("0 0 12 1 1 ? 2030-2032", UTC, after, 10);
+
+        Assertions.assertEquals(3, fireTimes.size());
+        Assertions.assertEquals(2, cache.getNextFireTimes("0 0 12 1 1 ? 2030-2032", UTC, fireTimes.get(0), 10).size());
+        Assertions.assertTrue(cache.getNextFireTimes("0 0 12 1 1 ? 2030-2032", UTC, fireTimes.get(2), 10).isEmpty());
+    }
+
+    private static List<Date> expectedFireTimes(CronExpression expression, Date after, int count) {
+        List<Date> fireTimes = new ArrayList<>();
+        Date next = expression.getNextValidTimeAfter(after);
+        while (next != null && fireTimes.size() < count) {
+            fireTimes.add(next);
+            next = expression.getNextValidTimeAfter(next);
+        }
+        return fireTimes;
+    }
+}
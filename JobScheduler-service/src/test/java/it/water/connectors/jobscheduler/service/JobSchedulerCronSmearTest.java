@@ -0,0 +1,69 @@
+package it.water.connectors.jobscheduler.service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.quartz.CronExpression;
+import org.quartz.JobKey;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+class JobSchedulerCronSmearTest {
+
+    @Test
+    void offsetShouldBeStableAndInWindow() {
+        for (int i = 0; i < 1000; i++) {
+            JobKey jobKey = new JobKey("job-" + i, "group");
+            int offset = JobSchedulerCronSmear.offsetSeconds(jobKey, 300);
+            Assertions.assertTrue(offset >= 0 && offset < 300);
+            Assertions.assertEquals(offset, JobSchedulerCronSmear.offsetSeconds(new JobKey("job-" + i, "group"), 300));
+        }
+        Assertions.assertEquals(0, JobSchedulerCronSmear.offsetSeconds(new JobKey("job", "group"), 0));
+    }
+
+    @Test
+    void hourlyExpressionShouldBeShiftedWithinTheHour() throws Exception {
+        JobKey jobKey = new JobKey("hourly", "group");
+        int offset = JobSchedulerCronSmear.offsetSeconds(jobKey, 900);
+        String smeared = JobSchedulerCronSmear.smear("0 0 * * * ?", jobKey, 900);
+
+        Assertions.assertEquals(offset % 60 + " " + offset / 60 + " * * * ?", smeared);
+        CronExpression expression = new CronExpression(smeared);
+        Date first = expression.getNextValidTimeAfter(new Date());
+        Assertions.assertEquals(3600 * 1000L, expression.getNextValidTimeAfter(first).getTime() - first.getTime());
+    }
+
+    @Test
+    void stepExpressionShouldKeepItsPeriod() throws Exception {
+        // the window is capped to the 5 minutes period
+        for (int i = 0; i < 100; i++) {
+            String smeared = JobSchedulerCronSmear.smear("0 */5 * * * ?", new JobKey("job-" + i, "group"), 3600);
+            Assertions.assertTrue(smeared.matches("\\d{1,2} [0-4]/5 \\* \\* \\* \\?"), smeared);
+            CronExpression expression = new CronExpression(smeared);
+            Date first = expression.getNextValidTimeAfter(new Date());
+            Assertions.assertEquals(300 * 1000L, expression.getNextValidTimeAfter(first).getTime() - first.getTime());
+        }
+        Assertions.assertTrue(JobSchedulerCronSmear.smear("30 * 9-17 * * ?", new JobKey("job", "group"), 3600).matches("\\d{1,2} \\* 9-17 \\* \\* \\?"));
+    }
+
+    @Test
+    void jobsShouldBeSpreadAcrossTheWindow() {
+        Map<String, Integer> jobsByExpression = new HashMap<>();
+        for (int i = 0; i < 3000; i++)
+            jobsByExpression.merge(JobSchedulerCronSmear.smear("0 0 * * * ?", new JobKey("job-" + i, "group-" + i % 7), 600), 1, Integer::sum);
+
+        Assertions.assertTrue(jobsByExpression.size() > 500);
+        Assertions.assertTrue(jobsByExpression.values().stream().allMatch(count -> count <= 20));
+    }
+
+    @Test
+    void unsupportedExpressionsShouldBeLeftUnchanged() {
+        JobKey jobKey = new JobKey("job", "group");
+        Assertions.assertEquals("0,30 0 * * * ?", JobSchedulerCronSmear.smear("0,30 0 * * * ?", jobKey, 600));
+        Assertions.assertEquals("0 0-10 * * * ?", JobSchedulerCronSmear.smear("0 0-10 * * * ?", jobKey, 600));
+        Assertions.assertEquals("0 */7 * * * ?", JobSchedulerCronSmear.smear("0 */7 * * * ?", jobKey, 600));
+        Assertions.assertEquals("0 0 12 * * ?", JobSchedulerCronSmear.smear("0 0 12 * * ?", jobKey, 0));
+        Assertions.assertNull(JobSchedulerCronSmear.smear(null, jobKey, 600));
+    }
+}
@@ -0,0 +1,131 @@
+package it.water.connectors.jobscheduler.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.quartz.*;
+import org.quartz.impl.StdSchedulerFactory;
+
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+class JobSchedulerDependenciesTest {
+    private static final BlockingQueue<String> executions = new LinkedBlockingQueue<>();
+    private static final Set<String> failingJobs = Collections.synchronizedSet(new HashSet<>());
+
+    private Scheduler scheduler;
+    private JobSchedulerDependencies dependencies;
+
+    @BeforeEach
+    void setUp() throws SchedulerException {
+        executions.clear();
+        failingJobs.clear();
+        Properties props = new Properties();
+        props.setProperty("org.quartz.scheduler.instanceName", "dependencies-" + UUID.randomUUID());
+        props.setProperty("org.quartz.scheduler.skipUpdateCheck", "true");
+        props.setProperty("org.quartz.threadPool.threadCount", "4");
+        props.setProperty("org.quartz.jobStore.class", "org.quartz.simpl.RAMJobStore");
+        scheduler = new StdSchedulerFactory(props).getScheduler();
+        dependencies = new JobSchedulerDependencies();
+        dependencies.setScheduler(scheduler);
+        AsyncJobTracker asyncJobs = new AsyncJobTracker();
+        scheduler.getListenerManager().addJobListener(asyncJobs);
+        scheduler.getListenerManager().addJobListener(asyncJobs.wrap(dependencies));
+        for (String name : Arrays.asList("extract", "prices", "load", "report", "audit"))
+            scheduler.addJob(JobBuilder.newJob(RecordingJob.class).withIdentity(name, "pipeline").storeDurably().build(), false);
+        scheduler.start();
+    }
+
+    @AfterEach
+    void tearDown() throws SchedulerException {
+        scheduler.shutdown(true);
+    }
+
+    @Test
+    void dependentJobsShouldFireWhenAllUpstreamJobsComplete() throws Exception {
+        // fan-in: load needs extract and prices, fan-out: report and audit both follow load
+        dependencies.setDependencies(key("load"), Arrays.asList(key("extract"), key("prices")));
+        dependencies.setDependencies(key("report"), Collections.singleton(key("load")));
+        dependencies.setDependencies(key("audit"), Collections.singleton(key("load")));
+
+        scheduler.triggerJob(key("extract"));
+        Assertions.assertEquals("extract", executions.poll(5, TimeUnit.SECONDS));
+        Assertions.assertNull(executions.poll(200, TimeUnit.MILLISECONDS));
+
+        scheduler.triggerJob(key("prices"));
+        Assertions.assertEquals("prices", executions.poll(5, TimeUnit.SECONDS));
+        Assertions.assertEquals("load", executions.poll(5, TimeUnit.SECONDS));
+        Set<String> followers = new HashSet<>(Arrays.asList(executions.poll(5, TimeUnit.SECONDS), executions.poll(5, TimeUnit.SECONDS)));
+        Assertions.assertEquals(new HashSet<>(Arrays.asList("report", "audit")), followers);
+
+        // completions are cleared when the dependent job fires
+        scheduler.triggerJob(key("extract"));
+        Assertions.assertEquals("extract", executions.poll(5, TimeUnit.SECONDS));
+        Assertions.assertNull(executions.poll(200, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void failedUpstreamJobShouldNotFireDependentJobs() throws Exception {
+        dependencies.setDependencies(key("report"), Collections.singleton(key("extract")));
+        failingJobs.add("extract");
+        scheduler.triggerJob(key("extract"));
+        Assertions.assertEquals("extract", executions.poll(5, TimeUnit.SECONDS));
+        Assertions.assertNull(executions.poll(200, TimeUnit.MILLISECONDS));
+
+        failingJobs.clear();
+        scheduler.triggerJob(key("extract"));
+        Assertions.assertEquals("extract", executions.poll(5, TimeUnit.SECONDS));
+        Assertions.assertEquals("report", executions.poll(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void cyclesShouldBeRejectedAndDependenciesReplaced() {
+        dependencies.setDependencies(key("load"), Collections.singleton(key("extract")));
+        dependencies.setDependencies(key("report"), Collections.singleton(key("load")));
+        List<JobKey> cycle = Collections.singletonList(key("report"));
+        JobKey extract = key("extract");
+        Assertions.assertThrows(IllegalArgumentException.class, () -> dependencies.setDependencies(extract, cycle));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> dependencies.setDependencies(extract, Collections.singleton(extract)));
+
+        dependencies.setDependencies(key("load"), Collections.singleton(key("prices")));
+        Assertions.assertEquals(Collections.singleton(key("prices")), dependencies.getDependencies(key("load")));
+        dependencies.setDependencies(extract, cycle);
+        Assertions.assertEquals(Collections.singleton(key("report")), dependencies.getDependencies(extract));
+        dependencies.setDependencies(extract, Collections.emptySet());
+        Assertions.assertTrue(dependencies.getDependencies(extract).isEmpty());
+    }
+
+    @Test
+    void deletedJobsShouldBeRemovedFromTheDependencies() throws Exception {
+        dependencies.setDependencies(key("load"), Arrays.asList(key("extract"), key("prices")));
+        dependencies.setDependencies(key("report"), Collections.singleton(key("load")));
+
+        dependencies.removeJob(key("prices"));
+        Assertions.assertEquals(Collections.singleton(key("extract")), dependencies.getDependencies(key("load")));
+        dependencies.removeJob(key("report"));
+        Assertions.assertTrue(dependencies.getDependencies(key("report")).isEmpty());
+
+        // load no longer waits for the deleted upstream job, and the deleted dependent job is not fired
+        scheduler.triggerJob(key("extract"));
+        Assertions.assertEquals("extract", executions.poll(5, TimeUnit.SECONDS));
+        Assertions.assertEquals("load", executions.poll(5, TimeUnit.SECONDS));
+        Assertions.assertNull(executions.poll(200, TimeUnit.MILLISECONDS));
+    }
+
+    private static JobKey key(String name) {
+        return new JobKey(name, "pipeline");
+    }
+
+    public static class RecordingJob implements Job {
+        @Override
+        public void execute(JobExecutionContext context) throws JobExecutionException {
+            String name = context.getJobDetail().getKey().getName();
+            executions.add(name);
+            if (failingJobs.contains(name))
+                throw new JobExecutionException("failure of " + name);
+        }
+    }
+}
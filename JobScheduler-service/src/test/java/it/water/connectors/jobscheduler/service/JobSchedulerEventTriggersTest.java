@@ -0,0 +1,141 @@
+package it.water.connectors.jobscheduler.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.quartz.*;
+import org.quartz.impl.StdSchedulerFactory;
+
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+class JobSchedulerEventTriggersTest {
+    private static final BlockingQueue<JobDataMap> runs = new LinkedBlockingQueue<>();
+    private static CountDownLatch blockerStarted;
+    private static CountDownLatch releaseBlocker;
+
+    private Scheduler scheduler;
+    private JobSchedulerEventTriggers eventTriggers;
+
+    @BeforeEach
+    void setUp() throws SchedulerException {
+        runs.clear();
+        Properties props = new Properties();
+        props.setProperty("org.quartz.scheduler.instanceName", "events-" + UUID.randomUUID());
+        props.setProperty("org.quartz.scheduler.skipUpdateCheck", "true");
+        props.setProperty("org.quartz.threadPool.threadCount", "1");
+        props.setProperty("org.quartz.jobStore.class", "org.quartz.simpl.RAMJobStore");
+        scheduler = new StdSchedulerFactory(props).getScheduler();
+        eventTriggers = new JobSchedulerEventTriggers(100);
+        eventTriggers.setScheduler(scheduler);
+        eventTriggers.start();
+        scheduler.addJob(JobBuilder.newJob(RecordingJob.class).withIdentity("sync", "events").storeDurably().build(), false);
+        scheduler.addJob(JobBuilder.newJob(BlockingJob.class).withIdentity("blocker", "events").storeDurably().build(), false);
+        scheduler.start();
+    }
+
+    @AfterEach
+    void tearDown() throws SchedulerException {
+        eventTriggers.stop();
+        releaseBlocker.countDown();
+        scheduler.shutdown(true);
+    }
+
+    @Test
+    void burstOfEventsShouldRunTheJobOnce() throws Exception {
+        releaseBlocker = new CountDownLatch(0);
+        JobKey jobKey = new JobKey("sync", "events");
+        for (int i = 0; i < 50; i++)
+            eventTriggers.fire(jobKey, Collections.singletonMap("lastId", i));
+
+        JobDataMap run = runs.poll(5, TimeUnit.SECONDS);
+        Assertions.assertNotNull(run);
+        Assertions.assertEquals(50, run.getInt(JobSchedulerEventTriggers.EVENT_COUNT_KEY));
+        Assertions.assertEquals(49, run.getInt("lastId"));
+        Assertions.assertNull(runs.poll(300, TimeUnit.MILLISECONDS));
+        Assertions.assertEquals(50, eventTriggers.getEvents());
+        Assertions.assertEquals(1, eventTriggers.getRuns());
+    }
+
+    @Test
+    void atMostOneRunShouldBePending() throws Exception {
+        blockerStarted = new CountDownLatch(1);
+        releaseBlocker = new CountDownLatch(1);
+        scheduler.triggerJob(new JobKey("blocker", "events"));
+        Assertions.assertTrue(blockerStarted.await(5, TimeUnit.SECONDS));
+
+        JobKey jobKey = new JobKey("sync", "events");
+        // events spanning several windows while the only worker is busy
+        for (int i = 0; i < 5; i++) {
+            eventTriggers.fire(jobKey, null);
+            Thread.sleep(150);
+        }
+        Assertions.assertEquals(1, eventTriggers.getRuns());
+        releaseBlocker.countDown();
+
+        JobDataMap first = runs.poll(5, TimeUnit.SECONDS);
+        JobDataMap second = runs.poll(5, TimeUnit.SECONDS);
+        Assertions.assertNotNull(first);
+        Assertions.assertNotNull(second);
+        Assertions.assertEquals(5, first.getInt(JobSchedulerEventTriggers.EVENT_COUNT_KEY) + second.getInt(JobSchedulerEventTriggers.EVENT_COUNT_KEY));
+        Assertions.assertNull(runs.poll(300, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void eventsShouldWaitForRunsFiredByOtherNodes() throws Exception {
+        releaseBlocker = new CountDownLatch(0);
+        JobKey jobKey = new JobKey("sync", "events");
+        TriggerKey triggerKey = JobSchedulerEventTriggers.eventTriggerKey(jobKey);
+        // run fired by another node on the shared store, not started yet
+        scheduler.scheduleJob(TriggerBuilder.newTrigger().withIdentity(triggerKey).forJob(jobKey)
+                .startAt(new Date(System.currentTimeMillis() + 60000)).build());
+        eventTriggers.fire(jobKey, null);
+        Assertions.assertNull(runs.poll(300, TimeUnit.MILLISECONDS));
+        Assertions.assertEquals(0, eventTriggers.getRuns());
+
+        scheduler.unscheduleJob(triggerKey);
+        JobDataMap run = runs.poll(5, TimeUnit.SECONDS);
+        Assertions.assertNotNull(run);
+        Assertions.assertEquals(1, run.getInt(JobSchedulerEventTriggers.EVENT_COUNT_KEY));
+    }
+
+    @Test
+    void eventsOfDeletedJobsShouldNotBlockLaterRuns() throws Exception {
+        releaseBlocker = new CountDownLatch(0);
+        JobKey jobKey = new JobKey("sync", "events");
+        eventTriggers.fire(jobKey, null);
+        scheduler.deleteJob(jobKey);
+        Assertions.assertNull(runs.poll(300, TimeUnit.MILLISECONDS));
+
+        scheduler.addJob(JobBuilder.newJob(RecordingJob.class).withIdentity(jobKey).storeDurably().build(), false);
+        eventTriggers.fire(jobKey, Collections.singletonMap("lastId", 7));
+        JobDataMap run = runs.poll(5, TimeUnit.SECONDS);
+        Assertions.assertNotNull(run);
+        Assertions.assertEquals(7, run.getInt("lastId"));
+        Assertions.assertEquals(1, run.getInt(JobSchedulerEventTriggers.EVENT_COUNT_KEY));
+    }
+
+    public static class RecordingJob implements Job {
+        @Override
+        public void execute(JobExecutionContext context) {
+            runs.add(context.getMergedJobDataMap());
+        }
+    }
+
+    public static class BlockingJob implements Job {
+        @Override
+        public void execute(JobExecutionContext context) throws JobExecutionException {
+            blockerStarted.countDown();
+            try {
+                releaseBlocker.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new JobExecutionException(e);
+            }
+        }
+    }
+}
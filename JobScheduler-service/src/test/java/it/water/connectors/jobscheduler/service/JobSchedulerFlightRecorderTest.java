@@ -0,0 +1,144 @@
+package it.water.connectors.jobscheduler.service;
+
+import it.water.connectors.jobscheduler.service.jfr.JobDispatchEvent;
+import it.water.connectors.jobscheduler.service.jfr.JobExecutionEvent;
+import it.water.connectors.jobscheduler.service.jfr.TriggerAcquisitionEvent;
+import it.water.connectors.jobscheduler.service.jfr.TriggerMisfireEvent;
+import it.water.connectors.jobscheduler.service.quartz.InstrumentedRAMJobStore;
+import it.water.connectors.jobscheduler.service.quartz.TimingWheelJobStore;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.quartz.*;
+import org.quartz.impl.StdSchedulerFactory;
+import org.quartz.spi.OperableTrigger;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.List;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class JobSchedulerFlightRecorderTest {
+    private static CountDownLatch executions;
+
+    @Test
+    void jobLifecycleShouldBeRecorded() throws Exception {
+        Properties props = new Properties();
+        props.setProperty("org.quartz.scheduler.instanceName", "flight-recorder-" + UUID.randomUUID());
+        props.setProperty("org.quartz.scheduler.skipUpdateCheck", "true");
+        props.setProperty("org.quartz.threadPool.threadCount", "2");
+        props.setProperty("org.quartz.jobStore.class", TimingWheelJobStore.class.getName());
+        Scheduler scheduler = new StdSchedulerFactory(props).getScheduler();
+        JobSchedulerFlightRecorder flightRecorder = new JobSchedulerFlightRecorder();
+        scheduler.getListenerManager().addJobListener(flightRecorder);
+        scheduler.getListenerManager().addTriggerListener(flightRecorder);
+        executions = new CountDownLatch(1);
+        Path dump = Files.createTempFile("jobscheduler", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(TriggerAcquisitionEvent.NAME).withoutThreshold();
+            recording.enable(JobDispatchEvent.NAME);
+            recording.enable(JobExecutionEvent.NAME).withoutThreshold();
+            recording.enable(TriggerMisfireEvent.NAME);
+            recording.start();
+            scheduler.start();
+            scheduler.scheduleJob(JobBuilder.newJob(FailingJob.class).withIdentity("job", "recorded").build(),
+                    TriggerBuilder.newTrigger().withIdentity("trigger", "recorded").startNow().build());
+            Assertions.assertTrue(executions.await(10, TimeUnit.SECONDS));
+            OperableTrigger late = (OperableTrigger) TriggerBuilder.newTrigger().withIdentity("late", "recorded").forJob("job", "recorded")
+                    .startAt(new Date(System.currentTimeMillis() - 120000)).build();
+            late.computeFirstFireTime(null);
+            flightRecorder.triggerMisfired(late);
+            scheduler.shutdown(true);
+            recording.stop();
+            recording.dump(dump);
+
+            List<RecordedEvent> events = RecordingFile.readAllEvents(dump);
+            Assertions.assertTrue(events.stream().anyMatch(e -> e.getEventType().getName().equals(TriggerAcquisitionEvent.NAME)
+                    && e.getInt("acquired") == 1));
+            RecordedEvent dispatch = single(events, JobDispatchEvent.NAME);
+            Assertions.assertEquals("job", dispatch.getString("jobName"));
+            Assertions.assertEquals("trigger", dispatch.getString("triggerName"));
+            RecordedEvent execution = single(events, JobExecutionEvent.NAME);
+            Assertions.assertEquals("recorded", execution.getString("jobGroup"));
+            Assertions.assertEquals(dispatch.getString("fireInstanceId"), execution.getString("fireInstanceId"));
+            Assertions.assertEquals(execution.getThread().getJavaThreadId(), execution.getThread("workerThread").getJavaThreadId());
+            Assertions.assertTrue(execution.getBoolean("failed"));
+            Assertions.assertTrue(execution.getDuration().toMillis() >= 20);
+            RecordedEvent misfire = single(events, TriggerMisfireEvent.NAME);
+            Assertions.assertEquals("late", misfire.getString("triggerName"));
+            Assertions.assertTrue(misfire.getDuration("misfireLag").toMillis() >= 120000);
+        } finally {
+            if (!scheduler.isShutdown())
+                scheduler.shutdown();
+            Files.deleteIfExists(dump);
+        }
+    }
+
+    @Test
+    void instrumentedRamStoreShouldRecordAcquisitions() throws Exception {
+        Properties props = new Properties();
+        props.setProperty("org.quartz.scheduler.instanceName", "flight-recorder-" + UUID.randomUUID());
+        props.setProperty("org.quartz.scheduler.skipUpdateCheck", "true");
+        props.setProperty("org.quartz.threadPool.threadCount", "1");
+        props.setProperty("org.quartz.jobStore.class", InstrumentedRAMJobStore.class.getName());
+        Scheduler scheduler = new StdSchedulerFactory(props).getScheduler();
+        executions = new CountDownLatch(1);
+        Path dump = Files.createTempFile("jobscheduler", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(TriggerAcquisitionEvent.NAME).withoutThreshold();
+            recording.start();
+            scheduler.start();
+            scheduler.scheduleJob(JobBuilder.newJob(FailingJob.class).withIdentity("job", "recorded").build(),
+                    TriggerBuilder.newTrigger().withIdentity("trigger", "recorded").startNow().build());
+            Assertions.assertTrue(executions.await(10, TimeUnit.SECONDS));
+            scheduler.shutdown(true);
+            recording.stop();
+            recording.dump(dump);
+
+            Assertions.assertTrue(RecordingFile.readAllEvents(dump).stream().anyMatch(e -> e.getEventType().getName().equals(TriggerAcquisitionEvent.NAME)
+                    && e.getInt("acquired") == 1 && InstrumentedRAMJobStore.class.getName().equals(e.getString("jobStore"))));
+        } finally {
+            if (!scheduler.isShutdown())
+                scheduler.shutdown();
+            Files.deleteIfExists(dump);
+        }
+    }
+
+    @Test
+    void listenerShouldDoNothingWithoutRecording() {
+        JobSchedulerFlightRecorder flightRecorder = new JobSchedulerFlightRecorder();
+        JobExecutionContext context = mock(JobExecutionContext.class);
+        flightRecorder.jobToBeExecuted(context);
+        flightRecorder.jobWasExecuted(context, null);
+        verify(context, never()).put(any(), any());
+    }
+
+    private static RecordedEvent single(List<RecordedEvent> events, String name) {
+        List<RecordedEvent> matching = events.stream().filter(e -> e.getEventType().getName().equals(name)).collect(Collectors.toList());
+        Assertions.assertEquals(1, matching.size(), name);
+        return matching.get(0);
+    }
+
+    public static class FailingJob implements Job {
+        @Override
+        public void execute(JobExecutionContext context) throws JobExecutionException {
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            executions.countDown();
+            throw new JobExecutionException("expected failure");
+        }
+    }
+}
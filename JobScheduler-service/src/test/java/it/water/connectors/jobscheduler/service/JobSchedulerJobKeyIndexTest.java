@@ -0,0 +1,51 @@
+package it.water.connectors.jobscheduler.service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.quartz.JobBuilder;
+import org.quartz.JobKey;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.quartz.impl.StdSchedulerFactory;
+
+import java.util.Properties;
+import java.util.UUID;
+
+class JobSchedulerJobKeyIndexTest {
+
+    @Test
+    void sortedNamesShouldBeCachedUntilTheGroupChanges() throws Exception {
+        Properties props = new Properties();
+        props.setProperty("org.quartz.scheduler.instanceName", "keyIndex-" + UUID.randomUUID());
+        props.setProperty("org.quartz.scheduler.skipUpdateCheck", "true");
+        props.setProperty("org.quartz.threadPool.threadCount", "1");
+        props.setProperty("org.quartz.jobStore.class", "org.quartz.simpl.RAMJobStore");
+        Scheduler scheduler = new StdSchedulerFactory(props).getScheduler();
+        JobSchedulerJobKeyIndex index = new JobSchedulerJobKeyIndex();
+        scheduler.getListenerManager().addSchedulerListener(index);
+        try {
+            addJob(scheduler, new JobKey("b", "g1"));
+            addJob(scheduler, new JobKey("a", "g1"));
+            addJob(scheduler, new JobKey("c", "g2"));
+
+            String[] names = index.getSortedNames(scheduler, "g1");
+            Assertions.assertArrayEquals(new String[]{"a", "b"}, names);
+            Assertions.assertSame(names, index.getSortedNames(scheduler, "g1"));
+            String[] otherGroup = index.getSortedNames(scheduler, "g2");
+
+            addJob(scheduler, new JobKey("0", "g1"));
+            Assertions.assertArrayEquals(new String[]{"0", "a", "b"}, index.getSortedNames(scheduler, "g1"));
+            Assertions.assertSame(otherGroup, index.getSortedNames(scheduler, "g2"));
+            scheduler.deleteJob(new JobKey("a", "g1"));
+            Assertions.assertArrayEquals(new String[]{"0", "b"}, index.getSortedNames(scheduler, "g1"));
+            scheduler.clear();
+            Assertions.assertEquals(0, index.getSortedNames(scheduler, "g2").length);
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    private static void addJob(Scheduler scheduler, JobKey jobKey) throws SchedulerException {
+        scheduler.addJob(JobBuilder.newJob(JobSchedulerSystemServiceImplTest.NoOpQuartzJob.class).withIdentity(jobKey).storeDurably().build(), false);
+    }
+}
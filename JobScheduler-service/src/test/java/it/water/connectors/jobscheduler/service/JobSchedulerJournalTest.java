@@ -0,0 +1,256 @@
+package it.water.connectors.jobscheduler.service;
+
+import it.water.connectors.jobscheduler.api.WaterJob;
+import it.water.connectors.jobscheduler.model.JobMisfirePolicy;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.quartz.JobBuilder;
+import org.quartz.JobDataMap;
+import org.quartz.JobDetail;
+import org.quartz.JobKey;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+class JobSchedulerJournalTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void journalShouldRestoreLatestDefinitionsAfterRestart() throws Exception {
+        JobSchedulerJournal journal = new JobSchedulerJournal(tempDir, JobSchedulerJournal.DEFAULT_SNAPSHOT_THRESHOLD);
+        Assertions.assertTrue(journal.open().isEmpty());
+        Map<String, Object> params = new HashMap<>();
+        params.put("text", "value");
+        params.put("count", 3);
+        params.put("limit", 10L);
+        params.put("ratio", 0.5d);
+        params.put("enabled", true);
+        params.put("missing", null);
+        journal.append(ReplicatedJob.upsert("node-1", new TestJob("j1", "0 0 * * * ?", params)));
+        journal.append(ReplicatedJob.upsert("node-1", new TestJob("j1", "0 0/5 * * * ?", params)));
+        journal.append(ReplicatedJob.upsert("node-1", new TestJob("j2", "0 0 * * * ?", Collections.singletonMap("since", new Date(1000)))));
+        journal.append(ReplicatedJob.upsert("node-1", new TestJob("j3", "0 0 * * * ?", Collections.emptyMap())));
+        journal.append(ReplicatedJob.delete("node-1", new JobKey("j3", "g")));
+        journal.close();
+
+        JobSchedulerJournal restored = new JobSchedulerJournal(tempDir, JobSchedulerJournal.DEFAULT_SNAPSHOT_THRESHOLD);
+        Map<JobKey, ReplicatedJob> jobs = byKey(restored.open());
+        restored.close();
+
+        Assertions.assertEquals(2, jobs.size());
+        ReplicatedJob first = jobs.get(new JobKey("j1", "g"));
+        Assertions.assertEquals("0 0/5 * * * ?", first.getCronExpression());
+        Assertions.assertEquals(JobMisfirePolicy.SKIP, first.getMisfirePolicy());
+        Assertions.assertEquals(params, first.getJobParams());
+        JobDetail jobDetail = first.getJobDetail();
+        Assertions.assertEquals(JobSchedulerSystemServiceImplTest.NoOpQuartzJob.class, jobDetail.getJobClass());
+        Assertions.assertTrue(jobDetail.isDurable());
+        Assertions.assertEquals(new Date(1000), jobs.get(new JobKey("j2", "g")).getJobParams().get("since"));
+    }
+
+    @Test
+    void snapshotShouldReplaceOlderFilesAndKeepLaterChanges() throws Exception {
+        JobSchedulerJournal journal = new JobSchedulerJournal(tempDir, JobSchedulerJournal.DEFAULT_SNAPSHOT_THRESHOLD);
+        journal.open();
+        for (int i = 0; i < 10; i++)
+            journal.append(ReplicatedJob.upsert("node-1", new TestJob("j" + i, "0 0 * * * ?", Collections.emptyMap())));
+        long logSize = journal.getLogSize();
+        journal.snapshot();
+        Assertions.assertTrue(journal.getLogSize() < logSize);
+        journal.append(ReplicatedJob.delete("node-1", new JobKey("j0", "g")));
+        journal.append(ReplicatedJob.upsert("node-1", new TestJob("j1", "0 0/5 * * * ?", Collections.emptyMap())));
+        journal.snapshot();
+        journal.append(ReplicatedJob.upsert("node-1", new TestJob("j10", "0 0 * * * ?", Collections.emptyMap())));
+        journal.close();
+
+        Assertions.assertEquals(Arrays.asList("jobs-2.snapshot", "jobs-2.wal"), files());
+        JobSchedulerJournal restored = new JobSchedulerJournal(tempDir, JobSchedulerJournal.DEFAULT_SNAPSHOT_THRESHOLD);
+        Map<JobKey, ReplicatedJob> jobs = byKey(restored.open());
+        restored.close();
+        Assertions.assertEquals(10, jobs.size());
+        Assertions.assertFalse(jobs.containsKey(new JobKey("j0", "g")));
+        Assertions.assertEquals("0 0/5 * * * ?", jobs.get(new JobKey("j1", "g")).getCronExpression());
+        Assertions.assertTrue(jobs.containsKey(new JobKey("j10", "g")));
+    }
+
+    @Test
+    void tornRecordShouldBeDroppedAndLogReusable() throws Exception {
+        JobSchedulerJournal journal = new JobSchedulerJournal(tempDir, JobSchedulerJournal.DEFAULT_SNAPSHOT_THRESHOLD);
+        journal.open();
+        journal.append(ReplicatedJob.upsert("node-1", new TestJob("j1", "0 0 * * * ?", Collections.emptyMap())));
+        long validEnd = journal.getLogSize();
+        journal.append(ReplicatedJob.upsert("node-1", new TestJob("j2", "0 0 * * * ?", Collections.emptyMap())));
+        long end = journal.getLogSize();
+        journal.close();
+        try (RandomAccessFile file = new RandomAccessFile(tempDir.resolve("jobs-0.wal").toFile(), "rw")) {
+            file.seek(end - 1);
+            int lastByte = file.read();
+            file.seek(end - 1);
+            file.write(lastByte ^ 0xFF);
+        }
+
+        JobSchedulerJournal restored = new JobSchedulerJournal(tempDir, JobSchedulerJournal.DEFAULT_SNAPSHOT_THRESHOLD);
+        Assertions.assertEquals(Collections.singleton(new JobKey("j1", "g")), byKey(restored.open()).keySet());
+        Assertions.assertEquals(validEnd, restored.getLogSize());
+        restored.append(ReplicatedJob.upsert("node-1", new TestJob("j3", "0 0 * * * ?", Collections.emptyMap())));
+        restored.close();
+
+        JobSchedulerJournal reopened = new JobSchedulerJournal(tempDir, JobSchedulerJournal.DEFAULT_SNAPSHOT_THRESHOLD);
+        Assertions.assertEquals(new HashSet<>(Arrays.asList(new JobKey("j1", "g"), new JobKey("j3", "g"))), byKey(reopened.open()).keySet());
+        reopened.close();
+    }
+
+    @Test
+    void jobDataRefusedBySerialFilterShouldNotBreakTheRestart() throws Exception {
+        JobSchedulerJournal journal = new JobSchedulerJournal(tempDir, JobSchedulerJournal.DEFAULT_SNAPSHOT_THRESHOLD);
+        journal.open();
+        journal.append(ReplicatedJob.upsert("node-1", new TestJob("j1", "0 0 * * * ?", Collections.emptyMap())));
+        Map<String, Object> refusedParams = Collections.singletonMap("ids", new ArrayList<>(Arrays.asList(1, 2)));
+        IOException refused = Assertions.assertThrows(IOException.class,
+                () -> journal.append(ReplicatedJob.upsert("node-1", new TestJob("j2", "0 0 * * * ?", refusedParams))));
+        Assertions.assertTrue(refused.getMessage().contains("g.j2"));
+        long end = journal.getLogSize();
+        journal.close();
+        // records written before the filter was applied on append
+        try (RandomAccessFile file = new RandomAccessFile(tempDir.resolve("jobs-0.wal").toFile(), "rw")) {
+            file.seek(end);
+            writeRecord(file, refusedRecord(new TestJob("j2", "0 0 * * * ?", Collections.emptyMap()), refusedParams));
+            writeRecord(file, encode(ReplicatedJob.upsert("node-1", new TestJob("j3", "0 0 * * * ?", Collections.emptyMap()))));
+        }
+
+        JobSchedulerJournal restored = new JobSchedulerJournal(tempDir, JobSchedulerJournal.DEFAULT_SNAPSHOT_THRESHOLD);
+        Assertions.assertEquals(new HashSet<>(Arrays.asList(new JobKey("j1", "g"), new JobKey("j3", "g"))), byKey(restored.open()).keySet());
+        restored.append(ReplicatedJob.upsert("node-1", new TestJob("j4", "0 0 * * * ?", Collections.emptyMap())));
+        restored.close();
+
+        JobSchedulerJournal reopened = new JobSchedulerJournal(tempDir, JobSchedulerJournal.DEFAULT_SNAPSHOT_THRESHOLD);
+        Assertions.assertEquals(3, reopened.open().size());
+        reopened.close();
+    }
+
+    @Test
+    void largeJournalShouldBeRestoredFromSnapshotAndLog() throws Exception {
+        int jobs = 200000;
+        JobSchedulerJournal journal = new JobSchedulerJournal(tempDir, JobSchedulerJournal.DEFAULT_SNAPSHOT_THRESHOLD);
+        journal.open();
+        Map<String, Object> params = Collections.singletonMap("tenant", "acme");
+        for (int i = 0; i < jobs; i++) {
+            if (i == jobs / 2)
+                journal.snapshot();
+            journal.append(ReplicatedJob.upsert("node-1", new TestJob("job-" + i, "0 0/5 * * * ?", params)));
+        }
+        journal.close();
+
+        JobSchedulerJournal restored = new JobSchedulerJournal(tempDir, JobSchedulerJournal.DEFAULT_SNAPSHOT_THRESHOLD);
+        Collection<ReplicatedJob> definitions = restored.open();
+        restored.close();
+        Assertions.assertEquals(jobs, definitions.size());
+        Assertions.assertEquals(jobs, restored.size());
+    }
+
+    private List<String> files() throws Exception {
+        try (Stream<Path> files = Files.list(tempDir)) {
+            return files.map(path -> path.getFileName().toString()).sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static byte[] encode(ReplicatedJob record) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        record.writeTo(new DataOutputStream(bytes));
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Binary form of the job with the given job data serialized as is, bypassing the check done by writeTo
+     */
+    private static byte[] refusedRecord(TestJob job, Map<String, Object> jobData) throws IOException {
+        byte[] plain = encode(ReplicatedJob.upsert("node-1", job));
+        ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(serialized)) {
+            out.writeObject(new HashMap<>(jobData));
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        // the empty job data of the plain form is its last int
+        out.write(plain, 0, plain.length - Integer.BYTES);
+        out.writeInt(-2);
+        out.writeInt(serialized.size());
+        out.write(serialized.toByteArray());
+        return bytes.toByteArray();
+    }
+
+    private static void writeRecord(RandomAccessFile file, byte[] payload) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        file.writeInt(payload.length);
+        file.writeInt((int) crc.getValue());
+        file.write(payload);
+    }
+
+    private static Map<JobKey, ReplicatedJob> byKey(Collection<ReplicatedJob> jobs) {
+        Map<JobKey, ReplicatedJob> result = new HashMap<>();
+        jobs.forEach(job -> result.put(job.getJobKey(), job));
+        return result;
+    }
+
+    private static class TestJob implements WaterJob {
+        private final JobDetail jobDetail;
+        private final String cronExpression;
+
+        private TestJob(String name, String cronExpression, Map<String, Object> params) {
+            this.jobDetail = JobBuilder.newJob(JobSchedulerSystemServiceImplTest.NoOpQuartzJob.class)
+                    .withIdentity(new JobKey(name, "g"))
+                    .storeDurably()
+                    .usingJobData(new JobDataMap(params))
+                    .build();
+            this.cronExpression = cronExpression;
+        }
+
+        @Override
+        public String getClassName() {
+            return jobDetail.getJobClass().getName();
+        }
+
+        @Override
+        public String getCronExpression() {
+            return cronExpression;
+        }
+
+        @Override
+        public JobDetail getJobDetail() {
+            return jobDetail;
+        }
+
+        @Override
+        public JobKey getJobKey() {
+            return jobDetail.getKey();
+        }
+
+        @Override
+        public Map<String, Object> getJobParams() {
+            return jobDetail.getJobDataMap().getWrappedMap();
+        }
+
+        @Override
+        public boolean isActive() {
+            return true;
+        }
+
+        @Override
+        public JobMisfirePolicy getMisfirePolicy() {
+            return JobMisfirePolicy.SKIP;
+        }
+    }
+}
@@ -33,6 +33,7 @@ class JobSchedulerLeadershipRegistrarTest {
         registrar.activate(applicationProperties);
 
         Assertions.assertEquals("/test-layer/jobs/quartz/executor", registrar.getLeadershipPath());
+        Assertions.assertEquals("/test-layer/jobs/quartz/members", registrar.getMembershipPath());
         verify(zookeeperConnectorSystemApi).registerLeadershipComponent("/test-layer/jobs/quartz/executor");
     }
 }
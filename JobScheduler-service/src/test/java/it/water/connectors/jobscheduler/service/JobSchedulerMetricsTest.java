@@ -0,0 +1,65 @@
+package it.water.connectors.jobscheduler.service;
+
+import it.water.connectors.jobscheduler.model.JobSchedulerHistogramSnapshot;
+import it.water.connectors.jobscheduler.model.JobSchedulerMetricsSnapshot;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.quartz.JobBuilder;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+import org.quartz.Trigger;
+
+import java.util.Collections;
+import java.util.Date;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class JobSchedulerMetricsTest {
+
+    @Test
+    void histogramShouldComputeBoundedPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i);
+        }
+        histogram.record(-5);
+
+        JobSchedulerHistogramSnapshot snapshot = histogram.snapshot();
+
+        Assertions.assertEquals(101, snapshot.getCount());
+        Assertions.assertEquals(100, snapshot.getMax());
+        Assertions.assertTrue(snapshot.getP50() >= 50 && snapshot.getP50() <= 63);
+        Assertions.assertTrue(snapshot.getP99() <= 100);
+        Assertions.assertEquals(5050 / 101.0, snapshot.getMean(), 0.001);
+    }
+
+    @Test
+    void listenerShouldTrackExecutionsAndBusyThreads() {
+        JobSchedulerMetrics metrics = new JobSchedulerMetrics();
+        JobExecutionContext context = mock(JobExecutionContext.class);
+        when(context.getScheduledFireTime()).thenReturn(new Date(System.currentTimeMillis() - 20));
+        when(context.getJobDetail()).thenReturn(JobBuilder.newJob(JobSchedulerSystemServiceImplTest.NoOpQuartzJob.class).withIdentity("job", "reports").build());
+        when(context.getJobRunTime()).thenReturn(150L);
+
+        metrics.jobToBeExecuted(context);
+        JobSchedulerMetricsSnapshot running = metrics.snapshot(4, -1, Collections.emptyMap(), 0, 0, null);
+        Assertions.assertEquals(1, running.getBusyThreads());
+        Assertions.assertEquals(3, running.getIdleThreads());
+
+        metrics.jobWasExecuted(context, new JobExecutionException("boom"));
+        metrics.triggerMisfired(mock(Trigger.class));
+        metrics.jobExecutionVetoed(context);
+        JobSchedulerMetricsSnapshot snapshot = metrics.snapshot(4, 12, Collections.emptyMap(), 0, 0, null);
+
+        Assertions.assertEquals(0, snapshot.getBusyThreads());
+        Assertions.assertEquals(1, snapshot.getPeakBusyThreads());
+        Assertions.assertEquals(1, snapshot.getFiredJobs());
+        Assertions.assertEquals(1, snapshot.getFailedJobs());
+        Assertions.assertEquals(1, snapshot.getMisfires());
+        Assertions.assertEquals(1, snapshot.getVetoes());
+        Assertions.assertEquals(12, snapshot.getLastTakeoverLatencyMillis());
+        Assertions.assertTrue(snapshot.getFireLag().getMax() >= 20);
+        Assertions.assertEquals(150, snapshot.getRunDurationByGroup().get("reports").getMax());
+    }
+}
@@ -0,0 +1,125 @@
+package it.water.connectors.jobscheduler.service;
+
+import it.water.connectors.jobscheduler.model.JobMisfirePolicy;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.quartz.*;
+import org.quartz.impl.StdSchedulerFactory;
+import org.quartz.impl.triggers.CronTriggerImpl;
+
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.mockito.Mockito.*;
+
+class JobSchedulerMisfireCatchUpTest {
+    private static final long MINUTE = 60_000L;
+    private static final List<Long> catchUpFires = new CopyOnWriteArrayList<>();
+    private static final AtomicBoolean policyVisible = new AtomicBoolean();
+
+    @Test
+    void policyShouldBoundTheMissedFires() {
+        JobSchedulerMisfireCatchUp catchUp = new JobSchedulerMisfireCatchUp(10, 3, 100);
+
+        catchUp.triggerMisfired(missedCronTrigger("all", JobMisfirePolicy.FIRE_ALL_BOUNDED, 10));
+        Assertions.assertEquals(3, catchUp.getBacklog());
+        catchUp.triggerMisfired(missedCronTrigger("once", JobMisfirePolicy.FIRE_ONCE, 10));
+        Assertions.assertEquals(4, catchUp.getBacklog());
+        catchUp.triggerMisfired(missedCronTrigger("skip", JobMisfirePolicy.SKIP, 10));
+        catchUp.triggerMisfired(TriggerBuilder.newTrigger().forJob("simple", "catchup")
+                .usingJobData(JobSchedulerMisfireCatchUp.MISFIRE_POLICY_KEY, JobMisfirePolicy.FIRE_ALL_BOUNDED.name()).build());
+        Assertions.assertEquals(4, catchUp.getBacklog());
+    }
+
+    @Test
+    void mostLateFiresShouldRunFirst() throws SchedulerException {
+        JobSchedulerMisfireCatchUp catchUp = new JobSchedulerMisfireCatchUp(10, 3, 100);
+        Scheduler scheduler = mock(Scheduler.class);
+        catchUp.setScheduler(scheduler);
+        catchUp.triggerMisfired(missedCronTrigger("recent", JobMisfirePolicy.FIRE_ONCE, 2));
+        catchUp.triggerMisfired(missedCronTrigger("late", JobMisfirePolicy.FIRE_ONCE, 30));
+
+        Assertions.assertEquals(1, catchUp.drain(1));
+
+        ArgumentCaptor<Trigger> released = ArgumentCaptor.forClass(Trigger.class);
+        verify(scheduler).scheduleJob(released.capture());
+        Assertions.assertEquals(new JobKey("late", "catchup"), released.getValue().getJobKey());
+        long scheduledFireTime = (Long) released.getValue().getJobDataMap().get(JobSchedulerMisfireCatchUp.SCHEDULED_FIRE_TIME_KEY);
+        Assertions.assertTrue(System.currentTimeMillis() - scheduledFireTime >= 29 * MINUTE);
+        Assertions.assertFalse(released.getValue().getJobDataMap().containsKey(JobSchedulerMisfireCatchUp.MISFIRE_POLICY_KEY));
+        Assertions.assertEquals(1, catchUp.drain(10));
+        Assertions.assertEquals(0, catchUp.getBacklog());
+    }
+
+    @Test
+    void fullBacklogShouldDropFires() {
+        JobSchedulerMisfireCatchUp catchUp = new JobSchedulerMisfireCatchUp(10, 10, 4);
+        catchUp.triggerMisfired(missedCronTrigger("all", JobMisfirePolicy.FIRE_ALL_BOUNDED, 6));
+
+        Assertions.assertEquals(4, catchUp.getBacklog());
+        Assertions.assertEquals(2, catchUp.getDroppedFires());
+    }
+
+    @Test
+    void schedulerShouldRunMissedFiresThroughTheCatchUp() throws Exception {
+        Properties props = new Properties();
+        props.setProperty("org.quartz.scheduler.instanceName", "catchup-" + UUID.randomUUID());
+        props.setProperty("org.quartz.scheduler.skipUpdateCheck", "true");
+        props.setProperty("org.quartz.threadPool.threadCount", "2");
+        props.setProperty("org.quartz.jobStore.misfireThreshold", "100");
+        Scheduler scheduler = new StdSchedulerFactory(props).getScheduler();
+        JobSchedulerMisfireCatchUp catchUp = new JobSchedulerMisfireCatchUp(100, 3, 100);
+        catchUp.setScheduler(scheduler);
+        scheduler.getListenerManager().addTriggerListener(catchUp);
+        catchUpFires.clear();
+        policyVisible.set(false);
+        try {
+            // the trigger started while no scheduler was running, so it has already missed many fires
+            scheduler.scheduleJob(JobBuilder.newJob(RecordingJob.class).withIdentity("missed", "catchup").build(),
+                    TriggerBuilder.newTrigger().withIdentity("missed", "catchup")
+                            .startAt(new Date(System.currentTimeMillis() - 10 * MINUTE))
+                            .withSchedule(CronScheduleBuilder.cronSchedule("0 * * * * ?").withMisfireHandlingInstructionDoNothing())
+                            .usingJobData(JobSchedulerMisfireCatchUp.MISFIRE_POLICY_KEY, JobMisfirePolicy.FIRE_ALL_BOUNDED.name())
+                            .build());
+            scheduler.start();
+            catchUp.start();
+
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (catchUpFires.size() < 3 && System.currentTimeMillis() < deadline)
+                Thread.sleep(10);
+            Assertions.assertEquals(3, catchUpFires.size());
+            for (int i = 1; i < catchUpFires.size(); i++)
+                Assertions.assertEquals(MINUTE, catchUpFires.get(i) - catchUpFires.get(i - 1));
+            Assertions.assertFalse(policyVisible.get());
+        } finally {
+            catchUp.stop();
+            scheduler.shutdown(true);
+        }
+    }
+
+    private static Trigger missedCronTrigger(String name, JobMisfirePolicy policy, int minutesLate) {
+        CronTriggerImpl trigger = (CronTriggerImpl) TriggerBuilder.newTrigger()
+                .withIdentity(name, "catchup")
+                .forJob(name, "catchup")
+                .startAt(new Date(System.currentTimeMillis() - 24 * 60 * MINUTE))
+                .withSchedule(CronScheduleBuilder.cronSchedule("0 * * * * ?").withMisfireHandlingInstructionDoNothing())
+                .usingJobData(JobSchedulerMisfireCatchUp.MISFIRE_POLICY_KEY, policy.name())
+                .build();
+        // the job store notifies the trigger before updating it, so its next fire time is the first missed one
+        trigger.setNextFireTime(trigger.getFireTimeAfter(new Date(System.currentTimeMillis() - minutesLate * MINUTE - 1)));
+        return trigger;
+    }
+
+    public static class RecordingJob implements Job {
+        @Override
+        public void execute(JobExecutionContext context) {
+            if (context.getMergedJobDataMap().containsKey(JobSchedulerMisfireCatchUp.MISFIRE_POLICY_KEY))
+                policyVisible.set(true);
+            Object scheduledFireTime = context.getMergedJobDataMap().get(JobSchedulerMisfireCatchUp.SCHEDULED_FIRE_TIME_KEY);
+            if (scheduledFireTime != null)
+                catchUpFires.add((Long) scheduledFireTime);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package it.water.connectors.jobscheduler.service;
+
+import it.water.connectors.jobscheduler.service.quartz.ResizableThreadPool;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.quartz.JobExecutionContext;
+import org.quartz.SchedulerConfigException;
+
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class JobSchedulerPoolAutoscalerTest {
+    private ResizableThreadPool pool;
+    private JobSchedulerPoolAutoscaler autoscaler;
+    private double cpu;
+
+    @BeforeEach
+    void setUp() throws SchedulerConfigException {
+        pool = new ResizableThreadPool();
+        pool.setThreadCount(8);
+        pool.setInstanceName("autoscaler-" + UUID.randomUUID());
+        pool.initialize();
+        autoscaler = new JobSchedulerPoolAutoscaler(pool, 2, 12, 1000, 80);
+        autoscaler.setCpuLoad(() -> cpu);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdown(false);
+    }
+
+    @Test
+    void poolShouldGrowWhenFiresAreLateUnlessCpuIsBusy() {
+        fireWithLag(5000);
+        Assertions.assertEquals(10, autoscaler.adjust());
+        fireWithLag(5000);
+        Assertions.assertEquals(12, autoscaler.adjust());
+        fireWithLag(5000);
+        Assertions.assertEquals(12, autoscaler.adjust());
+
+        autoscaler.resize(8);
+        cpu = 0.95;
+        fireWithLag(5000);
+        Assertions.assertEquals(8, autoscaler.adjust());
+        Assertions.assertEquals(8, pool.getPoolSize());
+
+        // an unavailable CPU reading does not prevent growing
+        cpu = -1;
+        fireWithLag(5000);
+        Assertions.assertEquals(10, autoscaler.adjust());
+    }
+
+    @Test
+    void poolShouldShrinkAfterIdleIntervals() {
+        fireWithLag(10);
+        Assertions.assertEquals(8, autoscaler.adjust());
+        Assertions.assertEquals(8, autoscaler.adjust());
+        Assertions.assertEquals(6, autoscaler.adjust());
+        for (int i = 0; i < 12; i++)
+            autoscaler.adjust();
+        Assertions.assertEquals(2, pool.getPoolSize());
+        Assertions.assertEquals(12, autoscaler.resize(100));
+    }
+
+    @Test
+    void poolShouldGrowWhenTheSchedulerWaitsForWorkers() throws Exception {
+        pool.resize(2);
+        CountDownLatch release = new CountDownLatch(1);
+        Runnable blockingJob = () -> {
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        pool.runInThread(blockingJob);
+        pool.runInThread(blockingJob);
+        Thread scheduler = new Thread(pool::blockForAvailableThreads);
+        scheduler.start();
+        Thread.sleep(50);
+        release.countDown();
+        scheduler.join(5000);
+
+        Assertions.assertEquals(3, autoscaler.adjust());
+    }
+
+    private void fireWithLag(long lagMillis) {
+        JobExecutionContext context = mock(JobExecutionContext.class);
+        when(context.getScheduledFireTime()).thenReturn(new Date(System.currentTimeMillis() - lagMillis));
+        autoscaler.jobToBeExecuted(context);
+    }
+}
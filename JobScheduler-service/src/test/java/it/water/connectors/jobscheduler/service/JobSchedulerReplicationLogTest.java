@@ -0,0 +1,139 @@
+package it.water.connectors.jobscheduler.service;
+
+import it.water.connectors.jobscheduler.api.WaterJob;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.quartz.JobBuilder;
+import org.quartz.JobDetail;
+import org.quartz.JobKey;
+
+import java.io.*;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class JobSchedulerReplicationLogTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void followerShouldReadOnlyNewRecords() throws Exception {
+        Path logPath = tempDir.resolve("replication.log");
+        JobSchedulerReplicationLog writer = new JobSchedulerReplicationLog(logPath);
+        JobSchedulerReplicationLog follower = new JobSchedulerReplicationLog(logPath);
+
+        writer.append(ReplicatedJob.upsert("node-1", waterJob("j1", "0 0/5 * * * ?")));
+        Assertions.assertEquals(1, follower.readNew().size());
+        Assertions.assertTrue(follower.readNew().isEmpty());
+
+        writer.append(ReplicatedJob.delete("node-1", new JobKey("j1", "g")));
+        List<ReplicatedJob> records = follower.readNew();
+        Assertions.assertEquals(1, records.size());
+        Assertions.assertEquals(ReplicatedJob.Operation.DELETE, records.get(0).getOperation());
+    }
+
+    @Test
+    void replicatedJobShouldRebuildJobDetail() throws Exception {
+        Path logPath = tempDir.resolve("replication.log");
+        JobSchedulerReplicationLog log = new JobSchedulerReplicationLog(logPath);
+        log.append(ReplicatedJob.upsert("node-1", waterJob("j2", "0 0 * * * ?")));
+
+        ReplicatedJob record = log.readNew().get(0);
+        JobDetail jobDetail = record.getJobDetail();
+
+        Assertions.assertEquals(new JobKey("j2", "g"), jobDetail.getKey());
+        Assertions.assertEquals(JobSchedulerSystemServiceImplTest.NoOpQuartzJob.class, jobDetail.getJobClass());
+        Assertions.assertEquals("value", jobDetail.getJobDataMap().getString("param"));
+        Assertions.assertEquals("0 0 * * * ?", record.getCronExpression());
+        Assertions.assertEquals("node-1", record.getOrigin());
+    }
+
+    @Test
+    void compactionShouldKeepLatestRecordsAndRestartReaders() throws Exception {
+        Path logPath = tempDir.resolve("replication.log");
+        JobSchedulerReplicationLog log = new JobSchedulerReplicationLog(logPath);
+        JobSchedulerReplicationLog follower = new JobSchedulerReplicationLog(logPath);
+        log.append(ReplicatedJob.upsert("node-1", waterJob("j3", "0 0 * * * ?")));
+        log.append(ReplicatedJob.upsert("node-1", waterJob("j3", "0 0/5 * * * ?")));
+        log.append(ReplicatedJob.upsert("node-1", waterJob("j4", "0 0 * * * ?")));
+        log.append(ReplicatedJob.delete("node-1", new JobKey("j4", "g")));
+        Assertions.assertEquals(4, follower.readNew().size());
+        long sizeBefore = log.size();
+
+        log.compact();
+
+        Assertions.assertTrue(log.size() < sizeBefore);
+        List<ReplicatedJob> records = follower.readNew();
+        Assertions.assertEquals(2, records.size());
+        Assertions.assertEquals("0 0/5 * * * ?", records.get(0).getCronExpression());
+        // the deletion still reaches the followers which have not read it before the compaction
+        Assertions.assertEquals(ReplicatedJob.Operation.DELETE, records.get(1).getOperation());
+        Assertions.assertEquals(new JobKey("j4", "g"), records.get(1).getJobKey());
+    }
+
+    @Test
+    void recordsWithClassesOutsideTheAllowListShouldBeRefusedAndKeptByCompaction() throws Exception {
+        Path logPath = tempDir.resolve("replication.log");
+        JobSchedulerReplicationLog log = new JobSchedulerReplicationLog(logPath);
+        WaterJob allowed = waterJob("j5", "0 0 * * * ?");
+        allowed.getJobDetail().getJobDataMap().put("upstream", new JobKey("j1", "g"));
+        allowed.getJobDetail().getJobDataMap().put("retries", 3);
+        WaterJob rejected = waterJob("j6", "0 0 * * * ?");
+        rejected.getJobDetail().getJobDataMap().put("payload", new ArrayList<>(List.of("a", "b")));
+        log.append(ReplicatedJob.upsert("node-1", allowed));
+        IOException refusedOnAppend = Assertions.assertThrows(IOException.class, () -> log.append(ReplicatedJob.upsert("node-1", rejected)));
+        Assertions.assertTrue(refusedOnAppend.getMessage().contains("g.j6"));
+        Assertions.assertEquals(1, countRecords(logPath));
+
+        // a record written before the allow-list existed is skipped by readers but never dropped by compaction
+        ByteArrayOutputStream legacy = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(legacy)) {
+            oos.writeObject(ReplicatedJob.upsert("node-1", rejected));
+        }
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(logPath.toFile(), true))) {
+            out.writeInt(legacy.size());
+            out.write(legacy.toByteArray());
+        }
+        log.append(ReplicatedJob.upsert("node-1", allowed));
+        List<ReplicatedJob> records = new JobSchedulerReplicationLog(logPath).readNew();
+        Assertions.assertEquals(2, records.size());
+        Assertions.assertEquals(new JobKey("j1", "g"), records.get(0).getJobParams().get("upstream"));
+        log.compact();
+        Assertions.assertEquals(2, countRecords(logPath));
+        Assertions.assertEquals(1, new JobSchedulerReplicationLog(logPath).readNew().size());
+
+        // the binary form of the journal refuses it when written
+        DataOutputStream binary = new DataOutputStream(new ByteArrayOutputStream());
+        IOException refused = Assertions.assertThrows(IOException.class, () -> ReplicatedJob.upsert("node-1", rejected).writeTo(binary));
+        Assertions.assertTrue(refused.getCause() instanceof InvalidClassException);
+    }
+
+    private int countRecords(Path logPath) throws IOException {
+        int count = 0;
+        try (DataInputStream in = new DataInputStream(new FileInputStream(logPath.toFile()))) {
+            in.skipBytes(Integer.BYTES + Long.BYTES);
+            while (in.available() >= Integer.BYTES) {
+                in.skipBytes(in.readInt());
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private WaterJob waterJob(String name, String cron) {
+        WaterJob job = mock(WaterJob.class);
+        JobDetail detail = JobBuilder.newJob(JobSchedulerSystemServiceImplTest.NoOpQuartzJob.class)
+                .withIdentity(new JobKey(name, "g"))
+                .usingJobData("param", "value")
+                .build();
+        when(job.getJobDetail()).thenReturn(detail);
+        when(job.getCronExpression()).thenReturn(cron);
+        when(job.isActive()).thenReturn(true);
+        return job;
+    }
+}
@@ -0,0 +1,138 @@
+package it.water.connectors.jobscheduler.service;
+
+import it.water.connectors.jobscheduler.model.JobListQuery;
+import it.water.connectors.jobscheduler.model.JobSummary;
+import it.water.core.model.exceptions.WaterRuntimeException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.quartz.*;
+import org.quartz.impl.StdSchedulerFactory;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.UUID;
+
+class JobSchedulerRepositoryImplTest {
+
+    @Test
+    void splitStatementsShouldIgnoreCommentsAndQuotedSeparators() {
+        List<String> statements = JobSchedulerRepositoryImpl.splitStatements(
+                "/* header; */\n-- comment;\nCREATE TABLE A (X INT);\nINSERT INTO A VALUES ('a;''b');\n\n");
+        Assertions.assertEquals(2, statements.size());
+        Assertions.assertEquals("CREATE TABLE A (X INT)", statements.get(0));
+        Assertions.assertEquals("INSERT INTO A VALUES ('a;''b')", statements.get(1));
+    }
+
+    @Test
+    void schemaShouldBeCreatedOnceAndThenSkipped() throws Exception {
+        String url = "jdbc:h2:mem:repositoryTest;MODE=PostgreSQL;DB_CLOSE_DELAY=-1";
+        Properties props = new Properties();
+        props.setProperty("org.quartz.jobStore.dataSource", "water");
+        props.setProperty("org.quartz.dataSource.water.driver", "org.h2.Driver");
+        props.setProperty("org.quartz.dataSource.water.URL", url);
+        props.setProperty("org.quartz.dataSource.water.user", "sa");
+        props.setProperty("org.quartz.dataSource.water.password", "");
+        JobSchedulerRepositoryImpl repository = new JobSchedulerRepositoryImpl();
+
+        repository.createQuartzTableIfNotExists(null, props);
+
+        try (Connection connection = DriverManager.getConnection(url, "sa", "");
+             Statement statement = connection.createStatement()) {
+            try (ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM QRTZ_WATER_SCHEMA_VERSION")) {
+                Assertions.assertTrue(rs.next());
+                Assertions.assertEquals(1, rs.getInt(1));
+            }
+            statement.execute("DROP TABLE QRTZ_LOCKS");
+            repository.createQuartzTableIfNotExists(null, props);
+            try (ResultSet rs = connection.getMetaData().getTables(null, null, "QRTZ_LOCKS", null)) {
+                Assertions.assertFalse(rs.next(), "bootstrap must be skipped once the schema version is recorded");
+            }
+            try (ResultSet rs = connection.getMetaData().getTables(null, null, "QRTZ_TRIGGERS", null)) {
+                Assertions.assertTrue(rs.next());
+            }
+        }
+    }
+
+    @Test
+    void ramJobStoreShouldSkipTableCreation() {
+        Assertions.assertDoesNotThrow(() -> new JobSchedulerRepositoryImpl().createQuartzTableIfNotExists(null, new Properties()));
+    }
+
+    @Test
+    void jobCursorShouldRoundTripAnyKey() {
+        JobKey key = JobListCursor.decode(JobListCursor.encode("group.with:separators", "name:1"));
+        Assertions.assertEquals(new JobKey("name:1", "group.with:separators"), key);
+        Assertions.assertThrows(WaterRuntimeException.class, () -> JobListCursor.decode("not a cursor"));
+        Assertions.assertThrows(WaterRuntimeException.class, () -> JobListCursor.decode(JobListCursor.encode("g", "n").substring(2)));
+    }
+
+    @Test
+    void findJobsShouldPageJdbcJobStoreWithFilters() throws Exception {
+        String instanceName = "repositoryList-" + UUID.randomUUID();
+        Properties props = new Properties();
+        props.setProperty("org.quartz.scheduler.instanceName", instanceName);
+        props.setProperty("org.quartz.scheduler.skipUpdateCheck", "true");
+        props.setProperty("org.quartz.threadPool.threadCount", "1");
+        props.setProperty("org.quartz.jobStore.class", "org.quartz.impl.jdbcjobstore.JobStoreTX");
+        props.setProperty("org.quartz.jobStore.driverDelegateClass", "org.quartz.impl.jdbcjobstore.PostgreSQLDelegate");
+        props.setProperty("org.quartz.jobStore.dataSource", "water");
+        props.setProperty("org.quartz.dataSource.water.driver", "org.h2.Driver");
+        props.setProperty("org.quartz.dataSource.water.URL", "jdbc:h2:mem:" + instanceName + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1");
+        props.setProperty("org.quartz.dataSource.water.user", "sa");
+        props.setProperty("org.quartz.dataSource.water.password", "");
+        JobSchedulerRepositoryImpl repository = new JobSchedulerRepositoryImpl();
+        repository.createQuartzTableIfNotExists(null, props);
+        Scheduler scheduler = new StdSchedulerFactory(props).getScheduler();
+        try {
+            for (int i = 0; i < 5; i++)
+                scheduleCronJob(scheduler, new JobKey("job" + i, "g1"), "0 0 12 * * ?");
+            scheduleCronJob(scheduler, new JobKey("job0", "g2"), "0 0 12 * * ?");
+            scheduler.pauseTrigger(new TriggerKey("job3", "g1"));
+            scheduler.addJob(JobBuilder.newJob(JobSchedulerSystemServiceImplTest.NoOpQuartzJob.class).withIdentity("idle", "g2").storeDurably().build(), false);
+
+            List<String> keys = new ArrayList<>();
+            String cursor = null;
+            int pages = 0;
+            do {
+                cursor = repository.findJobs(props, instanceName, new JobListQuery(null, null, null, cursor, 3),
+                        job -> keys.add(job.getJobGroup() + "." + job.getJobName()));
+                pages++;
+            } while (cursor != null);
+            Assertions.assertEquals(List.of("g1.job0", "g1.job1", "g1.job2", "g1.job3", "g1.job4", "g2.idle", "g2.job0"), keys);
+            Assertions.assertEquals(3, pages);
+
+            List<JobSummary> paused = new ArrayList<>();
+            Assertions.assertNull(repository.findJobs(props, instanceName, new JobListQuery(null, "PAUSED", null, null, 10), paused::add));
+            Assertions.assertEquals(1, paused.size());
+            Assertions.assertEquals("job3", paused.get(0).getJobName());
+            Assertions.assertEquals("0 0 12 * * ?", paused.get(0).getCronExpression());
+            Assertions.assertNotNull(paused.get(0).getNextFireTime());
+
+            List<JobSummary> idle = new ArrayList<>();
+            repository.findJobs(props, instanceName, new JobListQuery("g2", "NONE", null, null, 10), idle::add);
+            Assertions.assertEquals(1, idle.size());
+            Assertions.assertTrue(idle.get(0).isDurable());
+            Assertions.assertNull(idle.get(0).getNextFireTime());
+
+            List<JobSummary> normal = new ArrayList<>();
+            repository.findJobs(props, instanceName, new JobListQuery(null, "NORMAL", System.currentTimeMillis() + 2 * 24 * 3600 * 1000L, null, 10), normal::add);
+            Assertions.assertEquals(5, normal.size());
+            Assertions.assertTrue(normal.stream().allMatch(job -> "NORMAL".equals(job.getTriggerState())));
+            Assertions.assertThrows(WaterRuntimeException.class,
+                    () -> repository.findJobs(props, instanceName, new JobListQuery(null, "SLEEPING", null, null, 10), job -> { }));
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    private static void scheduleCronJob(Scheduler scheduler, JobKey jobKey, String cron) throws SchedulerException {
+        scheduler.scheduleJob(JobBuilder.newJob(JobSchedulerSystemServiceImplTest.NoOpQuartzJob.class).withIdentity(jobKey).build(),
+                TriggerBuilder.newTrigger().withIdentity(jobKey.getName(), jobKey.getGroup())
+                        .withSchedule(CronScheduleBuilder.cronSchedule(cron)).build());
+    }
+}
@@ -0,0 +1,87 @@
+package it.water.connectors.jobscheduler.service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobKey;
+import org.quartz.Trigger;
+import org.quartz.TriggerBuilder;
+
+import java.util.*;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class JobSchedulerShardManagerTest {
+
+    @Test
+    void jobsOfTheSameGroupShouldShareThePartition() {
+        JobSchedulerShardManager shardManager = new JobSchedulerShardManager(8, JobSchedulerShardManager.SHARDING_KEY_GROUP);
+        Assertions.assertEquals(shardManager.partitionOf(new JobKey("a", "reports")), shardManager.partitionOf(new JobKey("b", "reports")));
+    }
+
+    @Test
+    void partitionShouldBeStableAndInRange() {
+        JobSchedulerShardManager shardManager = new JobSchedulerShardManager(5, JobSchedulerShardManager.SHARDING_KEY_NAME);
+        for (int i = 0; i < 100; i++) {
+            JobKey jobKey = new JobKey("job-" + i, "group");
+            int partition = shardManager.partitionOf(jobKey);
+            Assertions.assertTrue(partition >= 0 && partition < 5);
+            Assertions.assertEquals(partition, shardManager.partitionOf(new JobKey("job-" + i, "group")));
+        }
+    }
+
+    @Test
+    void triggersOfNotOwnedPartitionsShouldBeVetoed() {
+        JobSchedulerShardManager shardManager = new JobSchedulerShardManager(4, JobSchedulerShardManager.SHARDING_KEY_NAME);
+        JobKey jobKey = new JobKey("job", "group");
+        Trigger trigger = TriggerBuilder.newTrigger().forJob(jobKey).build();
+        JobExecutionContext context = mock(JobExecutionContext.class);
+        int partition = shardManager.partitionOf(jobKey);
+
+        Assertions.assertTrue(shardManager.vetoJobExecution(trigger, context));
+        // fires of other nodes are not recorded in the execution history
+        verify(context).put(JobExecutionHistory.SKIPPED_FIRE_KEY, Boolean.TRUE);
+        shardManager.rebalance("node-a", Collections.singleton("node-a"));
+        Assertions.assertFalse(shardManager.vetoJobExecution(trigger, context));
+        Assertions.assertTrue(shardManager.getOwnedPartitions().contains(partition));
+        shardManager.rebalance("node-a", Collections.emptySet());
+        Assertions.assertTrue(shardManager.vetoJobExecution(trigger, context));
+    }
+
+    @Test
+    void partitionsShouldBeSpreadOverTheLiveNodes() {
+        int partitions = 64;
+        List<String> nodes = Arrays.asList("node-a", "node-b", "node-c");
+        Map<String, JobSchedulerShardManager> managers = new HashMap<>();
+        for (String node : nodes) {
+            managers.put(node, new JobSchedulerShardManager(partitions, JobSchedulerShardManager.SHARDING_KEY_GROUP));
+            managers.get(node).rebalance(node, nodes.subList(0, 2));
+        }
+        // the first two nodes split the partitions, the third is not a member yet
+        Assertions.assertEquals(partitions, managers.get("node-a").getOwnedPartitions().size() + managers.get("node-b").getOwnedPartitions().size());
+        Assertions.assertTrue(managers.get("node-c").getOwnedPartitions().isEmpty());
+        Set<Integer> ownedByA = new HashSet<>(managers.get("node-a").getOwnedPartitions());
+
+        // a joining node takes over partitions from both, the others keep the rest
+        nodes.forEach(node -> managers.get(node).rebalance(node, nodes));
+        Set<Integer> all = new HashSet<>();
+        for (String node : nodes) {
+            Set<Integer> owned = managers.get(node).getOwnedPartitions();
+            Assertions.assertTrue(owned.size() > partitions / 6, node + " owns " + owned);
+            owned.forEach(partition -> Assertions.assertTrue(all.add(partition), "partition " + partition + " owned twice"));
+        }
+        Assertions.assertEquals(partitions, all.size());
+        Assertions.assertTrue(ownedByA.containsAll(managers.get("node-a").getOwnedPartitions()));
+
+        // a leaving node only gives up its partitions
+        Set<Integer> ownedByB = managers.get("node-b").getOwnedPartitions();
+        managers.get("node-b").rebalance("node-b", Arrays.asList("node-b", "node-c"));
+        Assertions.assertTrue(managers.get("node-b").getOwnedPartitions().containsAll(ownedByB));
+    }
+
+    @Test
+    void invalidPartitionCountShouldBeRejected() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new JobSchedulerShardManager(0, null));
+    }
+}
@@ -0,0 +1,301 @@
+package it.water.connectors.jobscheduler.service;
+
+import it.water.connectors.jobscheduler.model.JobMisfirePolicy;
+import it.water.connectors.jobscheduler.model.JobSchedulerHistogramSnapshot;
+import org.quartz.CronExpression;
+import org.quartz.JobKey;
+
+import java.text.ParseException;
+import java.util.*;
+import java.util.function.ToLongFunction;
+
+/**
+ * Discrete-event simulator of the scheduling done by {@link JobSchedulerSystemServiceImpl}, driven by a virtual clock
+ * so that a day of fires is replayed in seconds, for sizing workers and nodes offline.
+ * <p>
+ * Jobs get their triggers as the service builds them: cron expressions are compiled through the shared
+ * {@link JobSchedulerCronCache} and smeared by {@link JobSchedulerCronSmear} when a smear window is set.
+ * The scheduler thread is modelled as Quartz runs it: it waits for a free worker, acquires a batch of due triggers
+ * paying the acquisition cost of the job store, detects misfires over the threshold and hands the fires to the workers.
+ * Run times and failures are drawn from the workloads with a seeded random generator, so runs are reproducible.
+ */
+class JobSchedulerSimulator {
+    private final VirtualClock clock;
+    private final List<Workload> workloads = new ArrayList<>();
+    private final JobSchedulerCronCache cronCache = new JobSchedulerCronCache(JobSchedulerCronCache.DEFAULT_MAX_SIZE);
+    private int workers = 10;
+    private long misfireThresholdMillis = 60000;
+    private int batchSize = 1;
+    private long acquireCostMillis;
+    private int smearWindowSeconds;
+    private long seed = 42;
+
+    /**
+     * @param clock virtual clock, the simulation starts at its current time
+     */
+    JobSchedulerSimulator(VirtualClock clock) {
+        this.clock = clock;
+    }
+
+    JobSchedulerSimulator workers(int workers) {
+        this.workers = workers;
+        return this;
+    }
+
+    JobSchedulerSimulator misfireThresholdMillis(long misfireThresholdMillis) {
+        this.misfireThresholdMillis = misfireThresholdMillis;
+        return this;
+    }
+
+    /**
+     * @param batchSize maximum triggers acquired at once, as org.quartz.scheduler.batchTriggerAcquisitionMaxCount
+     * @param acquireCostMillis time spent by the job store to acquire a batch, about 0 for the RAM store
+     */
+    JobSchedulerSimulator jobStore(int batchSize, long acquireCostMillis) {
+        this.batchSize = batchSize;
+        this.acquireCostMillis = acquireCostMillis;
+        return this;
+    }
+
+    JobSchedulerSimulator smearWindowSeconds(int smearWindowSeconds) {
+        this.smearWindowSeconds = smearWindowSeconds;
+        return this;
+    }
+
+    JobSchedulerSimulator seed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    JobSchedulerSimulator workload(Workload workload) {
+        workloads.add(workload);
+        return this;
+    }
+
+    /**
+     * Replays the fires of the workloads until the clock has advanced by the given duration
+     * @param durationMillis simulated time
+     * @return what happened
+     */
+    Report run(long durationMillis) throws ParseException {
+        Random random = new Random(seed);
+        long start = clock.now();
+        long end = start + durationMillis;
+        PriorityQueue<SimulatedTrigger> triggers = new PriorityQueue<>();
+        for (Workload workload : workloads) {
+            for (int i = 0; i < workload.jobs; i++) {
+                JobKey jobKey = new JobKey(workload.group + "-" + i, workload.group);
+                String cron = workload.cronExpressions.get(i % workload.cronExpressions.size());
+                if (smearWindowSeconds > 0)
+                    cron = JobSchedulerCronSmear.smear(cron, jobKey, smearWindowSeconds);
+                CronExpression cronExpression = cronCache.get(cron, TimeZone.getDefault());
+                Date first = cronExpression.getTimeAfter(new Date(start - 1));
+                if (first != null)
+                    triggers.add(new SimulatedTrigger(workload, cronExpression, first.getTime()));
+            }
+        }
+        Report report = new Report(workers);
+        // completion times of the running jobs
+        PriorityQueue<Long> running = new PriorityQueue<>();
+        while (!triggers.isEmpty() && triggers.peek().nextFireTime < end && clock.now() < end) {
+            if (running.size() >= workers)
+                advance(running.peek(), running, report);
+            SimulatedTrigger next = triggers.peek();
+            if (next.nextFireTime > clock.now())
+                advance(next.nextFireTime, running, report);
+            advance(clock.now() + acquireCostMillis, running, report);
+            int available = workers - running.size();
+            for (int i = 0; i < Math.min(available, batchSize) && !triggers.isEmpty() && triggers.peek().nextFireTime <= clock.now(); i++) {
+                SimulatedTrigger trigger = triggers.poll();
+                boolean misfired = clock.now() - trigger.nextFireTime > misfireThresholdMillis;
+                fire(trigger, misfired, random, running, report);
+                // after a misfire, the trigger moves to its next fire time after now
+                Date nextFire = trigger.cronExpression.getTimeAfter(new Date(misfired ? clock.now() : trigger.nextFireTime));
+                if (nextFire != null) {
+                    trigger.nextFireTime = nextFire.getTime();
+                    triggers.add(trigger);
+                }
+            }
+        }
+        advance(end, running, report);
+        report.elapsedMillis = clock.now() - start;
+        return report;
+    }
+
+    private void fire(SimulatedTrigger trigger, boolean misfired, Random random, PriorityQueue<Long> running, Report report) {
+        long now = clock.now();
+        long lag = now - trigger.nextFireTime;
+        if (misfired) {
+            report.misfires++;
+            if (trigger.workload.misfirePolicy == JobMisfirePolicy.SKIP)
+                return;
+        }
+        long runTime = Math.max(0, trigger.workload.runTime.applyAsLong(random));
+        report.fires++;
+        if (random.nextDouble() < trigger.workload.failureRate)
+            report.failures++;
+        report.drift.record(lag);
+        report.latencyByGroup.computeIfAbsent(trigger.workload.group, g -> new LatencyHistogram()).record(lag + runTime);
+        running.add(now + runTime);
+    }
+
+    /**
+     * Moves the clock forward, releasing the workers whose job completed and accounting their busy time
+     */
+    private void advance(long to, PriorityQueue<Long> running, Report report) {
+        long from = clock.now();
+        long target = Math.max(from, to);
+        while (!running.isEmpty() && running.peek() <= target) {
+            long completion = running.poll();
+            report.busyMillis += completion - from;
+        }
+        report.busyMillis += (long) running.size() * (target - from);
+        clock.advanceTo(target);
+    }
+
+    /**
+     * Clock of the simulation, moved forward only by the simulator
+     */
+    static final class VirtualClock {
+        private long now;
+
+        VirtualClock(long startMillis) {
+            this.now = startMillis;
+        }
+
+        long now() {
+            return now;
+        }
+
+        void advanceTo(long millis) {
+            if (millis < now)
+                throw new IllegalArgumentException("Virtual clock cannot go back in time");
+            this.now = millis;
+        }
+    }
+
+    /**
+     * Synthetic jobs of a group: the cron expressions are assigned round robin to the jobs
+     */
+    static final class Workload {
+        private final String group;
+        private final int jobs;
+        private final List<String> cronExpressions;
+        private final ToLongFunction<Random> runTime;
+        private final double failureRate;
+        private final JobMisfirePolicy misfirePolicy;
+
+        /**
+         * @param group job group
+         * @param jobs number of jobs
+         * @param cronExpressions cron mix of the jobs
+         * @param runTime run time distribution in milliseconds
+         * @param failureRate probability that a run fails
+         * @param misfirePolicy what happens to misfired fires, only skip or fire once are modelled
+         */
+        Workload(String group, int jobs, List<String> cronExpressions, ToLongFunction<Random> runTime, double failureRate,
+                 JobMisfirePolicy misfirePolicy) {
+            this.group = group;
+            this.jobs = jobs;
+            this.cronExpressions = cronExpressions;
+            this.runTime = runTime;
+            this.failureRate = failureRate;
+            this.misfirePolicy = misfirePolicy;
+        }
+
+        /**
+         * @return run time uniformly distributed between min and max milliseconds
+         */
+        static ToLongFunction<Random> uniform(long minMillis, long maxMillis) {
+            return random -> minMillis + (long) (random.nextDouble() * (maxMillis - minMillis));
+        }
+
+        /**
+         * @return run time exponentially distributed around the mean, with a long tail
+         */
+        static ToLongFunction<Random> exponential(long meanMillis) {
+            return random -> (long) (-meanMillis * Math.log(1 - random.nextDouble()));
+        }
+    }
+
+    private static final class SimulatedTrigger implements Comparable<SimulatedTrigger> {
+        private final Workload workload;
+        private final CronExpression cronExpression;
+        private long nextFireTime;
+
+        private SimulatedTrigger(Workload workload, CronExpression cronExpression, long nextFireTime) {
+            this.workload = workload;
+            this.cronExpression = cronExpression;
+            this.nextFireTime = nextFireTime;
+        }
+
+        @Override
+        public int compareTo(SimulatedTrigger other) {
+            return Long.compare(nextFireTime, other.nextFireTime);
+        }
+    }
+
+    /**
+     * Outcome of a simulation
+     */
+    static final class Report {
+        private final int workers;
+        private final LatencyHistogram drift = new LatencyHistogram();
+        private final Map<String, LatencyHistogram> latencyByGroup = new TreeMap<>();
+        private long fires;
+        private long misfires;
+        private long failures;
+        private long busyMillis;
+        private long elapsedMillis;
+
+        private Report(int workers) {
+            this.workers = workers;
+        }
+
+        long getFires() {
+            return fires;
+        }
+
+        long getMisfires() {
+            return misfires;
+        }
+
+        long getFailures() {
+            return failures;
+        }
+
+        /**
+         * @return delay between the scheduled fire times and the starts of the runs, in milliseconds
+         */
+        JobSchedulerHistogramSnapshot getDrift() {
+            return drift.snapshot();
+        }
+
+        /**
+         * @return delay between the scheduled fire times and the ends of the runs by group, in milliseconds
+         */
+        Map<String, JobSchedulerHistogramSnapshot> getLatencyByGroup() {
+            Map<String, JobSchedulerHistogramSnapshot> snapshots = new TreeMap<>();
+            latencyByGroup.forEach((group, histogram) -> snapshots.put(group, histogram.snapshot()));
+            return snapshots;
+        }
+
+        /**
+         * @return busy time of the workers over their available time, between 0 and 1
+         */
+        double getPoolUtilization() {
+            return elapsedMillis > 0 ? (double) busyMillis / ((double) workers * elapsedMillis) : 0;
+        }
+
+        @Override
+        public String toString() {
+            JobSchedulerHistogramSnapshot driftSnapshot = getDrift();
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format(Locale.US, "workers=%d fires=%d misfires=%d failures=%d utilization=%.2f drift p50/p99/max=%d/%d/%d ms",
+                    workers, fires, misfires, failures, getPoolUtilization(), driftSnapshot.getP50(), driftSnapshot.getP99(), driftSnapshot.getMax()));
+            getLatencyByGroup().forEach((group, latency) -> sb.append(String.format(Locale.US, "%n  %s latency p50/p90/p99=%d/%d/%d ms",
+                    group, latency.getP50(), latency.getP90(), latency.getP99())));
+            return sb.toString();
+        }
+    }
+}
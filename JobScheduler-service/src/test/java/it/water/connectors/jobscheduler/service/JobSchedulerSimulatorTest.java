@@ -0,0 +1,76 @@
+package it.water.connectors.jobscheduler.service;
+
+import it.water.connectors.jobscheduler.model.JobMisfirePolicy;
+import it.water.connectors.jobscheduler.model.JobSchedulerHistogramSnapshot;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+class JobSchedulerSimulatorTest {
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+
+    @Test
+    void dayOfFiresShouldBeReplayedOnTheVirtualClock() throws Exception {
+        JobSchedulerSimulator.VirtualClock clock = new JobSchedulerSimulator.VirtualClock(midnight());
+        JobSchedulerSimulator simulator = new JobSchedulerSimulator(clock)
+                .workers(10)
+                .workload(new JobSchedulerSimulator.Workload("sensors", 100, Arrays.asList("0 * * * * ?", "30 * * * * ?"),
+                        JobSchedulerSimulator.Workload.uniform(200, 800), 0.01, JobMisfirePolicy.FIRE_ONCE))
+                .workload(new JobSchedulerSimulator.Workload("reports", 20, Collections.singletonList("0 0/15 * * * ?"),
+                        JobSchedulerSimulator.Workload.exponential(10000), 0.05, JobMisfirePolicy.FIRE_ONCE));
+        long start = System.nanoTime();
+
+        JobSchedulerSimulator.Report report = simulator.run(DAY);
+
+        Assertions.assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(30), "a day must be replayed in seconds");
+        Assertions.assertEquals(midnight() + DAY, clock.now());
+        Assertions.assertEquals(100 * 1440 + 20 * 96, report.getFires());
+        Assertions.assertEquals(0, report.getMisfires());
+        Assertions.assertEquals(0.01 * 100 * 1440 + 0.05 * 20 * 96, report.getFailures(), 300);
+        Assertions.assertTrue(report.getPoolUtilization() > 0 && report.getPoolUtilization() < 1);
+        Assertions.assertEquals(2, report.getLatencyByGroup().size());
+        Assertions.assertTrue(report.getLatencyByGroup().get("reports").getP50() > report.getLatencyByGroup().get("sensors").getP50());
+    }
+
+    @Test
+    void undersizedPoolShouldDriftAndMisfire() throws Exception {
+        JobSchedulerSimulator.Report small = simulate(2, 0);
+        JobSchedulerSimulator.Report large = simulate(20, 0);
+
+        Assertions.assertTrue(small.getMisfires() > 0, small::toString);
+        Assertions.assertEquals(0, large.getMisfires(), large::toString);
+        Assertions.assertTrue(small.getDrift().getP99() > large.getDrift().getP99());
+        Assertions.assertTrue(small.getPoolUtilization() > large.getPoolUtilization());
+    }
+
+    @Test
+    void smearShouldReduceTheDriftOfAlignedCrons() throws Exception {
+        JobSchedulerSimulator.Report aligned = simulate(10, 0);
+        JobSchedulerSimulator.Report smeared = simulate(10, 50);
+
+        JobSchedulerHistogramSnapshot alignedDrift = aligned.getDrift();
+        JobSchedulerHistogramSnapshot smearedDrift = smeared.getDrift();
+        Assertions.assertTrue(smearedDrift.getP99() < alignedDrift.getP99(), () -> aligned + "\n" + smeared);
+        Assertions.assertEquals(aligned.getFires(), smeared.getFires());
+    }
+
+    private static JobSchedulerSimulator.Report simulate(int workers, int smearWindowSeconds) throws Exception {
+        return new JobSchedulerSimulator(new JobSchedulerSimulator.VirtualClock(midnight()))
+                .workers(workers)
+                .smearWindowSeconds(smearWindowSeconds)
+                .jobStore(1, 1)
+                .workload(new JobSchedulerSimulator.Workload("batch", 200, Collections.singletonList("0 * * * * ?"),
+                        JobSchedulerSimulator.Workload.uniform(1000, 3000), 0, JobMisfirePolicy.FIRE_ONCE))
+                .run(HOUR);
+    }
+
+    private static long midnight() {
+        return LocalDate.of(2024, 1, 15).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -2,20 +2,39 @@ package it.water.connectors.jobscheduler.service;
 
 import it.water.connectors.jobscheduler.api.JobSchedulerRepository;
 import it.water.connectors.jobscheduler.api.WaterJob;
+import it.water.connectors.jobscheduler.model.JobBatchReport;
+import it.water.connectors.jobscheduler.model.JobFireHistogram;
+import it.water.connectors.jobscheduler.model.JobListQuery;
+import it.water.connectors.jobscheduler.model.JobMisfirePolicy;
+import it.water.connectors.jobscheduler.model.JobSchedulerConnectionPoolSnapshot;
+import it.water.connectors.jobscheduler.model.JobSchedulerReadiness;
+import it.water.connectors.jobscheduler.model.JobSummary;
+import it.water.connectors.jobscheduler.model.JobSchedulerConstants;
+import it.water.connectors.jobscheduler.service.quartz.ResizableThreadPool;
 import it.water.connectors.zookeeper.api.ZookeeperConnectorSystemApi;
 import it.water.core.api.bundle.ApplicationProperties;
+import it.water.core.model.exceptions.WaterRuntimeException;
 import org.apache.curator.framework.recipes.leader.LeaderLatchListener;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.quartz.*;
 import org.quartz.impl.StdSchedulerFactory;
+import org.quartz.impl.jdbcjobstore.JobStoreTX;
+import org.quartz.impl.matchers.GroupMatcher;
+import org.quartz.simpl.RAMJobStore;
 
 import java.lang.reflect.Field;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
@@ -33,6 +52,10 @@ class JobSchedulerSystemServiceImplTest {
     private Scheduler scheduler;
     @Mock
     private StdSchedulerFactory schedulerFactory;
+    @Mock
+    private ListenerManager listenerManager;
+    @Mock
+    private JobSchedulerShardMembership shardMembership;
 
     private JobSchedulerSystemServiceImpl service;
 
@@ -43,11 +66,17 @@ class JobSchedulerSystemServiceImplTest {
             protected StdSchedulerFactory getSchedulerFactory() {
                 return schedulerFactory;
             }
+
+            @Override
+            protected JobSchedulerShardMembership createShardMembership(String connectString, String membershipPath) {
+                return shardMembership;
+            }
         };
         service.setZookeeperConnectorSystemApi(zookeeperConnectorSystemApi);
         service.setRepository(repository);
         service.setJobSchedulerLeadershipRegistrar(leadershipRegistrar);
         setPrivateField(service, "scheduler", scheduler);
+        lenient().when(scheduler.getListenerManager()).thenReturn(listenerManager);
     }
 
     @Test
@@ -111,7 +140,7 @@ class JobSchedulerSystemServiceImplTest {
         JobKey jobKey = new JobKey("j5", "g5");
         WaterJob job = mockJob(jobKey, true, "0 0/5 * * * ?");
         TriggerKey triggerKey = new TriggerKey("j5", "g5");
-        when(scheduler.checkExists(jobKey)).thenReturn(true);
+        when(scheduler.getJobDetail(jobKey)).thenReturn(storedJobDetail(jobKey));
         when(scheduler.checkExists(triggerKey)).thenReturn(false);
 
         service.updateJob(job);
@@ -128,7 +157,7 @@ class JobSchedulerSystemServiceImplTest {
         Trigger oldTrigger = mock(Trigger.class);
         TriggerBuilder<?> builder = TriggerBuilder.newTrigger().withIdentity(triggerKey);
         when(oldTrigger.getTriggerBuilder()).thenReturn((TriggerBuilder) builder);
-        when(scheduler.checkExists(jobKey)).thenReturn(true);
+        when(scheduler.getJobDetail(jobKey)).thenReturn(storedJobDetail(jobKey));
         when(scheduler.checkExists(triggerKey)).thenReturn(true);
         when(scheduler.getTrigger(triggerKey)).thenReturn(oldTrigger);
 
@@ -142,7 +171,7 @@ class JobSchedulerSystemServiceImplTest {
         JobKey jobKey = new JobKey("j7", "g7");
         WaterJob job = mockJob(jobKey, false, "0 0/5 * * * ?");
         TriggerKey triggerKey = new TriggerKey("j7", "g7");
-        when(scheduler.checkExists(jobKey)).thenReturn(true);
+        when(scheduler.getJobDetail(jobKey)).thenReturn(storedJobDetail(jobKey));
         when(scheduler.checkExists(triggerKey)).thenReturn(true);
 
         service.updateJob(job);
@@ -156,7 +185,7 @@ class JobSchedulerSystemServiceImplTest {
         JobKey jobKey = new JobKey("j8", "g8");
         WaterJob job = mockJob(jobKey, false, "0 0/5 * * * ?");
         TriggerKey triggerKey = new TriggerKey("j8", "g8");
-        when(scheduler.checkExists(jobKey)).thenReturn(true);
+        when(scheduler.getJobDetail(jobKey)).thenReturn(storedJobDetail(jobKey));
         when(scheduler.checkExists(triggerKey)).thenReturn(false);
 
         service.updateJob(job);
@@ -168,7 +197,7 @@ class JobSchedulerSystemServiceImplTest {
     void updateJobShouldHandleMissingJob() throws Exception {
         JobKey jobKey = new JobKey("j9", "g9");
         WaterJob job = mockJob(jobKey, true, "0 0/5 * * * ?");
-        when(scheduler.checkExists(jobKey)).thenReturn(false);
+        when(scheduler.getJobDetail(jobKey)).thenReturn(null);
 
         service.updateJob(job);
 
@@ -179,10 +208,81 @@ class JobSchedulerSystemServiceImplTest {
     void updateJobShouldThrowWhenSchedulerFails() throws Exception {
         JobKey jobKey = new JobKey("j10", "g10");
         WaterJob job = mockJob(jobKey, true, "0 0/5 * * * ?");
-        when(scheduler.checkExists(jobKey)).thenThrow(new SchedulerException("boom"));
+        when(scheduler.getJobDetail(jobKey)).thenThrow(new SchedulerException("boom"));
         Assertions.assertThrows(RuntimeException.class, () -> service.updateJob(job));
     }
 
+    @Test
+    void updateJobShouldSkipWritesWhenJobIsUnchanged() throws Exception {
+        JobKey jobKey = new JobKey("j13", "g13");
+        WaterJob job = mockJob(jobKey, true, "0 0/5 * * * ?");
+        TriggerKey triggerKey = new TriggerKey("j13", "g13");
+        when(scheduler.getJobDetail(jobKey)).thenReturn(JobBuilder.newJob(NoOpQuartzJob.class).withIdentity(jobKey).build());
+        when(scheduler.getTrigger(triggerKey)).thenReturn(storedCronTrigger(jobKey, "0 0/5 * * * ?"));
+        when(scheduler.getTriggerState(triggerKey)).thenReturn(Trigger.TriggerState.NORMAL);
+
+        service.updateJob(job);
+
+        verify(scheduler, never()).addJob(any(JobDetail.class), anyBoolean());
+        verify(scheduler, never()).rescheduleJob(any(TriggerKey.class), any(Trigger.class));
+        Assertions.assertEquals(1, service.getMetrics().getUnchangedUpdates());
+        Assertions.assertEquals(0, service.getMetrics().getAppliedUpdates());
+    }
+
+    @Test
+    void updateJobShouldSkipWritesWhenInactiveJobIsUnchanged() throws Exception {
+        JobKey jobKey = new JobKey("j14", "g14");
+        WaterJob job = mockJob(jobKey, false, "0 0/5 * * * ?");
+        when(scheduler.getJobDetail(jobKey)).thenReturn(JobBuilder.newJob(NoOpQuartzJob.class).withIdentity(jobKey).build());
+
+        service.updateJob(job);
+
+        verify(scheduler, never()).addJob(any(JobDetail.class), anyBoolean());
+        verify(scheduler, never()).unscheduleJob(any(TriggerKey.class));
+        Assertions.assertEquals(1, service.getMetrics().getUnchangedUpdates());
+    }
+
+    @Test
+    void updateJobShouldApplyWhenCronOrTriggerStateChanges() throws Exception {
+        JobKey jobKey = new JobKey("j15", "g15");
+        WaterJob job = mockJob(jobKey, true, "0 0/5 * * * ?");
+        TriggerKey triggerKey = new TriggerKey("j15", "g15");
+        when(scheduler.getJobDetail(jobKey)).thenReturn(JobBuilder.newJob(NoOpQuartzJob.class).withIdentity(jobKey).build());
+        when(scheduler.getTrigger(triggerKey))
+                .thenReturn(storedCronTrigger(jobKey, "0 0/10 * * * ?"))
+                .thenReturn(storedCronTrigger(jobKey, "0 0/5 * * * ?"));
+        when(scheduler.getTriggerState(triggerKey)).thenReturn(Trigger.TriggerState.ERROR);
+        when(scheduler.checkExists(triggerKey)).thenReturn(true);
+
+        service.updateJob(job);
+        service.updateJob(job);
+
+        verify(scheduler, times(2)).addJob(job.getJobDetail(), true);
+        verify(scheduler, times(2)).rescheduleJob(eq(triggerKey), any(Trigger.class));
+        Assertions.assertEquals(2, service.getMetrics().getAppliedUpdates());
+        Assertions.assertEquals(0, service.getMetrics().getUnchangedUpdates());
+    }
+
+    @Test
+    void updateJobShouldApplyWhenJobDataChanges() throws Exception {
+        JobKey jobKey = new JobKey("j16", "g16");
+        WaterJob job = mockJob(jobKey, true, "0 0/5 * * * ?");
+        TriggerKey triggerKey = new TriggerKey("j16", "g16");
+        // the previous data differs only by a millisecond, which the string form of dates does not show
+        JobDetail storedJobDetail = JobBuilder.newJob(NoOpQuartzJob.class).withIdentity(jobKey).build();
+        storedJobDetail.getJobDataMap().put("since", new Date(1000));
+        job.getJobDetail().getJobDataMap().put("since", new Date(1001));
+        when(scheduler.getJobDetail(jobKey)).thenReturn(storedJobDetail);
+        when(scheduler.getTrigger(triggerKey)).thenReturn(storedCronTrigger(jobKey, "0 0/5 * * * ?"));
+        when(scheduler.checkExists(triggerKey)).thenReturn(true);
+
+        service.updateJob(job);
+
+        verify(scheduler).addJob(job.getJobDetail(), true);
+        verify(scheduler).rescheduleJob(eq(triggerKey), any(Trigger.class));
+        Assertions.assertEquals(1, service.getMetrics().getAppliedUpdates());
+    }
+
     @Test
     void deleteJobShouldThrowWhenKeyIsNull() {
         WaterJob job = mock(WaterJob.class);
@@ -244,9 +344,138 @@ class JobSchedulerSystemServiceImplTest {
         when(zookeeperConnectorSystemApi.isLeader("/test/path")).thenReturn(true);
 
         service.onActivate(props);
+        Assertions.assertTrue(service.awaitReady(5000));
 
-        verify(repository).createQuartzTableIfNotExists(any());
+        verify(repository).createQuartzTableIfNotExists(any(), any(Properties.class));
         verify(scheduler).start();
+        // the metrics job listener is wrapped by the async job tracker, so that it sees asynchronous jobs complete
+        verify(listenerManager).addJobListener(argThat(listener -> JobSchedulerMetrics.LISTENER_NAME.equals(listener.getName())));
+        verify(listenerManager).addJobListener(any(AsyncJobTracker.class));
+        verify(listenerManager).addTriggerListener(any(JobSchedulerMetrics.class));
+        verify(listenerManager).addSchedulerListener(any(JobSchedulerMetrics.class));
+    }
+
+    @Test
+    void getMetricsShouldReportPoolSize() throws Exception {
+        SchedulerMetaData metaData = mock(SchedulerMetaData.class);
+        when(metaData.getThreadPoolSize()).thenReturn(10);
+        when(scheduler.getMetaData()).thenReturn(metaData);
+
+        Assertions.assertEquals(10, service.getMetrics().getPoolSize());
+        Assertions.assertEquals(10, service.getMetrics().getIdleThreads());
+        Assertions.assertEquals(-1, service.getMetrics().getLastTakeoverLatencyMillis());
+        Assertions.assertNull(service.getMetrics().getConnectionPool());
+    }
+
+    @Test
+    void schedulerFactoryShouldPoolTheJdbcDataSource() throws Exception {
+        String instanceName = "pooledService-" + UUID.randomUUID();
+        Properties quartzProps = new Properties();
+        quartzProps.setProperty("org.quartz.scheduler.instanceName", instanceName);
+        quartzProps.setProperty("org.quartz.scheduler.skipUpdateCheck", "true");
+        quartzProps.setProperty("org.quartz.threadPool.threadCount", "1");
+        quartzProps.setProperty("org.quartz.jobStore.class", "org.quartz.impl.jdbcjobstore.JobStoreTX");
+        quartzProps.setProperty("org.quartz.jobStore.driverDelegateClass", "org.quartz.impl.jdbcjobstore.PostgreSQLDelegate");
+        quartzProps.setProperty("org.quartz.jobStore.dataSource", "pooledService");
+        quartzProps.setProperty("org.quartz.dataSource.pooledService.driver", "org.h2.Driver");
+        quartzProps.setProperty("org.quartz.dataSource.pooledService.URL", "jdbc:h2:mem:" + instanceName + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1");
+        quartzProps.setProperty("org.quartz.dataSource.pooledService.user", "sa");
+        quartzProps.setProperty("org.quartz.dataSource.pooledService.password", "");
+        quartzProps.setProperty("org.quartz.dataSource.pooledService.maxConnections", "3");
+        new JobSchedulerRepositoryImpl().createQuartzTableIfNotExists(null, quartzProps);
+        JobSchedulerSystemServiceImpl pooledService = new JobSchedulerSystemServiceImpl();
+        setPrivateField(pooledService, "quartzProps", quartzProps);
+        setPrivateField(pooledService, "jobschedulerProps", new Properties());
+
+        Scheduler jdbcScheduler = pooledService.getSchedulerFactory().getScheduler();
+        setPrivateField(pooledService, "scheduler", jdbcScheduler);
+        try {
+            jdbcScheduler.addJob(JobBuilder.newJob(NoOpQuartzJob.class).withIdentity("pooled", "g1").storeDurably().build(), false);
+            Assertions.assertTrue(jdbcScheduler.checkExists(new JobKey("pooled", "g1")));
+
+            JobSchedulerConnectionPoolSnapshot pool = pooledService.getMetrics().getConnectionPool();
+            Assertions.assertNotNull(pool);
+            Assertions.assertEquals(3, pool.getMaxConnections());
+            Assertions.assertTrue(pool.getCheckouts() > 0);
+            Assertions.assertEquals(0, pool.getActiveConnections());
+        } finally {
+            jdbcScheduler.shutdown();
+        }
+    }
+
+    @Test
+    void getNextFireTimesShouldUseCronExpression() {
+        List<Date> fireTimes = service.getNextFireTimes("0 0 12 * * ?", 3);
+
+        Assertions.assertEquals(3, fireTimes.size());
+        Assertions.assertTrue(fireTimes.get(0).after(new Date()));
+        Assertions.assertEquals(24 * 3600 * 1000L, fireTimes.get(1).getTime() - fireTimes.get(0).getTime(), 3600 * 1000L);
+        Assertions.assertThrows(WaterRuntimeException.class, () -> service.getNextFireTimes("INVALID_CRON", 3));
+    }
+
+    @Test
+    void setJobDependenciesShouldRejectCycles() {
+        JobKey extract = new JobKey("extract", "pipeline");
+        JobKey load = new JobKey("load", "pipeline");
+        service.setJobDependencies(load, Collections.singleton(extract));
+        Assertions.assertEquals(Collections.singleton(extract), service.getJobDependencies(load));
+
+        List<JobKey> cycle = Collections.singletonList(load);
+        Assertions.assertThrows(WaterRuntimeException.class, () -> service.setJobDependencies(extract, cycle));
+        Assertions.assertTrue(service.getJobDependencies(extract).isEmpty());
+    }
+
+    @Test
+    void setJobDependenciesShouldBeRejectedWhenJobsMayRunOnDifferentNodes() throws Exception {
+        JobKey extract = new JobKey("extract", "pipeline");
+        JobKey load = new JobKey("load", "pipeline");
+        List<JobKey> upstream = Collections.singletonList(extract);
+        Properties quartzProps = new Properties();
+        quartzProps.setProperty("org.quartz.jobStore.isClustered", "true");
+        setPrivateField(service, "quartzProps", quartzProps);
+        Assertions.assertThrows(WaterRuntimeException.class, () -> service.setJobDependencies(load, upstream));
+
+        Properties jobschedulerProps = new Properties();
+        jobschedulerProps.setProperty(JobSchedulerConstants.JOB_SCHEDULER_SHARDING_PARTITIONS, "4");
+        setPrivateField(service, "quartzProps", new Properties());
+        setPrivateField(service, "jobschedulerProps", jobschedulerProps);
+        Assertions.assertThrows(WaterRuntimeException.class, () -> service.setJobDependencies(load, upstream));
+        Assertions.assertTrue(service.getJobDependencies(load).isEmpty());
+        // removing dependencies is always allowed
+        service.setJobDependencies(load, Collections.emptySet());
+    }
+
+    @Test
+    void fireShouldRejectUnknownJobs() throws SchedulerException {
+        JobKey jobKey = new JobKey("missing", "events");
+        when(scheduler.checkExists(jobKey)).thenReturn(false);
+        Map<String, Object> payload = Collections.singletonMap("id", 1);
+
+        Assertions.assertThrows(WaterRuntimeException.class, () -> service.fire(jobKey, payload));
+    }
+
+    @Test
+    void resizeThreadPoolShouldRequireResizablePool() throws SchedulerException {
+        when(scheduler.getSchedulerName()).thenReturn("fixed-" + UUID.randomUUID());
+
+        Assertions.assertThrows(WaterRuntimeException.class, () -> service.resizeThreadPool(20));
+    }
+
+    @Test
+    void resizeThreadPoolShouldBeRejectedWithJobGroupBudgets() throws Exception {
+        String schedulerName = "budgets-" + UUID.randomUUID();
+        ResizableThreadPool pool = new ResizableThreadPool();
+        pool.setInstanceName(schedulerName);
+        pool.initialize();
+        try {
+            when(scheduler.getSchedulerName()).thenReturn(schedulerName);
+            setPrivateField(service, "bulkhead", new JobSchedulerBulkhead(10, Collections.singletonMap("reports", 2), Collections.singletonMap("reports", 1)));
+
+            Assertions.assertThrows(WaterRuntimeException.class, () -> service.resizeThreadPool(20));
+            Assertions.assertEquals(10, pool.getPoolSize());
+        } finally {
+            pool.shutdown(false);
+        }
     }
 
     @Test
@@ -256,6 +485,7 @@ class JobSchedulerSystemServiceImplTest {
         when(leadershipRegistrar.getLeadershipPath()).thenReturn("/layer/jobs/quartz/executor");
 
         service.onActivate(props);
+        Assertions.assertTrue(service.awaitReady(5000));
 
         ArgumentCaptor<LeaderLatchListener> listenerCaptor = ArgumentCaptor.forClass(LeaderLatchListener.class);
         verify(zookeeperConnectorSystemApi).addListener(listenerCaptor.capture(), eq("/layer/jobs/quartz/executor"));
@@ -266,6 +496,7 @@ class JobSchedulerSystemServiceImplTest {
 
         verify(scheduler, atLeastOnce()).start();
         verify(scheduler).standby();
+        Assertions.assertTrue(service.getLastTakeoverLatencyMillis() >= 0);
     }
 
     @Test
@@ -277,6 +508,7 @@ class JobSchedulerSystemServiceImplTest {
         doThrow(new SchedulerException("boom")).when(scheduler).standby();
 
         service.onActivate(props);
+        Assertions.assertTrue(service.awaitReady(5000));
 
         ArgumentCaptor<LeaderLatchListener> listenerCaptor = ArgumentCaptor.forClass(LeaderLatchListener.class);
         verify(zookeeperConnectorSystemApi).addListener(listenerCaptor.capture(), eq("/layer/jobs/quartz/executor"));
@@ -289,6 +521,321 @@ class JobSchedulerSystemServiceImplTest {
         verify(scheduler).standby();
     }
 
+    @Test
+    void onActivateShouldStartEveryNodeInShardedMode() throws Exception {
+        ApplicationProperties props = shardedProperties();
+        SchedulerMetaData metaData = mock(SchedulerMetaData.class);
+        doReturn(RAMJobStore.class).when(metaData).getJobStoreClass();
+        when(scheduler.getMetaData()).thenReturn(metaData);
+        when(schedulerFactory.getScheduler()).thenReturn(scheduler);
+        when(leadershipRegistrar.getMembershipPath()).thenReturn("/layer/jobs/quartz/members");
+        when(shardMembership.getMembers()).thenAnswer(invocation -> new TreeSet<>(Collections.singleton(getPrivateField(service, "nodeId"))));
+
+        service.onActivate(props);
+        Assertions.assertTrue(service.awaitReady(5000));
+
+        verify(listenerManager).addTriggerListener(any(JobSchedulerShardManager.class));
+        verify(shardMembership).start();
+        verify(zookeeperConnectorSystemApi, never()).addListener(any(LeaderLatchListener.class), anyString());
+        verify(scheduler).start();
+        JobSchedulerShardManager shardManager = (JobSchedulerShardManager) getPrivateField(service, "shardManager");
+        Assertions.assertEquals(2, shardManager.getOwnedPartitions().size());
+        service.onDeactivate();
+        verify(shardMembership).close();
+    }
+
+    @Test
+    void shardedModeShouldBeRefusedOnJdbcJobStores() throws Exception {
+        ApplicationProperties props = shardedProperties();
+        SchedulerMetaData metaData = mock(SchedulerMetaData.class);
+        doReturn(JobStoreTX.class).when(metaData).getJobStoreClass();
+        when(scheduler.getMetaData()).thenReturn(metaData);
+        when(schedulerFactory.getScheduler()).thenReturn(scheduler);
+
+        service.onActivate(props);
+
+        Assertions.assertFalse(service.awaitReady(5000));
+        Assertions.assertEquals(JobSchedulerReadiness.FAILED, service.getReadiness());
+        verify(scheduler, never()).start();
+    }
+
+    private static ApplicationProperties shardedProperties() {
+        ApplicationProperties props = mock(ApplicationProperties.class);
+        lenient().when(props.getPropertyOrDefault(JobSchedulerConstants.JOB_SCHEDULER_SHARDING_PARTITIONS, (String) null)).thenReturn("2");
+        lenient().when(props.getPropertyOrDefault(JobSchedulerConstants.JOB_SCHEDULER_SHARDING_ZOOKEEPER, (String) null)).thenReturn("localhost:2181");
+        return props;
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void jobsAddedDuringStartupShouldBeQueuedAndAddedAsBatch() throws Exception {
+        ApplicationProperties props = mock(ApplicationProperties.class);
+        CountDownLatch bootstrap = new CountDownLatch(1);
+        doAnswer(invocation -> bootstrap.await(5, TimeUnit.SECONDS)).when(repository).createQuartzTableIfNotExists(any(), any(Properties.class));
+        when(schedulerFactory.getScheduler()).thenReturn(scheduler);
+        when(leadershipRegistrar.getLeadershipPath()).thenReturn("/layer/jobs/quartz/executor");
+        when(zookeeperConnectorSystemApi.isLeader("/layer/jobs/quartz/executor")).thenReturn(true);
+        WaterJob single = mockJob(new JobKey("q1", "startup"), true, "0 0/5 * * * ?");
+        WaterJob batched = mockJob(new JobKey("q2", "startup"), false, "0 0/5 * * * ?");
+
+        service.onActivate(props);
+        Assertions.assertEquals(JobSchedulerReadiness.STARTING, service.getReadiness());
+        service.addJob(single);
+        JobBatchReport report = service.addJobs(Collections.singletonList(batched));
+        Assertions.assertEquals(1, report.count(JobBatchReport.Outcome.QUEUED));
+        Assertions.assertThrows(WaterRuntimeException.class, () -> service.deleteJob(single));
+        verify(scheduler, never()).checkExists(any(JobKey.class));
+        bootstrap.countDown();
+
+        Assertions.assertTrue(service.awaitReady(5000));
+        Assertions.assertEquals(JobSchedulerReadiness.READY, service.getReadiness());
+        ArgumentCaptor<Map<JobDetail, Set<? extends Trigger>>> jobsCaptor = ArgumentCaptor.forClass(Map.class);
+        InOrder inOrder = inOrder(scheduler);
+        inOrder.verify(scheduler).scheduleJobs(jobsCaptor.capture(), eq(false));
+        inOrder.verify(scheduler).start();
+        Assertions.assertEquals(2, jobsCaptor.getValue().size());
+        verify(scheduler, never()).addJob(any(JobDetail.class), anyBoolean());
+    }
+
+    @Test
+    void readinessShouldReportFailedInitialization() throws Exception {
+        ApplicationProperties props = mock(ApplicationProperties.class);
+        when(schedulerFactory.getScheduler()).thenThrow(new SchedulerException("boom"));
+        WaterJob job = mockJob(new JobKey("f1", "startup"), true, "0 0/5 * * * ?");
+
+        service.onActivate(props);
+
+        Assertions.assertFalse(service.awaitReady(5000));
+        Assertions.assertEquals(JobSchedulerReadiness.FAILED, service.getReadiness());
+        Assertions.assertThrows(WaterRuntimeException.class, () -> service.addJob(job));
+        service.onDeactivate();
+        Assertions.assertEquals(JobSchedulerReadiness.STOPPED, service.getReadiness());
+    }
+
+    @Test
+    void synchronousActivationShouldBeReadyOnReturn() throws Exception {
+        ApplicationProperties props = mock(ApplicationProperties.class);
+        lenient().when(props.getPropertyOrDefault(JobSchedulerConstants.JOB_SCHEDULER_ACTIVATION_ASYNC, (String) null)).thenReturn("false");
+        when(schedulerFactory.getScheduler()).thenReturn(scheduler);
+        when(leadershipRegistrar.getLeadershipPath()).thenReturn("/layer/jobs/quartz/executor");
+
+        service.onActivate(props);
+
+        Assertions.assertEquals(JobSchedulerReadiness.READY, service.getReadiness());
+    }
+
+    @Test
+    void warmStandbyShouldReplayJobsWrittenByOtherNodes(@TempDir Path tempDir) throws Exception {
+        Path logPath = tempDir.resolve("replication.log");
+        new JobSchedulerReplicationLog(logPath).append(ReplicatedJob.upsert("other-node", mockJob(new JobKey("r1", "g"), true, "0 0/5 * * * ?")));
+        ApplicationProperties props = mock(ApplicationProperties.class);
+        lenient().when(props.getPropertyOrDefault(JobSchedulerConstants.JOB_SCHEDULER_STANDBY_WARM, (String) null)).thenReturn("true");
+        lenient().when(props.getPropertyOrDefault(JobSchedulerConstants.JOB_SCHEDULER_STANDBY_LOG_PATH, (String) null)).thenReturn(logPath.toString());
+        when(schedulerFactory.getScheduler()).thenReturn(scheduler);
+        when(leadershipRegistrar.getLeadershipPath()).thenReturn("/layer/jobs/quartz/executor");
+
+        service.onActivate(props);
+        Assertions.assertTrue(service.awaitReady(5000));
+        try {
+            verify(scheduler).scheduleJobs(argThat(map -> map.keySet().stream().anyMatch(d -> d.getKey().equals(new JobKey("r1", "g")))), eq(true));
+            Assertions.assertEquals(-1, service.getLastTakeoverLatencyMillis());
+        } finally {
+            service.onDeactivate();
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void addJobsShouldStoreNewJobsWithSingleOperation() throws Exception {
+        WaterJob existing = mockJob(new JobKey("b1", "batch"), true, "0 0/5 * * * ?");
+        WaterJob active = mockJob(new JobKey("b2", "batch"), true, "0 0/5 * * * ?");
+        WaterJob inactive = mockJob(new JobKey("b3", "batch"), false, "0 0/5 * * * ?");
+        WaterJob invalid = mockJob(new JobKey("b4", "batch"), true, "INVALID_CRON");
+        when(scheduler.getJobKeys(GroupMatcher.jobGroupEquals("batch"))).thenReturn(Collections.singleton(new JobKey("b1", "batch")));
+
+        JobBatchReport report = service.addJobs(Arrays.asList(existing, active, inactive, invalid));
+
+        ArgumentCaptor<Map<JobDetail, Set<? extends Trigger>>> captor = ArgumentCaptor.forClass(Map.class);
+        verify(scheduler).scheduleJobs(captor.capture(), eq(false));
+        Assertions.assertEquals(2, captor.getValue().size());
+        Assertions.assertEquals(1, captor.getValue().get(active.getJobDetail()).size());
+        Assertions.assertTrue(captor.getValue().get(inactive.getJobDetail()).isEmpty());
+        Assertions.assertEquals(2, report.count(JobBatchReport.Outcome.ADDED));
+        Assertions.assertEquals(1, report.count(JobBatchReport.Outcome.SKIPPED));
+        Assertions.assertEquals(1, report.count(JobBatchReport.Outcome.FAILED));
+        verify(scheduler, never()).checkExists(any(JobKey.class));
+    }
+
+    @Test
+    void addJobsShouldReportFailureWhenStoreFails() throws Exception {
+        WaterJob job = mockJob(new JobKey("b5", "batch"), true, "0 0/5 * * * ?");
+        when(scheduler.getJobKeys(any())).thenReturn(Collections.emptySet());
+        doThrow(new SchedulerException("boom")).when(scheduler).scheduleJobs(anyMap(), anyBoolean());
+
+        JobBatchReport report = service.addJobs(Collections.singletonList(job));
+
+        Assertions.assertFalse(report.isSuccessful());
+        Assertions.assertEquals("boom", report.getErrors().get("batch.b5"));
+    }
+
+    @Test
+    void updateJobsShouldReplaceExistingJobsAndUnscheduleInactive() throws Exception {
+        WaterJob active = mockJob(new JobKey("u1", "batch"), true, "0 0/5 * * * ?");
+        WaterJob inactive = mockJob(new JobKey("u2", "batch"), false, "0 0/5 * * * ?");
+        WaterJob missing = mockJob(new JobKey("u3", "batch"), true, "0 0/5 * * * ?");
+        when(scheduler.getJobKeys(GroupMatcher.jobGroupEquals("batch")))
+                .thenReturn(new HashSet<>(Arrays.asList(new JobKey("u1", "batch"), new JobKey("u2", "batch"))));
+        when(scheduler.getTriggerKeys(GroupMatcher.triggerGroupEquals("batch")))
+                .thenReturn(Collections.singleton(new TriggerKey("u2", "batch")));
+
+        JobBatchReport report = service.updateJobs(Arrays.asList(active, inactive, missing));
+
+        verify(scheduler).scheduleJobs(anyMap(), eq(true));
+        verify(scheduler).unscheduleJobs(Collections.singletonList(new TriggerKey("u2", "batch")));
+        Assertions.assertEquals(2, report.count(JobBatchReport.Outcome.UPDATED));
+        Assertions.assertEquals(JobBatchReport.Outcome.SKIPPED, report.getOutcomes().get("batch.u3"));
+    }
+
+    @Test
+    void updateJobsShouldReportUnchangedJobs() throws Exception {
+        JobKey unchangedKey = new JobKey("u4", "batch");
+        WaterJob unchanged = mockJob(unchangedKey, true, "0 0/5 * * * ?");
+        WaterJob changed = mockJob(new JobKey("u5", "batch"), true, "0 0/5 * * * ?");
+        when(scheduler.getJobKeys(GroupMatcher.jobGroupEquals("batch")))
+                .thenReturn(new HashSet<>(Arrays.asList(unchangedKey, new JobKey("u5", "batch"))));
+        when(scheduler.getTriggerKeys(GroupMatcher.triggerGroupEquals("batch"))).thenReturn(Collections.singleton(new TriggerKey("u4", "batch")));
+        when(scheduler.getTrigger(new TriggerKey("u4", "batch"))).thenReturn(storedCronTrigger(unchangedKey, "0 0/5 * * * ?"));
+        when(scheduler.getJobDetail(unchangedKey)).thenReturn(JobBuilder.newJob(NoOpQuartzJob.class).withIdentity(unchangedKey).build());
+
+        JobBatchReport report = service.updateJobs(Arrays.asList(unchanged, changed));
+
+        ArgumentCaptor<Map<JobDetail, Set<? extends Trigger>>> jobsCaptor = ArgumentCaptor.forClass(Map.class);
+        verify(scheduler).scheduleJobs(jobsCaptor.capture(), eq(true));
+        //the changed job has no trigger and is not loaded at all
+        verify(scheduler, never()).getJobDetail(new JobKey("u5", "batch"));
+        verify(scheduler, never()).getTrigger(new TriggerKey("u5", "batch"));
+        Assertions.assertEquals(Collections.singleton(changed.getJobDetail()), jobsCaptor.getValue().keySet());
+        Assertions.assertEquals(JobBatchReport.Outcome.UNCHANGED, report.getOutcomes().get("batch.u4"));
+        Assertions.assertEquals(JobBatchReport.Outcome.UPDATED, report.getOutcomes().get("batch.u5"));
+        Assertions.assertEquals(1, service.getMetrics().getAppliedUpdates());
+        Assertions.assertEquals(1, service.getMetrics().getUnchangedUpdates());
+    }
+
+    @Test
+    void updateJobsShouldKeepSettingsOfTheStoredTrigger() throws Exception {
+        JobKey jobKey = new JobKey("u6", "batch");
+        TriggerKey triggerKey = new TriggerKey("u6", "batch");
+        WaterJob job = mockJob(jobKey, true, "0 0/5 * * * ?");
+        Trigger storedTrigger = storedCronTrigger(jobKey, "0 0/10 * * * ?").getTriggerBuilder()
+                .withPriority(8).withDescription("managed elsewhere").build();
+        when(scheduler.getJobKeys(GroupMatcher.jobGroupEquals("batch"))).thenReturn(Collections.singleton(jobKey));
+        when(scheduler.getTriggerKeys(GroupMatcher.triggerGroupEquals("batch"))).thenReturn(Collections.singleton(triggerKey));
+        when(scheduler.getTrigger(triggerKey)).thenReturn(storedTrigger);
+
+        service.updateJobs(Collections.singletonList(job));
+
+        ArgumentCaptor<Map<JobDetail, Set<? extends Trigger>>> jobsCaptor = ArgumentCaptor.forClass(Map.class);
+        verify(scheduler).scheduleJobs(jobsCaptor.capture(), eq(true));
+        CronTrigger trigger = (CronTrigger) jobsCaptor.getValue().get(job.getJobDetail()).iterator().next();
+        Assertions.assertEquals("0 0/5 * * * ?", trigger.getCronExpression());
+        Assertions.assertEquals(8, trigger.getPriority());
+        Assertions.assertEquals("managed elsewhere", trigger.getDescription());
+    }
+
+    @Test
+    void listJobsShouldPageInMemoryJobStoreWithFilters() throws Exception {
+        Properties props = new Properties();
+        props.setProperty("org.quartz.scheduler.instanceName", "listJobs-" + UUID.randomUUID());
+        props.setProperty("org.quartz.scheduler.skipUpdateCheck", "true");
+        props.setProperty("org.quartz.threadPool.threadCount", "1");
+        Scheduler ramScheduler = new StdSchedulerFactory(props).getScheduler();
+        setPrivateField(service, "scheduler", ramScheduler);
+        try {
+            for (int i = 0; i < 4; i++) {
+                JobKey jobKey = new JobKey("job" + i, i % 2 == 0 ? "even" : "odd");
+                ramScheduler.scheduleJob(JobBuilder.newJob(NoOpQuartzJob.class).withIdentity(jobKey).build(),
+                        storedCronTrigger(jobKey, "0 0 12 * * ?"));
+            }
+            ramScheduler.pauseJob(new JobKey("job1", "odd"));
+
+            List<String> keys = new ArrayList<>();
+            String cursor = null;
+            do {
+                cursor = service.listJobs(new JobListQuery(null, null, null, cursor, 3), job -> keys.add(job.getJobGroup() + "." + job.getJobName()));
+            } while (cursor != null);
+            Assertions.assertEquals(Arrays.asList("even.job0", "even.job2", "odd.job1", "odd.job3"), keys);
+
+            List<JobSummary> paused = new ArrayList<>();
+            Assertions.assertNull(service.listJobs(new JobListQuery(null, "PAUSED", null, null, 10), paused::add));
+            Assertions.assertEquals(1, paused.size());
+            Assertions.assertEquals("job1", paused.get(0).getJobName());
+            Assertions.assertEquals("0 0 12 * * ?", paused.get(0).getCronExpression());
+
+            List<JobSummary> even = new ArrayList<>();
+            service.listJobs(new JobListQuery("even", null, System.currentTimeMillis() + 2 * 24 * 3600 * 1000L, null, 10), even::add);
+            Assertions.assertEquals(2, even.size());
+            Assertions.assertThrows(WaterRuntimeException.class, () -> service.listJobs(new JobListQuery(null, "SLEEPING", null, null, 10), job -> { }));
+        } finally {
+            ramScheduler.shutdown();
+        }
+    }
+
+    @Test
+    void cronSmearShouldSpreadJobsSharingAnExpression() throws Exception {
+        Properties props = new Properties();
+        props.setProperty("org.quartz.scheduler.instanceName", "smear-" + UUID.randomUUID());
+        props.setProperty("org.quartz.scheduler.skipUpdateCheck", "true");
+        props.setProperty("org.quartz.threadPool.threadCount", "1");
+        Scheduler ramScheduler = new StdSchedulerFactory(props).getScheduler();
+        setPrivateField(service, "scheduler", ramScheduler);
+        setPrivateField(service, "cronSmearWindowSeconds", 600);
+        try {
+            List<WaterJob> jobs = new ArrayList<>();
+            for (int i = 0; i < 200; i++)
+                jobs.add(mockJob(new JobKey("hourly" + i, "smear"), true, "0 0 * * * ?"));
+            service.addJobs(jobs);
+
+            JobFireHistogram histogram = service.getFireHistogram(3600);
+            Assertions.assertEquals(200, histogram.getTotalFires());
+            Assertions.assertTrue(histogram.getFiresBySecond().size() > 100);
+            Assertions.assertTrue(histogram.getMaxFiresPerSecond() <= 10);
+            Assertions.assertNotNull(histogram.getPeakSecond());
+            // smeared triggers are recognized as up to date
+            JobBatchReport report = service.updateJobs(jobs.subList(0, 5));
+            Assertions.assertEquals(5, report.count(JobBatchReport.Outcome.UNCHANGED));
+        } finally {
+            ramScheduler.shutdown();
+        }
+    }
+
+    @Test
+    void listJobsShouldUseRepositoryOnJdbcJobStore() throws Exception {
+        Properties quartzProps = new Properties();
+        quartzProps.setProperty("org.quartz.jobStore.dataSource", "water");
+        setPrivateField(service, "quartzProps", quartzProps);
+        when(scheduler.getSchedulerName()).thenReturn("water");
+        JobListQuery query = new JobListQuery(null, null, null, null, 10);
+        when(repository.findJobs(eq(quartzProps), eq("water"), eq(query), any())).thenReturn("next");
+
+        Assertions.assertEquals("next", service.listJobs(query, job -> { }));
+    }
+
+    @Test
+    void deleteJobsShouldDeleteExistingJobsWithSingleOperation() throws Exception {
+        WaterJob existing = mock(WaterJob.class);
+        WaterJob missing = mock(WaterJob.class);
+        when(existing.getJobKey()).thenReturn(new JobKey("d1", "batch"));
+        when(missing.getJobKey()).thenReturn(new JobKey("d2", "batch"));
+        when(scheduler.getJobKeys(GroupMatcher.jobGroupEquals("batch")))
+                .thenReturn(new HashSet<>(Collections.singletonList(new JobKey("d1", "batch"))));
+
+        JobBatchReport report = service.deleteJobs(Arrays.asList(existing, missing));
+
+        verify(scheduler).deleteJobs(Collections.singletonList(new JobKey("d1", "batch")));
+        Assertions.assertEquals(1, report.count(JobBatchReport.Outcome.DELETED));
+        Assertions.assertEquals(1, report.count(JobBatchReport.Outcome.SKIPPED));
+    }
+
     private WaterJob mockJob(JobKey jobKey, boolean active, String cron) {
         WaterJob job = mock(WaterJob.class);
         JobDetail detail = JobBuilder.newJob(NoOpQuartzJob.class).withIdentity(jobKey).build();
@@ -299,7 +846,28 @@ class JobSchedulerSystemServiceImplTest {
         return job;
     }
 
+    private static JobDetail storedJobDetail(JobKey jobKey) {
+        return JobBuilder.newJob(NoOpQuartzJob.class).withIdentity(jobKey).usingJobData("version", "previous").build();
+    }
+
+    private static Trigger storedCronTrigger(JobKey jobKey, String cron) {
+        return TriggerBuilder.newTrigger()
+                .withIdentity(jobKey.getName(), jobKey.getGroup())
+                .withSchedule(CronScheduleBuilder.cronSchedule(cron).withMisfireHandlingInstructionDoNothing())
+                .usingJobData(JobSchedulerMisfireCatchUp.MISFIRE_POLICY_KEY, JobMisfirePolicy.FIRE_ONCE.name())
+                .forJob(jobKey)
+                .build();
+    }
+
     private static void setPrivateField(Object target, String fieldName, Object value) throws Exception {
+        findField(target, fieldName).set(target, value);
+    }
+
+    private static Object getPrivateField(Object target, String fieldName) throws Exception {
+        return findField(target, fieldName).get(target);
+    }
+
+    private static Field findField(Object target, String fieldName) throws NoSuchFieldException {
         Class<?> clazz = target.getClass();
         Field field = null;
         while (clazz != null && clazz != Object.class) {
@@ -314,7 +882,7 @@ class JobSchedulerSystemServiceImplTest {
             throw new NoSuchFieldException("Field " + fieldName + " not found in hierarchy of " + target.getClass().getName());
         }
         field.setAccessible(true);
-        field.set(target, value);
+        return field;
     }
 
     public static class NoOpQuartzJob implements Job {
@@ -0,0 +1,164 @@
+package it.water.connectors.jobscheduler.service.quartz;
+
+import it.water.connectors.jobscheduler.model.JobSchedulerConnectionPoolSnapshot;
+import it.water.connectors.jobscheduler.service.JobSchedulerRepositoryImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.quartz.*;
+import org.quartz.impl.StdSchedulerFactory;
+
+import java.sql.*;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+class PooledConnectionProviderTest {
+    private static CountDownLatch executions;
+
+    private PooledConnectionProvider pool;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        Properties props = new Properties();
+        props.setProperty("driver", "org.h2.Driver");
+        props.setProperty("URL", "jdbc:h2:mem:pool-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        props.setProperty("user", "sa");
+        props.setProperty("password", "");
+        props.setProperty("maxConnections", "2");
+        props.setProperty("maxWaitMillis", "100");
+        pool = PooledConnectionProvider.fromProperties(props);
+        pool.initialize();
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        pool.shutdown();
+    }
+
+    @Test
+    void connectionsShouldBeReusedAndBounded() throws SQLException {
+        Connection first = pool.getConnection();
+        Connection second = pool.getConnection();
+        Connection physical = first.unwrap(Connection.class);
+        Assertions.assertThrows(SQLException.class, () -> pool.getConnection());
+        Assertions.assertEquals(2, pool.snapshot().getActiveConnections());
+
+        first.close();
+        Assertions.assertTrue(first.isClosed());
+        Assertions.assertThrows(SQLException.class, first::createStatement);
+        try (Connection reused = pool.getConnection()) {
+            Assertions.assertSame(physical, reused.unwrap(Connection.class));
+        }
+        second.close();
+
+        JobSchedulerConnectionPoolSnapshot snapshot = pool.snapshot();
+        Assertions.assertEquals(0, snapshot.getActiveConnections());
+        Assertions.assertEquals(2, snapshot.getIdleConnections());
+        Assertions.assertEquals(3, snapshot.getCheckouts());
+        Assertions.assertEquals(1, snapshot.getCheckoutTimeouts());
+        Assertions.assertEquals(3, snapshot.getCheckoutWait().getCount());
+    }
+
+    @Test
+    void preparedStatementsShouldBeCachedAndReset() throws SQLException {
+        try (Connection connection = pool.getConnection()) {
+            connection.createStatement().execute("CREATE TABLE ITEMS (ID INT)");
+            connection.createStatement().execute("INSERT INTO ITEMS VALUES (1), (2), (3)");
+            try (PreparedStatement ps = connection.prepareStatement("SELECT ID FROM ITEMS WHERE ID >= ?")) {
+                ps.setMaxRows(1);
+                ps.setInt(1, 1);
+                Assertions.assertEquals(1, count(ps));
+            }
+        }
+        try (Connection connection = pool.getConnection();
+             PreparedStatement ps = connection.prepareStatement("SELECT ID FROM ITEMS WHERE ID >= ?")) {
+            Assertions.assertSame(connection, ps.getConnection());
+            Assertions.assertEquals(0, ps.getMaxRows());
+            ps.setInt(1, 2);
+            Assertions.assertEquals(2, count(ps));
+            // the same query opened twice on a connection is not shared
+            try (PreparedStatement nested = connection.prepareStatement("SELECT ID FROM ITEMS WHERE ID >= ?")) {
+                nested.setInt(1, 3);
+                Assertions.assertEquals(1, count(nested));
+            }
+        }
+        Assertions.assertEquals(1, pool.snapshot().getStatementCacheHits());
+        Assertions.assertEquals(2, pool.snapshot().getStatementCacheMisses());
+    }
+
+    @Test
+    void brokenConnectionsShouldBeReplacedAndUncommittedWorkRolledBack() throws SQLException {
+        pool.setValidateOnCheckout(true);
+        try (Connection connection = pool.getConnection()) {
+            connection.createStatement().execute("CREATE TABLE EVENTS (ID INT)");
+            connection.setAutoCommit(false);
+            connection.createStatement().execute("INSERT INTO EVENTS VALUES (1)");
+        }
+        Connection broken;
+        try (Connection connection = pool.getConnection()) {
+            Assertions.assertTrue(connection.getAutoCommit());
+            try (ResultSet rs = connection.createStatement().executeQuery("SELECT COUNT(*) FROM EVENTS")) {
+                Assertions.assertTrue(rs.next());
+                Assertions.assertEquals(0, rs.getInt(1));
+            }
+            broken = connection.unwrap(Connection.class);
+        }
+        broken.close();
+
+        try (Connection connection = pool.getConnection()) {
+            Assertions.assertNotSame(broken, connection.unwrap(Connection.class));
+            Assertions.assertFalse(connection.isClosed());
+        }
+        Assertions.assertEquals(1, pool.snapshot().getValidationFailures());
+    }
+
+    @Test
+    void jdbcJobStoreShouldRunOnThePool() throws Exception {
+        String instanceName = "pooled-" + UUID.randomUUID();
+        Properties props = new Properties();
+        props.setProperty("org.quartz.scheduler.instanceName", instanceName);
+        props.setProperty("org.quartz.scheduler.skipUpdateCheck", "true");
+        props.setProperty("org.quartz.threadPool.threadCount", "2");
+        props.setProperty("org.quartz.jobStore.class", "org.quartz.impl.jdbcjobstore.JobStoreTX");
+        props.setProperty("org.quartz.jobStore.driverDelegateClass", "org.quartz.impl.jdbcjobstore.PostgreSQLDelegate");
+        props.setProperty("org.quartz.jobStore.dataSource", "water");
+        props.setProperty("org.quartz.dataSource.water.driver", "org.h2.Driver");
+        props.setProperty("org.quartz.dataSource.water.URL", "jdbc:h2:mem:" + instanceName + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1");
+        props.setProperty("org.quartz.dataSource.water.user", "sa");
+        props.setProperty("org.quartz.dataSource.water.password", "");
+        new JobSchedulerRepositoryImpl().createQuartzTableIfNotExists(null, props);
+        props.setProperty("org.quartz.dataSource.water.connectionProvider.class", PooledConnectionProvider.class.getName());
+        props.setProperty("org.quartz.dataSource.water.maxConnections", "4");
+        props.setProperty("org.quartz.dataSource.water.validationQuery", "SELECT 1");
+        Scheduler scheduler = new StdSchedulerFactory(props).getScheduler();
+        executions = new CountDownLatch(3);
+        try {
+            scheduler.start();
+            for (int i = 0; i < 3; i++)
+                scheduler.scheduleJob(JobBuilder.newJob(CountingJob.class).withIdentity("job" + i, "pooled").build(),
+                        TriggerBuilder.newTrigger().withIdentity("job" + i, "pooled").startNow().build());
+            Assertions.assertTrue(executions.await(10, TimeUnit.SECONDS));
+        } finally {
+            scheduler.shutdown(true);
+        }
+    }
+
+    private static int count(PreparedStatement ps) throws SQLException {
+        int rows = 0;
+        try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next())
+                rows++;
+        }
+        return rows;
+    }
+
+    public static class CountingJob implements Job {
+        @Override
+        public void execute(JobExecutionContext context) {
+            executions.countDown();
+        }
+    }
+}
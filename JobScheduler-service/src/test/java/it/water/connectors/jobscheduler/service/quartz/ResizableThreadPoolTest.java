@@ -0,0 +1,139 @@
+package it.water.connectors.jobscheduler.service.quartz;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.quartz.*;
+import org.quartz.impl.StdSchedulerFactory;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+class ResizableThreadPoolTest {
+    private static CountDownLatch executions;
+
+    @Test
+    void resizeShouldChangeTheNumberOfRunningJobs() throws Exception {
+        ResizableThreadPool pool = new ResizableThreadPool();
+        pool.setThreadCount(1);
+        pool.setInstanceName("resizable-" + UUID.randomUUID());
+        pool.initialize();
+        Semaphore release = new Semaphore(0);
+        AtomicInteger started = new AtomicInteger();
+        Runnable blockingJob = () -> {
+            started.incrementAndGet();
+            release.acquireUninterruptibly();
+        };
+        try {
+            Assertions.assertTrue(pool.runInThread(blockingJob));
+            waitFor(() -> started.get() == 1);
+            Assertions.assertEquals(0, pool.getPoolSize() - pool.getBusyCount());
+
+            pool.resize(3);
+            Assertions.assertEquals(2, pool.blockForAvailableThreads());
+            Assertions.assertTrue(pool.runInThread(blockingJob));
+            Assertions.assertTrue(pool.runInThread(blockingJob));
+            waitFor(() -> started.get() == 3);
+            Assertions.assertEquals(3, pool.getAndResetPeakBusyCount());
+
+            // running jobs complete, new jobs wait until the busy workers fit the new size
+            pool.resize(1);
+            Thread scheduler = new Thread(() -> pool.runInThread(blockingJob));
+            scheduler.start();
+            release.release(2);
+            waitFor(() -> pool.getBusyCount() == 1);
+            // alive only tells it started, it must be blocked waiting for a worker to record the saturation
+            waitFor(() -> scheduler.getState() == Thread.State.WAITING);
+            release.release();
+            scheduler.join(5000);
+            Assertions.assertFalse(scheduler.isAlive());
+            waitFor(() -> started.get() == 4);
+            Assertions.assertTrue(pool.getSaturationWaitNanos() > 0);
+        } finally {
+            // unblocks whatever is still running, a failed assertion must not hang the shutdown
+            release.release(4);
+            pool.shutdown(true);
+        }
+        Assertions.assertEquals(0, pool.getBusyCount());
+        Assertions.assertFalse(pool.runInThread(blockingJob));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> pool.resize(0));
+    }
+
+    @Test
+    void workersShouldInheritFromTheInitializingThread() throws Exception {
+        ResizableThreadPool pool = new ResizableThreadPool();
+        pool.setInstanceName("resizable-" + UUID.randomUUID());
+        pool.setThreadsInheritContextClassLoaderOfInitializingThread(true);
+        pool.setThreadsInheritGroupOfInitializingThread(false);
+        ClassLoader loader = new URLClassLoader(new URL[0]);
+        ClassLoader previousLoader = Thread.currentThread().getContextClassLoader();
+        Thread.currentThread().setContextClassLoader(loader);
+        try {
+            pool.initialize();
+        } finally {
+            Thread.currentThread().setContextClassLoader(previousLoader);
+        }
+        AtomicReference<Thread> worker = new AtomicReference<>();
+        CountDownLatch ran = new CountDownLatch(1);
+        try {
+            Assertions.assertTrue(pool.runInThread(() -> {
+                worker.set(Thread.currentThread());
+                ran.countDown();
+            }));
+            Assertions.assertTrue(ran.await(5, TimeUnit.SECONDS));
+            Assertions.assertSame(loader, worker.get().getContextClassLoader());
+            Assertions.assertNotSame(Thread.currentThread().getThreadGroup(), worker.get().getThreadGroup());
+        } finally {
+            pool.shutdown(true);
+        }
+    }
+
+    @Test
+    void schedulerShouldRunOnTheResizablePool() throws Exception {
+        String instanceName = "resizable-" + UUID.randomUUID();
+        Properties props = new Properties();
+        props.setProperty("org.quartz.scheduler.instanceName", instanceName);
+        props.setProperty("org.quartz.scheduler.skipUpdateCheck", "true");
+        props.setProperty("org.quartz.threadPool.class", ResizableThreadPool.class.getName());
+        props.setProperty("org.quartz.threadPool.threadCount", "2");
+        props.setProperty("org.quartz.jobStore.class", "org.quartz.simpl.RAMJobStore");
+        Scheduler scheduler = new StdSchedulerFactory(props).getScheduler();
+        ResizableThreadPool pool = ResizableThreadPool.forScheduler(instanceName);
+        Assertions.assertNotNull(pool);
+        executions = new CountDownLatch(3);
+        try {
+            scheduler.start();
+            pool.resize(4);
+            Assertions.assertEquals(4, scheduler.getMetaData().getThreadPoolSize());
+            for (int i = 0; i < 3; i++)
+                scheduler.scheduleJob(JobBuilder.newJob(CountingJob.class).withIdentity("job" + i, "resizable").build(),
+                        TriggerBuilder.newTrigger().withIdentity("job" + i, "resizable").startNow().build());
+            Assertions.assertTrue(executions.await(10, TimeUnit.SECONDS));
+        } finally {
+            scheduler.shutdown(true);
+        }
+        Assertions.assertNull(ResizableThreadPool.forScheduler(instanceName));
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            Assertions.assertTrue(System.currentTimeMillis() < deadline, "condition not met in time");
+            Thread.sleep(10);
+        }
+    }
+
+    public static class CountingJob implements Job {
+        @Override
+        public void execute(JobExecutionContext context) {
+            executions.countDown();
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package it.water.connectors.jobscheduler.service.quartz;
+
+import it.water.connectors.jobscheduler.service.JobSchedulerRepositoryImpl;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.quartz.*;
+import org.quartz.impl.StdSchedulerFactory;
+import org.quartz.simpl.CascadingClassLoadHelper;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+class SkipLockedJobStoreTXTest {
+    private static final Map<String, Integer> executions = new ConcurrentHashMap<>();
+
+    @Test
+    void concurrentAcquisitionsShouldSelectDisjointBatches() throws Exception {
+        String instanceName = "skipLocked-" + UUID.randomUUID();
+        Properties props = clusteredProperties(instanceName, "node1");
+        new JobSchedulerRepositoryImpl().createQuartzTableIfNotExists(null, props);
+        Scheduler scheduler = new StdSchedulerFactory(props).getScheduler();
+        long now = System.currentTimeMillis();
+        try {
+            for (int i = 0; i < 4; i++)
+                scheduler.scheduleJob(JobBuilder.newJob(CountingJob.class).withIdentity("job" + i, "skipLocked").build(),
+                        TriggerBuilder.newTrigger().withIdentity("job" + i, "skipLocked").startAt(new Date(now + 60_000 + i)).build());
+        } finally {
+            scheduler.shutdown();
+        }
+        SkipLockedPostgreSQLDelegate delegate = new SkipLockedPostgreSQLDelegate();
+        delegate.initialize(LoggerFactory.getLogger(SkipLockedJobStoreTXTest.class), "QRTZ_", instanceName, "node1",
+                new CascadingClassLoadHelper(), false, null);
+        String url = props.getProperty("org.quartz.dataSource.water.URL");
+        try (Connection first = DriverManager.getConnection(url, "sa", "");
+             Connection second = DriverManager.getConnection(url, "sa", "")) {
+            first.setAutoCommit(false);
+            second.setAutoCommit(false);
+
+            List<TriggerKey> firstBatch = delegate.selectTriggerToAcquire(first, now + 120_000, 0, 2);
+            List<TriggerKey> secondBatch = delegate.selectTriggerToAcquire(second, now + 120_000, 0, 2);
+
+            Assertions.assertEquals(List.of(new TriggerKey("job0", "skipLocked"), new TriggerKey("job1", "skipLocked")), firstBatch);
+            Assertions.assertTrue(Collections.disjoint(firstBatch, secondBatch), "rows locked by another transaction must be skipped");
+            first.rollback();
+            second.rollback();
+            Assertions.assertEquals(firstBatch, delegate.selectTriggerToAcquire(second, now + 120_000, 0, 2));
+            second.rollback();
+        }
+    }
+
+    @Test
+    void clusteredNodesShouldFireEveryTriggerOnce() throws Exception {
+        String instanceName = "skipLockedCluster-" + UUID.randomUUID();
+        Properties firstNode = clusteredProperties(instanceName, "node1");
+        new JobSchedulerRepositoryImpl().createQuartzTableIfNotExists(null, firstNode);
+        Scheduler first = new StdSchedulerFactory(firstNode).getScheduler();
+        Scheduler second = new StdSchedulerFactory(clusteredProperties(instanceName, "node2")).getScheduler();
+        executions.clear();
+        int jobs = 20;
+        try {
+            for (int i = 0; i < jobs; i++)
+                first.scheduleJob(JobBuilder.newJob(CountingJob.class).withIdentity("job" + i, "cluster").build(),
+                        TriggerBuilder.newTrigger().withIdentity("job" + i, "cluster").startAt(new Date(System.currentTimeMillis() + 500)).build());
+            first.start();
+            second.start();
+
+            long deadline = System.currentTimeMillis() + 20_000;
+            while (executions.size() < jobs && System.currentTimeMillis() < deadline)
+                Thread.sleep(20);
+            Thread.sleep(200);
+            Assertions.assertEquals(jobs, executions.size());
+            Assertions.assertTrue(executions.values().stream().allMatch(count -> count == 1), "every trigger must fire on a single node");
+        } finally {
+            second.shutdown(true);
+            first.shutdown(true);
+        }
+    }
+
+    private static Properties clusteredProperties(String instanceName, String instanceId) {
+        Properties props = new Properties();
+        props.setProperty("org.quartz.scheduler.instanceName", instanceName);
+        props.setProperty("org.quartz.scheduler.instanceId", instanceId);
+        props.setProperty("org.quartz.scheduler.skipUpdateCheck", "true");
+        props.setProperty("org.quartz.scheduler.batchTriggerAcquisitionMaxCount", "5");
+        props.setProperty("org.quartz.threadPool.threadCount", "3");
+        props.setProperty("org.quartz.jobStore.class", SkipLockedJobStoreTX.class.getName());
+        props.setProperty("org.quartz.jobStore.driverDelegateClass", SkipLockedPostgreSQLDelegate.class.getName());
+        props.setProperty("org.quartz.jobStore.isClustered", "true");
+        props.setProperty("org.quartz.jobStore.dataSource", "water");
+        props.setProperty("org.quartz.dataSource.water.driver", "org.h2.Driver");
+        props.setProperty("org.quartz.dataSource.water.URL", "jdbc:h2:mem:" + instanceName + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1");
+        props.setProperty("org.quartz.dataSource.water.user", "sa");
+        props.setProperty("org.quartz.dataSource.water.password", "");
+        return props;
+    }
+
+    public static class CountingJob implements Job {
+        @Override
+        public void execute(JobExecutionContext context) {
+            executions.merge(context.getJobDetail().getKey().getName(), 1, Integer::sum);
+        }
+    }
+}
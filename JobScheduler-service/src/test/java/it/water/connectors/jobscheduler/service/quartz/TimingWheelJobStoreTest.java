@@ -0,0 +1,158 @@
+package it.water.connectors.jobscheduler.service.quartz;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.quartz.*;
+import org.quartz.impl.StdSchedulerFactory;
+import org.quartz.impl.matchers.GroupMatcher;
+import org.quartz.spi.OperableTrigger;
+import org.quartz.spi.SchedulerSignaler;
+import org.quartz.spi.TriggerFiredResult;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class TimingWheelJobStoreTest {
+    private static CountDownLatch executions;
+
+    private TimingWheelJobStore store;
+    private SchedulerSignaler signaler;
+
+    @BeforeEach
+    void setUp() {
+        store = new TimingWheelJobStore();
+        store.setTickMillis(5);
+        store.setLockStripes(16);
+        signaler = mock(SchedulerSignaler.class);
+        store.initialize(null, signaler);
+    }
+
+    @Test
+    void triggersShouldBeAcquiredInFireTimeOrder() throws Exception {
+        long now = System.currentTimeMillis();
+        store.storeJob(job("first", false), false);
+        store.storeJob(job("second", false), false);
+        store.storeTrigger(trigger("second", now + 200, 5), false);
+        store.storeTrigger(trigger("first", now + 100, 5), false);
+
+        List<OperableTrigger> acquired = store.acquireNextTriggers(now + 1000, 10, 1000);
+
+        Assertions.assertEquals(2, acquired.size());
+        Assertions.assertEquals("first", acquired.get(0).getKey().getName());
+        Assertions.assertEquals("second", acquired.get(1).getKey().getName());
+        Assertions.assertTrue(store.acquireNextTriggers(now + 1000, 10, 1000).isEmpty());
+        store.releaseAcquiredTrigger(acquired.get(1));
+        Assertions.assertEquals(1, store.acquireNextTriggers(now + 1000, 10, 1000).size());
+    }
+
+    @Test
+    void pausedTriggersShouldNotBeAcquiredUntilResumed() throws Exception {
+        long now = System.currentTimeMillis();
+        store.storeJob(job("paused", false), false);
+        store.storeTrigger(trigger("paused", now + 100, 5), false);
+
+        store.pauseTriggers(GroupMatcher.triggerGroupEquals("test"));
+        Assertions.assertEquals(Trigger.TriggerState.PAUSED, store.getTriggerState(new TriggerKey("paused", "test")));
+        Assertions.assertTrue(store.acquireNextTriggers(now + 1000, 10, 0).isEmpty());
+        Assertions.assertEquals(Collections.singleton("test"), store.getPausedTriggerGroups());
+
+        store.resumeAll();
+        Assertions.assertEquals(Trigger.TriggerState.NORMAL, store.getTriggerState(new TriggerKey("paused", "test")));
+        Assertions.assertEquals(1, store.acquireNextTriggers(now + 1000, 10, 0).size());
+    }
+
+    @Test
+    void jobsDisallowingConcurrentExecutionShouldBlockTheirTriggers() throws Exception {
+        long now = System.currentTimeMillis();
+        JobDetail jobDetail = job("serial", true);
+        store.storeJob(jobDetail, false);
+        OperableTrigger first = trigger("serial", now + 100, 5);
+        OperableTrigger second = (OperableTrigger) TriggerBuilder.newTrigger().withIdentity("serial-2", "test")
+                .forJob(jobDetail.getKey()).startAt(new Date(now + 150)).build();
+        second.computeFirstFireTime(null);
+        store.storeTrigger(first, false);
+        store.storeTrigger(second, false);
+
+        List<OperableTrigger> acquired = store.acquireNextTriggers(now + 1000, 10, 1000);
+        Assertions.assertEquals(1, acquired.size(), "only one trigger of the job can be acquired in the same batch");
+        List<TriggerFiredResult> fired = store.triggersFired(acquired);
+        Assertions.assertEquals(1, fired.size());
+        Assertions.assertEquals(Trigger.TriggerState.BLOCKED, store.getTriggerState(second.getKey()));
+        Assertions.assertTrue(store.acquireNextTriggers(now + 1000, 10, 1000).isEmpty());
+
+        store.triggeredJobComplete(fired.get(0).getTriggerFiredBundle().getTrigger(), jobDetail, Trigger.CompletedExecutionInstruction.NOOP);
+        Assertions.assertEquals(Trigger.TriggerState.NORMAL, store.getTriggerState(second.getKey()));
+        Assertions.assertEquals(1, store.acquireNextTriggers(now + 1000, 10, 1000).size());
+    }
+
+    @Test
+    void removingTheLastTriggerShouldRemoveNonDurableJobs() throws Exception {
+        long now = System.currentTimeMillis();
+        store.storeJob(job("orphan", false), false);
+        store.storeTrigger(trigger("orphan", now + 100, 5), false);
+        Assertions.assertThrows(ObjectAlreadyExistsException.class, () -> store.storeTrigger(trigger("orphan", now + 200, 5), false));
+
+        Assertions.assertTrue(store.removeTrigger(new TriggerKey("orphan", "test")));
+
+        Assertions.assertFalse(store.checkExists(new JobKey("orphan", "test")));
+        Assertions.assertEquals(0, store.getNumberOfTriggers());
+        Assertions.assertEquals(0, store.getScheduledTriggerCount());
+        Assertions.assertTrue(store.getJobGroupNames().isEmpty());
+        verify(signaler).notifySchedulerListenersJobDeleted(new JobKey("orphan", "test"));
+    }
+
+    @Test
+    void schedulerShouldFireJobsThroughTheStore() throws Exception {
+        Properties props = new Properties();
+        props.setProperty("org.quartz.scheduler.instanceName", "TimingWheelJobStoreTest");
+        props.setProperty("org.quartz.threadPool.threadCount", "2");
+        props.setProperty("org.quartz.jobStore.class", TimingWheelJobStore.class.getName());
+        props.setProperty("org.quartz.jobStore.tickMillis", "5");
+        Scheduler scheduler = new StdSchedulerFactory(props).getScheduler();
+        executions = new CountDownLatch(5);
+        try {
+            scheduler.start();
+            scheduler.scheduleJob(JobBuilder.newJob(CountingJob.class).withIdentity("counting", "test").build(),
+                    TriggerBuilder.newTrigger().withIdentity("counting", "test").startNow()
+                            .withSchedule(SimpleScheduleBuilder.simpleSchedule().withIntervalInMilliseconds(50).withRepeatCount(4))
+                            .build());
+            Assertions.assertTrue(executions.await(10, TimeUnit.SECONDS));
+        } finally {
+            scheduler.shutdown(true);
+        }
+    }
+
+    private static JobDetail job(String name, boolean serial) {
+        return JobBuilder.newJob(serial ? SerialJob.class : CountingJob.class).withIdentity(name, "test").build();
+    }
+
+    private static OperableTrigger trigger(String name, long fireTime, int priority) {
+        OperableTrigger trigger = (OperableTrigger) TriggerBuilder.newTrigger().withIdentity(name, "test")
+                .forJob(name, "test").withPriority(priority).startAt(new Date(fireTime)).build();
+        trigger.computeFirstFireTime(null);
+        return trigger;
+    }
+
+    public static class CountingJob implements Job {
+        @Override
+        public void execute(JobExecutionContext context) {
+            executions.countDown();
+        }
+    }
+
+    @DisallowConcurrentExecution
+    public static class SerialJob implements Job {
+        @Override
+        public void execute(JobExecutionContext context) {
+            // nothing to do
+        }
+    }
+}
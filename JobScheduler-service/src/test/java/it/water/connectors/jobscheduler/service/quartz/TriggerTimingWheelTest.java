@@ -0,0 +1,65 @@
+package it.water.connectors.jobscheduler.service.quartz;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.quartz.TriggerKey;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+class TriggerTimingWheelTest {
+
+    @Test
+    void triggersShouldBePolledInFireTimeOrderAcrossAllLevels() {
+        long start = 1_700_000_000_000L;
+        TriggerTimingWheel wheel = new TriggerTimingWheel(10, start);
+        Random random = new Random(42);
+        List<TriggerTimingWheel.Node> nodes = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            TriggerTimingWheel.Node node = new TriggerTimingWheel.Node(new TriggerKey("t" + i, "g"));
+            //from the past up to 20 days ahead, beyond the last wheel level
+            long time = start - 1000 + (long) (random.nextDouble() * 20L * 24 * 3600 * 1000);
+            wheel.schedule(node, time, random.nextInt(10));
+            nodes.add(node);
+        }
+        for (int i = 0; i < nodes.size(); i += 10)
+            Assertions.assertTrue(wheel.cancel(nodes.get(i)));
+        Assertions.assertEquals(4500, wheel.size());
+
+        int polled = 0;
+        long previous = Long.MIN_VALUE;
+        for (long limit = start; limit <= start + 21L * 24 * 3600 * 1000; limit += 60_000) {
+            TriggerTimingWheel.Node node;
+            while ((node = wheel.pollFirst(limit)) != null) {
+                int index = nodes.indexOf(node);
+                Assertions.assertNotEquals(0, index % 10, "cancelled triggers must not be polled");
+                Assertions.assertFalse(wheel.isScheduled(node));
+                polled++;
+            }
+            TriggerTimingWheel.Node probe = new TriggerTimingWheel.Node(new TriggerKey("probe", "g"));
+            wheel.schedule(probe, limit + 1, 0);
+            Assertions.assertNull(wheel.pollFirst(limit), "nothing later than the limit must be polled");
+            wheel.cancel(probe);
+            Assertions.assertTrue(limit >= previous);
+            previous = limit;
+        }
+        Assertions.assertEquals(4500, polled);
+        Assertions.assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void dueTriggersShouldBeOrderedByTimeThenPriority() {
+        TriggerTimingWheel wheel = new TriggerTimingWheel(10, 0);
+        TriggerTimingWheel.Node low = new TriggerTimingWheel.Node(new TriggerKey("low", "g"));
+        TriggerTimingWheel.Node high = new TriggerTimingWheel.Node(new TriggerKey("high", "g"));
+        TriggerTimingWheel.Node later = new TriggerTimingWheel.Node(new TriggerKey("later", "g"));
+        wheel.schedule(later, 5_000, 10);
+        wheel.schedule(low, 3_000, 1);
+        wheel.schedule(high, 3_000, 9);
+        Assertions.assertSame(high, wheel.pollFirst(10_000));
+        Assertions.assertSame(low, wheel.pollFirst(10_000));
+        Assertions.assertSame(later, wheel.pollFirst(10_000));
+        Assertions.assertNull(wheel.pollFirst(10_000));
+    }
+}
@@ -0,0 +1,94 @@
+package it.water.connectors.jobscheduler.service.quartz;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.quartz.*;
+import org.quartz.impl.StdSchedulerFactory;
+
+import java.util.Properties;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class VirtualThreadPoolTest {
+
+    @Test
+    void concurrencyShouldBeBoundedByMaxConcurrency() throws Exception {
+        VirtualThreadPool pool = new VirtualThreadPool();
+        pool.setMaxConcurrency(2);
+        pool.initialize();
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(2);
+        AtomicInteger completed = new AtomicInteger();
+        Runnable blockingJob = () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            completed.incrementAndGet();
+        };
+
+        Assertions.assertTrue(pool.runInThread(blockingJob));
+        Assertions.assertTrue(pool.runInThread(blockingJob));
+        Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(2, pool.getBusyCount());
+        Assertions.assertEquals(2, pool.getPoolSize());
+
+        release.countDown();
+        Assertions.assertTrue(pool.blockForAvailableThreads() > 0);
+        pool.shutdown(true);
+        Assertions.assertEquals(2, completed.get());
+        Assertions.assertEquals(0, pool.getBusyCount());
+    }
+
+    @Test
+    void shutdownPoolShouldRejectJobs() throws Exception {
+        VirtualThreadPool pool = new VirtualThreadPool();
+        pool.setThreadCount(10);
+        pool.setThreadPriority(5);
+        pool.initialize();
+        pool.shutdown(false);
+        Assertions.assertFalse(pool.runInThread(() -> {
+        }));
+    }
+
+    @Test
+    void poolShouldBeSelectableThroughQuartzProperties() throws Exception {
+        Properties props = new Properties();
+        props.setProperty("org.quartz.scheduler.instanceName", "VirtualThreadPoolTest");
+        props.setProperty("org.quartz.threadPool.class", VirtualThreadPool.class.getName());
+        props.setProperty("org.quartz.threadPool.threadCount", "10");
+        props.setProperty("org.quartz.threadPool.threadPriority", "5");
+        props.setProperty("org.quartz.threadPool.maxConcurrency", "4");
+        props.setProperty("org.quartz.jobStore.class", "org.quartz.simpl.RAMJobStore");
+        Scheduler scheduler = new StdSchedulerFactory(props).getScheduler();
+        try {
+            scheduler.start();
+            LatchJob.executed = new CountDownLatch(1);
+            scheduler.scheduleJob(JobBuilder.newJob(LatchJob.class).withIdentity("vt").build(), TriggerBuilder.newTrigger().startNow().build());
+            Assertions.assertTrue(LatchJob.executed.await(5, TimeUnit.SECONDS));
+            Assertions.assertEquals(4, scheduler.getMetaData().getThreadPoolSize());
+        } finally {
+            scheduler.shutdown(true);
+        }
+    }
+
+    @Test
+    void invalidConcurrencyShouldBeRejected() {
+        VirtualThreadPool pool = new VirtualThreadPool();
+        pool.setMaxConcurrency(0);
+        Assertions.assertThrows(SchedulerConfigException.class, pool::initialize);
+    }
+
+    public static class LatchJob implements Job {
+        static CountDownLatch executed;
+
+        @Override
+        public void execute(JobExecutionContext context) {
+            executed.countDown();
+        }
+    }
+}